@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Bulk {@link Arr} operations on large float arrays. {@code sumSingleAccumulator}
+ * is the plain loop that the unrolled reductions replaced, kept as a reference.
+ *
+ * @author Philip DeCamp
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ArrBench {
+
+    @Param( { "4096", "4194304" } )
+    public int mCount;
+
+    private float[] mA;
+    private float[] mB;
+    private float[] mOut;
+
+
+    @Setup
+    public void setup() {
+        Random rand = new Random( 0 );
+        mA   = new float[mCount];
+        mB   = new float[mCount];
+        mOut = new float[mCount];
+        for( int i = 0; i < mCount; i++ ) {
+            mA[i] = rand.nextFloat();
+            mB[i] = rand.nextFloat();
+        }
+    }
+
+
+    @Benchmark
+    public float sumSingleAccumulator() {
+        final float[] a = mA;
+        float ret = 0f;
+        for( int i = 0; i < a.length; i++ ) {
+            ret += a[i];
+        }
+        return ret;
+    }
+
+
+    @Benchmark
+    public float sum() {
+        return Arr.sum( mA );
+    }
+
+
+    @Benchmark
+    public float dot() {
+        return Arr.dot( mA, mB );
+    }
+
+
+    @Benchmark
+    public float variance() {
+        return Arr.variance( mA );
+    }
+
+
+    @Benchmark
+    public float min() {
+        return Arr.min( mA );
+    }
+
+
+    @Benchmark
+    public float[] multAdd() {
+        Arr.multAdd( 0.5f, mA, 2f, mB, mOut );
+        return mOut;
+    }
+
+}
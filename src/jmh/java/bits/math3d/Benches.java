@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+
+
+/**
+ * Random operands shared by the benchmarks. Matrices are rigid transforms
+ * so that inversion and perspective division stay well conditioned.
+ *
+ * @author Philip DeCamp
+ */
+final class Benches {
+
+    static Vec3 randVec3( Random rand ) {
+        return new Vec3( rand.nextFloat() * 20f - 10f,
+                         rand.nextFloat() * 20f - 10f,
+                         rand.nextFloat() * 20f - 10f );
+    }
+
+
+    static Vec4 randQuat( Random rand ) {
+        Vec4 ret = new Vec4();
+        Quat.sampleUniform( rand, ret );
+        return ret;
+    }
+
+
+    static Mat4 randMat4( Random rand ) {
+        Mat4 ret = new Mat4();
+        Mat.getRotation( rand.nextFloat() * 6f, rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f, ret );
+        Mat.preTranslate( rand.nextFloat() * 20f - 10f, rand.nextFloat() * 20f - 10f, rand.nextFloat() * 20f - 10f, ret, ret );
+        return ret;
+    }
+
+
+    static Trans3 randTrans3( Random rand ) {
+        Trans3 ret = new Trans3();
+        Trans.matToTrans( randMat4( rand ), ret );
+        return ret;
+    }
+
+
+    static double[] toArray( Vec3 v ) {
+        return new double[]{ v.x, v.y, v.z };
+    }
+
+
+    static double[] toArray( Vec4 v ) {
+        return new double[]{ v.x, v.y, v.z, v.w };
+    }
+
+
+    static double[] toArray( Mat4 m ) {
+        return new double[]{ m.m00, m.m10, m.m20, m.m30,
+                             m.m01, m.m11, m.m21, m.m31,
+                             m.m02, m.m12, m.m22, m.m32,
+                             m.m03, m.m13, m.m23, m.m33 };
+    }
+
+
+    private Benches() {}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Filling a direct vertex buffer with transformed points, one {@link Vec3} at a time
+ * through {@link Vec#put(Vec3, FloatBuffer)} vs in place through {@link Vec3Buffer}.
+ *
+ * @author Philip DeCamp
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class BufferBench {
+
+    @Param( { "1024", "1048576" } )
+    public int mCount;
+
+    private Mat4 mMat;
+    private Vec3[] mVecs;
+    private float[] mPacked;
+    private FloatBuffer mBuf;
+    private Vec3Buffer mView;
+
+
+    @Setup
+    public void setup() {
+        Random rand = new Random( 0 );
+        mMat   = Benches.randMat4( rand );
+        mVecs  = new Vec3[mCount];
+        mPacked = new float[mCount * 3];
+        for( int i = 0; i < mCount; i++ ) {
+            mVecs[i] = Benches.randVec3( rand );
+            mPacked[i*3  ] = mVecs[i].x;
+            mPacked[i*3+1] = mVecs[i].y;
+            mPacked[i*3+2] = mVecs[i].z;
+        }
+        mBuf  = ByteBuffer.allocateDirect( mCount * 12 ).order( ByteOrder.nativeOrder() ).asFloatBuffer();
+        mView = new Vec3Buffer( mBuf, 0, 3, mCount );
+    }
+
+
+    @Benchmark
+    public FloatBuffer perVec() {
+        final FloatBuffer buf = mBuf;
+        final Vec3 v = new Vec3();
+        buf.clear();
+        for( int i = 0; i < mCount; i++ ) {
+            Mat.mult( mMat, mVecs[i], v );
+            Vec.put( v, buf );
+        }
+        return buf;
+    }
+
+
+    @Benchmark
+    public Vec3Buffer flyweightCopyAndTransform() {
+        mView.set( 0, mPacked, 0, mCount );
+        mView.mult( mMat );
+        return mView;
+    }
+
+
+    @Benchmark
+    public Vec3Buffer flyweightInPlace() {
+        mView.mult( mMat );
+        return mView;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Separable blur of a square float image, and the single passes it is made from.
+ * The vertical passes compare {@code convolve1} walking down columns against
+ * {@code convolveColumns1}, which walks memory in row order. Run with
+ * {@code -prof perfnorm} on Linux to see the difference in cache misses.
+ *
+ * @author Philip DeCamp
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ConvolutionBench {
+
+    @Param( { "2048" } )
+    public int mSize;
+
+    @Param( { "15", "129" } )
+    public int mKernelSize;
+
+    private float[] mSrc;
+    private float[] mWork;
+    private float[] mDst;
+    private float[] mKernel;
+    private ExecutorService mExec;
+
+
+    @Setup
+    public void setup() {
+        Random rand = new Random( 0 );
+        mSrc  = new float[mSize * mSize];
+        mWork = new float[mSize * mSize];
+        mDst  = new float[mSize * mSize];
+        for( int i = 0; i < mSrc.length; i++ ) {
+            mSrc[i] = rand.nextFloat();
+        }
+        mKernel = new float[mKernelSize];
+        Convolutions.gaussianKernel( mKernelSize / 6f, mKernel );
+        mExec = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() );
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        mExec.shutdown();
+    }
+
+
+    @Benchmark
+    public float[] separableSingleThread() {
+        Convolutions.convolveSeparable( mSrc, 0, mSize, mSize, 1, mSize, mKernel, mKernel,
+                                        Convolutions.BORDER_REPEAT, 0f, mWork, 0, mDst, 0, null );
+        return mDst;
+    }
+
+
+    @Benchmark
+    public float[] separableParallel() {
+        Convolutions.convolveSeparable( mSrc, 0, mSize, mSize, 1, mSize, mKernel, mKernel,
+                                        Convolutions.BORDER_REPEAT, 0f, mWork, 0, mDst, 0, mExec );
+        return mDst;
+    }
+
+
+    @Benchmark
+    public float[] horizontalPass() {
+        Convolutions.convolve1( mSrc, 0, mSize, mSize, 1, mSize, mKernel, Convolutions.BORDER_REPEAT, 0f, mDst, 0 );
+        return mDst;
+    }
+
+
+    @Benchmark
+    public float[] verticalPassStrided() {
+        Convolutions.convolve1( mSrc, 0, mSize, mSize, mSize, 1, mKernel, Convolutions.BORDER_REPEAT, 0f, mDst, 0 );
+        return mDst;
+    }
+
+
+    @Benchmark
+    public float[] verticalPassBlocked() {
+        Convolutions.convolveColumns1( mSrc, 0, mSize, mSize, 1, mSize, mKernel, Convolutions.BORDER_REPEAT, 0f, mDst, 0 );
+        return mDst;
+    }
+
+
+    @Benchmark
+    public float[] horizontalPassRecursive() {
+        Convolutions.gaussianRecursive1( mSrc, 0, mSize, mSize, 1, mSize, mKernelSize / 6f,
+                                         Convolutions.BORDER_REPEAT, 0f, mDst, 0 );
+        return mDst;
+    }
+
+
+    @Benchmark
+    public float[] horizontalPassBox3() {
+        Convolutions.gaussianBox1( mSrc, 0, mSize, mSize, 1, mSize, mKernelSize / 6f, 3,
+                                   Convolutions.BORDER_REPEAT, 0f, mDst, 0 );
+        return mDst;
+    }
+
+
+    @Benchmark
+    public float[] horizontalPassFft() {
+        Convolutions.convolveFft1( mSrc, 0, mSize, mSize, 1, mSize, mKernel, Convolutions.BORDER_REPEAT, 0f, mDst, 0 );
+        return mDst;
+    }
+
+
+    @Benchmark
+    public float[] horizontalPassDirect() {
+        Convolutions.convolveRepeat1( mSrc, 0, mSize, mSize, 1, mSize, mKernel, mDst, 0 );
+        return mDst;
+    }
+
+}
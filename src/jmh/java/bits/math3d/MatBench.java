@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Matrix multiplication and inversion, {@link Mat4} fields vs {@code double[16]} arrays.
+ * Each invocation processes {@code mCount} independent operands.
+ *
+ * @author Philip DeCamp
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class MatBench {
+
+    @Param( { "64", "16384" } )
+    public int mCount;
+
+    private Mat4[] mA;
+    private Mat4[] mB;
+    private Mat4[] mOut;
+
+    private double[][] mArrA;
+    private double[][] mArrB;
+    private double[][] mArrOut;
+
+
+    @Setup
+    public void setup() {
+        Random rand = new Random( 0 );
+        mA       = new Mat4[mCount];
+        mB       = new Mat4[mCount];
+        mOut     = new Mat4[mCount];
+        mArrA    = new double[mCount][];
+        mArrB    = new double[mCount][];
+        mArrOut  = new double[mCount][16];
+
+        for( int i = 0; i < mCount; i++ ) {
+            mA[i]    = Benches.randMat4( rand );
+            mB[i]    = Benches.randMat4( rand );
+            mOut[i]  = new Mat4();
+            mArrA[i] = Benches.toArray( mA[i] );
+            mArrB[i] = Benches.toArray( mB[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void multMat4() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Mat.mult( mA[i], mB[i], mOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void mult4Array() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Mat.mult4( mArrA[i], mArrB[i], mArrOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void invertMat4( Blackhole bh ) {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            bh.consume( Mat.invert( mA[i], mOut[i] ) );
+        }
+    }
+
+
+    @Benchmark
+    public void invert4Array( Blackhole bh ) {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            bh.consume( Mat.invert4( mArrA[i], mArrOut[i] ) );
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Quaternion slerp and vector rotation, {@link Vec4} fields vs {@code double[4]} arrays.
+ *
+ * @author Philip DeCamp
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class QuatBench {
+
+    @Param( { "64", "16384" } )
+    public int mCount;
+
+    private Vec4[]  mQa;
+    private Vec4[]  mQb;
+    private Vec4[]  mQOut;
+    private Vec3[]  mVecs;
+    private Vec3[]  mVecOut;
+    private float[] mT;
+
+    private double[][] mArrQa;
+    private double[][] mArrQb;
+    private double[][] mArrQOut;
+    private double[][] mArrVecs;
+    private double[][] mArrVecOut;
+
+
+    @Setup
+    public void setup() {
+        Random rand = new Random( 0 );
+        mQa     = new Vec4[mCount];
+        mQb     = new Vec4[mCount];
+        mQOut   = new Vec4[mCount];
+        mVecs   = new Vec3[mCount];
+        mVecOut = new Vec3[mCount];
+        mT      = new float[mCount];
+
+        mArrQa     = new double[mCount][];
+        mArrQb     = new double[mCount][];
+        mArrQOut   = new double[mCount][4];
+        mArrVecs   = new double[mCount][];
+        mArrVecOut = new double[mCount][3];
+
+        for( int i = 0; i < mCount; i++ ) {
+            mQa[i]      = Benches.randQuat( rand );
+            mQb[i]      = Benches.randQuat( rand );
+            mQOut[i]    = new Vec4();
+            mVecs[i]    = Benches.randVec3( rand );
+            mVecOut[i]  = new Vec3();
+            mT[i]       = rand.nextFloat();
+            mArrQa[i]   = Benches.toArray( mQa[i] );
+            mArrQb[i]   = Benches.toArray( mQb[i] );
+            mArrVecs[i] = Benches.toArray( mVecs[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void slerpVec4() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Quat.slerp( mQa[i], mQb[i], mT[i], mQOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void slerpArray() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Quat.slerp( mArrQa[i], mArrQb[i], mT[i], mArrQOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void multVecVec3() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Quat.multVec( mQa[i], mVecs[i], mVecOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void multVec3Array() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Quat.multVec3( mArrQa[i], mArrVecs[i], mArrVecOut[i] );
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Point transformation and composition with {@link Trans3}. There is no array form of
+ * {@link Trans}, so the array benchmark applies the equivalent {@code double[16]} matrix
+ * with {@link Mat#mult4Vec3}.
+ *
+ * @author Philip DeCamp
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class TransBench {
+
+    @Param( { "64", "16384" } )
+    public int mCount;
+
+    private Trans3[] mTrans;
+    private Trans3[] mTransB;
+    private Trans3[] mTransOut;
+    private Mat4[]   mMats;
+    private Vec3[]   mVecs;
+    private Vec3[]   mVecOut;
+
+    private double[][] mArrMats;
+    private double[][] mArrVecs;
+    private double[][] mArrVecOut;
+
+
+    @Setup
+    public void setup() {
+        Random rand = new Random( 0 );
+        mTrans     = new Trans3[mCount];
+        mTransB    = new Trans3[mCount];
+        mTransOut  = new Trans3[mCount];
+        mMats      = new Mat4[mCount];
+        mVecs      = new Vec3[mCount];
+        mVecOut    = new Vec3[mCount];
+        mArrMats   = new double[mCount][];
+        mArrVecs   = new double[mCount][];
+        mArrVecOut = new double[mCount][3];
+
+        for( int i = 0; i < mCount; i++ ) {
+            mTrans[i]    = Benches.randTrans3( rand );
+            mTransB[i]   = Benches.randTrans3( rand );
+            mTransOut[i] = new Trans3();
+            mMats[i]     = new Mat4();
+            Trans.transToMat( mTrans[i], mMats[i] );
+            mVecs[i]     = Benches.randVec3( rand );
+            mVecOut[i]   = new Vec3();
+            mArrMats[i]  = Benches.toArray( mMats[i] );
+            mArrVecs[i]  = Benches.toArray( mVecs[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void multTrans3Vec3() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Trans.mult( mTrans[i], mVecs[i], mVecOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void multTrans3Trans3() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Trans.mult( mTrans[i], mTransB[i], mTransOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void multMat4Vec3() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Mat.mult( mMats[i], mVecs[i], mVecOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void mult4Vec3Array() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Mat.mult4Vec3( mArrMats[i], mArrVecs[i], mArrVecOut[i] );
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Transforming a point cloud one {@link Vec3} at a time vs the bulk
+ * {@link Mat#transformPoints} entry points.
+ *
+ * @author Philip DeCamp
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class TransformPointsBench {
+
+    @Param( { "1024", "1048576" } )
+    public int mCount;
+
+    private Mat4 mMat;
+
+    private Vec3[]  mVecs;
+    private Vec3[]  mVecOut;
+    private float[] mXs;
+    private float[] mYs;
+    private float[] mZs;
+    private float[] mOutXs;
+    private float[] mOutYs;
+    private float[] mOutZs;
+    private float[] mInterleaved;
+    private float[] mInterleavedOut;
+
+
+    @Setup
+    public void setup() {
+        Random rand = new Random( 0 );
+        mMat = Benches.randMat4( rand );
+
+        mVecs           = new Vec3[mCount];
+        mVecOut         = new Vec3[mCount];
+        mXs             = new float[mCount];
+        mYs             = new float[mCount];
+        mZs             = new float[mCount];
+        mOutXs          = new float[mCount];
+        mOutYs          = new float[mCount];
+        mOutZs          = new float[mCount];
+        mInterleaved    = new float[mCount*3];
+        mInterleavedOut = new float[mCount*3];
+
+        for( int i = 0; i < mCount; i++ ) {
+            Vec3 v = Benches.randVec3( rand );
+            mVecs[i]   = v;
+            mVecOut[i] = new Vec3();
+            mXs[i] = mInterleaved[i*3  ] = v.x;
+            mYs[i] = mInterleaved[i*3+1] = v.y;
+            mZs[i] = mInterleaved[i*3+2] = v.z;
+        }
+    }
+
+
+    @Benchmark
+    public void perPoint() {
+        final Mat4 mat = mMat;
+        final int len  = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Mat.mult( mat, mVecs[i], mVecOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void separateArrays() {
+        Mat.transformPoints( mMat, mXs, mYs, mZs, 0, mCount, mOutXs, mOutYs, mOutZs, 0 );
+    }
+
+
+    @Benchmark
+    public void interleaved() {
+        Mat.transformPoints( mMat, mInterleaved, 0, 3, mCount, mInterleavedOut, 0, 3 );
+    }
+
+}
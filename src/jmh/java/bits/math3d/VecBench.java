@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Vector normalization, {@link Vec3} fields vs {@code double[3]} arrays.
+ *
+ * @author Philip DeCamp
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class VecBench {
+
+    @Param( { "64", "16384" } )
+    public int mCount;
+
+    private Vec3[]     mVecs;
+    private Vec3[]     mOut;
+    private double[][] mArrs;
+    private double[][] mArrOut;
+
+
+    @Setup
+    public void setup() {
+        Random rand = new Random( 0 );
+        mVecs   = new Vec3[mCount];
+        mOut    = new Vec3[mCount];
+        mArrs   = new double[mCount][];
+        mArrOut = new double[mCount][3];
+
+        for( int i = 0; i < mCount; i++ ) {
+            mVecs[i] = Benches.randVec3( rand );
+            mOut[i]  = new Vec3();
+            mArrs[i] = Benches.toArray( mVecs[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void normalizeVec3() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Vec.normalize( mVecs[i], 1f, mOut[i] );
+        }
+    }
+
+
+    @Benchmark
+    public void normalize3Array() {
+        final int len = mCount;
+        for( int i = 0; i < len; i++ ) {
+            Vec.normalize3( mArrs[i], 1.0, mArrOut[i] );
+        }
+    }
+
+}
@@ -200,20 +200,44 @@ public final class Arr {
     
     
     public static float dot( float[] a, int aOff, float[] b, int bOff, int len ) {
-        float sum = 0f;
-        for( int i = 0; i < len; i++ ) {
-            sum += a[aOff+i] * b[bOff+i];
+        // Reductions keep four independent partial sums. With a single accumulator, every add
+        // must wait on the previous one, which leaves most of the FPU idle on long arrays.
+        // Note that this changes the order of summation, and so the rounding, relative to a
+        // naive loop.
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        for( ; i < len - 3; i += 4 ) {
+            s0 += a[aOff+i  ] * b[bOff+i  ];
+            s1 += a[aOff+i+1] * b[bOff+i+1];
+            s2 += a[aOff+i+2] * b[bOff+i+2];
+            s3 += a[aOff+i+3] * b[bOff+i+3];
+        }
+        for( ; i < len; i++ ) {
+            s0 += a[aOff+i] * b[bOff+i];
         }
-        return sum;
+        return ( s0 + s1 ) + ( s2 + s3 );
     }
     
     
     public static double dot( double[] a, int aOff, double[] b, int bOff, int len ) {
-        double sum = 0f;
-        for( int i = 0; i < len; i++ ) {
-            sum += a[aOff+i] * b[bOff+i];
+        double s0 = 0.0;
+        double s1 = 0.0;
+        double s2 = 0.0;
+        double s3 = 0.0;
+        int i = 0;
+        for( ; i < len - 3; i += 4 ) {
+            s0 += a[aOff+i  ] * b[bOff+i  ];
+            s1 += a[aOff+i+1] * b[bOff+i+1];
+            s2 += a[aOff+i+2] * b[bOff+i+2];
+            s3 += a[aOff+i+3] * b[bOff+i+3];
+        }
+        for( ; i < len; i++ ) {
+            s0 += a[aOff+i] * b[bOff+i];
         }
-        return sum;
+        return ( s0 + s1 ) + ( s2 + s3 );
     }
 
     
@@ -322,22 +346,12 @@ public final class Arr {
 
     
     public static float lenSquared( float[] arr, int off, int len ) {
-        float sum = 0;
-        for( int i = off; i < off + len; i++ ) {
-            sum += arr[i] * arr[i];
-        }
-        
-        return sum;
+        return dot( arr, off, arr, off, len );
     }
 
     
     public static double lenSquared( double[] arr, int off, int len ) {
-        double sum = 0;
-        for( int i = off; i < off + len; i++ ) {
-            sum += arr[i] * arr[i];
-        }
-        
-        return sum;
+        return dot( arr, off, arr, off, len );
     }
     
     
@@ -406,22 +420,42 @@ public final class Arr {
     
     
     public static float sum( float[] arr, int off, int len ) {
-        float ret = 0.0f;
-        for( int i = off; i < off + len; i++ ) {
-            ret += arr[i];
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        final int end = off + len;
+        int i = off;
+        for( ; i < end - 3; i += 4 ) {
+            s0 += arr[i  ];
+            s1 += arr[i+1];
+            s2 += arr[i+2];
+            s3 += arr[i+3];
         }
-        return ret;
+        for( ; i < end; i++ ) {
+            s0 += arr[i];
+        }
+        return ( s0 + s1 ) + ( s2 + s3 );
     }
 
     
     public static double sum( double[] arr, int off, int len ) {
-        double ret = 0.0f;
-
-        for( int i = off; i < off + len; i++ ) {
-            ret += arr[i];
+        double s0 = 0.0;
+        double s1 = 0.0;
+        double s2 = 0.0;
+        double s3 = 0.0;
+        final int end = off + len;
+        int i = off;
+        for( ; i < end - 3; i += 4 ) {
+            s0 += arr[i  ];
+            s1 += arr[i+1];
+            s2 += arr[i+2];
+            s3 += arr[i+3];
         }
-        
-        return ret;
+        for( ; i < end; i++ ) {
+            s0 += arr[i];
+        }
+        return ( s0 + s1 ) + ( s2 + s3 );
     }
 
     
@@ -436,24 +470,12 @@ public final class Arr {
 
     
     public static float mean( float[] arr, int off, int len ) {
-        float sum = 0.0f;
-
-        for( int i = off; i < off + len; i++ ) {
-            sum += arr[i];
-        }
-
-        return sum / len;
+        return sum( arr, off, len ) / len;
     }
 
     
     public static double mean( double[] arr, int off, int len ) {
-        double sum = 0.0f;
-
-        for( int i = off; i < off + len; i++ ) {
-            sum += arr[i];
-        }
-
-        return sum / len;
+        return sum( arr, off, len ) / len;
     }
 
 
@@ -478,26 +500,52 @@ public final class Arr {
 
     
     public static float variance( float[] arr, int off, int len, float mean ) {
-        float sum = 0.0f;
-
-        for( int i = off; i < off + len; i++ ) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        final int end = off + len;
+        int i = off;
+        for( ; i < end - 3; i += 4 ) {
+            float v0 = arr[i  ] - mean;
+            float v1 = arr[i+1] - mean;
+            float v2 = arr[i+2] - mean;
+            float v3 = arr[i+3] - mean;
+            s0 += v0 * v0;
+            s1 += v1 * v1;
+            s2 += v2 * v2;
+            s3 += v3 * v3;
+        }
+        for( ; i < end; i++ ) {
             float v = arr[i] - mean;
-            sum += v * v;
+            s0 += v * v;
         }
-
-        return sum / len;
+        return ( ( s0 + s1 ) + ( s2 + s3 ) ) / len;
     }
 
 
     public static double variance( double[] arr, int off, int len, double mean ) {
-        double sum = 0.0f;
-
-        for( int i = off; i < off + len; i++ ) {
+        double s0 = 0.0;
+        double s1 = 0.0;
+        double s2 = 0.0;
+        double s3 = 0.0;
+        final int end = off + len;
+        int i = off;
+        for( ; i < end - 3; i += 4 ) {
+            double v0 = arr[i  ] - mean;
+            double v1 = arr[i+1] - mean;
+            double v2 = arr[i+2] - mean;
+            double v3 = arr[i+3] - mean;
+            s0 += v0 * v0;
+            s1 += v1 * v1;
+            s2 += v2 * v2;
+            s3 += v3 * v3;
+        }
+        for( ; i < end; i++ ) {
             double v = arr[i] - mean;
-            sum += v * v;
+            s0 += v * v;
         }
-
-        return sum / len;
+        return ( ( s0 + s1 ) + ( s2 + s3 ) ) / len;
     }
     
     
@@ -556,15 +604,27 @@ public final class Arr {
             return Float.NaN;
         }
 
-        float ret = arr[off];
-
-        for( int i = off + 1; i < off + len; i++ ) {
-            if( arr[i] < ret ) {
-                ret = arr[i];
-            }
+        // Every lane starts from the first element, which preserves the single-accumulator
+        // behavior: a NaN first element is returned, and all later NaNs are skipped.
+        float r0 = arr[off];
+        float r1 = r0;
+        float r2 = r0;
+        float r3 = r0;
+        final int end = off + len;
+        int i = off + 1;
+        for( ; i < end - 3; i += 4 ) {
+            if( arr[i  ] < r0 ) r0 = arr[i  ];
+            if( arr[i+1] < r1 ) r1 = arr[i+1];
+            if( arr[i+2] < r2 ) r2 = arr[i+2];
+            if( arr[i+3] < r3 ) r3 = arr[i+3];
         }
-
-        return ret;
+        for( ; i < end; i++ ) {
+            if( arr[i] < r0 ) r0 = arr[i];
+        }
+        if( r1 < r0 ) r0 = r1;
+        if( r2 < r0 ) r0 = r2;
+        if( r3 < r0 ) r0 = r3;
+        return r0;
     }
 
     
@@ -573,15 +633,25 @@ public final class Arr {
             return Double.NaN;
         }
 
-        double ret = arr[off];
-
-        for( int i = off + 1; i < off + len; i++ ) {
-            if( arr[i] < ret ) {
-                ret = arr[i];
-            }
+        double r0 = arr[off];
+        double r1 = r0;
+        double r2 = r0;
+        double r3 = r0;
+        final int end = off + len;
+        int i = off + 1;
+        for( ; i < end - 3; i += 4 ) {
+            if( arr[i  ] < r0 ) r0 = arr[i  ];
+            if( arr[i+1] < r1 ) r1 = arr[i+1];
+            if( arr[i+2] < r2 ) r2 = arr[i+2];
+            if( arr[i+3] < r3 ) r3 = arr[i+3];
         }
-
-        return ret;
+        for( ; i < end; i++ ) {
+            if( arr[i] < r0 ) r0 = arr[i];
+        }
+        if( r1 < r0 ) r0 = r1;
+        if( r2 < r0 ) r0 = r2;
+        if( r3 < r0 ) r0 = r3;
+        return r0;
     }
 
 
@@ -640,13 +710,25 @@ public final class Arr {
             return Float.NaN;
         }
 
-        float ret = arr[off];
-        for( int i = off + 1; i < off + len; i++ ) {
-            if( arr[i] > ret ) {
-                ret = arr[i];
-            }
+        float r0 = arr[off];
+        float r1 = r0;
+        float r2 = r0;
+        float r3 = r0;
+        final int end = off + len;
+        int i = off + 1;
+        for( ; i < end - 3; i += 4 ) {
+            if( arr[i  ] > r0 ) r0 = arr[i  ];
+            if( arr[i+1] > r1 ) r1 = arr[i+1];
+            if( arr[i+2] > r2 ) r2 = arr[i+2];
+            if( arr[i+3] > r3 ) r3 = arr[i+3];
         }
-        return ret;
+        for( ; i < end; i++ ) {
+            if( arr[i] > r0 ) r0 = arr[i];
+        }
+        if( r1 > r0 ) r0 = r1;
+        if( r2 > r0 ) r0 = r2;
+        if( r3 > r0 ) r0 = r3;
+        return r0;
     }
 
 
@@ -655,13 +737,25 @@ public final class Arr {
             return Double.NaN;
         }
 
-        double ret = arr[off];
-        for( int i = off + 1; i < off + len; i++ ) {
-            if( arr[i] > ret ) {
-                ret = arr[i];
-            }
-        }
-        return ret;
+        double r0 = arr[off];
+        double r1 = r0;
+        double r2 = r0;
+        double r3 = r0;
+        final int end = off + len;
+        int i = off + 1;
+        for( ; i < end - 3; i += 4 ) {
+            if( arr[i  ] > r0 ) r0 = arr[i  ];
+            if( arr[i+1] > r1 ) r1 = arr[i+1];
+            if( arr[i+2] > r2 ) r2 = arr[i+2];
+            if( arr[i+3] > r3 ) r3 = arr[i+3];
+        }
+        for( ; i < end; i++ ) {
+            if( arr[i] > r0 ) r0 = arr[i];
+        }
+        if( r1 > r0 ) r0 = r1;
+        if( r2 > r0 ) r0 = r2;
+        if( r3 > r0 ) r0 = r3;
+        return r0;
     }
 
     
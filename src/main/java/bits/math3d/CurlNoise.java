@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * Divergence-free velocity fields computed as the curl of a simplex noise potential. In 3D,
+ * the potential is a vector field with one {@link SeededSimplexNoise} per component. In 2D,
+ * the first component alone serves as a scalar stream function.
+ * <p>
+ * Potential gradients are computed analytically, so each 3D velocity costs three noise
+ * evaluations instead of the twelve needed with central differences.
+ * <p>
+ * CurlNoise objects are immutable and may be used from multiple threads concurrently.
+ *
+ * @author Philip DeCamp
+ */
+public final class CurlNoise {
+
+    /**
+     * Approximate number of points per parallel task.
+     */
+    private static final int MIN_POINTS_PER_TASK = 2048;
+
+
+    private final SeededSimplexNoise mPx;
+    private final SeededSimplexNoise mPy;
+    private final SeededSimplexNoise mPz;
+
+
+    /**
+     * Creates a field with potential components seeded by {@code seed}, {@code seed + 1}
+     * and {@code seed + 2}.
+     */
+    public CurlNoise( long seed ) {
+        this( SeededSimplexNoise.forSeed( seed ),
+              SeededSimplexNoise.forSeed( seed + 1 ),
+              SeededSimplexNoise.forSeed( seed + 2 ) );
+    }
+
+    /**
+     * @param px Noise used for x-component of potential, and for 2D stream function.
+     * @param py Noise used for y-component of potential.
+     * @param pz Noise used for z-component of potential.
+     */
+    public CurlNoise( SeededSimplexNoise px, SeededSimplexNoise py, SeededSimplexNoise pz ) {
+        if( px == null || py == null || pz == null ) {
+            throw new IllegalArgumentException( "null potential" );
+        }
+        mPx = px;
+        mPy = py;
+        mPz = pz;
+    }
+
+    /**
+     * Computes 2D curl noise, {@code (dp/dy, -dp/dx)}, where {@code p} is the x potential.
+     *
+     * @param out Receives velocity.
+     */
+    public void curl( double x, double y, Vec2 out ) {
+        mPx.noise( x, y, out );
+        float dx = out.x;
+        out.x = out.y;
+        out.y = -dx;
+    }
+
+    /**
+     * Computes 3D curl noise.
+     *
+     * @param out Receives velocity.
+     */
+    public void curl( double x, double y, double z, Vec3 out ) {
+        // curl = ( dPz/dy - dPy/dz, dPx/dz - dPz/dx, dPy/dx - dPx/dy )
+        // Each potential gradient is written to out in turn, keeping only the components needed.
+        mPx.noise( x, y, z, out );
+        float pxy = out.y;
+        float pxz = out.z;
+        mPy.noise( x, y, z, out );
+        float pyx = out.x;
+        float pyz = out.z;
+        mPz.noise( x, y, z, out );
+        float pzx = out.x;
+        float pzy = out.y;
+        out.x = pzy - pyz;
+        out.y = pxz - pzx;
+        out.z = pyx - pxy;
+    }
+
+    /**
+     * Computes 3D curl noise for an array of points. Positions and velocities are packed
+     * as 3 floats each. {@code out} may be the same array as {@code pos}.
+     *
+     * @param pos    Input positions
+     * @param posOff Offset into pos
+     * @param out    Receives velocities
+     * @param outOff Offset into out
+     * @param count  Number of points
+     * @param exec   Executor used to compute points in parallel. May be {@code null}.
+     */
+    public void curlPoints( final float[] pos,
+                            final int posOff,
+                            final float[] out,
+                            final int outOff,
+                            int count,
+                            Executor exec )
+    {
+        Parallel.forRange( exec, 0, count, MIN_POINTS_PER_TASK, new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                Vec3 v = new Vec3();
+                for( int i = start; i < end; i++ ) {
+                    int p = posOff + i * 3;
+                    int o = outOff + i * 3;
+                    curl( pos[p], pos[p+1], pos[p+2], v );
+                    out[o  ] = v.x;
+                    out[o+1] = v.y;
+                    out[o+2] = v.z;
+                }
+            }
+        } );
+    }
+
+}
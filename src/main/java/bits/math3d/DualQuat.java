@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+
+/**
+ * Dual quaternion, representing a rigid transform as {@code real + eps * dual}. For a unit dual
+ * quaternion, {@code mReal} holds the rotation as a quaternion in the same layout as {@link Quat},
+ * with the scalar part first, and {@code mDual} holds {@code 0.5 * t * mReal}, where {@code t} is
+ * the translation as a pure quaternion. Like {@link Trans3}, this represents a rotation followed by a
+ * translation.
+ *
+ * @author Philip DeCamp
+ * @see DualQuats
+ */
+public class DualQuat {
+    public final Vec4 mReal = new Vec4( 1, 0, 0, 0 );
+    public final Vec4 mDual = new Vec4();
+
+
+    public DualQuat() {}
+
+
+    public DualQuat( Vec4 real, Vec4 dual ) {
+        Vec.put( real, mReal );
+        Vec.put( dual, mDual );
+    }
+
+
+    public DualQuat( DualQuat copy ) {
+        this( copy.mReal, copy.mDual );
+    }
+
+
+    @Override
+    public boolean equals( Object obj ) {
+        if( !(obj instanceof DualQuat) ) {
+            return false;
+        }
+        DualQuat dq = (DualQuat)obj;
+        return dq == this || mReal.equals( dq.mReal ) && mDual.equals( dq.mDual );
+    }
+
+    @Override
+    public int hashCode() {
+        return mReal.hashCode() ^ mDual.hashCode() * 31;
+    }
+
+    @Override
+    public String toString() {
+        return DualQuats.format( this );
+    }
+
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+
+/**
+ * Methods for dual quaternions, including dual-quaternion linear blend skinning.
+ * <p>
+ * Packed arrays store each dual quaternion as 8 floats: the real part followed by the dual part,
+ * each with the scalar first.
+ *
+ * @author Philip DeCamp
+ * @see DualQuat
+ */
+public final class DualQuats {
+
+    public static void put( DualQuat a, DualQuat out ) {
+        Vec.put( a.mReal, out.mReal );
+        Vec.put( a.mDual, out.mDual );
+    }
+
+
+    public static void put( DualQuat a, float[] out, int off ) {
+        Vec4 r = a.mReal;
+        Vec4 d = a.mDual;
+        out[off  ] = r.x;
+        out[off+1] = r.y;
+        out[off+2] = r.z;
+        out[off+3] = r.w;
+        out[off+4] = d.x;
+        out[off+5] = d.y;
+        out[off+6] = d.z;
+        out[off+7] = d.w;
+    }
+
+
+    public static void put( float[] arr, int off, DualQuat out ) {
+        Vec.put( arr[off  ], arr[off+1], arr[off+2], arr[off+3], out.mReal );
+        Vec.put( arr[off+4], arr[off+5], arr[off+6], arr[off+7], out.mDual );
+    }
+
+
+    public static void identity( DualQuat a ) {
+        Vec.put( 1, 0, 0, 0, a.mReal );
+        Vec.put( 0, 0, 0, 0, a.mDual );
+    }
+
+    /**
+     * Multiplies two dual quaternions. For unit dual quaternions, the result applies {@code b}, then {@code a}.
+     *
+     * @param out Receives product. May be same object as either input.
+     */
+    public static void mult( DualQuat a, DualQuat b, DualQuat out ) {
+        final Vec4 ar = a.mReal;
+        final Vec4 ad = a.mDual;
+        final Vec4 br = b.mReal;
+        final Vec4 bd = b.mDual;
+        final float r0 = ar.x, r1 = ar.y, r2 = ar.z, r3 = ar.w;
+        final float s0 = br.x, s1 = br.y, s2 = br.z, s3 = br.w;
+
+        // dual = ar * bd + ad * br
+        float d0 = r0 * bd.x - r1 * bd.y - r2 * bd.z - r3 * bd.w +
+                   ad.x * s0 - ad.y * s1 - ad.z * s2 - ad.w * s3;
+        float d1 = r0 * bd.y + r1 * bd.x + r2 * bd.w - r3 * bd.z +
+                   ad.x * s1 + ad.y * s0 + ad.z * s3 - ad.w * s2;
+        float d2 = r0 * bd.z - r1 * bd.w + r2 * bd.x + r3 * bd.y +
+                   ad.x * s2 - ad.y * s3 + ad.z * s0 + ad.w * s1;
+        float d3 = r0 * bd.w + r1 * bd.z - r2 * bd.y + r3 * bd.x +
+                   ad.x * s3 + ad.y * s2 - ad.z * s1 + ad.w * s0;
+
+        Quat.mult( ar, br, out.mReal );
+        Vec.put( d0, d1, d2, d3, out.mDual );
+    }
+
+    /**
+     * Computes inverse of a unit dual quaternion, which is its quaternion conjugate.
+     *
+     * @param out Receives inverse. May be same object as {@code a}.
+     */
+    public static void invert( DualQuat a, DualQuat out ) {
+        Vec4 r = a.mReal;
+        Vec4 d = a.mDual;
+        Vec.put(  r.x, -r.y, -r.z, -r.w, out.mReal );
+        Vec.put(  d.x, -d.y, -d.z, -d.w, out.mDual );
+    }
+
+    /**
+     * Scales dual quaternion to unit length and removes any component of the dual part
+     * parallel to the real part, so that it represents a rigid transform.
+     */
+    public static void normalize( DualQuat a ) {
+        final Vec4 r = a.mReal;
+        final Vec4 d = a.mDual;
+        float len = (float)Math.sqrt( r.x * r.x + r.y * r.y + r.z * r.z + r.w * r.w );
+        if( len == 0f ) {
+            identity( a );
+            return;
+        }
+        float inv = 1f / len;
+        Vec.mult( inv, r );
+        Vec.mult( inv, d );
+        float dot = r.x * d.x + r.y * d.y + r.z * d.z + r.w * d.w;
+        d.x -= dot * r.x;
+        d.y -= dot * r.y;
+        d.z -= dot * r.z;
+        d.w -= dot * r.w;
+    }
+
+    /**
+     * Transforms a point by a unit dual quaternion.
+     *
+     * @param out Receives transformed point. May be same object as {@code v}.
+     */
+    public static void mult( DualQuat a, Vec3 v, Vec3 out ) {
+        final Vec4 r = a.mReal;
+        final Vec4 d = a.mDual;
+        final float rw = r.x, rx = r.y, ry = r.z, rz = r.w;
+        final float dw = d.x, dx = d.y, dy = d.z, dz = d.w;
+        final float px = v.x, py = v.y, pz = v.z;
+
+        // t = 2 * ( rw * dv - dw * rv + rv x dv )
+        final float tx = 2f * ( rw * dx - dw * rx + ry * dz - rz * dy );
+        final float ty = 2f * ( rw * dy - dw * ry + rz * dx - rx * dz );
+        final float tz = 2f * ( rw * dz - dw * rz + rx * dy - ry * dx );
+
+        // p' = p + 2 * rv x ( rv x p + rw * p ) + t
+        final float cx = ry * pz - rz * py + rw * px;
+        final float cy = rz * px - rx * pz + rw * py;
+        final float cz = rx * py - ry * px + rw * pz;
+        out.x = px + 2f * ( ry * cz - rz * cy ) + tx;
+        out.y = py + 2f * ( rz * cx - rx * cz ) + ty;
+        out.z = pz + 2f * ( rx * cy - ry * cx ) + tz;
+    }
+
+
+    public static void transToDualQuat( Trans3 tr, DualQuat out ) {
+        Quat.matToQuat( tr.mRot, out.mReal );
+        setTranslation( tr.mPos.x, tr.mPos.y, tr.mPos.z, out );
+    }
+
+    /**
+     * Converts a unit dual quaternion to an equivalent transform.
+     */
+    public static void dualQuatToTrans( DualQuat dq, Trans3 out ) {
+        Quat.quatToMat( dq.mReal, out.mRot );
+        getTranslation( dq, out.mPos );
+    }
+
+    /**
+     * Converts a rigid transformation matrix to a dual quaternion. Matrices that include scale,
+     * shear or projection produce undefined results.
+     */
+    public static void matToDualQuat( Mat4 mat, DualQuat out ) {
+        Quat.matToQuat( mat, out.mReal );
+        setTranslation( mat.m03, mat.m13, mat.m23, out );
+    }
+
+    /**
+     * Converts a unit dual quaternion to an equivalent matrix.
+     */
+    public static void dualQuatToMat( DualQuat dq, Mat4 out ) {
+        final Vec4 r = dq.mReal;
+        final Vec4 d = dq.mDual;
+        final float rw = r.x, rx = r.y, ry = r.z, rz = r.w;
+        final float dw = d.x, dx = d.y, dy = d.z, dz = d.w;
+        Quat.quatToMat( r, out );
+        out.m03 = 2f * ( rw * dx - dw * rx + ry * dz - rz * dy );
+        out.m13 = 2f * ( rw * dy - dw * ry + rz * dx - rx * dz );
+        out.m23 = 2f * ( rw * dz - dw * rz + rx * dy - ry * dx );
+    }
+
+    /**
+     * Computes translation component of a unit dual quaternion.
+     */
+    public static void getTranslation( DualQuat dq, Vec3 out ) {
+        final Vec4 r = dq.mReal;
+        final Vec4 d = dq.mDual;
+        final float rw = r.x, rx = r.y, ry = r.z, rz = r.w;
+        final float dw = d.x, dx = d.y, dy = d.z, dz = d.w;
+        out.x = 2f * ( rw * dx - dw * rx + ry * dz - rz * dy );
+        out.y = 2f * ( rw * dy - dw * ry + rz * dx - rx * dz );
+        out.z = 2f * ( rw * dz - dw * rz + rx * dy - ry * dx );
+    }
+
+    /**
+     * Sets translation component of dual quaternion, using the current rotation in {@code mReal}.
+     */
+    public static void setTranslation( float x, float y, float z, DualQuat out ) {
+        final Vec4 r = out.mReal;
+        final float rw = r.x, rx = r.y, ry = r.z, rz = r.w;
+        // dual = 0.5 * ( 0, t ) * real
+        out.mDual.x = -0.5f * ( x * rx + y * ry + z * rz );
+        out.mDual.y =  0.5f * ( x * rw + y * rz - z * ry );
+        out.mDual.z =  0.5f * ( y * rw + z * rx - x * rz );
+        out.mDual.w =  0.5f * ( z * rw + x * ry - y * rx );
+    }
+
+    /**
+     * Dual-quaternion linear blend skinning of vertex positions.
+     *
+     * @see #skin(float[], int, int[], float[], int, int, float[], int, float[], int, float[], int, float[], int, int)
+     */
+    public static void skin( float[] palette, int palOff,
+                             int[] bones, float[] weights, int infOff, int influences,
+                             float[] pos, int posOff, float[] posOut, int posOutOff,
+                             int count )
+    {
+        skin( palette, palOff, bones, weights, infOff, influences, pos, posOff, posOut, posOutOff, null, 0, null, 0, count );
+    }
+
+    /**
+     * Dual-quaternion linear blend skinning. For each vertex, the weighted sum of its bone
+     * transforms is computed, with each transform negated as needed to lie in the same hemisphere
+     * as the first, then normalized and applied to the vertex. Unlike matrix palette skinning,
+     * this preserves volume around twisting joints and blends 8 floats per influence instead of 12.
+     * <p>
+     * Vertices, normals and outputs are packed as 3 floats each. Influences for vertex {@code i} are at
+     * {@code infOff + i * influences} in {@code bones} and {@code weights}. Unused influences
+     * should have a weight of zero. Vertices with no weight are copied unchanged. Outputs may
+     * be the same arrays as inputs.
+     *
+     * @param palette    Unit dual quaternions of bone transforms, packed as 8 floats each.
+     * @param palOff     Offset into {@code palette}.
+     * @param bones      Bone index of each influence.
+     * @param weights    Weight of each influence.
+     * @param infOff     Offset into {@code bones} and {@code weights}.
+     * @param influences Number of influences per vertex.
+     * @param pos        Input vertex positions.
+     * @param posOff     Offset into {@code pos}.
+     * @param posOut     Receives skinned positions.
+     * @param posOutOff  Offset into {@code posOut}.
+     * @param norm       Input normals, or {@code null} to skip normals.
+     * @param normOff    Offset into {@code norm}.
+     * @param normOut    Receives rotated normals. Ignored if {@code norm} is null.
+     * @param normOutOff Offset into {@code normOut}.
+     * @param count      Number of vertices.
+     */
+    public static void skin( float[] palette, int palOff,
+                             int[] bones, float[] weights, int infOff, int influences,
+                             float[] pos, int posOff, float[] posOut, int posOutOff,
+                             float[] norm, int normOff, float[] normOut, int normOutOff,
+                             int count )
+    {
+        for( int i = 0; i < count; i++ ) {
+            final int inf = infOff + i * influences;
+            final int p   = posOff + i * 3;
+            final int po  = posOutOff + i * 3;
+
+            int b = palOff + bones[inf] * 8;
+            float w = weights[inf];
+            final float q0 = palette[b], q1 = palette[b+1], q2 = palette[b+2], q3 = palette[b+3];
+
+            float rw = w * q0;
+            float rx = w * q1;
+            float ry = w * q2;
+            float rz = w * q3;
+            float dw = w * palette[b+4];
+            float dx = w * palette[b+5];
+            float dy = w * palette[b+6];
+            float dz = w * palette[b+7];
+
+            for( int k = 1; k < influences; k++ ) {
+                w = weights[inf + k];
+                if( w == 0f ) {
+                    continue;
+                }
+                b = palOff + bones[inf + k] * 8;
+                final float s0 = palette[b], s1 = palette[b+1], s2 = palette[b+2], s3 = palette[b+3];
+                if( q0 * s0 + q1 * s1 + q2 * s2 + q3 * s3 < 0f ) {
+                    w = -w;
+                }
+                rw += w * s0;
+                rx += w * s1;
+                ry += w * s2;
+                rz += w * s3;
+                dw += w * palette[b+4];
+                dx += w * palette[b+5];
+                dy += w * palette[b+6];
+                dz += w * palette[b+7];
+            }
+
+            final float len2 = rw * rw + rx * rx + ry * ry + rz * rz;
+            final float px = pos[p], py = pos[p+1], pz = pos[p+2];
+
+            if( len2 == 0f ) {
+                posOut[po  ] = px;
+                posOut[po+1] = py;
+                posOut[po+2] = pz;
+                if( norm != null ) {
+                    final int n  = normOff + i * 3;
+                    final int no = normOutOff + i * 3;
+                    normOut[no  ] = norm[n  ];
+                    normOut[no+1] = norm[n+1];
+                    normOut[no+2] = norm[n+2];
+                }
+                continue;
+            }
+
+            final float inv = 1f / (float)Math.sqrt( len2 );
+            rw *= inv;
+            rx *= inv;
+            ry *= inv;
+            rz *= inv;
+            dw *= inv;
+            dx *= inv;
+            dy *= inv;
+            dz *= inv;
+
+            final float tx = 2f * ( rw * dx - dw * rx + ry * dz - rz * dy );
+            final float ty = 2f * ( rw * dy - dw * ry + rz * dx - rx * dz );
+            final float tz = 2f * ( rw * dz - dw * rz + rx * dy - ry * dx );
+
+            float cx = ry * pz - rz * py + rw * px;
+            float cy = rz * px - rx * pz + rw * py;
+            float cz = rx * py - ry * px + rw * pz;
+            posOut[po  ] = px + 2f * ( ry * cz - rz * cy ) + tx;
+            posOut[po+1] = py + 2f * ( rz * cx - rx * cz ) + ty;
+            posOut[po+2] = pz + 2f * ( rx * cy - ry * cx ) + tz;
+
+            if( norm != null ) {
+                final int n  = normOff + i * 3;
+                final int no = normOutOff + i * 3;
+                final float nx = norm[n], ny = norm[n+1], nz = norm[n+2];
+                cx = ry * nz - rz * ny + rw * nx;
+                cy = rz * nx - rx * nz + rw * ny;
+                cz = rx * ny - ry * nx + rw * nz;
+                normOut[no  ] = nx + 2f * ( ry * cz - rz * cy );
+                normOut[no+1] = ny + 2f * ( rz * cx - rx * cz );
+                normOut[no+2] = nz + 2f * ( rx * cy - ry * cx );
+            }
+        }
+    }
+
+
+    public static String format( DualQuat dq ) {
+        return "[" + Vec.format( dq.mReal ) + ", " + Vec.format( dq.mDual ) + "]";
+    }
+
+
+    private DualQuats() {}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Radix-2 complex fast Fourier transform over split real and imaginary double arrays.
+ * Twiddle factors and bit-reversal indices are computed once per instance.
+ * Instances are immutable and may be shared between threads; use {@link #forSize}
+ * to obtain a cached instance.
+ *
+ * @author Philip DeCamp
+ */
+public final class Fft {
+
+    private static final Map<Integer, Fft> CACHE = new HashMap<Integer, Fft>();
+
+
+    /**
+     * @param n Transform size. Must be a power of two.
+     * @return shared Fft instance for size {@code n}.
+     */
+    public static Fft forSize( int n ) {
+        synchronized( CACHE ) {
+            Fft ret = CACHE.get( n );
+            if( ret == null ) {
+                ret = new Fft( n );
+                CACHE.put( n, ret );
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * @return smallest power of two greater than or equal to {@code n}, or 1 if {@code n <= 1}.
+     */
+    public static int ceilPot( int n ) {
+        if( n <= 1 ) {
+            return 1;
+        }
+        int ret = Integer.highestOneBit( n - 1 ) << 1;
+        if( ret <= 0 ) {
+            throw new IllegalArgumentException( "Size too large: " + n );
+        }
+        return ret;
+    }
+
+
+    private final int mSize;
+    private final int[] mRev;
+    private final double[] mCos;
+    private final double[] mSin;
+
+
+    /**
+     * @param n Transform size. Must be a power of two.
+     */
+    public Fft( int n ) {
+        if( n <= 0 || ( n & ( n - 1 ) ) != 0 ) {
+            throw new IllegalArgumentException( "FFT size must be a power of two: " + n );
+        }
+        mSize = n;
+        mRev  = new int[n];
+        mCos  = new double[ Math.max( 1, n / 2 ) ];
+        mSin  = new double[ Math.max( 1, n / 2 ) ];
+
+        final int bits = Integer.numberOfTrailingZeros( n );
+        for( int i = 0; i < n; i++ ) {
+            mRev[i] = bits == 0 ? 0 : Integer.reverse( i ) >>> ( 32 - bits );
+        }
+        for( int i = 0; i < n / 2; i++ ) {
+            double a = 2.0 * Math.PI * i / n;
+            mCos[i] = Math.cos( a );
+            mSin[i] = Math.sin( a );
+        }
+    }
+
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Computes forward transform in place: {@code X[k] = sum x[j] * exp( -2 pi i j k / n )}.
+     *
+     * @param re Real components. Must have length of at least {@code size()}.
+     * @param im Imaginary components. Must have length of at least {@code size()}.
+     */
+    public void forward( double[] re, double[] im ) {
+        transform( re, im, -1.0 );
+    }
+
+    /**
+     * Computes inverse transform in place, including {@code 1/n} scaling, so that
+     * {@code inverse} undoes {@code forward}.
+     *
+     * @param re Real components. Must have length of at least {@code size()}.
+     * @param im Imaginary components. Must have length of at least {@code size()}.
+     */
+    public void inverse( double[] re, double[] im ) {
+        transform( re, im, 1.0 );
+        final double scale = 1.0 / mSize;
+        for( int i = 0; i < mSize; i++ ) {
+            re[i] *= scale;
+            im[i] *= scale;
+        }
+    }
+
+
+
+    private void transform( double[] re, double[] im, double sign ) {
+        final int n = mSize;
+        final int[] rev = mRev;
+
+        for( int i = 0; i < n; i++ ) {
+            int j = rev[i];
+            if( j > i ) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+
+        for( int size = 2; size <= n; size <<= 1 ) {
+            final int half = size >> 1;
+            final int step = n / size;
+            for( int j = 0; j < half; j++ ) {
+                final double wr = mCos[j * step];
+                final double wi = sign * mSin[j * step];
+                for( int a = j; a < n; a += size ) {
+                    final int b = a + half;
+                    final double tr = re[b] * wr - im[b] * wi;
+                    final double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+}
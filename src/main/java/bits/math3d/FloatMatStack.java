@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+
+/**
+ * Matrix stack backed by a single float array, with 16 floats per level in the same column-major
+ * order as {@link Mat#put(Mat4, float[])}. The current matrix is stored at {@link #offset()} in
+ * {@link #array()}, and may be handed directly to APIs that accept an array and offset, or a heap
+ * FloatBuffer from {@link #buffer()}, without copying. APIs that require a direct buffer should use
+ * {@link #put(FloatBuffer)} instead. Multiplication, translation and scaling operate directly on the array;
+ * no operation allocates memory except when pushing beyond capacity.
+ * <p>
+ * The inverse and normal matrices of the current matrix are cached, and only recomputed when requested
+ * after the current matrix changes. Code that writes to the current matrix through {@link #array()} or
+ * {@link #buffer()} must call {@link #markDirty()} afterward.
+ *
+ * @author Philip DeCamp
+ * @see MatStack
+ */
+public class FloatMatStack {
+
+    private float[] mArr;
+    private int mPos = 0;
+    private int mOff = 0;
+    private FloatBuffer mView = null;
+
+    private final Mat4 mWork = new Mat4();
+
+    private boolean mDirty = true;
+    private final Mat4 mInv = new Mat4();
+    private final Mat3 mNormal = new Mat3();
+
+
+    public FloatMatStack() {
+        this( 4 );
+    }
+
+
+    public FloatMatStack( int capacity ) {
+        mArr = new float[16 * Math.max( 1, capacity + 1 )];
+        identity();
+    }
+
+    /**
+     * @return array holding stack. May be replaced by {@link #push()}. Call {@link #markDirty()} after
+     *         modifying current matrix through array.
+     */
+    public float[] array() {
+        return mArr;
+    }
+
+    /**
+     * @return offset of current matrix in {@link #array()}.
+     */
+    public int offset() {
+        return mOff;
+    }
+
+    /**
+     * @return heap buffer view of current matrix, with position at start of matrix and limit at end.
+     *         View wraps {@link #array()} and remains valid until array is replaced. Call
+     *         {@link #markDirty()} after modifying current matrix through view.
+     */
+    public FloatBuffer buffer() {
+        if( mView == null || mView.array() != mArr ) {
+            mView = FloatBuffer.wrap( mArr );
+        }
+        mView.limit( mOff + 16 );
+        mView.position( mOff );
+        return mView;
+    }
+
+    /**
+     * Notifies stack that current matrix was modified through {@link #array()} or {@link #buffer()},
+     * so that cached inverse and normal matrices are recomputed.
+     */
+    public void markDirty() {
+        mDirty = true;
+    }
+
+    /**
+     * Writes current matrix to buffer, such as a direct buffer, advancing its position by 16.
+     */
+    public void put( FloatBuffer out ) {
+        out.put( mArr, mOff, 16 );
+    }
+
+
+    public void get( Mat4 out ) {
+        load( mArr, mOff, out );
+    }
+
+
+    public void get( float[] out, int off ) {
+        System.arraycopy( mArr, mOff, out, off, 16 );
+    }
+
+
+    public void set( Mat4 m ) {
+        store( m, mArr, mOff );
+        mDirty = true;
+    }
+
+
+    public void set( Mat3 m ) {
+        Mat.put( m, mWork );
+        set( mWork );
+    }
+
+
+    public void set( float[] arr, int off ) {
+        System.arraycopy( arr, off, mArr, mOff, 16 );
+        mDirty = true;
+    }
+
+
+    public void push() {
+        ensureCapacity( mPos + 1 );
+        System.arraycopy( mArr, mOff, mArr, mOff + 16, 16 );
+        mPos++;
+        mOff += 16;
+    }
+
+
+    public void pop() {
+        if( mPos == 0 ) {
+            throw new EmptyStackException();
+        }
+        mPos--;
+        mOff -= 16;
+        mDirty = true;
+    }
+
+
+    public void identity() {
+        final float[] a = mArr;
+        final int o = mOff;
+        Arrays.fill( a, o, o + 16, 0f );
+        a[o     ] = 1f;
+        a[o +  5] = 1f;
+        a[o + 10] = 1f;
+        a[o + 15] = 1f;
+        mDirty = true;
+    }
+
+    /**
+     * Multiplies current matrix by {@code m} on the right.
+     */
+    public void mult( Mat4 m ) {
+        final float[] a = mArr;
+        for( int r = mOff; r < mOff + 4; r++ ) {
+            float a0 = a[r], a1 = a[r+4], a2 = a[r+8], a3 = a[r+12];
+            a[r   ] = a0*m.m00 + a1*m.m10 + a2*m.m20 + a3*m.m30;
+            a[r+ 4] = a0*m.m01 + a1*m.m11 + a2*m.m21 + a3*m.m31;
+            a[r+ 8] = a0*m.m02 + a1*m.m12 + a2*m.m22 + a3*m.m32;
+            a[r+12] = a0*m.m03 + a1*m.m13 + a2*m.m23 + a3*m.m33;
+        }
+        mDirty = true;
+    }
+
+
+    public void mult( Mat3 m ) {
+        final float[] a = mArr;
+        for( int r = mOff; r < mOff + 4; r++ ) {
+            float a0 = a[r], a1 = a[r+4], a2 = a[r+8];
+            a[r  ] = a0*m.m00 + a1*m.m10 + a2*m.m20;
+            a[r+4] = a0*m.m01 + a1*m.m11 + a2*m.m21;
+            a[r+8] = a0*m.m02 + a1*m.m12 + a2*m.m22;
+        }
+        mDirty = true;
+    }
+
+    /**
+     * Multiplies current matrix by {@code m} on the left.
+     */
+    public void premult( Mat4 m ) {
+        final float[] a = mArr;
+        for( int c = mOff; c < mOff + 16; c += 4 ) {
+            float b0 = a[c], b1 = a[c+1], b2 = a[c+2], b3 = a[c+3];
+            a[c  ] = m.m00*b0 + m.m01*b1 + m.m02*b2 + m.m03*b3;
+            a[c+1] = m.m10*b0 + m.m11*b1 + m.m12*b2 + m.m13*b3;
+            a[c+2] = m.m20*b0 + m.m21*b1 + m.m22*b2 + m.m23*b3;
+            a[c+3] = m.m30*b0 + m.m31*b1 + m.m32*b2 + m.m33*b3;
+        }
+        mDirty = true;
+    }
+
+
+    public void premult( Mat3 m ) {
+        final float[] a = mArr;
+        for( int c = mOff; c < mOff + 16; c += 4 ) {
+            float b0 = a[c], b1 = a[c+1], b2 = a[c+2];
+            a[c  ] = m.m00*b0 + m.m01*b1 + m.m02*b2;
+            a[c+1] = m.m10*b0 + m.m11*b1 + m.m12*b2;
+            a[c+2] = m.m20*b0 + m.m21*b1 + m.m22*b2;
+        }
+        mDirty = true;
+    }
+
+
+    public void invert() {
+        load( mArr, mOff, mWork );
+        Mat.invert( mWork, mWork );
+        set( mWork );
+    }
+
+
+    public void translate( float dx, float dy, float dz ) {
+        final float[] a = mArr;
+        for( int r = mOff; r < mOff + 4; r++ ) {
+            a[r+12] += a[r] * dx + a[r+4] * dy + a[r+8] * dz;
+        }
+        mDirty = true;
+    }
+
+
+    public void preTranslate( float dx, float dy, float dz ) {
+        final float[] a = mArr;
+        for( int c = mOff; c < mOff + 16; c += 4 ) {
+            float w = a[c+3];
+            a[c  ] += dx * w;
+            a[c+1] += dy * w;
+            a[c+2] += dz * w;
+        }
+        mDirty = true;
+    }
+
+
+    public void rotate( float radians, float x, float y, float z ) {
+        Mat.getRotation( radians, x, y, z, mWork );
+        mult( mWork );
+    }
+
+
+    public void preRotate( float radians, float x, float y, float z ) {
+        Mat.getRotation( radians, x, y, z, mWork );
+        premult( mWork );
+    }
+
+
+    public void scale( float sx, float sy, float sz, float sw ) {
+        final float[] a = mArr;
+        final int o = mOff;
+        for( int r = 0; r < 4; r++ ) {
+            a[o +      r] *= sx;
+            a[o +  4 + r] *= sy;
+            a[o +  8 + r] *= sz;
+            a[o + 12 + r] *= sw;
+        }
+        mDirty = true;
+    }
+
+
+    public void preScale( float sx, float sy, float sz, float sw ) {
+        final float[] a = mArr;
+        for( int c = mOff; c < mOff + 16; c += 4 ) {
+            a[c  ] *= sx;
+            a[c+1] *= sy;
+            a[c+2] *= sz;
+            a[c+3] *= sw;
+        }
+        mDirty = true;
+    }
+
+
+    public void multOrtho( float left, float right, float bottom, float top, float near, float far ) {
+        Mat.getOrtho( left, right, bottom, top, near, far, mWork );
+        mult( mWork );
+    }
+
+
+    public void setOrtho( float left, float right, float bottom, float top, float near, float far ) {
+        Mat.getOrtho( left, right, bottom, top, near, far, mWork );
+        set( mWork );
+    }
+
+
+    public void multFrustum( float left, float right, float bottom, float top, float near, float far ) {
+        Mat.getFrustum( left, right, bottom, top, near, far, mWork );
+        mult( mWork );
+    }
+
+
+    public void setFrustum( float left, float right, float bottom, float top, float near, float far ) {
+        Mat.getFrustum( left, right, bottom, top, near, far, mWork );
+        set( mWork );
+    }
+
+    /**
+     * @return inverse of current matrix. Returned object is owned by stack and must not be modified.
+     *         If current matrix is singular, result is undefined.
+     */
+    public Mat4 inverse() {
+        updateCache();
+        return mInv;
+    }
+
+    /**
+     * @return normal matrix of current matrix: the transpose of the inverse of its upper-left 3x3 block.
+     *         Returned object is owned by stack and must not be modified.
+     */
+    public Mat3 normal() {
+        updateCache();
+        return mNormal;
+    }
+
+
+    public void putInverse( FloatBuffer out ) {
+        Mat.put( inverse(), out );
+    }
+
+
+    public void putNormal( FloatBuffer out ) {
+        Mat.put( normal(), out );
+    }
+
+
+    public int size() {
+        return mPos;
+    }
+
+
+    public void clear() {
+        mPos = 0;
+        mOff = 0;
+        identity();
+    }
+
+    /**
+     * @param minCapacity Number of levels that may be pushed without reallocating.
+     */
+    public void ensureCapacity( int minCapacity ) {
+        int oldCapacity = mArr.length / 16 - 1;
+        if( minCapacity > oldCapacity ) {
+            int newCapacity = ( oldCapacity * 3 ) / 2 + 1;
+            if( newCapacity < minCapacity ) {
+                newCapacity = minCapacity;
+            }
+            mArr = Arrays.copyOf( mArr, ( newCapacity + 1 ) * 16 );
+        }
+    }
+
+
+
+    private void updateCache() {
+        if( !mDirty ) {
+            return;
+        }
+        final Mat4 inv = mInv;
+        load( mArr, mOff, inv );
+        Mat.invert( inv, inv );
+
+        // Invert upper-left block directly. The upper-left block of the full inverse only
+        // matches when the matrix is affine, which projections are not.
+        final float[] a = mArr;
+        final int o = mOff;
+        final Mat3 n = mNormal;
+        n.m00 = a[o  ]; n.m01 = a[o+4]; n.m02 = a[o+ 8];
+        n.m10 = a[o+1]; n.m11 = a[o+5]; n.m12 = a[o+ 9];
+        n.m20 = a[o+2]; n.m21 = a[o+6]; n.m22 = a[o+10];
+        Mat.invert( n, n );
+        Mat.transpose( n, n );
+        mDirty = false;
+    }
+
+
+    private static void load( float[] a, int o, Mat4 out ) {
+        out.m00 = a[o   ]; out.m10 = a[o+ 1]; out.m20 = a[o+ 2]; out.m30 = a[o+ 3];
+        out.m01 = a[o+ 4]; out.m11 = a[o+ 5]; out.m21 = a[o+ 6]; out.m31 = a[o+ 7];
+        out.m02 = a[o+ 8]; out.m12 = a[o+ 9]; out.m22 = a[o+10]; out.m32 = a[o+11];
+        out.m03 = a[o+12]; out.m13 = a[o+13]; out.m23 = a[o+14]; out.m33 = a[o+15];
+    }
+
+
+    private static void store( Mat4 m, float[] a, int o ) {
+        a[o   ] = m.m00; a[o+ 1] = m.m10; a[o+ 2] = m.m20; a[o+ 3] = m.m30;
+        a[o+ 4] = m.m01; a[o+ 5] = m.m11; a[o+ 6] = m.m21; a[o+ 7] = m.m31;
+        a[o+ 8] = m.m02; a[o+ 9] = m.m12; a[o+10] = m.m22; a[o+11] = m.m32;
+        a[o+12] = m.m03; a[o+13] = m.m13; a[o+14] = m.m23; a[o+15] = m.m33;
+    }
+
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * Single-precision Simplex Noise in 2D and 3D. Uses the same permutation and gradients as
+ * {@link SimplexNoise}, so values agree with {@code SimplexNoise} to within float precision
+ * near the origin. Precision degrades as coordinates grow, as fewer bits remain for the
+ * position within a lattice cell.
+ * <p>
+ * Gradient indices come from a permutation table pre-reduced mod 12, and corner contributions are
+ * clamped with {@code max} rather than branched on, so the only data-dependent branch left is
+ * the simplex ordering in 3D. Batch methods produce exactly the values returned by
+ * {@link #noise(float, float)} and {@link #noise(float, float, float)}.
+ *
+ * @author Philip DeCamp
+ * @see SimplexNoise
+ */
+public class FloatSimplexNoise {
+
+    /**
+     * Computes 2D Simplex Noise in single precision.
+     *
+     * @return noise value in range -1 ... +1.
+     */
+    public static float noise( float x, float y ) {
+        final float s = ( x + y ) * F2;
+        final int i = fastfloor( x + s );
+        final int j = fastfloor( y + s );
+        final float t = ( i + j ) * G2;
+        final float xa = x - ( i - t );
+        final float ya = y - ( j - t );
+        final int i1 = xa > ya ? 1 : 0;
+        final int ii = i & 0xFF;
+        final int jj = j & 0xFF;
+        final int g0 = PERM2_MOD12[ ii + PERM2[jj] ];
+        final int g1 = PERM2_MOD12[ ii + i1 + PERM2[jj + 1 - i1] ];
+        final int g2 = PERM2_MOD12[ ii + 1 + PERM2[jj + 1] ];
+
+        final float xb = xa - i1 + G2;
+        final float yb = ya - ( 1 - i1 ) + G2;
+        final float xc = xa + G22;
+        final float yc = ya + G22;
+
+        float t0 = Math.max( 0f, 0.5f - xa * xa - ya * ya );
+        float t1 = Math.max( 0f, 0.5f - xb * xb - yb * yb );
+        float t2 = Math.max( 0f, 0.5f - xc * xc - yc * yc );
+        t0 *= t0;
+        t1 *= t1;
+        t2 *= t2;
+        return 70f * ( t0 * t0 * ( GX[g0] * xa + GY[g0] * ya ) +
+                       t1 * t1 * ( GX[g1] * xb + GY[g1] * yb ) +
+                       t2 * t2 * ( GX[g2] * xc + GY[g2] * yc ) );
+    }
+
+    /**
+     * Computes 3D Simplex Noise in single precision.
+     *
+     * @return noise value in range -1 ... +1.
+     */
+    public static float noise( float x, float y, float z ) {
+        final float s = ( x + y + z ) * F3;
+        final int i = fastfloor( x + s );
+        final int j = fastfloor( y + s );
+        final int k = fastfloor( z + s );
+        final float t = ( i + j + k ) * G3;
+        final float xa = x - ( i - t );
+        final float ya = y - ( j - t );
+        final float za = z - ( k - t );
+
+        final int ord = order3( xa, ya, za );
+        final int i1 = I1[ord], j1 = J1[ord], k1 = K1[ord];
+        final int i2 = I2[ord], j2 = J2[ord], k2 = K2[ord];
+        final int ii = i & 0xFF;
+        final int jj = j & 0xFF;
+        final int kk = k & 0xFF;
+        final int g0 = PERM2_MOD12[ ii + PERM2[ jj + PERM2[kk] ] ];
+        final int g1 = PERM2_MOD12[ ii + i1 + PERM2[ jj + j1 + PERM2[kk + k1] ] ];
+        final int g2 = PERM2_MOD12[ ii + i2 + PERM2[ jj + j2 + PERM2[kk + k2] ] ];
+        final int g3 = PERM2_MOD12[ ii + 1 + PERM2[ jj + 1 + PERM2[kk + 1] ] ];
+
+        final float xb = xa - i1 + G3;
+        final float yb = ya - j1 + G3;
+        final float zb = za - k1 + G3;
+        final float xc = xa - i2 + F3;
+        final float yc = ya - j2 + F3;
+        final float zc = za - k2 + F3;
+        final float xd = xa - 0.5f;
+        final float yd = ya - 0.5f;
+        final float zd = za - 0.5f;
+
+        float t0 = Math.max( 0f, 0.6f - xa * xa - ya * ya - za * za );
+        float t1 = Math.max( 0f, 0.6f - xb * xb - yb * yb - zb * zb );
+        float t2 = Math.max( 0f, 0.6f - xc * xc - yc * yc - zc * zc );
+        float t3 = Math.max( 0f, 0.6f - xd * xd - yd * yd - zd * zd );
+        t0 *= t0;
+        t1 *= t1;
+        t2 *= t2;
+        t3 *= t3;
+        return 32f * ( t0 * t0 * ( GX[g0] * xa + GY[g0] * ya + GZ[g0] * za ) +
+                       t1 * t1 * ( GX[g1] * xb + GY[g1] * yb + GZ[g1] * zb ) +
+                       t2 * t2 * ( GX[g2] * xc + GY[g2] * yc + GZ[g2] * zc ) +
+                       t3 * t3 * ( GX[g3] * xd + GY[g3] * yd + GZ[g3] * zd ) );
+    }
+
+    /**
+     * Computes 2D Simplex Noise for an array of points stored as separate coordinate arrays.
+     *
+     * @param xs     X-coords
+     * @param ys     Y-coords
+     * @param inOff  Offset into xs and ys
+     * @param out    Receives noise values
+     * @param outOff Offset into out
+     * @param len    Number of points
+     * @param exec   Executor used to compute points in parallel. May be {@code null}.
+     */
+    public static void noise2Points( final float[] xs,
+                                     final float[] ys,
+                                     final int inOff,
+                                     final float[] out,
+                                     final int outOff,
+                                     int len,
+                                     Executor exec )
+    {
+        Parallel.forRange( exec, 0, len, SimplexNoise.MIN_SAMPLES_PER_TASK, new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                for( int i = start; i < end; i++ ) {
+                    out[outOff + i] = noise( xs[inOff + i], ys[inOff + i] );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Computes 3D Simplex Noise for an array of points stored as separate coordinate arrays.
+     *
+     * @param xs     X-coords
+     * @param ys     Y-coords
+     * @param zs     Z-coords
+     * @param inOff  Offset into xs, ys and zs
+     * @param out    Receives noise values
+     * @param outOff Offset into out
+     * @param len    Number of points
+     * @param exec   Executor used to compute points in parallel. May be {@code null}.
+     */
+    public static void noise3Points( final float[] xs,
+                                     final float[] ys,
+                                     final float[] zs,
+                                     final int inOff,
+                                     final float[] out,
+                                     final int outOff,
+                                     int len,
+                                     Executor exec )
+    {
+        Parallel.forRange( exec, 0, len, SimplexNoise.MIN_SAMPLES_PER_TASK, new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                for( int i = start; i < end; i++ ) {
+                    out[outOff + i] = noise( xs[inOff + i], ys[inOff + i], zs[inOff + i] );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Fills a grid with 2D Simplex Noise. Sample {@code (c, r)} is taken at
+     * {@code (x0 + c * dx, y0 + r * dy)} and written to {@code out[off + r * stride + c]}.
+     *
+     * @param x0     X-coord of first sample
+     * @param y0     Y-coord of first sample
+     * @param dx     Distance between columns
+     * @param dy     Distance between rows
+     * @param w      Number of columns
+     * @param h      Number of rows
+     * @param out    Receives noise values
+     * @param off    Offset into out
+     * @param stride Distance between rows in out
+     * @param exec   Executor used to compute rows in parallel. May be {@code null}.
+     */
+    public static void noise2Grid( final float x0,
+                                   final float y0,
+                                   final float dx,
+                                   final float dy,
+                                   final int w,
+                                   int h,
+                                   final float[] out,
+                                   final int off,
+                                   final int stride,
+                                   Executor exec )
+    {
+        if( w <= 0 || h <= 0 ) {
+            return;
+        }
+        Parallel.forRange( exec, 0, h, SimplexNoise.minRows( w ), new Parallel.RangeTask() {
+            public void run( int r0, int r1 ) {
+                final float[] xs = columns( x0, dx, w );
+                for( int r = r0; r < r1; r++ ) {
+                    final float y = y0 + r * dy;
+                    final int o = off + r * stride;
+                    for( int c = 0; c < w; c++ ) {
+                        out[o + c] = noise( xs[c], y );
+                    }
+                }
+            }
+        } );
+    }
+
+    /**
+     * Fills a block with 3D Simplex Noise. Sample {@code (c, r, k)} is taken at
+     * {@code (x0 + c * dx, y0 + r * dy, z0 + k * dz)} and written to {@code out[off + (k * h + r) * w + c]}.
+     *
+     * @param x0   X-coord of first sample
+     * @param y0   Y-coord of first sample
+     * @param z0   Z-coord of first sample
+     * @param dx   Distance between columns
+     * @param dy   Distance between rows
+     * @param dz   Distance between layers
+     * @param w    Number of columns
+     * @param h    Number of rows
+     * @param d    Number of layers
+     * @param out  Receives noise values
+     * @param off  Offset into out
+     * @param exec Executor used to compute rows in parallel. May be {@code null}.
+     */
+    public static void noise3Slab( final float x0,
+                                   final float y0,
+                                   final float z0,
+                                   final float dx,
+                                   final float dy,
+                                   final float dz,
+                                   final int w,
+                                   final int h,
+                                   int d,
+                                   final float[] out,
+                                   final int off,
+                                   Executor exec )
+    {
+        if( w <= 0 || h <= 0 || d <= 0 ) {
+            return;
+        }
+        Parallel.forRange( exec, 0, h * d, SimplexNoise.minRows( w ), new Parallel.RangeTask() {
+            public void run( int r0, int r1 ) {
+                final float[] xs = columns( x0, dx, w );
+                for( int row = r0; row < r1; row++ ) {
+                    final int k = row / h;
+                    final float y = y0 + ( row - k * h ) * dy;
+                    final float z = z0 + k * dz;
+                    final int o = off + row * w;
+                    for( int c = 0; c < w; c++ ) {
+                        out[o + c] = noise( xs[c], y, z );
+                    }
+                }
+            }
+        } );
+    }
+
+
+    private static final float F2  = (float)( 0.5 * ( Math.sqrt( 3.0 ) - 1.0 ) );
+    private static final float G2  = (float)( ( 3.0 - Math.sqrt( 3.0 ) ) / 6.0 );
+    private static final float G22 = (float)( ( 3.0 - Math.sqrt( 3.0 ) ) / 3.0 - 1.0 );
+    private static final float F3  = 1f / 3f;
+    private static final float G3  = 1f / 6f;
+
+    private static final int[] PERM2       = SimplexNoise.PERM2;
+    private static final int[] PERM2_MOD12 = SimplexNoise.PERM2_MOD12;
+
+    /**
+     * Gradient vectors, split by component and indexed directly by PERM2_MOD12.
+     */
+    private static final float[] GX = { 1, -1,  1, -1,  1, -1,  1, -1,  0,  0,  0,  0 };
+    private static final float[] GY = { 1,  1, -1, -1,  0,  0,  0,  0,  1, -1,  1, -1 };
+    private static final float[] GZ = { 0,  0,  0,  0,  1,  1, -1, -1,  1,  1, -1, -1 };
+
+    /**
+     * Offsets of second and third simplex corners for each value returned by {@link #order3}.
+     */
+    private static final int[] I1 = { 1, 1, 0, 0, 0, 0 };
+    private static final int[] J1 = { 0, 0, 0, 0, 1, 1 };
+    private static final int[] K1 = { 0, 0, 1, 1, 0, 0 };
+    private static final int[] I2 = { 1, 1, 1, 0, 0, 1 };
+    private static final int[] J2 = { 1, 0, 0, 1, 1, 1 };
+    private static final int[] K2 = { 0, 1, 1, 1, 1, 0 };
+
+
+    /**
+     * @return index of the order of {@code x, y, z} from largest to smallest: XYZ, XZY, ZXY, ZYX, YZX, YXZ.
+     */
+    private static int order3( float x, float y, float z ) {
+        if( x >= y ) {
+            return y >= z ? 0 : x >= z ? 1 : 2;
+        }
+        return y < z ? 3 : x < z ? 4 : 5;
+    }
+
+
+    private static float[] columns( float x0, float dx, int w ) {
+        float[] ret = new float[w];
+        for( int c = 0; c < w; c++ ) {
+            ret[c] = x0 + c * dx;
+        }
+        return ret;
+    }
+
+
+    private static int fastfloor( float x ) {
+        return x >= 0 ? (int)x : (int)x - 1;
+    }
+
+
+    private FloatSimplexNoise() {}
+
+}
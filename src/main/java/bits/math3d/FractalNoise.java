@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * Multi-octave noise built on {@link SimplexNoise}. Octave {@code i} samples noise at frequency
+ * {@code frequency * lacunarity^i} with amplitude {@code gain^i}, and the octaves are combined according
+ * to {@link Mode}. Results are divided by the sum of amplitudes, so that {@link Mode#FBM} and
+ * {@link Mode#BILLOW} fall roughly in {@code [-1,1]} and {@link Mode#TURBULENCE} and {@link Mode#RIDGED}
+ * in {@code [0,1]}.
+ * <p>
+ * Grid methods evaluate every octave for one row of samples before moving to the next row, and split rows
+ * across an optional executor. Sample coordinates are always computed from the global sample index, so
+ * a grid filled in one call, filled in tiles, or evaluated one sample at a time with {@link #noise(double, double)}
+ * produces identical values.
+ * <p>
+ * FractalNoise objects are immutable and may be used from multiple threads concurrently.
+ *
+ * @author Philip DeCamp
+ */
+public class FractalNoise {
+
+    public enum Mode {
+        /** Sum of octaves: fractional Brownian motion. **/
+        FBM,
+        /** Sum of absolute values of octaves. **/
+        TURBULENCE,
+        /** Sum of absolute values of octaves, remapped to [-1,1]. **/
+        BILLOW,
+        /** Sum of squared inverted absolute values of octaves, producing sharp ridges. **/
+        RIDGED
+    }
+
+
+    private final int    mOctaves;
+    private final double mFrequency;
+    private final double mLacunarity;
+    private final float  mGain;
+    private final Mode   mMode;
+
+    private final float[] mAmps;
+    private final float mScale;
+
+    /**
+     * Creates six octaves of fBm with frequency 1, lacunarity 2 and gain 0.5.
+     */
+    public FractalNoise() {
+        this( 6, 1.0, 2.0, 0.5f, Mode.FBM );
+    }
+
+
+    public FractalNoise( int octaves, double frequency, double lacunarity, float gain, Mode mode ) {
+        if( octaves < 1 ) {
+            throw new IllegalArgumentException( "octaves < 1" );
+        }
+        if( mode == null ) {
+            throw new IllegalArgumentException( "mode == null" );
+        }
+        mOctaves    = octaves;
+        mFrequency  = frequency;
+        mLacunarity = lacunarity;
+        mGain       = gain;
+        mMode       = mode;
+        mAmps       = new float[octaves];
+
+        float amp = 1f;
+        float sum = 0f;
+        for( int i = 0; i < octaves; i++ ) {
+            mAmps[i] = amp;
+            sum += amp;
+            amp *= gain;
+        }
+        mScale = sum;
+    }
+
+
+    public int octaves() {
+        return mOctaves;
+    }
+
+    /**
+     * @return frequency of first octave.
+     */
+    public double frequency() {
+        return mFrequency;
+    }
+
+    /**
+     * @return frequency multiplier between successive octaves.
+     */
+    public double lacunarity() {
+        return mLacunarity;
+    }
+
+    /**
+     * @return amplitude multiplier between successive octaves.
+     */
+    public float gain() {
+        return mGain;
+    }
+
+
+    public Mode mode() {
+        return mMode;
+    }
+
+
+    public FractalNoise setOctaves( int octaves ) {
+        return new FractalNoise( octaves, mFrequency, mLacunarity, mGain, mMode );
+    }
+
+
+    public FractalNoise setFrequency( double frequency ) {
+        return new FractalNoise( mOctaves, frequency, mLacunarity, mGain, mMode );
+    }
+
+
+    public FractalNoise setLacunarity( double lacunarity ) {
+        return new FractalNoise( mOctaves, mFrequency, lacunarity, mGain, mMode );
+    }
+
+
+    public FractalNoise setGain( float gain ) {
+        return new FractalNoise( mOctaves, mFrequency, mLacunarity, gain, mMode );
+    }
+
+
+    public FractalNoise setMode( Mode mode ) {
+        return new FractalNoise( mOctaves, mFrequency, mLacunarity, mGain, mode );
+    }
+
+    //=== Single samples ===//
+
+    public float noise( double x, double y ) {
+        final Mode mode = mMode;
+        double freq = mFrequency;
+        float acc = 0f;
+
+        for( int i = 0; i < mOctaves; i++ ) {
+            float n = (float)SimplexNoise.noise( x * freq, y * freq );
+            acc += mAmps[i] * shape( mode, n );
+            freq *= mLacunarity;
+        }
+        return acc / mScale;
+    }
+
+
+    public float noise( double x, double y, double z ) {
+        final Mode mode = mMode;
+        double freq = mFrequency;
+        float acc = 0f;
+
+        for( int i = 0; i < mOctaves; i++ ) {
+            float n = (float)SimplexNoise.noise( x * freq, y * freq, z * freq );
+            acc += mAmps[i] * shape( mode, n );
+            freq *= mLacunarity;
+        }
+        return acc / mScale;
+    }
+
+    //=== Grids ===//
+
+    /**
+     * Fills a grid with 2D fractal noise.
+     *
+     * @see #fill2(double, double, double, double, int, int, int, int, float[], int, int, Executor)
+     */
+    public void fill2( double x0,
+                       double y0,
+                       double dx,
+                       double dy,
+                       int w,
+                       int h,
+                       float[] out,
+                       int off,
+                       int stride,
+                       Executor exec )
+    {
+        fill2( x0, y0, dx, dy, 0, 0, w, h, out, off, stride, exec );
+    }
+
+    /**
+     * Fills a tile of a larger grid with 2D fractal noise. The grid has sample {@code (c, r)} at
+     * {@code (x0 + c * dx, y0 + r * dy)}. The tile covers columns {@code [col, col + w)} and rows
+     * {@code [row, row + h)}, and sample {@code (col + i, row + j)} is written to {@code out[off + j * stride + i]}.
+     * The value of each sample depends only on its grid index, so any tiling of a grid produces
+     * the same result.
+     *
+     * @param x0     X-coord of grid sample (0,0)
+     * @param y0     Y-coord of grid sample (0,0)
+     * @param dx     Distance between columns
+     * @param dy     Distance between rows
+     * @param col    First column of tile
+     * @param row    First row of tile
+     * @param w      Number of columns in tile
+     * @param h      Number of rows in tile
+     * @param out    Receives noise values
+     * @param off    Offset into out
+     * @param stride Distance between rows in out
+     * @param exec   Executor used to compute rows in parallel. May be {@code null}.
+     */
+    public void fill2( final double x0,
+                       final double y0,
+                       final double dx,
+                       final double dy,
+                       final int col,
+                       final int row,
+                       final int w,
+                       int h,
+                       final float[] out,
+                       final int off,
+                       final int stride,
+                       Executor exec )
+    {
+        if( w <= 0 || h <= 0 ) {
+            return;
+        }
+        Parallel.forRange( exec, 0, h, SimplexNoise.minRows( w ), new Parallel.RangeTask() {
+            public void run( int r0, int r1 ) {
+                float[] tmp = new float[w];
+                for( int r = r0; r < r1; r++ ) {
+                    final double y = y0 + ( row + r ) * dy;
+                    final int o = off + r * stride;
+                    double freq = mFrequency;
+                    for( int i = 0; i < mOctaves; i++ ) {
+                        SimplexNoise.DEFAULT.noise2Row( x0, dx, freq, col, col + w, y * freq, tmp, 0 );
+                        accumulate( i, tmp, w, out, o );
+                        freq *= mLacunarity;
+                    }
+                }
+            }
+        } );
+    }
+
+    /**
+     * Fills a block with 3D fractal noise.
+     *
+     * @see #fill3(double, double, double, double, double, double, int, int, int, int, int, int, float[], int, Executor)
+     */
+    public void fill3( double x0,
+                       double y0,
+                       double z0,
+                       double dx,
+                       double dy,
+                       double dz,
+                       int w,
+                       int h,
+                       int d,
+                       float[] out,
+                       int off,
+                       Executor exec )
+    {
+        fill3( x0, y0, z0, dx, dy, dz, 0, 0, 0, w, h, d, out, off, exec );
+    }
+
+    /**
+     * Fills a tile of a larger 3D grid with fractal noise. The grid has sample {@code (c, r, k)} at
+     * {@code (x0 + c * dx, y0 + r * dy, z0 + k * dz)}. The tile covers {@code w * h * d} samples starting at
+     * {@code (col, row, layer)}, and sample {@code (col + i, row + j, layer + m)} is written to
+     * {@code out[off + (m * h + j) * w + i]}. The value of each sample depends only on its grid index.
+     *
+     * @param exec Executor used to compute rows in parallel. May be {@code null}.
+     */
+    public void fill3( final double x0,
+                       final double y0,
+                       final double z0,
+                       final double dx,
+                       final double dy,
+                       final double dz,
+                       final int col,
+                       final int row,
+                       final int layer,
+                       final int w,
+                       final int h,
+                       int d,
+                       final float[] out,
+                       final int off,
+                       Executor exec )
+    {
+        if( w <= 0 || h <= 0 || d <= 0 ) {
+            return;
+        }
+        Parallel.forRange( exec, 0, h * d, SimplexNoise.minRows( w ), new Parallel.RangeTask() {
+            public void run( int r0, int r1 ) {
+                float[] tmp = new float[w];
+                for( int rr = r0; rr < r1; rr++ ) {
+                    final int m = rr / h;
+                    final int j = rr - m * h;
+                    final double y = y0 + ( row + j ) * dy;
+                    final double z = z0 + ( layer + m ) * dz;
+                    final int o = off + rr * w;
+                    double freq = mFrequency;
+                    for( int i = 0; i < mOctaves; i++ ) {
+                        SimplexNoise.DEFAULT.noise3Row( x0, dx, freq, col, col + w, y * freq, z * freq, tmp, 0 );
+                        accumulate( i, tmp, w, out, o );
+                        freq *= mLacunarity;
+                    }
+                }
+            }
+        } );
+    }
+
+
+    private void accumulate( int octave, float[] n, int w, float[] out, int off ) {
+        final float amp = mAmps[octave];
+        final boolean first = octave == 0;
+        final boolean last  = octave == mOctaves - 1;
+
+        switch( mMode ) {
+        case FBM:
+            for( int c = 0; c < w; c++ ) {
+                float v = ( first ? 0f : out[off + c] ) + amp * n[c];
+                out[off + c] = last ? v / mScale : v;
+            }
+            break;
+        case TURBULENCE:
+            for( int c = 0; c < w; c++ ) {
+                float v = ( first ? 0f : out[off + c] ) + amp * Math.abs( n[c] );
+                out[off + c] = last ? v / mScale : v;
+            }
+            break;
+        case BILLOW:
+            for( int c = 0; c < w; c++ ) {
+                float v = ( first ? 0f : out[off + c] ) + amp * ( 2f * Math.abs( n[c] ) - 1f );
+                out[off + c] = last ? v / mScale : v;
+            }
+            break;
+        default:
+            for( int c = 0; c < w; c++ ) {
+                float r = 1f - Math.abs( n[c] );
+                float v = ( first ? 0f : out[off + c] ) + amp * ( r * r );
+                out[off + c] = last ? v / mScale : v;
+            }
+            break;
+        }
+    }
+
+
+    private static float shape( Mode mode, float n ) {
+        switch( mode ) {
+        case FBM:
+            return n;
+        case TURBULENCE:
+            return Math.abs( n );
+        case BILLOW:
+            return 2f * Math.abs( n ) - 1f;
+        default:
+            float r = 1f - Math.abs( n );
+            return r * r;
+        }
+    }
+
+}
@@ -931,6 +931,70 @@ public final class Mat {
     }
 
 
+    /**
+     * Transforms an array of points held in separate coordinate arrays. Each point is treated as
+     * {@code [x, y, z, 1]} and the result is divided by its w coordinate, as in {@link #mult(Mat4, Vec3, Vec3)}.
+     *
+     * @param mat    Transform matrix.
+     * @param xs     X coordinates of input points.
+     * @param ys     Y coordinates of input points.
+     * @param zs     Z coordinates of input points.
+     * @param off    Index of first input point.
+     * @param len    Number of points to transform.
+     * @param outXs  Receives x coordinates of output points. May be same array as {@code xs}.
+     * @param outYs  Receives y coordinates of output points. May be same array as {@code ys}.
+     * @param outZs  Receives z coordinates of output points. May be same array as {@code zs}.
+     * @param outOff Index of first output point.
+     */
+    public static void transformPoints( Mat4 mat,
+                                        float[] xs,
+                                        float[] ys,
+                                        float[] zs,
+                                        int off,
+                                        int len,
+                                        float[] outXs,
+                                        float[] outYs,
+                                        float[] outZs,
+                                        int outOff )
+    {
+        transformPoints( mat.m00, mat.m01, mat.m02, mat.m03,
+                         mat.m10, mat.m11, mat.m12, mat.m13,
+                         mat.m20, mat.m21, mat.m22, mat.m23,
+                         mat.m30, mat.m31, mat.m32, mat.m33,
+                         xs, ys, zs, off, len, outXs, outYs, outZs, outOff );
+    }
+
+    /**
+     * Transforms an array of points held in an interleaved array, such as a vertex buffer.
+     * Each point is treated as {@code [x, y, z, 1]} and the result is divided by its w coordinate.
+     *
+     * @param mat       Transform matrix.
+     * @param verts     Input points. Point {@code i} is held at {@code verts[off + i * stride + (0,1,2)]}.
+     * @param off       Index of first coordinate of first input point.
+     * @param stride    Number of array elements between consecutive input points. Must be at least 3.
+     * @param len       Number of points to transform.
+     * @param out       Receives output points. May be same array as {@code verts}, provided that
+     *                  {@code outOff == off} and {@code outStride == stride}.
+     * @param outOff    Index of first coordinate of first output point.
+     * @param outStride Number of array elements between consecutive output points.
+     */
+    public static void transformPoints( Mat4 mat,
+                                        float[] verts,
+                                        int off,
+                                        int stride,
+                                        int len,
+                                        float[] out,
+                                        int outOff,
+                                        int outStride )
+    {
+        transformPoints( mat.m00, mat.m01, mat.m02, mat.m03,
+                         mat.m10, mat.m11, mat.m12, mat.m13,
+                         mat.m20, mat.m21, mat.m22, mat.m23,
+                         mat.m30, mat.m31, mat.m32, mat.m33,
+                         verts, off, stride, len, out, outOff, outStride );
+    }
+
+
     public static void multAdd( float sa, Mat4 a, float sb, Mat4 b, Mat4 out ) {
         out.m00 = sa * a.m00 + sb * b.m00;
         out.m10 = sa * a.m10 + sb * b.m10;
@@ -1958,6 +2022,54 @@ public final class Mat {
         out[3] = t3;
     }
 
+    /**
+     * Transforms an array of points held in separate coordinate arrays.
+     * Equivalent to {@link #transformPoints(Mat4, float[], float[], float[], int, int, float[], float[], float[], int)}.
+     * Arithmetic is performed in single precision.
+     *
+     * @param mat Length-16 array. Holds matrix in column-major ordering.
+     */
+    public static void transformPoints4( double[] mat,
+                                         float[] xs,
+                                         float[] ys,
+                                         float[] zs,
+                                         int off,
+                                         int len,
+                                         float[] outXs,
+                                         float[] outYs,
+                                         float[] outZs,
+                                         int outOff )
+    {
+        transformPoints( (float)mat[ 0], (float)mat[ 4], (float)mat[ 8], (float)mat[12],
+                         (float)mat[ 1], (float)mat[ 5], (float)mat[ 9], (float)mat[13],
+                         (float)mat[ 2], (float)mat[ 6], (float)mat[10], (float)mat[14],
+                         (float)mat[ 3], (float)mat[ 7], (float)mat[11], (float)mat[15],
+                         xs, ys, zs, off, len, outXs, outYs, outZs, outOff );
+    }
+
+    /**
+     * Transforms an array of points held in an interleaved array.
+     * Equivalent to {@link #transformPoints(Mat4, float[], int, int, int, float[], int, int)}.
+     * Arithmetic is performed in single precision.
+     *
+     * @param mat Length-16 array. Holds matrix in column-major ordering.
+     */
+    public static void transformPoints4( double[] mat,
+                                         float[] verts,
+                                         int off,
+                                         int stride,
+                                         int len,
+                                         float[] out,
+                                         int outOff,
+                                         int outStride )
+    {
+        transformPoints( (float)mat[ 0], (float)mat[ 4], (float)mat[ 8], (float)mat[12],
+                         (float)mat[ 1], (float)mat[ 5], (float)mat[ 9], (float)mat[13],
+                         (float)mat[ 2], (float)mat[ 6], (float)mat[10], (float)mat[14],
+                         (float)mat[ 3], (float)mat[ 7], (float)mat[11], (float)mat[15],
+                         verts, off, stride, len, out, outOff, outStride );
+    }
+
     /**
      * @param mat Input matrix
      * @param out Array to hold inverted matrix on return.
@@ -2759,6 +2871,65 @@ public final class Mat {
 
 
 
+    //=== Bulk transform kernels
+
+    // Matrix elements are passed as locals so the loop bodies contain nothing but
+    // array loads, arithmetic and stores, which keeps them simple enough for the JIT to unroll
+    // and, for the separate-array form, vectorize.
+
+    private static void transformPoints( float m00, float m01, float m02, float m03,
+                                         float m10, float m11, float m12, float m13,
+                                         float m20, float m21, float m22, float m23,
+                                         float m30, float m31, float m32, float m33,
+                                         float[] xs,
+                                         float[] ys,
+                                         float[] zs,
+                                         int off,
+                                         int len,
+                                         float[] outXs,
+                                         float[] outYs,
+                                         float[] outZs,
+                                         int outOff )
+    {
+        for( int i = 0; i < len; i++ ) {
+            final float x = xs[off+i];
+            final float y = ys[off+i];
+            final float z = zs[off+i];
+            final float w = 1.0f / ( m30 * x + m31 * y + m32 * z + m33 );
+            outXs[outOff+i] = ( m00 * x + m01 * y + m02 * z + m03 ) * w;
+            outYs[outOff+i] = ( m10 * x + m11 * y + m12 * z + m13 ) * w;
+            outZs[outOff+i] = ( m20 * x + m21 * y + m22 * z + m23 ) * w;
+        }
+    }
+
+
+    private static void transformPoints( float m00, float m01, float m02, float m03,
+                                         float m10, float m11, float m12, float m13,
+                                         float m20, float m21, float m22, float m23,
+                                         float m30, float m31, float m32, float m33,
+                                         float[] verts,
+                                         int off,
+                                         int stride,
+                                         int len,
+                                         float[] out,
+                                         int outOff,
+                                         int outStride )
+    {
+        for( int i = 0; i < len; i++ ) {
+            final int a = off + i * stride;
+            final int b = outOff + i * outStride;
+            final float x = verts[a  ];
+            final float y = verts[a+1];
+            final float z = verts[a+2];
+            final float w = 1.0f / ( m30 * x + m31 * y + m32 * z + m33 );
+            out[b  ] = ( m00 * x + m01 * y + m02 * z + m03 ) * w;
+            out[b+1] = ( m10 * x + m11 * y + m12 * z + m13 ) * w;
+            out[b+2] = ( m20 * x + m21 * y + m22 * z + m23 ) * w;
+        }
+    }
+
+
+
     private Mat() {}
 
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+
+/**
+ * Flyweight view of a FloatBuffer as an array of 4x4 matrices. Each record holds 16 floats in
+ * column-major order, the same layout written by {@link Mat#put(Mat4, FloatBuffer)}, and records
+ * are {@code stride} floats apart. Reads and writes use absolute indexing and never modify
+ * the position or limit of the underlying buffer.
+ * <p>
+ * Mat4Buffer holds a scratch matrix and is not thread-safe.
+ *
+ * @see Vec3Buffer
+ * @author Philip DeCamp
+ */
+public final class Mat4Buffer {
+
+    /**
+     * @return new Mat4Buffer over a packed, direct, native-order buffer of {@code size} records.
+     */
+    public static Mat4Buffer allocate( int size ) {
+        ByteBuffer bb = ByteBuffer.allocateDirect( size * 16 * 4 ).order( ByteOrder.nativeOrder() );
+        return new Mat4Buffer( bb.asFloatBuffer(), 0, 16, size );
+    }
+
+
+    private final FloatBuffer mBuf;
+    private final int mOff;
+    private final int mStride;
+    private final int mSize;
+    private final Mat4 mWork = new Mat4();
+
+
+    /**
+     * Views remaining contents of {@code buf} as packed records.
+     */
+    public Mat4Buffer( FloatBuffer buf ) {
+        this( buf, buf.position(), 16, buf.remaining() / 16 );
+    }
+
+    /**
+     * @param buf    Underlying buffer.
+     * @param off    Absolute index of first record in {@code buf}.
+     * @param stride Number of floats between records. Must be at least 16.
+     * @param size   Number of records.
+     */
+    public Mat4Buffer( FloatBuffer buf, int off, int stride, int size ) {
+        if( stride < 16 ) {
+            throw new IllegalArgumentException( "Stride must be at least 16: " + stride );
+        }
+        if( off < 0 || size < 0 || size > 0 && off + ( size - 1 ) * stride + 16 > buf.capacity() ) {
+            throw new IllegalArgumentException( "Records exceed buffer capacity." );
+        }
+        mBuf    = buf;
+        mOff    = off;
+        mStride = stride;
+        mSize   = size;
+    }
+
+    /**
+     * Views a ByteBuffer using its current byte order.
+     *
+     * @param buf        Underlying buffer.
+     * @param byteOff    Absolute byte index of first record. Must be multiple of 4.
+     * @param byteStride Number of bytes between records. Must be multiple of 4.
+     * @param size       Number of records.
+     */
+    public Mat4Buffer( ByteBuffer buf, int byteOff, int byteStride, int size ) {
+        this( Vec3Buffer.floatView( buf, byteOff, byteStride ), byteOff / 4, byteStride / 4, size );
+    }
+
+
+    public FloatBuffer buffer() {
+        return mBuf;
+    }
+
+
+    public int offset() {
+        return mOff;
+    }
+
+
+    public int stride() {
+        return mStride;
+    }
+
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return view of records {@code [start, start + len)} sharing this buffer.
+     */
+    public Mat4Buffer view( int start, int len ) {
+        if( start < 0 || len < 0 || start + len > mSize ) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new Mat4Buffer( mBuf, mOff + start * mStride, mStride, len );
+    }
+
+
+    public Mat4 get( int i, Mat4 out ) {
+        final FloatBuffer b = mBuf;
+        final int n = index( i );
+        out.m00 = b.get( n      );
+        out.m10 = b.get( n +  1 );
+        out.m20 = b.get( n +  2 );
+        out.m30 = b.get( n +  3 );
+        out.m01 = b.get( n +  4 );
+        out.m11 = b.get( n +  5 );
+        out.m21 = b.get( n +  6 );
+        out.m31 = b.get( n +  7 );
+        out.m02 = b.get( n +  8 );
+        out.m12 = b.get( n +  9 );
+        out.m22 = b.get( n + 10 );
+        out.m32 = b.get( n + 11 );
+        out.m03 = b.get( n + 12 );
+        out.m13 = b.get( n + 13 );
+        out.m23 = b.get( n + 14 );
+        out.m33 = b.get( n + 15 );
+        return out;
+    }
+
+
+    public void set( int i, Mat4 mat ) {
+        final FloatBuffer b = mBuf;
+        final int n = index( i );
+        b.put( n,      mat.m00 );
+        b.put( n +  1, mat.m10 );
+        b.put( n +  2, mat.m20 );
+        b.put( n +  3, mat.m30 );
+        b.put( n +  4, mat.m01 );
+        b.put( n +  5, mat.m11 );
+        b.put( n +  6, mat.m21 );
+        b.put( n +  7, mat.m31 );
+        b.put( n +  8, mat.m02 );
+        b.put( n +  9, mat.m12 );
+        b.put( n + 10, mat.m22 );
+        b.put( n + 11, mat.m32 );
+        b.put( n + 12, mat.m03 );
+        b.put( n + 13, mat.m13 );
+        b.put( n + 14, mat.m23 );
+        b.put( n + 15, mat.m33 );
+    }
+
+
+    public void get( int start, Mat4[] out, int outOff, int len ) {
+        for( int i = 0; i < len; i++ ) {
+            get( start + i, out[outOff + i] );
+        }
+    }
+
+
+    public void set( int start, Mat4[] src, int srcOff, int len ) {
+        for( int i = 0; i < len; i++ ) {
+            set( start + i, src[srcOff + i] );
+        }
+    }
+
+    /**
+     * Sets every record to identity.
+     */
+    public void identity() {
+        Mat.identity( mWork );
+        for( int i = 0; i < mSize; i++ ) {
+            set( i, mWork );
+        }
+    }
+
+    /**
+     * Post-multiplies every record by {@code m}, as in {@link MatStack#mult(Mat4)}.
+     */
+    public void mult( Mat4 m ) {
+        final Mat4 t = mWork;
+        for( int i = 0; i < mSize; i++ ) {
+            get( i, t );
+            Mat.mult( t, m, t );
+            set( i, t );
+        }
+    }
+
+    /**
+     * Pre-multiplies every record by {@code m}, as in {@link MatStack#premult(Mat4)}.
+     */
+    public void premult( Mat4 m ) {
+        final Mat4 t = mWork;
+        for( int i = 0; i < mSize; i++ ) {
+            get( i, t );
+            Mat.mult( m, t, t );
+            set( i, t );
+        }
+    }
+
+
+
+    private int index( int i ) {
+        if( i < 0 || i >= mSize ) {
+            throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + mSize );
+        }
+        return mOff + i * mStride;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Splits index ranges into chunks and runs them on an {@link Executor}.
+ * The library never creates threads of its own; callers that want parallelism
+ * pass in an executor, and callers that pass {@code null} get sequential execution
+ * on the calling thread.
+ *
+ * @author Philip DeCamp
+ */
+public final class Parallel {
+
+    /**
+     * Work over a contiguous range of indices.
+     */
+    public interface RangeTask {
+        void run( int start, int end );
+    }
+
+
+    /**
+     * Splits {@code [start, end)} into contiguous chunks and runs {@code task} on each chunk.
+     * One chunk is run on the calling thread, as is any chunk the executor rejects.
+     * Blocks until all chunks complete. If any chunk
+     * throws, the first exception is rethrown after all chunks have finished.
+     *
+     * @param exec     Executor used to run chunks. May be {@code null}, in which case the whole
+     *                 range is run on the calling thread.
+     * @param start    First index.
+     * @param end      Last index, exclusive.
+     * @param minChunk Minimum number of indices per chunk.
+     * @param task     Work to perform.
+     */
+    public static void forRange( Executor exec, int start, int end, int minChunk, final RangeTask task ) {
+        final int len = end - start;
+        if( len <= 0 ) {
+            return;
+        }
+
+        int chunks = chunkCount( len, minChunk );
+        if( exec == null || chunks <= 1 ) {
+            task.run( start, end );
+            return;
+        }
+
+        final CountDownLatch latch = new CountDownLatch( chunks - 1 );
+        final Throwable[] err = { null };
+
+        for( int i = 1; i < chunks; i++ ) {
+            final int s = start + (int)( (long)len * i / chunks );
+            final int e = start + (int)( (long)len * ( i + 1 ) / chunks );
+            Runnable r = new Runnable() {
+                public void run() {
+                    try {
+                        task.run( s, e );
+                    } catch( Throwable t ) {
+                        synchronized( err ) {
+                            if( err[0] == null ) {
+                                err[0] = t;
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            };
+            try {
+                exec.execute( r );
+            } catch( RejectedExecutionException ex ) {
+                // Bounded or shut-down executor. Run chunk here so that no chunk is skipped
+                // and none is still running when we return.
+                r.run();
+            }
+        }
+
+        Throwable first = null;
+        try {
+            task.run( start, start + len / chunks );
+        } catch( Throwable t ) {
+            first = t;
+        }
+
+        // Chunks write into caller memory, so never return before they finish.
+        boolean interrupted = false;
+        while( true ) {
+            try {
+                latch.await();
+                break;
+            } catch( InterruptedException ex ) {
+                interrupted = true;
+            }
+        }
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+
+        if( first == null ) {
+            synchronized( err ) {
+                first = err[0];
+            }
+        }
+        if( first instanceof RuntimeException ) {
+            throw (RuntimeException)first;
+        }
+        if( first instanceof Error ) {
+            throw (Error)first;
+        }
+        if( first != null ) {
+            throw new RuntimeException( first );
+        }
+    }
+
+    /**
+     * @return number of chunks {@link #forRange} will use for a range of {@code len} indices.
+     */
+    public static int chunkCount( int len, int minChunk ) {
+        if( minChunk < 1 ) {
+            minChunk = 1;
+        }
+        int max = Runtime.getRuntime().availableProcessors() * 4;
+        int ret = ( len + minChunk - 1 ) / minChunk;
+        return ret < max ? ret : max;
+    }
+
+
+    private Parallel() {}
+
+}
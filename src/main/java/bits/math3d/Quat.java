@@ -101,52 +101,59 @@ public final class Quat {
      * @param out Receives output quaternion
      */
     public static void matToQuat( Mat3 mat, Vec4 out ) {
-        final float r00 = mat.m00;
-        final float r11 = mat.m11;
-        final float r22 = mat.m22;
+        matToQuat( mat.m00, mat.m01, mat.m02,
+                   mat.m10, mat.m11, mat.m12,
+                   mat.m20, mat.m21, mat.m22,
+                   out );
+    }
 
-        float q0 = (  r00 + r11 + r22 + 1 );
-        float q1 = (  r00 - r11 - r22 + 1 );
-        float q2 = ( -r00 + r11 - r22 + 1 );
-        float q3 = ( -r00 - r11 + r22 + 1 );
+    /**
+     * Converts a rotation matrix to an equivalent quaternion.
+     * Only the upper 3x3 portion of the matrix is used.
+     * Non-rotation matrices will produce undefined results.
+     *
+     * @param mat Input matrix.
+     * @param out Receives output quaternion
+     */
+    public static void matToQuat( Mat4 mat, Vec4 out ) {
+        matToQuat( mat.m00, mat.m01, mat.m02,
+                   mat.m10, mat.m11, mat.m12,
+                   mat.m20, mat.m21, mat.m22,
+                   out );
+    }
 
-        q0 = q0 < 0 ? 0 : (float)Math.sqrt( q0 );
-        q1 = q1 < 0 ? 0 : (float)Math.sqrt( q1 );
-        q2 = q2 < 0 ? 0 : (float)Math.sqrt( q2 );
-        q3 = q3 < 0 ? 0 : (float)Math.sqrt( q3 );
+    /**
+     * Converts quaternion to dim4 rotation matrix.
+     *
+     * @param quat Input quaternion.
+     * @param out  Receives output.
+     */
+    public static void quatToMat( Vec4 quat, Mat3 out ) {
+        final float q0 = quat.x;
+        final float q1 = quat.y;
+        final float q2 = quat.z;
+        final float q3 = quat.w;
 
-        if( q0 >= q1 && q0 >= q2 && q0 >= q3 ) {
-            if( mat.m21 - mat.m12 < 0 ) q1 = -q1;
-            if( mat.m02 - mat.m20 < 0 ) q2 = -q2;
-            if( mat.m10 - mat.m01 < 0 ) q3 = -q3;
-        } else if( q1 >= q2 && q1 >= q3 ) {
-            if( mat.m21 - mat.m12 < 0 ) q0 = -q0;
-            if( mat.m10 + mat.m01 < 0 ) q2 = -q2;
-            if( mat.m02 + mat.m20 < 0 ) q3 = -q3;
-        } else if( q2 >= q3 ) {
-            if( mat.m02 - mat.m20 < 0 ) q0 = -q0;
-            if( mat.m10 + mat.m01 < 0 ) q1 = -q1;
-            if( mat.m21 + mat.m12 < 0 ) q3 = -q3;
-        } else {
-            if( mat.m10 - mat.m01 < 0 ) q0 = -q0;
-            if( mat.m20 + mat.m02 < 0 ) q1 = -q1;
-            if( mat.m21 + mat.m12 < 0 ) q2 = -q2;
-        }
+        out.m00 = q0 * q0 + q1 * q1 - q2 * q2 - q3 * q3;
+        out.m10 = 2 * ( q1 * q2 + q0 * q3 );
+        out.m20 = 2 * ( q1 * q3 - q0 * q2 );
 
-        float r = 1 / (float)Math.sqrt( q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3 );
-        out.x = q0 * r;
-        out.y = q1 * r;
-        out.z = q2 * r;
-        out.w = q3 * r;
+        out.m01 = 2 * ( q1 * q2 - q0 * q3 );
+        out.m11 = q0 * q0 - q1 * q1 + q2 * q2 - q3 * q3;
+        out.m21 = 2 * ( q2 * q3 + q0 * q1 );
+
+        out.m02 = 2 * ( q1 * q3 + q0 * q2 );
+        out.m12 = 2 * ( q2 * q3 - q0 * q1 );
+        out.m22 = q0 * q0 - q1 * q1 - q2 * q2 + q3 * q3;
     }
 
     /**
-     * Converts quaternion to dim4 rotation matrix.
+     * Converts quaternion to homogeneous rotation matrix.
      *
      * @param quat Input quaternion.
      * @param out  Receives output.
      */
-    public static void quatToMat( Vec4 quat, Mat3 out ) {
+    public static void quatToMat( Vec4 quat, Mat4 out ) {
         final float q0 = quat.x;
         final float q1 = quat.y;
         final float q2 = quat.z;
@@ -155,14 +162,22 @@ public final class Quat {
         out.m00 = q0 * q0 + q1 * q1 - q2 * q2 - q3 * q3;
         out.m10 = 2 * ( q1 * q2 + q0 * q3 );
         out.m20 = 2 * ( q1 * q3 - q0 * q2 );
+        out.m30 = 0;
 
         out.m01 = 2 * ( q1 * q2 - q0 * q3 );
         out.m11 = q0 * q0 - q1 * q1 + q2 * q2 - q3 * q3;
         out.m21 = 2 * ( q2 * q3 + q0 * q1 );
+        out.m31 = 0;
 
         out.m02 = 2 * ( q1 * q3 + q0 * q2 );
         out.m12 = 2 * ( q2 * q3 - q0 * q1 );
         out.m22 = q0 * q0 - q1 * q1 - q2 * q2 + q3 * q3;
+        out.m32 = 0;
+
+        out.m03 = 0;
+        out.m13 = 0;
+        out.m23 = 0;
+        out.m33 = 1;
     }
 
     /**
@@ -546,6 +561,282 @@ public final class Quat {
     }
 
 
+    /**
+     * Computes spherical interpolation between arrays of quaternions, packed as 4 floats each.
+     * Unlike {@link #slerp(Vec4, Vec4, float, Vec4)}, interpolation follows the shortest
+     * arc: if the quaternions lie in opposite hemispheres, {@code qb} is negated.
+     *
+     * @param qa     Array of start quaternions.
+     * @param aOff   Offset into {@code qa}.
+     * @param qb     Array of end quaternions.
+     * @param bOff   Offset into {@code qb}.
+     * @param t      Blend factor used for all quaternions.
+     * @param out    Receives interpolated quaternions. May be the same array as {@code qa} or {@code qb} if offsets match.
+     * @param outOff Offset into {@code out}.
+     * @param count  Number of quaternions to interpolate.
+     */
+    public static void slerp( float[] qa, int aOff, float[] qb, int bOff, float t, float[] out, int outOff, int count ) {
+        slerp( qa, aOff, qb, bOff, null, 0, t, out, outOff, count );
+    }
+
+    /**
+     * Computes spherical interpolation between arrays of quaternions with a blend factor per quaternion.
+     * See {@link #slerp(float[], int, float[], int, float, float[], int, int)}.
+     *
+     * @param t    Array of blend factors, one per quaternion.
+     * @param tOff Offset into {@code t}.
+     */
+    public static void slerp( float[] qa, int aOff, float[] qb, int bOff, float[] t, int tOff, float[] out, int outOff, int count ) {
+        slerp( qa, aOff, qb, bOff, t, tOff, 0f, out, outOff, count );
+    }
+
+    /**
+     * Computes normalized linear interpolation between arrays of quaternions, packed as 4 floats each.
+     * Follows the shortest arc. Nlerp is much cheaper than slerp and has the same path,
+     * but does not move at constant angular velocity. Error is largest near {@code t = 0.25}
+     * and {@code t = 0.75} for widely separated rotations.
+     *
+     * @see #slerp(float[], int, float[], int, float, float[], int, int)
+     */
+    public static void nlerp( float[] qa, int aOff, float[] qb, int bOff, float t, float[] out, int outOff, int count ) {
+        nlerp( qa, aOff, qb, bOff, null, 0, t, out, outOff, count );
+    }
+
+    /**
+     * Computes normalized linear interpolation between arrays of quaternions with a blend factor per quaternion.
+     *
+     * @see #nlerp(float[], int, float[], int, float, float[], int, int)
+     */
+    public static void nlerp( float[] qa, int aOff, float[] qb, int bOff, float[] t, int tOff, float[] out, int outOff, int count ) {
+        nlerp( qa, aOff, qb, bOff, t, tOff, 0f, out, outOff, count );
+    }
+
+    /**
+     * Approximates spherical interpolation between arrays of unit quaternions using
+     * polynomial approximations of the slerp coefficients (Eberly, "A Fast and Accurate Algorithm
+     * for Computing SLERP"). Requires no trigonometric functions or division. Absolute error in each
+     * component is less than {@code 5E-5} compared to exact slerp, and is largest for rotations that
+     * differ by nearly 180 degrees. Follows the shortest arc.
+     *
+     * @see #slerp(float[], int, float[], int, float, float[], int, int)
+     */
+    public static void fastSlerp( float[] qa, int aOff, float[] qb, int bOff, float t, float[] out, int outOff, int count ) {
+        fastSlerp( qa, aOff, qb, bOff, null, 0, t, out, outOff, count );
+    }
+
+    /**
+     * Approximates spherical interpolation between arrays of unit quaternions with a blend factor per quaternion.
+     *
+     * @see #fastSlerp(float[], int, float[], int, float, float[], int, int)
+     */
+    public static void fastSlerp( float[] qa, int aOff, float[] qb, int bOff, float[] t, int tOff, float[] out, int outOff, int count ) {
+        fastSlerp( qa, aOff, qb, bOff, t, tOff, 0f, out, outOff, count );
+    }
+
+
+
+    private static void slerp( float[] qa, int aOff, float[] qb, int bOff,
+                               float[] tArr, int tOff, float tVal,
+                               float[] out, int outOff, int count )
+    {
+        for( int i = 0; i < count; i++ ) {
+            final int a = aOff + i * 4;
+            final int b = bOff + i * 4;
+            final int o = outOff + i * 4;
+            final float t = tArr == null ? tVal : tArr[tOff + i];
+
+            final float a0 = qa[a], a1 = qa[a+1], a2 = qa[a+2], a3 = qa[a+3];
+            float b0 = qb[b], b1 = qb[b+1], b2 = qb[b+2], b3 = qb[b+3];
+            float cos = a0 * b0 + a1 * b1 + a2 * b2 + a3 * b3;
+            if( cos < 0f ) {
+                cos = -cos;
+                b0 = -b0;
+                b1 = -b1;
+                b2 = -b2;
+                b3 = -b3;
+            }
+
+            float ra;
+            float rb;
+            if( cos > 0.9995f ) {
+                // Nearly parallel. Use nlerp to avoid dividing by small sin.
+                ra = 1f - t;
+                rb = t;
+                float x0 = ra * a0 + rb * b0;
+                float x1 = ra * a1 + rb * b1;
+                float x2 = ra * a2 + rb * b2;
+                float x3 = ra * a3 + rb * b3;
+                float s = 1f / (float)Math.sqrt( x0 * x0 + x1 * x1 + x2 * x2 + x3 * x3 );
+                out[o  ] = x0 * s;
+                out[o+1] = x1 * s;
+                out[o+2] = x2 * s;
+                out[o+3] = x3 * s;
+                continue;
+            }
+
+            double theta = Math.acos( cos );
+            double sin   = Math.sqrt( 1.0 - cos * cos );
+            ra = (float)( Math.sin( ( 1.0 - t ) * theta ) / sin );
+            rb = (float)( Math.sin( t * theta ) / sin );
+            out[o  ] = ra * a0 + rb * b0;
+            out[o+1] = ra * a1 + rb * b1;
+            out[o+2] = ra * a2 + rb * b2;
+            out[o+3] = ra * a3 + rb * b3;
+        }
+    }
+
+
+    private static void nlerp( float[] qa, int aOff, float[] qb, int bOff,
+                               float[] tArr, int tOff, float tVal,
+                               float[] out, int outOff, int count )
+    {
+        for( int i = 0; i < count; i++ ) {
+            final int a = aOff + i * 4;
+            final int b = bOff + i * 4;
+            final int o = outOff + i * 4;
+            final float t = tArr == null ? tVal : tArr[tOff + i];
+
+            final float a0 = qa[a], a1 = qa[a+1], a2 = qa[a+2], a3 = qa[a+3];
+            final float b0 = qb[b], b1 = qb[b+1], b2 = qb[b+2], b3 = qb[b+3];
+            final float ra = 1f - t;
+            final float rb = a0 * b0 + a1 * b1 + a2 * b2 + a3 * b3 < 0f ? -t : t;
+
+            float x0 = ra * a0 + rb * b0;
+            float x1 = ra * a1 + rb * b1;
+            float x2 = ra * a2 + rb * b2;
+            float x3 = ra * a3 + rb * b3;
+            float s = 1f / (float)Math.sqrt( x0 * x0 + x1 * x1 + x2 * x2 + x3 * x3 );
+            out[o  ] = x0 * s;
+            out[o+1] = x1 * s;
+            out[o+2] = x2 * s;
+            out[o+3] = x3 * s;
+        }
+    }
+
+    /**
+     * Coefficients for fastSlerp. For i in [1,8], U = 1 / (i * (2i + 1)), V = i / (2i + 1),
+     * with the final terms scaled to balance the truncation error.
+     */
+    private static final float FAST_MU = 1.85298109240830f;
+    private static final float[] FAST_U = {
+        1f / (  1 *  3 ), 1f / (  2 *  5 ), 1f / (  3 *  7 ), 1f / (  4 *  9 ),
+        1f / (  5 * 11 ), 1f / (  6 * 13 ), 1f / (  7 * 15 ), FAST_MU / ( 8 * 17 )
+    };
+    private static final float[] FAST_V = {
+        1f / 3, 2f / 5, 3f / 7, 4f / 9,
+        5f / 11, 6f / 13, 7f / 15, FAST_MU * 8 / 17
+    };
+
+
+    private static void fastSlerp( float[] qa, int aOff, float[] qb, int bOff,
+                                   float[] tArr, int tOff, float tVal,
+                                   float[] out, int outOff, int count )
+    {
+        final float u0 = FAST_U[0], u1 = FAST_U[1], u2 = FAST_U[2], u3 = FAST_U[3];
+        final float u4 = FAST_U[4], u5 = FAST_U[5], u6 = FAST_U[6], u7 = FAST_U[7];
+        final float v0 = FAST_V[0], v1 = FAST_V[1], v2 = FAST_V[2], v3 = FAST_V[3];
+        final float v4 = FAST_V[4], v5 = FAST_V[5], v6 = FAST_V[6], v7 = FAST_V[7];
+
+        for( int i = 0; i < count; i++ ) {
+            final int a = aOff + i * 4;
+            final int b = bOff + i * 4;
+            final int o = outOff + i * 4;
+            final float t = tArr == null ? tVal : tArr[tOff + i];
+
+            final float a0 = qa[a], a1 = qa[a+1], a2 = qa[a+2], a3 = qa[a+3];
+            final float b0 = qb[b], b1 = qb[b+1], b2 = qb[b+2], b3 = qb[b+3];
+            float x = a0 * b0 + a1 * b1 + a2 * b2 + a3 * b3;
+            float sign = 1f;
+            if( x < 0f ) {
+                x = -x;
+                sign = -1f;
+            }
+
+            final float xm1 = x - 1f;
+            final float d  = 1f - t;
+            final float tt = t * t;
+            final float dd = d * d;
+
+            float ct = 1f + ( u7 * tt - v7 ) * xm1;
+            ct = 1f + ( u6 * tt - v6 ) * xm1 * ct;
+            ct = 1f + ( u5 * tt - v5 ) * xm1 * ct;
+            ct = 1f + ( u4 * tt - v4 ) * xm1 * ct;
+            ct = 1f + ( u3 * tt - v3 ) * xm1 * ct;
+            ct = 1f + ( u2 * tt - v2 ) * xm1 * ct;
+            ct = 1f + ( u1 * tt - v1 ) * xm1 * ct;
+            ct = 1f + ( u0 * tt - v0 ) * xm1 * ct;
+
+            float cd = 1f + ( u7 * dd - v7 ) * xm1;
+            cd = 1f + ( u6 * dd - v6 ) * xm1 * cd;
+            cd = 1f + ( u5 * dd - v5 ) * xm1 * cd;
+            cd = 1f + ( u4 * dd - v4 ) * xm1 * cd;
+            cd = 1f + ( u3 * dd - v3 ) * xm1 * cd;
+            cd = 1f + ( u2 * dd - v2 ) * xm1 * cd;
+            cd = 1f + ( u1 * dd - v1 ) * xm1 * cd;
+            cd = 1f + ( u0 * dd - v0 ) * xm1 * cd;
+
+            final float ra = d * cd;
+            final float rb = sign * t * ct;
+            out[o  ] = ra * a0 + rb * b0;
+            out[o+1] = ra * a1 + rb * b1;
+            out[o+2] = ra * a2 + rb * b2;
+            out[o+3] = ra * a3 + rb * b3;
+        }
+    }
+
+
+    private static void matToQuat( float r00, float r01, float r02,
+                                   float r10, float r11, float r12,
+                                   float r20, float r21, float r22,
+                                   Vec4 out )
+    {
+        // Only the largest component is computed from the diagonal. The others are
+        // derived from off-diagonal terms, which avoids taking the square root of
+        // small, imprecise differences.
+        final float t0 =  r00 + r11 + r22;
+        final float t1 =  r00 - r11 - r22;
+        final float t2 = -r00 + r11 - r22;
+        final float t3 = -r00 - r11 + r22;
+
+        float q0;
+        float q1;
+        float q2;
+        float q3;
+
+        if( t0 >= t1 && t0 >= t2 && t0 >= t3 ) {
+            q0 = (float)Math.sqrt( t0 + 1 );
+            float s = 1 / q0;
+            q1 = ( r21 - r12 ) * s;
+            q2 = ( r02 - r20 ) * s;
+            q3 = ( r10 - r01 ) * s;
+        } else if( t1 >= t2 && t1 >= t3 ) {
+            q1 = (float)Math.sqrt( t1 + 1 );
+            float s = 1 / q1;
+            q0 = ( r21 - r12 ) * s;
+            q2 = ( r10 + r01 ) * s;
+            q3 = ( r02 + r20 ) * s;
+        } else if( t2 >= t3 ) {
+            q2 = (float)Math.sqrt( t2 + 1 );
+            float s = 1 / q2;
+            q0 = ( r02 - r20 ) * s;
+            q1 = ( r10 + r01 ) * s;
+            q3 = ( r21 + r12 ) * s;
+        } else {
+            q3 = (float)Math.sqrt( t3 + 1 );
+            float s = 1 / q3;
+            q0 = ( r10 - r01 ) * s;
+            q1 = ( r02 + r20 ) * s;
+            q2 = ( r21 + r12 ) * s;
+        }
+
+        float r = 1 / (float)Math.sqrt( q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3 );
+        out.x = q0 * r;
+        out.y = q1 * r;
+        out.z = q2 * r;
+        out.w = q3 * r;
+    }
+
+
     private Quat() {}
 
 
@@ -0,0 +1,774 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import static bits.math3d.SimplexNoise.*;
+
+
+/**
+ * Simplex Noise in 2D and 3D with a permutation table generated from a seed. Instances with
+ * different seeds produce independent noise fields at the same coordinates, so that layers
+ * need not be decorrelated by offsetting coordinates away from the origin.
+ * <p>
+ * Each instance holds a permutation table and per-hash gradient tables, built once at
+ * construction. {@link #forSeed} returns a shared instance per seed. Instances are immutable
+ * and may be used from any number of threads without synchronization.
+ * <p>
+ * This class holds the 2D and 3D kernels for {@link SimplexNoise} as well, which evaluates them
+ * over its fixed permutation table, so output with that table is identical.
+ *
+ * @author Philip DeCamp
+ */
+public final class SeededSimplexNoise {
+
+    private static final ConcurrentHashMap<Long, SeededSimplexNoise> CACHE = new ConcurrentHashMap<Long, SeededSimplexNoise>();
+
+
+    /**
+     * Returns a shared instance for {@code seed}, creating it if needed. Lookups do not lock,
+     * but callers evaluating noise in a loop should still hold on to the returned instance.
+     * Cached instances are never released; use the constructor for short-lived seeds.
+     *
+     * @param seed Seed used to generate tables.
+     * @return shared instance for {@code seed}.
+     */
+    public static SeededSimplexNoise forSeed( long seed ) {
+        SeededSimplexNoise ret = CACHE.get( seed );
+        if( ret != null ) {
+            return ret;
+        }
+        ret = new SeededSimplexNoise( seed );
+        SeededSimplexNoise prev = CACHE.putIfAbsent( seed, ret );
+        return prev != null ? prev : ret;
+    }
+
+
+    private final long mSeed;
+
+    /**
+     * Permutation table repeated twice.
+     */
+    private final int[] mPerm;
+
+    /**
+     * Gradient selected by each hash value, stored as consecutive (x,y,z) triplets, so that the
+     * gradient for {@code h = ii + mPerm[...]} starts at {@code mGrad[h * 3]}.
+     */
+    private final double[] mGrad;
+
+
+    /**
+     * Creates an unshared instance. Prefer {@link #forSeed} when the same seed is used repeatedly.
+     *
+     * @param seed Seed used to generate tables.
+     */
+    public SeededSimplexNoise( long seed ) {
+        this( seed, shuffle( seed ) );
+    }
+
+
+    SeededSimplexNoise( long seed, int[] perm ) {
+        mSeed = seed;
+        mPerm = new int[512];
+        mGrad = new double[512 * 3];
+        for( int i = 0; i < 512; i++ ) {
+            int p = perm[i & 0xFF];
+            mPerm[i] = p;
+            System.arraycopy( GRAD3, ( p % 12 ) * 3, mGrad, i * 3, 3 );
+        }
+    }
+
+
+    public long seed() {
+        return mSeed;
+    }
+
+    /**
+     * Computes 2D Simplex Noise.
+     *
+     * @return noise value in range -1 ... +1.
+     */
+    public double noise( double x, double y ) {
+        final int[] perm = mPerm;
+        final double[] g = mGrad;
+
+        double n0 = 0, n1 = 0, n2 = 0;
+        double s = ( x + y ) * F2;
+        int i = fastfloor( x + s );
+        int j = fastfloor( y + s );
+        double t = ( i + j ) * G2;
+        double x0 = x - ( i - t );
+        double y0 = y - ( j - t );
+
+        int i1, j1;
+        if( x0 > y0 ) {
+            i1 = 1;
+            j1 = 0;
+        } else {
+            i1 = 0;
+            j1 = 1;
+        }
+
+        double x1 = x0 - i1 + G2;
+        double y1 = y0 - j1 + G2;
+        double x2 = x0 + G22;
+        double y2 = y0 + G22;
+        int ii = i & 0xFF;
+        int jj = j & 0xFF;
+
+        double t0 = 0.5 - x0 * x0 - y0 * y0;
+        if( t0 > 0 ) {
+            int h = ( ii + perm[jj] ) * 3;
+            t0 *= t0;
+            n0 = t0 * t0 * ( g[h] * x0 + g[h+1] * y0 );
+        }
+        double t1 = 0.5 - x1 * x1 - y1 * y1;
+        if( t1 > 0 ) {
+            int h = ( ii + i1 + perm[jj + j1] ) * 3;
+            t1 *= t1;
+            n1 = t1 * t1 * ( g[h] * x1 + g[h+1] * y1 );
+        }
+        double t2 = 0.5 - x2 * x2 - y2 * y2;
+        if( t2 > 0 ) {
+            int h = ( ii + 1 + perm[jj + 1] ) * 3;
+            t2 *= t2;
+            n2 = t2 * t2 * ( g[h] * x2 + g[h+1] * y2 );
+        }
+        return 70.0 * ( n0 + n1 + n2 );
+    }
+
+    /**
+     * Computes 3D Simplex Noise.
+     *
+     * @return noise value in range -1 ... +1.
+     */
+    public double noise( double x, double y, double z ) {
+        final int[] perm = mPerm;
+        final double[] g = mGrad;
+
+        double n0 = 0, n1 = 0, n2 = 0, n3 = 0;
+        double s = ( x + y + z ) * F3;
+        int i = fastfloor( x + s );
+        int j = fastfloor( y + s );
+        int k = fastfloor( z + s );
+        double t  = ( i + j + k ) * G3;
+        double x0 = x - ( i - t );
+        double y0 = y - ( j - t );
+        double z0 = z - ( k - t );
+
+        int i1, j1, k1, i2, j2, k2;
+        if( x0 >= y0 ) {
+            if( y0 >= z0 ) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            } else if( x0 >= z0 ) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 0; k2 = 1;
+            } else {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 1; j2 = 0; k2 = 1;
+            }
+        } else {
+            if( y0 < z0 ) {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 0; j2 = 1; k2 = 1;
+            } else if( x0 < z0 ) {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 0; j2 = 1; k2 = 1;
+            } else {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            }
+        }
+
+        double x1 = x0 - i1 + G3;
+        double y1 = y0 - j1 + G3;
+        double z1 = z0 - k1 + G3;
+        double x2 = x0 - i2 + F3;
+        double y2 = y0 - j2 + F3;
+        double z2 = z0 - k2 + F3;
+        double x3 = x0 - 0.5;
+        double y3 = y0 - 0.5;
+        double z3 = z0 - 0.5;
+        int ii = i & 0xFF;
+        int jj = j & 0xFF;
+        int kk = k & 0xFF;
+
+        double t0 = 0.6 - x0 * x0 - y0 * y0 - z0 * z0;
+        if( t0 > 0 ) {
+            int h = ( ii + perm[ jj + perm[kk] ] ) * 3;
+            t0 *= t0;
+            n0 = t0 * t0 * ( g[h] * x0 + g[h+1] * y0 + g[h+2] * z0 );
+        }
+        double t1 = 0.6 - x1 * x1 - y1 * y1 - z1 * z1;
+        if( t1 > 0 ) {
+            int h = ( ii + i1 + perm[ jj + j1 + perm[kk + k1] ] ) * 3;
+            t1 *= t1;
+            n1 = t1 * t1 * ( g[h] * x1 + g[h+1] * y1 + g[h+2] * z1 );
+        }
+        double t2 = 0.6 - x2 * x2 - y2 * y2 - z2 * z2;
+        if( t2 > 0 ) {
+            int h = ( ii + i2 + perm[ jj + j2 + perm[kk + k2] ] ) * 3;
+            t2 *= t2;
+            n2 = t2 * t2 * ( g[h] * x2 + g[h+1] * y2 + g[h+2] * z2 );
+        }
+        double t3 = 0.6 - x3 * x3 - y3 * y3 - z3 * z3;
+        if( t3 > 0 ) {
+            int h = ( ii + 1 + perm[ jj + 1 + perm[kk + 1] ] ) * 3;
+            t3 *= t3;
+            n3 = t3 * t3 * ( g[h] * x3 + g[h+1] * y3 + g[h+2] * z3 );
+        }
+        return 32.0 * ( n0 + n1 + n2 + n3 );
+    }
+
+    /**
+     * Computes 2D Simplex Noise and its analytic gradient in a single evaluation.
+     * The returned value is identical to {@link #noise(double, double)}.
+     *
+     * @param x       coordinate
+     * @param y       coordinate
+     * @param outGrad Receives {@code (dn/dx, dn/dy)}
+     * @param gradOff Offset into outGrad
+     * @return noise value in range -1 ... +1.
+     */
+    public double noise( double x, double y, double[] outGrad, int gradOff ) {
+        return noiseGrad( x, y, outGrad, gradOff, null );
+    }
+
+    /**
+     * Computes 2D Simplex Noise and its analytic gradient.
+     *
+     * @param outGrad Receives {@code (dn/dx, dn/dy)}
+     * @return noise value in range -1 ... +1.
+     * @see #noise(double, double, double[], int)
+     */
+    public double noise( double x, double y, Vec2 outGrad ) {
+        return noiseGrad( x, y, null, 0, outGrad );
+    }
+
+    /**
+     * Writes gradient to {@code outVec} if not {@code null}, otherwise to {@code outGrad}, so that
+     * neither public form allocates.
+     */
+    private double noiseGrad( double x, double y, double[] outGrad, int gradOff, Vec2 outVec ) {
+        final int[] perm = mPerm;
+        final double[] g = mGrad;
+
+        double n0 = 0, n1 = 0, n2 = 0;
+        double dx = 0, dy = 0;
+        double s = ( x + y ) * F2;
+        int i = fastfloor( x + s );
+        int j = fastfloor( y + s );
+        double t = ( i + j ) * G2;
+        double x0 = x - ( i - t );
+        double y0 = y - ( j - t );
+
+        int i1, j1;
+        if( x0 > y0 ) {
+            i1 = 1;
+            j1 = 0;
+        } else {
+            i1 = 0;
+            j1 = 1;
+        }
+
+        double x1 = x0 - i1 + G2;
+        double y1 = y0 - j1 + G2;
+        double x2 = x0 + G22;
+        double y2 = y0 + G22;
+        int ii = i & 0xFF;
+        int jj = j & 0xFF;
+
+        // Each corner contributes t^4 * (g.d), with t = r^2 - |d|^2,
+        // which has gradient t^4 * g - 8 * t^3 * (g.d) * d.
+        double t0 = 0.5 - x0 * x0 - y0 * y0;
+        if( t0 > 0 ) {
+            int h = ( ii + perm[jj] ) * 3;
+            double dot = g[h] * x0 + g[h+1] * y0;
+            double tt = t0 * t0;
+            double t4 = tt * tt;
+            double a  = -8.0 * tt * t0 * dot;
+            n0  = t4 * dot;
+            dx += t4 * g[h] + a * x0;
+            dy += t4 * g[h+1] + a * y0;
+        }
+        double t1 = 0.5 - x1 * x1 - y1 * y1;
+        if( t1 > 0 ) {
+            int h = ( ii + i1 + perm[jj + j1] ) * 3;
+            double dot = g[h] * x1 + g[h+1] * y1;
+            double tt = t1 * t1;
+            double t4 = tt * tt;
+            double a  = -8.0 * tt * t1 * dot;
+            n1  = t4 * dot;
+            dx += t4 * g[h] + a * x1;
+            dy += t4 * g[h+1] + a * y1;
+        }
+        double t2 = 0.5 - x2 * x2 - y2 * y2;
+        if( t2 > 0 ) {
+            int h = ( ii + 1 + perm[jj + 1] ) * 3;
+            double dot = g[h] * x2 + g[h+1] * y2;
+            double tt = t2 * t2;
+            double t4 = tt * tt;
+            double a  = -8.0 * tt * t2 * dot;
+            n2  = t4 * dot;
+            dx += t4 * g[h] + a * x2;
+            dy += t4 * g[h+1] + a * y2;
+        }
+
+        if( outVec == null ) {
+            outGrad[gradOff    ] = 70.0 * dx;
+            outGrad[gradOff + 1] = 70.0 * dy;
+        } else {
+            outVec.x = (float)( 70.0 * dx );
+            outVec.y = (float)( 70.0 * dy );
+        }
+        return 70.0 * ( n0 + n1 + n2 );
+    }
+
+    /**
+     * Computes 3D Simplex Noise and its analytic gradient in a single evaluation.
+     * The returned value is identical to {@link #noise(double, double, double)}.
+     *
+     * @param x       coordinate
+     * @param y       coordinate
+     * @param z       coordinate
+     * @param outGrad Receives {@code (dn/dx, dn/dy, dn/dz)}
+     * @param gradOff Offset into outGrad
+     * @return noise value in range -1 ... +1.
+     */
+    public double noise( double x, double y, double z, double[] outGrad, int gradOff ) {
+        return noiseGrad( x, y, z, outGrad, gradOff, null );
+    }
+
+    /**
+     * Computes 3D Simplex Noise and its analytic gradient.
+     *
+     * @param outGrad Receives {@code (dn/dx, dn/dy, dn/dz)}
+     * @return noise value in range -1 ... +1.
+     * @see #noise(double, double, double, double[], int)
+     */
+    public double noise( double x, double y, double z, Vec3 outGrad ) {
+        return noiseGrad( x, y, z, null, 0, outGrad );
+    }
+
+    /**
+     * 3D form of {@link #noiseGrad(double, double, double[], int, Vec2)}.
+     */
+    private double noiseGrad( double x, double y, double z, double[] outGrad, int gradOff, Vec3 outVec ) {
+        final int[] perm = mPerm;
+        final double[] g = mGrad;
+
+        double n0 = 0, n1 = 0, n2 = 0, n3 = 0;
+        double dx = 0, dy = 0, dz = 0;
+        double s = ( x + y + z ) * F3;
+        int i = fastfloor( x + s );
+        int j = fastfloor( y + s );
+        int k = fastfloor( z + s );
+        double t  = ( i + j + k ) * G3;
+        double x0 = x - ( i - t );
+        double y0 = y - ( j - t );
+        double z0 = z - ( k - t );
+
+        int i1, j1, k1, i2, j2, k2;
+        if( x0 >= y0 ) {
+            if( y0 >= z0 ) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            } else if( x0 >= z0 ) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 0; k2 = 1;
+            } else {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 1; j2 = 0; k2 = 1;
+            }
+        } else {
+            if( y0 < z0 ) {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 0; j2 = 1; k2 = 1;
+            } else if( x0 < z0 ) {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 0; j2 = 1; k2 = 1;
+            } else {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            }
+        }
+
+        double x1 = x0 - i1 + G3;
+        double y1 = y0 - j1 + G3;
+        double z1 = z0 - k1 + G3;
+        double x2 = x0 - i2 + F3;
+        double y2 = y0 - j2 + F3;
+        double z2 = z0 - k2 + F3;
+        double x3 = x0 - 0.5;
+        double y3 = y0 - 0.5;
+        double z3 = z0 - 0.5;
+        int ii = i & 0xFF;
+        int jj = j & 0xFF;
+        int kk = k & 0xFF;
+
+        double t0 = 0.6 - x0 * x0 - y0 * y0 - z0 * z0;
+        if( t0 > 0 ) {
+            int h = ( ii + perm[ jj + perm[kk] ] ) * 3;
+            double dot = g[h] * x0 + g[h+1] * y0 + g[h+2] * z0;
+            double tt = t0 * t0;
+            double t4 = tt * tt;
+            double a  = -8.0 * tt * t0 * dot;
+            n0  = t4 * dot;
+            dx += t4 * g[h] + a * x0;
+            dy += t4 * g[h+1] + a * y0;
+            dz += t4 * g[h+2] + a * z0;
+        }
+        double t1 = 0.6 - x1 * x1 - y1 * y1 - z1 * z1;
+        if( t1 > 0 ) {
+            int h = ( ii + i1 + perm[ jj + j1 + perm[kk + k1] ] ) * 3;
+            double dot = g[h] * x1 + g[h+1] * y1 + g[h+2] * z1;
+            double tt = t1 * t1;
+            double t4 = tt * tt;
+            double a  = -8.0 * tt * t1 * dot;
+            n1  = t4 * dot;
+            dx += t4 * g[h] + a * x1;
+            dy += t4 * g[h+1] + a * y1;
+            dz += t4 * g[h+2] + a * z1;
+        }
+        double t2 = 0.6 - x2 * x2 - y2 * y2 - z2 * z2;
+        if( t2 > 0 ) {
+            int h = ( ii + i2 + perm[ jj + j2 + perm[kk + k2] ] ) * 3;
+            double dot = g[h] * x2 + g[h+1] * y2 + g[h+2] * z2;
+            double tt = t2 * t2;
+            double t4 = tt * tt;
+            double a  = -8.0 * tt * t2 * dot;
+            n2  = t4 * dot;
+            dx += t4 * g[h] + a * x2;
+            dy += t4 * g[h+1] + a * y2;
+            dz += t4 * g[h+2] + a * z2;
+        }
+        double t3 = 0.6 - x3 * x3 - y3 * y3 - z3 * z3;
+        if( t3 > 0 ) {
+            int h = ( ii + 1 + perm[ jj + 1 + perm[kk + 1] ] ) * 3;
+            double dot = g[h] * x3 + g[h+1] * y3 + g[h+2] * z3;
+            double tt = t3 * t3;
+            double t4 = tt * tt;
+            double a  = -8.0 * tt * t3 * dot;
+            n3  = t4 * dot;
+            dx += t4 * g[h] + a * x3;
+            dy += t4 * g[h+1] + a * y3;
+            dz += t4 * g[h+2] + a * z3;
+        }
+
+        if( outVec == null ) {
+            outGrad[gradOff    ] = 32.0 * dx;
+            outGrad[gradOff + 1] = 32.0 * dy;
+            outGrad[gradOff + 2] = 32.0 * dz;
+        } else {
+            outVec.x = (float)( 32.0 * dx );
+            outVec.y = (float)( 32.0 * dy );
+            outVec.z = (float)( 32.0 * dz );
+        }
+        return 32.0 * ( n0 + n1 + n2 + n3 );
+    }
+
+    /**
+     * Fills a grid with 2D Simplex Noise, laid out as in
+     * {@link SimplexNoise#noise2Grid(double, double, double, double, int, int, float[], int, int, Executor)}.
+     *
+     * @param exec Executor used to compute rows in parallel. May be {@code null}.
+     */
+    public void noise2Grid( final double x0,
+                            final double y0,
+                            final double dx,
+                            final double dy,
+                            final int w,
+                            int h,
+                            final float[] out,
+                            final int off,
+                            final int stride,
+                            Executor exec )
+    {
+        if( w <= 0 || h <= 0 ) {
+            return;
+        }
+        Parallel.forRange( exec, 0, h, minRows( w ), new Parallel.RangeTask() {
+            public void run( int r0, int r1 ) {
+                for( int r = r0; r < r1; r++ ) {
+                    noise2Row( x0, dx, 1.0, 0, w, y0 + r * dy, out, off + r * stride );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Fills a block with 3D Simplex Noise, laid out as in
+     * {@link SimplexNoise#noise3Slab(double, double, double, double, double, double, int, int, int, float[], int, Executor)}.
+     *
+     * @param exec Executor used to compute rows in parallel. May be {@code null}.
+     */
+    public void noise3Slab( final double x0,
+                            final double y0,
+                            final double z0,
+                            final double dx,
+                            final double dy,
+                            final double dz,
+                            final int w,
+                            final int h,
+                            int d,
+                            final float[] out,
+                            final int off,
+                            Executor exec )
+    {
+        if( w <= 0 || h <= 0 || d <= 0 ) {
+            return;
+        }
+        Parallel.forRange( exec, 0, h * d, minRows( w ), new Parallel.RangeTask() {
+            public void run( int r0, int r1 ) {
+                for( int row = r0; row < r1; row++ ) {
+                    int k = row / h;
+                    int r = row - k * h;
+                    noise3Row( x0, dx, 1.0, 0, w, y0 + r * dy, z0 + k * dz, out, off + row * w );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Computes 2D Simplex Noise for an array of points stored as separate coordinate arrays.
+     *
+     * @param exec Executor used to compute points in parallel. May be {@code null}.
+     */
+    public void noise2Points( final double[] xs,
+                              final double[] ys,
+                              final int inOff,
+                              final float[] out,
+                              final int outOff,
+                              int len,
+                              Executor exec )
+    {
+        Parallel.forRange( exec, 0, len, MIN_SAMPLES_PER_TASK, new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                for( int i = start; i < end; i++ ) {
+                    out[outOff + i] = (float)noise( xs[inOff + i], ys[inOff + i] );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Computes 3D Simplex Noise for an array of points stored as separate coordinate arrays.
+     *
+     * @param exec Executor used to compute points in parallel. May be {@code null}.
+     */
+    public void noise3Points( final double[] xs,
+                              final double[] ys,
+                              final double[] zs,
+                              final int inOff,
+                              final float[] out,
+                              final int outOff,
+                              int len,
+                              Executor exec )
+    {
+        Parallel.forRange( exec, 0, len, MIN_SAMPLES_PER_TASK, new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                for( int i = start; i < end; i++ ) {
+                    out[outOff + i] = (float)noise( xs[inOff + i], ys[inOff + i], zs[inOff + i] );
+                }
+            }
+        } );
+    }
+
+    @Override
+    public String toString() {
+        return "SeededSimplexNoise[" + mSeed + "]";
+    }
+
+
+
+    /**
+     * Computes one row of 2D noise. Sample {@code c} in {@code [c0, c1)} is taken at
+     * {@code ( (x0 + c * dx) * freq, y )} and written to {@code out[off + c - c0]}, so that values
+     * depend only on the sample index and not on how a grid is split into rows.
+     * Values that depend only on the row are computed once, and permutation lookups for the
+     * current row cell are reused until the sample crosses into the next cell.
+     */
+    void noise2Row( double x0, double dx, double freq, int c0, int c1, double y, float[] out, int off ) {
+        final int[] perm = mPerm;
+        final double[] g = mGrad;
+
+        int lastJ = Integer.MIN_VALUE;
+        int pj0 = 0;
+        int pj1 = 0;
+
+        final int w = c1 - c0;
+        for( int n = 0; n < w; n++ ) {
+            final double x = ( x0 + ( c0 + n ) * dx ) * freq;
+            final double s = ( x + y ) * F2;
+            final int i = fastfloor( x + s );
+            final int j = fastfloor( y + s );
+            if( j != lastJ ) {
+                lastJ = j;
+                pj0 = perm[ j & 0xFF ];
+                pj1 = perm[ ( j & 0xFF ) + 1 ];
+            }
+
+            final double t  = ( i + j ) * G2;
+            final double xa = x - ( i - t );
+            final double ya = y - ( j - t );
+
+            final int i1;
+            final int pm;
+            if( xa > ya ) {
+                i1 = 1;
+                pm = pj0;
+            } else {
+                i1 = 0;
+                pm = pj1;
+            }
+
+            final double xb = xa - i1 + G2;
+            final double yb = ya - ( 1 - i1 ) + G2;
+            final double xc = xa + G22;
+            final double yc = ya + G22;
+            final int ii = i & 0xFF;
+
+            double n0 = 0, n1 = 0, n2 = 0;
+            double t0 = 0.5 - xa * xa - ya * ya;
+            if( t0 > 0 ) {
+                int h = ( ii + pj0 ) * 3;
+                t0 *= t0;
+                n0 = t0 * t0 * ( g[h] * xa + g[h+1] * ya );
+            }
+            double t1 = 0.5 - xb * xb - yb * yb;
+            if( t1 > 0 ) {
+                int h = ( ii + i1 + pm ) * 3;
+                t1 *= t1;
+                n1 = t1 * t1 * ( g[h] * xb + g[h+1] * yb );
+            }
+            double t2 = 0.5 - xc * xc - yc * yc;
+            if( t2 > 0 ) {
+                int h = ( ii + 1 + pj1 ) * 3;
+                t2 *= t2;
+                n2 = t2 * t2 * ( g[h] * xc + g[h+1] * yc );
+            }
+            out[off + n] = (float)( 70.0 * ( n0 + n1 + n2 ) );
+        }
+    }
+
+    /**
+     * Computes one row of 3D noise, with samples placed as in {@link #noise2Row}.
+     * Permutation lookups for the four (j,k) lattice columns around the current cell
+     * are reused until the sample crosses into another cell.
+     */
+    void noise3Row( double x0, double dx, double freq, int c0, int c1, double y, double z, float[] out, int off ) {
+        final int[] perm = mPerm;
+        final double[] g = mGrad;
+
+        int lastJ = Integer.MIN_VALUE;
+        int lastK = Integer.MIN_VALUE;
+        int p00 = 0, p01 = 0, p10 = 0, p11 = 0;
+
+        final int w = c1 - c0;
+        for( int n = 0; n < w; n++ ) {
+            final double x = ( x0 + ( c0 + n ) * dx ) * freq;
+            final double s = ( x + y + z ) * F3;
+            final int i = fastfloor( x + s );
+            final int j = fastfloor( y + s );
+            final int k = fastfloor( z + s );
+            if( j != lastJ || k != lastK ) {
+                lastJ = j;
+                lastK = k;
+                final int jj = j & 0xFF;
+                final int kk = k & 0xFF;
+                final int pk0 = perm[kk];
+                final int pk1 = perm[kk + 1];
+                p00 = perm[jj + pk0];
+                p01 = perm[jj + pk1];
+                p10 = perm[jj + 1 + pk0];
+                p11 = perm[jj + 1 + pk1];
+            }
+
+            final double t  = ( i + j + k ) * G3;
+            final double xa = x - ( i - t );
+            final double ya = y - ( j - t );
+            final double za = z - ( k - t );
+
+            // Offsets and cached permutation values for second and third corners.
+            int i1, j1, k1, i2, j2, k2, pa, pb;
+            if( xa >= ya ) {
+                if( ya >= za ) {
+                    i1 = 1; j1 = 0; k1 = 0; pa = p00;
+                    i2 = 1; j2 = 1; k2 = 0; pb = p10;
+                } else if( xa >= za ) {
+                    i1 = 1; j1 = 0; k1 = 0; pa = p00;
+                    i2 = 1; j2 = 0; k2 = 1; pb = p01;
+                } else {
+                    i1 = 0; j1 = 0; k1 = 1; pa = p01;
+                    i2 = 1; j2 = 0; k2 = 1; pb = p01;
+                }
+            } else {
+                if( ya < za ) {
+                    i1 = 0; j1 = 0; k1 = 1; pa = p01;
+                    i2 = 0; j2 = 1; k2 = 1; pb = p11;
+                } else if( xa < za ) {
+                    i1 = 0; j1 = 1; k1 = 0; pa = p10;
+                    i2 = 0; j2 = 1; k2 = 1; pb = p11;
+                } else {
+                    i1 = 0; j1 = 1; k1 = 0; pa = p10;
+                    i2 = 1; j2 = 1; k2 = 0; pb = p10;
+                }
+            }
+
+            final double xb = xa - i1 + G3;
+            final double yb = ya - j1 + G3;
+            final double zb = za - k1 + G3;
+            final double xc = xa - i2 + F3;
+            final double yc = ya - j2 + F3;
+            final double zc = za - k2 + F3;
+            final double xd = xa - 0.5;
+            final double yd = ya - 0.5;
+            final double zd = za - 0.5;
+            final int ii = i & 0xFF;
+
+            double n0 = 0, n1 = 0, n2 = 0, n3 = 0;
+            double t0 = 0.6 - xa * xa - ya * ya - za * za;
+            if( t0 > 0 ) {
+                int h = ( ii + p00 ) * 3;
+                t0 *= t0;
+                n0 = t0 * t0 * ( g[h] * xa + g[h+1] * ya + g[h+2] * za );
+            }
+            double t1 = 0.6 - xb * xb - yb * yb - zb * zb;
+            if( t1 > 0 ) {
+                int h = ( ii + i1 + pa ) * 3;
+                t1 *= t1;
+                n1 = t1 * t1 * ( g[h] * xb + g[h+1] * yb + g[h+2] * zb );
+            }
+            double t2 = 0.6 - xc * xc - yc * yc - zc * zc;
+            if( t2 > 0 ) {
+                int h = ( ii + i2 + pb ) * 3;
+                t2 *= t2;
+                n2 = t2 * t2 * ( g[h] * xc + g[h+1] * yc + g[h+2] * zc );
+            }
+            double t3 = 0.6 - xd * xd - yd * yd - zd * zd;
+            if( t3 > 0 ) {
+                int h = ( ii + 1 + p11 ) * 3;
+                t3 *= t3;
+                n3 = t3 * t3 * ( g[h] * xd + g[h+1] * yd + g[h+2] * zd );
+            }
+            out[off + n] = (float)( 32.0 * ( n0 + n1 + n2 + n3 ) );
+        }
+    }
+
+
+    /**
+     * @return permutation of 0..255 generated from seed.
+     */
+    private static int[] shuffle( long seed ) {
+        Random rand = new Random( seed );
+        int[] ret = new int[256];
+        for( int i = 0; i < 256; i++ ) {
+            ret[i] = i;
+        }
+        for( int i = 255; i > 0; i-- ) {
+            int j = rand.nextInt( i + 1 );
+            int swap = ret[i];
+            ret[i] = ret[j];
+            ret[j] = swap;
+        }
+        return ret;
+    }
+
+}
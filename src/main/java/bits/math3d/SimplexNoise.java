@@ -1,5 +1,8 @@
 package bits.math3d;
 
+import java.util.concurrent.Executor;
+
+
 /**
  * Simplex Noise in 2D, 3D and 4D. Based on the example code of this paper:
  * http://staffwww.itn.liu.se/~stegu/simplexnoise/simplexnoise.pdf
@@ -20,80 +23,7 @@ public class SimplexNoise {
      * @return noise mVal in range -1 ... +1.
      */
     public static double noise( double x, double y ) {
-        // Noise contributions from the three corners.
-        double n0 = 0, n1 = 0, n2 = 0;
-
-        // Skew the input space to determine which simplex cell we're in
-        double s = (x + y) * F2; // Hairy factor for 2D
-        int i = fastfloor( x + s );
-        int j = fastfloor( y + s );
-        double t = (i + j) * G2;
-        double x0 = x - ( i - t ); // The x,y distances from the cell origin
-        double y0 = y - ( j - t );
-
-        // For the 2D case, the SIMPLEX shape is an equilateral triangle.
-        // Determine which simplex we are in.
-
-        // Offsets for second (middle) corner of simplex in (i,j)
-        int i1, j1;
-        if( x0 > y0 ) {
-            // lower triangle, XY order: (0,0)->(1,0)->(1,1)
-            i1 = 1;
-            j1 = 0;
-        } else {
-            // upper triangle, YX order: (0,0)->(0,1)->(1,1)
-            i1 = 0;
-            j1 = 1;
-        }
-
-        // A step of (1,0) in (i,j) means a step of (1-c,-c) in (x,y), and
-        // a step of (0,1) in (i,j) means a step of (-c,1-c) in (x,y), where
-        // c = (3-sqrt(3))/6
-
-        // Offsets for middle corner in (x,y) unskewed
-        double x1 = x0 - i1 + G2;
-        double y1 = y0 - j1 + G2;
-
-        // Offsets for last corner in (x,y) unskewed
-        double x2 = x0 + G22;
-        double y2 = y0 + G22;
-
-        // Work out the hashed gradient indices of the three simplex corners
-        int ii = i & 0xff;
-        int jj = j & 0xff;
-
-        // Calculate the contribution from the three corners
-        double t0 = 0.5 - x0 * x0 - y0 * y0;
-        if( t0 > 0 ) {
-            int gi0;
-            gi0 = PERM[jj];
-            gi0 = PERM[ ( ii + gi0 ) & 0xFF ] % 12;
-            t0 *= t0;
-            n0 = t0 * t0 * dot( GRADIENTS3[gi0], x0, y0 );
-            // (x,y) of GRADIENTS3 used for 2D gradient
-        }
-
-        double t1 = 0.5 - x1 * x1 - y1 * y1;
-        if( t1 > 0 ) {
-            int gi1;
-            gi1 = PERM[ ( jj + j1 )       & 0xFF ];
-            gi1 = PERM[ ( ii + i1 + gi1 ) & 0xFF ] % 12;
-            t1 *= t1;
-            n1 = t1 * t1 * dot( GRADIENTS3[gi1], x1, y1 );
-        }
-
-        double t2 = 0.5 - x2 * x2 - y2 * y2;
-        if( t2 > 0 ) {
-            int gi2;
-            gi2 = PERM[ ( jj + 1 ) & 0xFF ];
-            gi2 = PERM[ ( ii + 1 + gi2 ) & 0xFF ] % 12;
-            t2 *= t2;
-            n2 = t2 * t2 * dot( GRADIENTS3[gi2], x2, y2 );
-        }
-
-        // Add contributions from each corner to get the final noise mVal.
-        // The result is scaled to return values in the interval [-1,1].
-        return 70.0 * ( n0 + n1 + n2 );
+        return DEFAULT.noise( x, y );
     }
 
     /**
@@ -105,145 +35,59 @@ public class SimplexNoise {
      * @return noise mVal in range -1 ... +1
      */
     public static double noise( double x, double y, double z ) {
-        // Noise contributions from the four corners.
-        double n0 = 0, n1 = 0, n2 = 0, n3 = 0;
-
-        // Skew the input space to determine which simplex cell we're in
-        double s = ( x + y + z ) * F3;
+        return DEFAULT.noise( x, y, z );
+    }
 
-        int i = fastfloor( x + s );
-        int j = fastfloor( y + s );
-        int k = fastfloor( z + s );
+    /**
+     * Computes 2D Simplex Noise and its analytic gradient in a single evaluation, which costs
+     * much less than estimating the gradient with finite differences.
+     * The returned value is identical to {@link #noise(double, double)}.
+     *
+     * @param x       coordinate
+     * @param y       coordinate
+     * @param outGrad Receives {@code (dn/dx, dn/dy)}
+     * @param gradOff Offset into outGrad
+     * @return noise mVal in range -1 ... +1.
+     */
+    public static double noise( double x, double y, double[] outGrad, int gradOff ) {
+        return DEFAULT.noise( x, y, outGrad, gradOff );
+    }
 
-        // Very nice and simple unskew factor.
-        double t  = ( i + j + k ) * G3;
-        double x0 = x - ( i - t ); // The x,y,z distances from the cell origin
-        double y0 = y - ( j - t );
-        double z0 = z - ( k - t );
-        // For the 3D case, the SIMPLEX shape is a slightly irregular tetrahedron.
-        // Determine which simplex we are in.
-
-        // Offsets for second corner of simplex in (i,j,k) coords
-        int i1, j1, k1;
-        // Offsets for third corner of simplex in (i,j,k) coords
-        int i2, j2, k2;
-
-        if( x0 >= y0 ) {
-            if( y0 >= z0 ) {
-                // X Y Z order
-                i1 = 1;
-                j1 = 0;
-                k1 = 0;
-                i2 = 1;
-                j2 = 1;
-                k2 = 0;
-            } else if( x0 >= z0 ) {
-                // X Z Y order
-                i1 = 1;
-                j1 = 0;
-                k1 = 0;
-                i2 = 1;
-                j2 = 0;
-                k2 = 1;
-            } else {
-                // Z X Y order
-                i1 = 0;
-                j1 = 0;
-                k1 = 1;
-                i2 = 1;
-                j2 = 0;
-                k2 = 1;
-            }
-        } else {
-            if( y0 < z0 ) {
-                // Z Y X order
-                i1 = 0;
-                j1 = 0;
-                k1 = 1;
-                i2 = 0;
-                j2 = 1;
-                k2 = 1;
-            } else if ( x0 < z0 ) {
-                // Y Z X order
-                i1 = 0;
-                j1 = 1;
-                k1 = 0;
-                i2 = 0;
-                j2 = 1;
-                k2 = 1;
-            } else {
-                // Y X Z order
-                i1 = 0;
-                j1 = 1;
-                k1 = 0;
-                i2 = 1;
-                j2 = 1;
-                k2 = 0;
-            }
-        }
-        // A step of (1,0,0) in (i,j,k) means a step of (1-c,-c,-c) in (x,y,z),
-        // a step of (0,1,0) in (i,j,k) means a step of (-c,1-c,-c) in (x,y,z),
-        // and
-        // a step of (0,0,1) in (i,j,k) means a step of (-c,-c,1-c) in (x,y,z),
-        // where
-        // c = 1/6.
-        double x1 = x0 - i1 + G3; // Offsets for second corner in (x,y,z) coords
-        double y1 = y0 - j1 + G3;
-        double z1 = z0 - k1 + G3;
-
-        double x2 = x0 - i2 + F3; // Offsets for third corner in (x,y,z)
-        double y2 = y0 - j2 + F3;
-        double z2 = z0 - k2 + F3;
-
-        double x3 = x0 - 0.5; // Offsets for last corner in (x,y,z)
-        double y3 = y0 - 0.5;
-        double z3 = z0 - 0.5;
-        // Work out the hashed gradient indices of the four simplex corners
-        int ii = i & 0xff;
-        int jj = j & 0xff;
-        int kk = k & 0xff;
+    /**
+     * Computes 2D Simplex Noise and its analytic gradient.
+     *
+     * @param outGrad Receives {@code (dn/dx, dn/dy)}
+     * @return noise mVal in range -1 ... +1.
+     * @see #noise(double, double, double[], int)
+     */
+    public static double noise( double x, double y, Vec2 outGrad ) {
+        return DEFAULT.noise( x, y, outGrad );
+    }
 
-        // Calculate the contribution from the four corners
-        double t0 = 0.6 - x0 * x0 - y0 * y0 - z0 * z0;
-        if( t0 > 0 ) {
-            int gi0;
-            gi0 = PERM[ kk              ];
-            gi0 = PERM[(jj + gi0) & 0xFF];
-            gi0 = PERM[(ii + gi0) & 0xFF] % 12;
-            t0 *= t0;
-            n0 = t0 * t0 * dot( GRADIENTS3[gi0], x0, y0, z0);
-        }
+    /**
+     * Computes 3D Simplex Noise and its analytic gradient in a single evaluation.
+     * The returned value is identical to {@link #noise(double, double, double)}.
+     *
+     * @param x       coordinate
+     * @param y       coordinate
+     * @param z       coordinate
+     * @param outGrad Receives {@code (dn/dx, dn/dy, dn/dz)}
+     * @param gradOff Offset into outGrad
+     * @return noise mVal in range -1 ... +1.
+     */
+    public static double noise( double x, double y, double z, double[] outGrad, int gradOff ) {
+        return DEFAULT.noise( x, y, z, outGrad, gradOff );
+    }
 
-        double t1 = 0.6 - x1 * x1 - y1 * y1 - z1 * z1;
-        if( t1 > 0 ) {
-            int gi1;
-            gi1 = PERM[ (kk + k1      ) & 0xFF ];
-            gi1 = PERM[ (jj + j1 + gi1) & 0xFF ];
-            gi1 = PERM[ (ii + i1 + gi1) & 0xFF ] % 12;
-            t1 *= t1;
-            n1 = t1 * t1 * dot( GRADIENTS3[gi1], x1, y1, z1 );
-        }
-        double t2 = 0.6 - x2 * x2 - y2 * y2 - z2 * z2;
-        if( t2 > 0 ) {
-            int gi2;
-            gi2 = PERM[(kk + k2)       & 0xFF];
-            gi2 = PERM[(jj + j2 + gi2) & 0xFF];
-            gi2 = PERM[(ii + i2 + gi2) & 0xFF] % 12;
-            t2 *= t2;
-            n2 = t2 * t2 * dot( GRADIENTS3[gi2], x2, y2, z2 );
-        }
-        double t3 = 0.6 - x3 * x3 - y3 * y3 - z3 * z3;
-        if( t3 > 0 ) {
-            int gi3;
-            gi3 = PERM[(kk + 1)       & 0xFF];
-            gi3 = PERM[(jj + 1 + gi3) & 0xFF];
-            gi3 = PERM[(ii + 1 + gi3) & 0xFF] % 12;
-            t3 *= t3;
-            n3 = t3 * t3 * dot( GRADIENTS3[gi3], x3, y3, z3 );
-        }
-        // Add contributions from each corner to get the final noise mVal.
-        // The result is scaled to stay just inside [-1,1]
-        return 32.0 * ( n0 + n1 + n2 + n3 );
+    /**
+     * Computes 3D Simplex Noise and its analytic gradient.
+     *
+     * @param outGrad Receives {@code (dn/dx, dn/dy, dn/dz)}
+     * @return noise mVal in range -1 ... +1.
+     * @see #noise(double, double, double, double[], int)
+     */
+    public static double noise( double x, double y, double z, Vec3 outGrad ) {
+        return DEFAULT.noise( x, y, z, outGrad );
     }
 
     /**
@@ -417,19 +261,130 @@ public class SimplexNoise {
     }
 
 
+    /**
+     * Fills a grid with 2D Simplex Noise. Sample {@code (c, r)} is taken at
+     * {@code (x0 + c * dx, y0 + r * dy)} and written to {@code out[off + r * stride + c]}.
+     * Each sample equals the value returned by {@link #noise(double, double)}.
+     *
+     * @param x0     X-coord of first sample
+     * @param y0     Y-coord of first sample
+     * @param dx     Distance between columns
+     * @param dy     Distance between rows
+     * @param w      Number of columns
+     * @param h      Number of rows
+     * @param out    Receives noise values
+     * @param off    Offset into out
+     * @param stride Distance between rows in out
+     * @param exec   Executor used to compute rows in parallel. May be {@code null}.
+     */
+    public static void noise2Grid( double x0,
+                                   double y0,
+                                   double dx,
+                                   double dy,
+                                   int w,
+                                   int h,
+                                   float[] out,
+                                   int off,
+                                   int stride,
+                                   Executor exec )
+    {
+        DEFAULT.noise2Grid( x0, y0, dx, dy, w, h, out, off, stride, exec );
+    }
+
+    /**
+     * Fills a block with 3D Simplex Noise. Sample {@code (c, r, k)} is taken at
+     * {@code (x0 + c * dx, y0 + r * dy, z0 + k * dz)} and written to {@code out[off + (k * h + r) * w + c]}.
+     * Each sample equals the value returned by {@link #noise(double, double, double)}.
+     *
+     * @param x0   X-coord of first sample
+     * @param y0   Y-coord of first sample
+     * @param z0   Z-coord of first sample
+     * @param dx   Distance between columns
+     * @param dy   Distance between rows
+     * @param dz   Distance between layers
+     * @param w    Number of columns
+     * @param h    Number of rows
+     * @param d    Number of layers
+     * @param out  Receives noise values
+     * @param off  Offset into out
+     * @param exec Executor used to compute rows in parallel. May be {@code null}.
+     */
+    public static void noise3Slab( double x0,
+                                   double y0,
+                                   double z0,
+                                   double dx,
+                                   double dy,
+                                   double dz,
+                                   int w,
+                                   int h,
+                                   int d,
+                                   float[] out,
+                                   int off,
+                                   Executor exec )
+    {
+        DEFAULT.noise3Slab( x0, y0, z0, dx, dy, dz, w, h, d, out, off, exec );
+    }
+
+    /**
+     * Computes 2D Simplex Noise for an array of points stored as separate coordinate arrays.
+     *
+     * @param xs     X-coords
+     * @param ys     Y-coords
+     * @param inOff  Offset into xs and ys
+     * @param out    Receives noise values
+     * @param outOff Offset into out
+     * @param len    Number of points
+     * @param exec   Executor used to compute points in parallel. May be {@code null}.
+     */
+    public static void noise2Points( double[] xs,
+                                     double[] ys,
+                                     int inOff,
+                                     float[] out,
+                                     int outOff,
+                                     int len,
+                                     Executor exec )
+    {
+        DEFAULT.noise2Points( xs, ys, inOff, out, outOff, len, exec );
+    }
+
+    /**
+     * Computes 3D Simplex Noise for an array of points stored as separate coordinate arrays.
+     *
+     * @param xs     X-coords
+     * @param ys     Y-coords
+     * @param zs     Z-coords
+     * @param inOff  Offset into xs, ys and zs
+     * @param out    Receives noise values
+     * @param outOff Offset into out
+     * @param len    Number of points
+     * @param exec   Executor used to compute points in parallel. May be {@code null}.
+     */
+    public static void noise3Points( double[] xs,
+                                     double[] ys,
+                                     double[] zs,
+                                     int inOff,
+                                     float[] out,
+                                     int outOff,
+                                     int len,
+                                     Executor exec )
+    {
+        DEFAULT.noise3Points( xs, ys, zs, inOff, out, outOff, len, exec );
+    }
+
+
     private static final double SQRT3 = Math.sqrt( 3.0 );
     private static final double SQRT5 = Math.sqrt( 5.0 );
 
     /**
      * Skewing and unskewing factors for 2D, 3D and 4D, some of them
-     * pre-multiplied.
+     * pre-multiplied. 2D and 3D factors are shared with {@link SeededSimplexNoise}.
      */
-    private static final double F2  = 0.5 * (SQRT3 - 1.0);
-    private static final double G2  = (3.0 - SQRT3) / 6.0;
-    private static final double G22 = G2 * 2.0 - 1;
+    static final double F2  = 0.5 * (SQRT3 - 1.0);
+    static final double G2  = (3.0 - SQRT3) / 6.0;
+    static final double G22 = G2 * 2.0 - 1;
 
-    private static final double F3 = 1.0 / 3.0;
-    private static final double G3 = 1.0 / 6.0;
+    static final double F3 = 1.0 / 3.0;
+    static final double G3 = 1.0 / 6.0;
 
     private static final double F4  = (SQRT5 - 1.0) / 4.0;
     private static final double G4  = (5.0 - SQRT5) / 20.0;
@@ -438,12 +393,13 @@ public class SimplexNoise {
     private static final double G44 = G4 * 4.0 - 1.0;
 
     /**
-     * Gradient vectors for 3D (pointing to mid points of all edges of a unit cube)
+     * Gradient vectors for 3D (pointing to mid points of all edges of a unit cube),
+     * stored as consecutive (x,y,z) triplets.
      */
-    private static final double[][] GRADIENTS3 = { {  1,  1,  0 }, { -1,  1,  0 }, {  1, -1,  0 },
-                                                   { -1, -1,  0 }, {  1,  0,  1 }, { -1,  0,  1 },
-                                                   {  1,  0, -1 }, { -1,  0, -1 }, {  0,  1,  1 },
-                                                   {  0, -1,  1 }, {  0,  1, -1 }, {  0, -1, -1 } };
+    static final double[] GRAD3 = {  1,  1,  0,   -1,  1,  0,    1, -1,  0,
+                                            -1, -1,  0,    1,  0,  1,   -1,  0,  1,
+                                             1,  0, -1,   -1,  0, -1,    0,  1,  1,
+                                             0, -1,  1,    0,  1, -1,    0, -1, -1 };
 
     /**
      * Gradient vectors for 4D (pointing to mid points of all edges of a unit 4D hypercube)
@@ -503,27 +459,41 @@ public class SimplexNoise {
                                              { 3, 1, 0, 7 }, { 0, 0, 0, 0 }, { 0, 0, 0, 0 }, { 0, 0, 0, 0 },
                                              { 7, 1, 0, 3 }, { 0, 0, 0, 0 }, { 7, 3, 0, 1 }, { 7, 3, 1, 0 } };
 
+    /**
+     * Permutation table repeated twice, so that the sum of a lattice coordinate and a permutation
+     * value never needs to be wrapped.
+     */
+    static final int[] PERM2 = new int[512];
 
     /**
-     * Computes dot product in 2D.
-     *
-     * @param g 2-vector (grid mOffset)
-     * @return dot product
+     * PERM2 reduced mod 12, giving indices into GRAD3 directly.
      */
-    private static double dot( double g[], double x, double y ) {
-        return g[0] * x + g[1] * y;
+    static final int[] PERM2_MOD12 = new int[512];
+
+    static {
+        for( int i = 0; i < 512; i++ ) {
+            PERM2[i] = PERM[i & 0xFF];
+            PERM2_MOD12[i] = PERM2[i] % 12;
+        }
     }
 
     /**
-     * Computes dot product in 3D.
-     *
-     * @param g 3-vector (grid mOffset)
-     * @return dot product
+     * Instance over the static tables. All 2D and 3D evaluation is delegated to it, so that
+     * {@link SeededSimplexNoise} holds the only copy of those kernels.
+     */
+    static final SeededSimplexNoise DEFAULT = new SeededSimplexNoise( 0, PERM2 );
+
+    /**
+     * Approximate number of samples per parallel task.
      */
-    private static double dot( double g[], double x, double y, double z ) {
-        return g[0] * x + g[1] * y + g[2] * z;
+    static final int MIN_SAMPLES_PER_TASK = 4096;
+
+
+    static int minRows( int w ) {
+        return Math.max( 1, MIN_SAMPLES_PER_TASK / Math.max( 1, w ) );
     }
 
+
     /**
      * Computes dot product in 4D.
      *
@@ -539,7 +509,7 @@ public class SimplexNoise {
      *
      * @param x mVal to be floored
      */
-    private static int fastfloor( double x ) {
+    static int fastfloor( double x ) {
         return x >= 0 ? (int)x : (int)x - 1;
     }
 
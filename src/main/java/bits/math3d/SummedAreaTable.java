@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+
+/**
+ * Summed-area table, or integral image, over a strided float matrix. After {@link #set},
+ * the sum or mean of any axis-aligned rectangle of samples is computed in constant time.
+ * Sums are accumulated in double precision.
+ * <p>
+ * Rectangles are half-open: {@code [x0, x1) x [y0, y1)}, and are clipped to the matrix.
+ * A SummedAreaTable may be reused for matrices of different sizes.
+ *
+ * @author Philip DeCamp
+ */
+public final class SummedAreaTable {
+
+    private int mWidth  = 0;
+    private int mHeight = 0;
+
+    /** (mWidth+1) x (mHeight+1) table. mTable[(y+1)*(mWidth+1)+(x+1)] holds sum of all samples at or before (x,y). **/
+    private double[] mTable = new double[1];
+
+
+    public SummedAreaTable() {}
+
+
+    public SummedAreaTable( float[] src, int srcOff, int w, int h, int xStride, int yStride ) {
+        set( src, srcOff, w, h, xStride, yStride );
+    }
+
+
+    /**
+     * Computes table for a matrix.
+     *
+     * @param src     Source matrix.
+     * @param srcOff  Offset into source array.
+     * @param w       Width of source matrix.
+     * @param h       Height of source matrix.
+     * @param xStride Number of array indices between a sample and the sample to the left.
+     * @param yStride Number of array indices between a sample and the sample above.
+     */
+    public void set( float[] src, int srcOff, int w, int h, int xStride, int yStride ) {
+        if( w < 0 || h < 0 ) {
+            throw new IllegalArgumentException( "Negative dimensions: " + w + " x " + h );
+        }
+
+        final int tw = w + 1;
+        final int len = tw * ( h + 1 );
+        if( mTable.length < len ) {
+            mTable = new double[len];
+        }
+
+        mWidth  = w;
+        mHeight = h;
+        final double[] t = mTable;
+
+        for( int x = 0; x < tw; x++ ) {
+            t[x] = 0.0;
+        }
+
+        for( int y = 0; y < h; y++ ) {
+            final int srcRow = srcOff + y * yStride;
+            final int prev   = y * tw;
+            final int row    = prev + tw;
+            double rowSum = 0.0;
+            t[row] = 0.0;
+            for( int x = 0; x < w; x++ ) {
+                rowSum += src[srcRow + x * xStride];
+                t[row + x + 1] = t[prev + x + 1] + rowSum;
+            }
+        }
+    }
+
+
+    public int width() {
+        return mWidth;
+    }
+
+
+    public int height() {
+        return mHeight;
+    }
+
+    /**
+     * @return sum of samples in {@code [x0, x1) x [y0, y1)}, clipped to the matrix.
+     */
+    public double sum( int x0, int y0, int x1, int y1 ) {
+        x0 = clamp( x0, mWidth );
+        x1 = clamp( x1, mWidth );
+        y0 = clamp( y0, mHeight );
+        y1 = clamp( y1, mHeight );
+        if( x1 <= x0 || y1 <= y0 ) {
+            return 0.0;
+        }
+
+        final int tw = mWidth + 1;
+        final double[] t = mTable;
+        return t[y1 * tw + x1] - t[y0 * tw + x1] - t[y1 * tw + x0] + t[y0 * tw + x0];
+    }
+
+    /**
+     * Computes the sum of all samples whose centers lie within a box. Sample {@code (x,y)}
+     * covers {@code [x, x+1) x [y, y+1)} and has center {@code (x+0.5, y+0.5)}.
+     *
+     * @return sum of samples with centers in {@code box}, clipped to the matrix.
+     */
+    public double sum( Box2 box ) {
+        return sum( sampleEdge( box.x0 ), sampleEdge( box.y0 ), sampleEdge( box.x1 ), sampleEdge( box.y1 ) );
+    }
+
+    /**
+     * @return mean of samples in {@code [x0, x1) x [y0, y1)}, clipped to the matrix, or 0 if region is empty.
+     */
+    public double mean( int x0, int y0, int x1, int y1 ) {
+        x0 = clamp( x0, mWidth );
+        x1 = clamp( x1, mWidth );
+        y0 = clamp( y0, mHeight );
+        y1 = clamp( y1, mHeight );
+        if( x1 <= x0 || y1 <= y0 ) {
+            return 0.0;
+        }
+        return sum( x0, y0, x1, y1 ) / ( (double)( x1 - x0 ) * ( y1 - y0 ) );
+    }
+
+    /**
+     * @return mean of samples with centers in {@code box}, clipped to the matrix, or 0 if region is empty.
+     * @see #sum(Box2)
+     */
+    public double mean( Box2 box ) {
+        return mean( sampleEdge( box.x0 ), sampleEdge( box.y0 ), sampleEdge( box.x1 ), sampleEdge( box.y1 ) );
+    }
+
+
+
+    private static int sampleEdge( float v ) {
+        // First sample with center at or after v.
+        double e = Math.ceil( v - 0.5 );
+        return e <= Integer.MIN_VALUE ? Integer.MIN_VALUE : e >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)e;
+    }
+
+
+    private static int clamp( int v, int max ) {
+        return v < 0 ? 0 : v > max ? max : v;
+    }
+
+}
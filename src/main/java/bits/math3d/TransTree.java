@@ -0,0 +1,504 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Transform hierarchy stored in flat arrays. Each node holds a local transform, consisting of
+ * a {@link Trans3} and a per-axis scale, and the index of its parent. Nodes are added in
+ * topological order, so a parent always has a lower index than its children.
+ * <p>
+ * The world matrix of each node is {@code parentWorld * translate(pos) * rot * scale(s)},
+ * stored as 16 floats in the same column-major order as {@link Mat#put(Mat4, float[])}
+ * at {@code 16 * node} in {@link #worldArray()}.
+ * <p>
+ * Modifying the local transform of a node marks it dirty. {@link #update(Executor)}
+ * recomputes world matrices only for dirty nodes and their descendants. Those nodes are grouped by
+ * depth and each level is computed in a single pass, which may be split across an executor because
+ * no node in a level depends on another node in the same level.
+ *
+ * @author Philip DeCamp
+ */
+public class TransTree {
+
+    /**
+     * Number of floats stored per node for local transform: position (3), rotation (9, column-major), scale (3).
+     */
+    private static final int LOCAL_STRIDE = 15;
+
+    /**
+     * Minimum number of nodes per parallel chunk.
+     */
+    private static final int MIN_CHUNK = 512;
+
+    private int mSize = 0;
+
+    private int[] mParent;
+    private int[] mDepth;
+    private int[] mFirstChild;
+    private int[] mNextSibling;
+    private float[] mLocal;
+    private float[] mWorld;
+
+    private int mMaxDepth = -1;
+
+    private boolean[] mDirty;
+    private int[] mDirtyList;
+    private int mDirtyCount = 0;
+
+    private int[] mMark;
+    private int mStamp = 0;
+    private int[] mUpdate;
+    private int[] mSorted;
+    private int[] mLevels = new int[2];
+
+
+    public TransTree() {
+        this( 16 );
+    }
+
+
+    public TransTree( int capacity ) {
+        capacity = Math.max( 1, capacity );
+        mParent      = new int[capacity];
+        mDepth       = new int[capacity];
+        mFirstChild  = new int[capacity];
+        mNextSibling = new int[capacity];
+        mLocal       = new float[capacity * LOCAL_STRIDE];
+        mWorld       = new float[capacity * 16];
+        mDirty       = new boolean[capacity];
+        mDirtyList   = new int[capacity];
+        mMark        = new int[capacity];
+        mUpdate      = new int[capacity];
+        mSorted      = new int[capacity];
+    }
+
+    /**
+     * Adds a node with an identity local transform.
+     *
+     * @param parent Index of parent node, or -1 for a root node.
+     * @return index of new node.
+     */
+    public int add( int parent ) {
+        if( parent < -1 || parent >= mSize ) {
+            throw new IllegalArgumentException( "Invalid parent: " + parent );
+        }
+        int node = mSize;
+        ensureCapacity( node + 1 );
+        mSize++;
+
+        mParent[node]      = parent;
+        mFirstChild[node]  = -1;
+        mMark[node]        = 0;
+        if( parent < 0 ) {
+            mDepth[node]       = 0;
+            mNextSibling[node] = -1;
+        } else {
+            mDepth[node]         = mDepth[parent] + 1;
+            mNextSibling[node]   = mFirstChild[parent];
+            mFirstChild[parent] = node;
+        }
+        mMaxDepth = Math.max( mMaxDepth, mDepth[node] );
+
+        int off = node * LOCAL_STRIDE;
+        Arrays.fill( mLocal, off, off + LOCAL_STRIDE, 0f );
+        mLocal[off + 3] = 1f;
+        mLocal[off + 7] = 1f;
+        mLocal[off + 11] = 1f;
+        mLocal[off + 12] = 1f;
+        mLocal[off + 13] = 1f;
+        mLocal[off + 14] = 1f;
+
+        mDirty[node] = false;
+        markDirty( node );
+        return node;
+    }
+
+    /**
+     * Adds a node.
+     *
+     * @param parent Index of parent node, or -1 for a root node.
+     * @param local  Local transform of node.
+     * @return index of new node.
+     */
+    public int add( int parent, Trans3 local ) {
+        int node = add( parent );
+        setLocal( node, local );
+        return node;
+    }
+
+    /**
+     * @return number of nodes.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return parent of node, or -1 if node is a root.
+     */
+    public int parent( int node ) {
+        return mParent[node];
+    }
+
+    /**
+     * @return depth of node, where roots have depth 0.
+     */
+    public int depth( int node ) {
+        return mDepth[node];
+    }
+
+    /**
+     * Removes all nodes.
+     */
+    public void clear() {
+        mSize       = 0;
+        mMaxDepth   = -1;
+        mDirtyCount = 0;
+    }
+
+
+    public void ensureCapacity( int capacity ) {
+        int cap = mParent.length;
+        if( capacity <= cap ) {
+            return;
+        }
+        cap = Math.max( capacity, cap * 2 );
+        mParent      = Arrays.copyOf( mParent, cap );
+        mDepth       = Arrays.copyOf( mDepth, cap );
+        mFirstChild  = Arrays.copyOf( mFirstChild, cap );
+        mNextSibling = Arrays.copyOf( mNextSibling, cap );
+        mLocal       = Arrays.copyOf( mLocal, cap * LOCAL_STRIDE );
+        mWorld       = Arrays.copyOf( mWorld, cap * 16 );
+        mDirty       = Arrays.copyOf( mDirty, cap );
+        mDirtyList   = Arrays.copyOf( mDirtyList, cap );
+        mMark        = Arrays.copyOf( mMark, cap );
+        mUpdate      = new int[cap];
+        mSorted      = new int[cap];
+    }
+
+    //=== Local transforms ===//
+
+    public void getLocal( int node, Trans3 out ) {
+        final float[] a = mLocal;
+        int off = node * LOCAL_STRIDE;
+        Vec3 p = out.mPos;
+        Mat3 r = out.mRot;
+        p.x = a[off     ];
+        p.y = a[off +  1];
+        p.z = a[off +  2];
+        r.m00 = a[off +  3];
+        r.m10 = a[off +  4];
+        r.m20 = a[off +  5];
+        r.m01 = a[off +  6];
+        r.m11 = a[off +  7];
+        r.m21 = a[off +  8];
+        r.m02 = a[off +  9];
+        r.m12 = a[off + 10];
+        r.m22 = a[off + 11];
+    }
+
+
+    public void getScale( int node, Vec3 out ) {
+        int off = node * LOCAL_STRIDE + 12;
+        out.x = mLocal[off    ];
+        out.y = mLocal[off + 1];
+        out.z = mLocal[off + 2];
+    }
+
+
+    public void setLocal( int node, Trans3 t ) {
+        setPosition( node, t.mPos.x, t.mPos.y, t.mPos.z );
+        setRotation( node, t.mRot );
+    }
+
+
+    public void setLocal( int node, Trans3 t, float sx, float sy, float sz ) {
+        setLocal( node, t );
+        setScale( node, sx, sy, sz );
+    }
+
+
+    public void setPosition( int node, float x, float y, float z ) {
+        checkNode( node );
+        int off = node * LOCAL_STRIDE;
+        mLocal[off    ] = x;
+        mLocal[off + 1] = y;
+        mLocal[off + 2] = z;
+        markDirty( node );
+    }
+
+
+    public void setRotation( int node, Mat3 r ) {
+        checkNode( node );
+        final float[] a = mLocal;
+        int off = node * LOCAL_STRIDE;
+        a[off +  3] = r.m00;
+        a[off +  4] = r.m10;
+        a[off +  5] = r.m20;
+        a[off +  6] = r.m01;
+        a[off +  7] = r.m11;
+        a[off +  8] = r.m21;
+        a[off +  9] = r.m02;
+        a[off + 10] = r.m12;
+        a[off + 11] = r.m22;
+        markDirty( node );
+    }
+
+
+    public void setScale( int node, float s ) {
+        setScale( node, s, s, s );
+    }
+
+
+    public void setScale( int node, float sx, float sy, float sz ) {
+        checkNode( node );
+        int off = node * LOCAL_STRIDE + 12;
+        mLocal[off    ] = sx;
+        mLocal[off + 1] = sy;
+        mLocal[off + 2] = sz;
+        markDirty( node );
+    }
+
+    /**
+     * Marks node as modified, causing its world matrix and those of its descendants
+     * to be recomputed on next {@link #update}. Called automatically by all methods that modify
+     * the local transform.
+     */
+    public void markDirty( int node ) {
+        checkNode( node );
+        if( !mDirty[node] ) {
+            mDirty[node] = true;
+            mDirtyList[mDirtyCount++] = node;
+        }
+    }
+
+    /**
+     * @return true iff any node has been modified since last update.
+     */
+    public boolean isDirty() {
+        return mDirtyCount > 0;
+    }
+
+    //=== World transforms ===//
+
+    /**
+     * @return array holding world matrices, with 16 floats per node in column-major order.
+     *         May be replaced when nodes are added.
+     */
+    public float[] worldArray() {
+        return mWorld;
+    }
+
+    /**
+     * @return offset of world matrix for node in {@link #worldArray()}.
+     */
+    public int worldOffset( int node ) {
+        return node * 16;
+    }
+
+
+    public void getWorld( int node, Mat4 out ) {
+        checkNode( node );
+        final float[] a = mWorld;
+        final int o = node * 16;
+        out.m00 = a[o   ]; out.m10 = a[o+ 1]; out.m20 = a[o+ 2]; out.m30 = a[o+ 3];
+        out.m01 = a[o+ 4]; out.m11 = a[o+ 5]; out.m21 = a[o+ 6]; out.m31 = a[o+ 7];
+        out.m02 = a[o+ 8]; out.m12 = a[o+ 9]; out.m22 = a[o+10]; out.m32 = a[o+11];
+        out.m03 = a[o+12]; out.m13 = a[o+13]; out.m23 = a[o+14]; out.m33 = a[o+15];
+    }
+
+    /**
+     * Recomputes world matrices on calling thread.
+     *
+     * @return number of world matrices recomputed.
+     */
+    public int update() {
+        return update( null );
+    }
+
+    /**
+     * Recomputes world matrices of all dirty nodes and their descendants.
+     *
+     * @param exec Executor used to compute large levels in parallel. May be {@code null}.
+     * @return number of world matrices recomputed.
+     */
+    public int update( Executor exec ) {
+        final int dirtyCount = mDirtyCount;
+        if( dirtyCount == 0 ) {
+            return 0;
+        }
+
+        // Collect dirty subtrees. A subtree that was already collected
+        // through a dirty ancestor is skipped.
+        final int stamp = nextStamp();
+        final int[] mark     = mMark;
+        final int[] firstChild = mFirstChild;
+        final int[] next     = mNextSibling;
+        final int[] upd      = mUpdate;
+        final int[] stack    = mSorted;
+        int count = 0;
+
+        for( int i = 0; i < dirtyCount; i++ ) {
+            int root = mDirtyList[i];
+            mDirty[root] = false;
+            if( mark[root] == stamp ) {
+                continue;
+            }
+            int sp = 0;
+            stack[sp++] = root;
+            while( sp > 0 ) {
+                int n = stack[--sp];
+                if( mark[n] == stamp ) {
+                    continue;
+                }
+                mark[n] = stamp;
+                upd[count++] = n;
+                for( int c = firstChild[n]; c >= 0; c = next[c] ) {
+                    stack[sp++] = c;
+                }
+            }
+        }
+        mDirtyCount = 0;
+
+        // Counting sort by depth.
+        final int levelCount = mMaxDepth + 1;
+        if( mLevels.length < levelCount + 1 ) {
+            mLevels = new int[levelCount + 1];
+        }
+        final int[] levels = mLevels;
+        final int[] depth  = mDepth;
+        final int[] sorted = mSorted;
+        Arrays.fill( levels, 0, levelCount + 1, 0 );
+        for( int i = 0; i < count; i++ ) {
+            levels[depth[upd[i]] + 1]++;
+        }
+        for( int i = 1; i <= levelCount; i++ ) {
+            levels[i] += levels[i - 1];
+        }
+        for( int i = 0; i < count; i++ ) {
+            int n = upd[i];
+            sorted[levels[depth[n]]++] = n;
+        }
+        // levels[d] now holds the end of level d.
+
+        Parallel.RangeTask task = new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                computeWorld( sorted, start, end );
+            }
+        };
+
+        int start = 0;
+        for( int d = 0; d < levelCount; d++ ) {
+            int end = levels[d];
+            Parallel.forRange( exec, start, end, MIN_CHUNK, task );
+            start = end;
+        }
+
+        return count;
+    }
+
+    /**
+     * Recomputes world matrices of all nodes, regardless of dirty state.
+     *
+     * @param exec Executor used to compute large levels in parallel. May be {@code null}.
+     */
+    public void updateAll( Executor exec ) {
+        for( int i = 0; i < mSize; i++ ) {
+            if( mParent[i] < 0 ) {
+                markDirty( i );
+            }
+        }
+        update( exec );
+    }
+
+
+    private void computeWorld( int[] nodes, int start, int end ) {
+        final int[] parent = mParent;
+        final float[] loc  = mLocal;
+        final float[] w    = mWorld;
+
+        for( int i = start; i < end; i++ ) {
+            final int node = nodes[i];
+            final int lo = node * LOCAL_STRIDE;
+            final int wo = node * 16;
+
+            final float sx = loc[lo + 12];
+            final float sy = loc[lo + 13];
+            final float sz = loc[lo + 14];
+            final float a00 = loc[lo +  3] * sx, a10 = loc[lo +  4] * sx, a20 = loc[lo +  5] * sx;
+            final float a01 = loc[lo +  6] * sy, a11 = loc[lo +  7] * sy, a21 = loc[lo +  8] * sy;
+            final float a02 = loc[lo +  9] * sz, a12 = loc[lo + 10] * sz, a22 = loc[lo + 11] * sz;
+            final float a03 = loc[lo     ],      a13 = loc[lo +  1],      a23 = loc[lo +  2];
+
+            final int p = parent[node];
+            if( p < 0 ) {
+                w[wo     ] = a00;
+                w[wo +  1] = a10;
+                w[wo +  2] = a20;
+                w[wo +  3] = 0f;
+                w[wo +  4] = a01;
+                w[wo +  5] = a11;
+                w[wo +  6] = a21;
+                w[wo +  7] = 0f;
+                w[wo +  8] = a02;
+                w[wo +  9] = a12;
+                w[wo + 10] = a22;
+                w[wo + 11] = 0f;
+                w[wo + 12] = a03;
+                w[wo + 13] = a13;
+                w[wo + 14] = a23;
+                w[wo + 15] = 1f;
+                continue;
+            }
+
+            // Parent world matrices are affine: bottom row is [0 0 0 1].
+            final int po = p * 16;
+            final float b00 = w[po     ], b10 = w[po +  1], b20 = w[po +  2];
+            final float b01 = w[po +  4], b11 = w[po +  5], b21 = w[po +  6];
+            final float b02 = w[po +  8], b12 = w[po +  9], b22 = w[po + 10];
+            final float b03 = w[po + 12], b13 = w[po + 13], b23 = w[po + 14];
+
+            w[wo     ] = b00 * a00 + b01 * a10 + b02 * a20;
+            w[wo +  1] = b10 * a00 + b11 * a10 + b12 * a20;
+            w[wo +  2] = b20 * a00 + b21 * a10 + b22 * a20;
+            w[wo +  3] = 0f;
+            w[wo +  4] = b00 * a01 + b01 * a11 + b02 * a21;
+            w[wo +  5] = b10 * a01 + b11 * a11 + b12 * a21;
+            w[wo +  6] = b20 * a01 + b21 * a11 + b22 * a21;
+            w[wo +  7] = 0f;
+            w[wo +  8] = b00 * a02 + b01 * a12 + b02 * a22;
+            w[wo +  9] = b10 * a02 + b11 * a12 + b12 * a22;
+            w[wo + 10] = b20 * a02 + b21 * a12 + b22 * a22;
+            w[wo + 11] = 0f;
+            w[wo + 12] = b00 * a03 + b01 * a13 + b02 * a23 + b03;
+            w[wo + 13] = b10 * a03 + b11 * a13 + b12 * a23 + b13;
+            w[wo + 14] = b20 * a03 + b21 * a13 + b22 * a23 + b23;
+            w[wo + 15] = 1f;
+        }
+    }
+
+
+    private int nextStamp() {
+        if( ++mStamp == 0 ) {
+            Arrays.fill( mMark, 0 );
+            mStamp = 1;
+        }
+        return mStamp;
+    }
+
+
+    private void checkNode( int node ) {
+        if( node < 0 || node >= mSize ) {
+            throw new IndexOutOfBoundsException( "Invalid node: " + node );
+        }
+    }
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+
+/**
+ * Flyweight view of a FloatBuffer as an array of 3-vectors. Each record holds x, y, z in
+ * consecutive floats, and records are {@code stride} floats apart, so a Vec3Buffer may view
+ * one attribute of an interleaved vertex buffer. Reads and writes use absolute indexing and
+ * never modify the position or limit of the underlying buffer.
+ * <p>
+ * Use Vec3Buffer to fill and transform vertex data in place, without creating Vec3 objects
+ * or copying between arrays and buffers.
+ *
+ * @author Philip DeCamp
+ */
+public final class Vec3Buffer {
+
+    /**
+     * @return new Vec3Buffer over a packed, direct, native-order buffer of {@code size} records.
+     */
+    public static Vec3Buffer allocate( int size ) {
+        ByteBuffer bb = ByteBuffer.allocateDirect( size * 3 * 4 ).order( ByteOrder.nativeOrder() );
+        return new Vec3Buffer( bb.asFloatBuffer(), 0, 3, size );
+    }
+
+
+    private final FloatBuffer mBuf;
+    private final int mOff;
+    private final int mStride;
+    private final int mSize;
+
+
+    /**
+     * Views remaining contents of {@code buf} as packed records.
+     */
+    public Vec3Buffer( FloatBuffer buf ) {
+        this( buf, buf.position(), 3, buf.remaining() / 3 );
+    }
+
+    /**
+     * @param buf    Underlying buffer.
+     * @param off    Absolute index of first record in {@code buf}.
+     * @param stride Number of floats between records. Must be at least 3.
+     * @param size   Number of records.
+     */
+    public Vec3Buffer( FloatBuffer buf, int off, int stride, int size ) {
+        if( stride < 3 ) {
+            throw new IllegalArgumentException( "Stride must be at least 3: " + stride );
+        }
+        if( off < 0 || size < 0 || size > 0 && off + ( size - 1 ) * stride + 3 > buf.capacity() ) {
+            throw new IllegalArgumentException( "Records exceed buffer capacity." );
+        }
+        mBuf    = buf;
+        mOff    = off;
+        mStride = stride;
+        mSize   = size;
+    }
+
+    /**
+     * Views a ByteBuffer using its current byte order.
+     *
+     * @param buf        Underlying buffer.
+     * @param byteOff    Absolute byte index of first record. Must be multiple of 4.
+     * @param byteStride Number of bytes between records. Must be multiple of 4.
+     * @param size       Number of records.
+     */
+    public Vec3Buffer( ByteBuffer buf, int byteOff, int byteStride, int size ) {
+        this( floatView( buf, byteOff, byteStride ), byteOff / 4, byteStride / 4, size );
+    }
+
+
+    public FloatBuffer buffer() {
+        return mBuf;
+    }
+
+
+    public int offset() {
+        return mOff;
+    }
+
+
+    public int stride() {
+        return mStride;
+    }
+
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return view of records {@code [start, start + len)} sharing this buffer.
+     */
+    public Vec3Buffer view( int start, int len ) {
+        checkRange( start, len );
+        return new Vec3Buffer( mBuf, mOff + start * mStride, mStride, len );
+    }
+
+
+    public float x( int i ) {
+        return mBuf.get( index( i ) );
+    }
+
+
+    public float y( int i ) {
+        return mBuf.get( index( i ) + 1 );
+    }
+
+
+    public float z( int i ) {
+        return mBuf.get( index( i ) + 2 );
+    }
+
+
+    public Vec3 get( int i, Vec3 out ) {
+        final int n = index( i );
+        out.x = mBuf.get( n     );
+        out.y = mBuf.get( n + 1 );
+        out.z = mBuf.get( n + 2 );
+        return out;
+    }
+
+
+    public void set( int i, Vec3 v ) {
+        set( i, v.x, v.y, v.z );
+    }
+
+
+    public void set( int i, float x, float y, float z ) {
+        final int n = index( i );
+        mBuf.put( n,     x );
+        mBuf.put( n + 1, y );
+        mBuf.put( n + 2, z );
+    }
+
+    /**
+     * Copies records into array of vectors.
+     */
+    public void get( int start, Vec3[] out, int outOff, int len ) {
+        for( int i = 0; i < len; i++ ) {
+            get( start + i, out[outOff + i] );
+        }
+    }
+
+    /**
+     * Copies records into packed array.
+     */
+    public void get( int start, float[] out, int outOff, int len ) {
+        if( mStride == 3 && len > 0 ) {
+            checkRange( start, len );
+            FloatBuffer b = mBuf.duplicate();
+            b.position( mOff + start * 3 );
+            b.get( out, outOff, len * 3 );
+            return;
+        }
+        for( int i = 0; i < len; i++ ) {
+            final int n = index( start + i );
+            out[outOff++] = mBuf.get( n     );
+            out[outOff++] = mBuf.get( n + 1 );
+            out[outOff++] = mBuf.get( n + 2 );
+        }
+    }
+
+
+    public void set( int start, Vec3[] src, int srcOff, int len ) {
+        for( int i = 0; i < len; i++ ) {
+            set( start + i, src[srcOff + i] );
+        }
+    }
+
+    /**
+     * Copies packed xyz array into records.
+     */
+    public void set( int start, float[] src, int srcOff, int len ) {
+        if( mStride == 3 && len > 0 ) {
+            checkRange( start, len );
+            FloatBuffer b = mBuf.duplicate();
+            b.position( mOff + start * 3 );
+            b.put( src, srcOff, len * 3 );
+            return;
+        }
+        for( int i = 0; i < len; i++ ) {
+            final int n = index( start + i );
+            mBuf.put( n,     src[srcOff++] );
+            mBuf.put( n + 1, src[srcOff++] );
+            mBuf.put( n + 2, src[srcOff++] );
+        }
+    }
+
+    /**
+     * Adds {@code v} to every record.
+     */
+    public void addTo( Vec3 v ) {
+        addTo( v.x, v.y, v.z );
+    }
+
+
+    public void addTo( float dx, float dy, float dz ) {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            b.put( n,     b.get( n     ) + dx );
+            b.put( n + 1, b.get( n + 1 ) + dy );
+            b.put( n + 2, b.get( n + 2 ) + dz );
+        }
+    }
+
+    /**
+     * Multiplies every record by {@code s}.
+     */
+    public void mult( float s ) {
+        mult( s, s, s );
+    }
+
+
+    public void mult( float sx, float sy, float sz ) {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            b.put( n,     b.get( n     ) * sx );
+            b.put( n + 1, b.get( n + 1 ) * sy );
+            b.put( n + 2, b.get( n + 2 ) * sz );
+        }
+    }
+
+    /**
+     * Normalizes every record, as in {@link Vec#normalize(Vec3)}.
+     */
+    public void normalize() {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            float x = b.get( n     );
+            float y = b.get( n + 1 );
+            float z = b.get( n + 2 );
+            float s = 1f / (float)Math.sqrt( x * x + y * y + z * z );
+            b.put( n,     x * s );
+            b.put( n + 1, y * s );
+            b.put( n + 2, z * s );
+        }
+    }
+
+    /**
+     * Transforms every record as a point, as in {@link Mat#mult(Mat4, Vec3, Vec3)}.
+     */
+    public void mult( Mat4 a ) {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            float b0 = b.get( n     );
+            float b1 = b.get( n + 1 );
+            float b2 = b.get( n + 2 );
+            float x = a.m00*b0 + a.m01*b1 + a.m02*b2 + a.m03;
+            float y = a.m10*b0 + a.m11*b1 + a.m12*b2 + a.m13;
+            float z = a.m20*b0 + a.m21*b1 + a.m22*b2 + a.m23;
+            float w = 1f / ( a.m30*b0 + a.m31*b1 + a.m32*b2 + a.m33 );
+            b.put( n,     x * w );
+            b.put( n + 1, y * w );
+            b.put( n + 2, z * w );
+        }
+    }
+
+    /**
+     * Transforms every record as a direction, as in {@link Mat#mult(Mat3, Vec3, Vec3)}.
+     */
+    public void mult( Mat3 a ) {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            float b0 = b.get( n     );
+            float b1 = b.get( n + 1 );
+            float b2 = b.get( n + 2 );
+            b.put( n,     a.m00*b0 + a.m01*b1 + a.m02*b2 );
+            b.put( n + 1, a.m10*b0 + a.m11*b1 + a.m12*b2 );
+            b.put( n + 2, a.m20*b0 + a.m21*b1 + a.m22*b2 );
+        }
+    }
+
+    /**
+     * Computes bounding box of all records. If buffer is empty, {@code out} is set to
+     * an inverted box that contains nothing.
+     */
+    public Box3 bounds( Box3 out ) {
+        float x0 = Float.POSITIVE_INFINITY;
+        float y0 = Float.POSITIVE_INFINITY;
+        float z0 = Float.POSITIVE_INFINITY;
+        float x1 = Float.NEGATIVE_INFINITY;
+        float y1 = Float.NEGATIVE_INFINITY;
+        float z1 = Float.NEGATIVE_INFINITY;
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            float x = b.get( n     );
+            float y = b.get( n + 1 );
+            float z = b.get( n + 2 );
+            if( x < x0 ) x0 = x;
+            if( x > x1 ) x1 = x;
+            if( y < y0 ) y0 = y;
+            if( y > y1 ) y1 = y;
+            if( z < z0 ) z0 = z;
+            if( z > z1 ) z1 = z;
+        }
+        out.x0 = x0;
+        out.y0 = y0;
+        out.z0 = z0;
+        out.x1 = x1;
+        out.y1 = y1;
+        out.z1 = z1;
+        return out;
+    }
+
+
+
+    /**
+     * @return FloatBuffer over entire capacity of {@code buf}, using byte order of {@code buf}.
+     */
+    static FloatBuffer floatView( ByteBuffer buf, int byteOff, int byteStride ) {
+        if( ( byteOff & 3 ) != 0 || ( byteStride & 3 ) != 0 ) {
+            throw new IllegalArgumentException( "Byte offset and stride must be multiples of 4." );
+        }
+        ByteBuffer b = buf.duplicate().order( buf.order() );
+        b.clear();
+        return b.asFloatBuffer();
+    }
+
+
+    private int index( int i ) {
+        if( i < 0 || i >= mSize ) {
+            throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + mSize );
+        }
+        return mOff + i * mStride;
+    }
+
+
+    private void checkRange( int start, int len ) {
+        if( start < 0 || len < 0 || start + len > mSize ) {
+            throw new IndexOutOfBoundsException( "Range: [" + start + ", " + ( start + len ) + "), Size: " + mSize );
+        }
+    }
+
+}
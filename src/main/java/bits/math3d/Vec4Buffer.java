@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+
+/**
+ * Flyweight view of a FloatBuffer as an array of 4-vectors. Each record holds x, y, z, w in
+ * consecutive floats, and records are {@code stride} floats apart. Reads and writes use
+ * absolute indexing and never modify the position or limit of the underlying buffer.
+ *
+ * @see Vec3Buffer
+ * @author Philip DeCamp
+ */
+public final class Vec4Buffer {
+
+    /**
+     * @return new Vec4Buffer over a packed, direct, native-order buffer of {@code size} records.
+     */
+    public static Vec4Buffer allocate( int size ) {
+        ByteBuffer bb = ByteBuffer.allocateDirect( size * 4 * 4 ).order( ByteOrder.nativeOrder() );
+        return new Vec4Buffer( bb.asFloatBuffer(), 0, 4, size );
+    }
+
+
+    private final FloatBuffer mBuf;
+    private final int mOff;
+    private final int mStride;
+    private final int mSize;
+
+
+    /**
+     * Views remaining contents of {@code buf} as packed records.
+     */
+    public Vec4Buffer( FloatBuffer buf ) {
+        this( buf, buf.position(), 4, buf.remaining() / 4 );
+    }
+
+    /**
+     * @param buf    Underlying buffer.
+     * @param off    Absolute index of first record in {@code buf}.
+     * @param stride Number of floats between records. Must be at least 4.
+     * @param size   Number of records.
+     */
+    public Vec4Buffer( FloatBuffer buf, int off, int stride, int size ) {
+        if( stride < 4 ) {
+            throw new IllegalArgumentException( "Stride must be at least 4: " + stride );
+        }
+        if( off < 0 || size < 0 || size > 0 && off + ( size - 1 ) * stride + 4 > buf.capacity() ) {
+            throw new IllegalArgumentException( "Records exceed buffer capacity." );
+        }
+        mBuf    = buf;
+        mOff    = off;
+        mStride = stride;
+        mSize   = size;
+    }
+
+    /**
+     * Views a ByteBuffer using its current byte order.
+     *
+     * @param buf        Underlying buffer.
+     * @param byteOff    Absolute byte index of first record. Must be multiple of 4.
+     * @param byteStride Number of bytes between records. Must be multiple of 4.
+     * @param size       Number of records.
+     */
+    public Vec4Buffer( ByteBuffer buf, int byteOff, int byteStride, int size ) {
+        this( Vec3Buffer.floatView( buf, byteOff, byteStride ), byteOff / 4, byteStride / 4, size );
+    }
+
+
+    public FloatBuffer buffer() {
+        return mBuf;
+    }
+
+
+    public int offset() {
+        return mOff;
+    }
+
+
+    public int stride() {
+        return mStride;
+    }
+
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return view of records {@code [start, start + len)} sharing this buffer.
+     */
+    public Vec4Buffer view( int start, int len ) {
+        checkRange( start, len );
+        return new Vec4Buffer( mBuf, mOff + start * mStride, mStride, len );
+    }
+
+
+    public float x( int i ) {
+        return mBuf.get( index( i ) );
+    }
+
+
+    public float y( int i ) {
+        return mBuf.get( index( i ) + 1 );
+    }
+
+
+    public float z( int i ) {
+        return mBuf.get( index( i ) + 2 );
+    }
+
+
+    public float w( int i ) {
+        return mBuf.get( index( i ) + 3 );
+    }
+
+
+    public Vec4 get( int i, Vec4 out ) {
+        final int n = index( i );
+        out.x = mBuf.get( n     );
+        out.y = mBuf.get( n + 1 );
+        out.z = mBuf.get( n + 2 );
+        out.w = mBuf.get( n + 3 );
+        return out;
+    }
+
+
+    public void set( int i, Vec4 v ) {
+        set( i, v.x, v.y, v.z, v.w );
+    }
+
+
+    public void set( int i, float x, float y, float z, float w ) {
+        final int n = index( i );
+        mBuf.put( n,     x );
+        mBuf.put( n + 1, y );
+        mBuf.put( n + 2, z );
+        mBuf.put( n + 3, w );
+    }
+
+    /**
+     * Copies records into array of vectors.
+     */
+    public void get( int start, Vec4[] out, int outOff, int len ) {
+        for( int i = 0; i < len; i++ ) {
+            get( start + i, out[outOff + i] );
+        }
+    }
+
+    /**
+     * Copies records into packed array.
+     */
+    public void get( int start, float[] out, int outOff, int len ) {
+        if( mStride == 4 && len > 0 ) {
+            checkRange( start, len );
+            FloatBuffer b = mBuf.duplicate();
+            b.position( mOff + start * 4 );
+            b.get( out, outOff, len * 4 );
+            return;
+        }
+        for( int i = 0; i < len; i++ ) {
+            final int n = index( start + i );
+            out[outOff++] = mBuf.get( n     );
+            out[outOff++] = mBuf.get( n + 1 );
+            out[outOff++] = mBuf.get( n + 2 );
+            out[outOff++] = mBuf.get( n + 3 );
+        }
+    }
+
+
+    public void set( int start, Vec4[] src, int srcOff, int len ) {
+        for( int i = 0; i < len; i++ ) {
+            set( start + i, src[srcOff + i] );
+        }
+    }
+
+    /**
+     * Copies packed xyzw array into records.
+     */
+    public void set( int start, float[] src, int srcOff, int len ) {
+        if( mStride == 4 && len > 0 ) {
+            checkRange( start, len );
+            FloatBuffer b = mBuf.duplicate();
+            b.position( mOff + start * 4 );
+            b.put( src, srcOff, len * 4 );
+            return;
+        }
+        for( int i = 0; i < len; i++ ) {
+            final int n = index( start + i );
+            mBuf.put( n,     src[srcOff++] );
+            mBuf.put( n + 1, src[srcOff++] );
+            mBuf.put( n + 2, src[srcOff++] );
+            mBuf.put( n + 3, src[srcOff++] );
+        }
+    }
+
+    /**
+     * Adds {@code v} to every record.
+     */
+    public void addTo( Vec4 v ) {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            b.put( n,     b.get( n     ) + v.x );
+            b.put( n + 1, b.get( n + 1 ) + v.y );
+            b.put( n + 2, b.get( n + 2 ) + v.z );
+            b.put( n + 3, b.get( n + 3 ) + v.w );
+        }
+    }
+
+    /**
+     * Multiplies every record by {@code s}.
+     */
+    public void mult( float s ) {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            b.put( n,     b.get( n     ) * s );
+            b.put( n + 1, b.get( n + 1 ) * s );
+            b.put( n + 2, b.get( n + 2 ) * s );
+            b.put( n + 3, b.get( n + 3 ) * s );
+        }
+    }
+
+    /**
+     * Normalizes every record, as in {@link Vec#normalize(Vec4)}.
+     */
+    public void normalize() {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            float x = b.get( n     );
+            float y = b.get( n + 1 );
+            float z = b.get( n + 2 );
+            float w = b.get( n + 3 );
+            float s = 1f / (float)Math.sqrt( x * x + y * y + z * z + w * w );
+            b.put( n,     x * s );
+            b.put( n + 1, y * s );
+            b.put( n + 2, z * s );
+            b.put( n + 3, w * s );
+        }
+    }
+
+    /**
+     * Transforms every record, as in {@link Mat#mult(Mat4, Vec4, Vec4)}.
+     */
+    public void mult( Mat4 a ) {
+        final FloatBuffer b = mBuf;
+        for( int i = 0, n = mOff; i < mSize; i++, n += mStride ) {
+            float b0 = b.get( n     );
+            float b1 = b.get( n + 1 );
+            float b2 = b.get( n + 2 );
+            float b3 = b.get( n + 3 );
+            b.put( n,     a.m00*b0 + a.m01*b1 + a.m02*b2 + a.m03*b3 );
+            b.put( n + 1, a.m10*b0 + a.m11*b1 + a.m12*b2 + a.m13*b3 );
+            b.put( n + 2, a.m20*b0 + a.m21*b1 + a.m22*b2 + a.m23*b3 );
+            b.put( n + 3, a.m30*b0 + a.m31*b1 + a.m32*b2 + a.m33*b3 );
+        }
+    }
+
+
+
+    private int index( int i ) {
+        if( i < 0 || i >= mSize ) {
+            throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + mSize );
+        }
+        return mOff + i * mStride;
+    }
+
+
+    private void checkRange( int start, int len ) {
+        if( start < 0 || len < 0 || start + len > mSize ) {
+            throw new IndexOutOfBoundsException( "Range: [" + start + ", " + ( start + len ) + "), Size: " + mSize );
+        }
+    }
+
+}
@@ -0,0 +1,782 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.Box3;
+import bits.math3d.Parallel;
+import bits.math3d.Vec3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Bounding volume hierarchy over axis-aligned boxes, built with the binned surface area heuristic.
+ * Each primitive is identified by its index in the array used for building. Queries report
+ * primitives whose bounding boxes pass the query; exact tests against the primitives themselves
+ * are left to the caller's {@link Visitor} or {@link RayVisitor}.
+ * <p>
+ * Nodes are stored in flat arrays: six floats of bounds per node, and two ints that hold either
+ * the indices of both children, or the start and bitwise complement of the count of a leaf's
+ * primitive range. Bvh objects are immutable after construction and may be queried from
+ * multiple threads.
+ * <p>
+ * Bounding boxes are treated as closed for queries, so a point on the boundary of a box
+ * is considered inside.
+ *
+ * @author Philip DeCamp
+ */
+public final class Bvh {
+
+    /**
+     * Receives primitives found by a query.
+     */
+    public interface Visitor {
+        /**
+         * @param prim Index of primitive.
+         * @return false to end query early.
+         */
+        boolean visit( int prim );
+    }
+
+    /**
+     * Receives primitives whose bounds are hit by a ray.
+     */
+    public interface RayVisitor {
+        /**
+         * @param prim Index of primitive.
+         * @param tMax Distance to nearest hit found so far.
+         * @return distance to nearest hit on {@code prim}, if less than {@code tMax}, otherwise {@code tMax}.
+         */
+        float hit( int prim, float tMax );
+    }
+
+
+    /** Leaves hold at most this many primitives, unless primitives cannot be separated. **/
+    private static final int MAX_LEAF = 8;
+    /** Maximum number of bins per axis for SAH evaluation. Small nodes use fewer. **/
+    private static final int BINS = 16;
+    /** Cost of traversing a node, relative to testing one primitive. **/
+    private static final float TRAVERSAL_COST = 1f;
+    /** Subtrees of fewer primitives than this are not split further across tasks. **/
+    private static final int MIN_PARALLEL_PRIMS = 4096;
+    /** Floats per primitive in build work array: bounds, then centroid. **/
+    private static final int WORK_STRIDE = 9;
+
+
+    /**
+     * Builds Bvh over boxes.
+     *
+     * @param boxes Primitive bounds. Primitive {@code i} refers to {@code boxes[off + i]}.
+     * @param off   Index of first box.
+     * @param len   Number of boxes.
+     * @param exec  Executor for parallel build. May be {@code null}.
+     */
+    public static Bvh build( Box3[] boxes, int off, int len, Executor exec ) {
+        float[] bounds = new float[len * 6];
+        for( int i = 0; i < len; i++ ) {
+            Box3 b = boxes[off + i];
+            int j = i * 6;
+            bounds[j  ] = b.x0;
+            bounds[j+1] = b.y0;
+            bounds[j+2] = b.z0;
+            bounds[j+3] = b.x1;
+            bounds[j+4] = b.y1;
+            bounds[j+5] = b.z1;
+        }
+        return build( bounds, len, exec );
+    }
+
+    /**
+     * Builds Bvh over the bounds of volumes.
+     *
+     * @param vols  Primitives. Primitive {@code i} refers to {@code vols[off + i]}.
+     * @param off   Index of first volume.
+     * @param len   Number of volumes.
+     * @param exec  Executor for parallel build. May be {@code null}.
+     */
+    // Volume.bounds() still returns the deprecated Aabb; it is only read here and copied into packed bounds.
+    @SuppressWarnings( "deprecation" )
+    public static Bvh build( Volume[] vols, int off, int len, Executor exec ) {
+        float[] bounds = new float[len * 6];
+        for( int i = 0; i < len; i++ ) {
+            Aabb b = vols[off + i].bounds();
+            int j = i * 6;
+            bounds[j  ] = b.minX();
+            bounds[j+1] = b.minY();
+            bounds[j+2] = b.minZ();
+            bounds[j+3] = b.maxX();
+            bounds[j+4] = b.maxY();
+            bounds[j+5] = b.maxZ();
+        }
+        return build( bounds, len, exec );
+    }
+
+    /**
+     * Builds Bvh over packed bounds.
+     *
+     * @param bounds Packed {@code [x0, y0, z0, x1, y1, z1]} bounds of each primitive.
+     * @param len    Number of primitives.
+     * @param exec   Executor for parallel build. Top levels of the tree are built on the calling
+     *               thread, and remaining subtrees are built on {@code exec}. May be {@code null}.
+     */
+    public static Bvh build( float[] bounds, int len, Executor exec ) {
+        // Working copy of bounds and centroid of each primitive, kept in same order as prims
+        // so that each pass over a node's range reads memory sequentially.
+        final float[] work = new float[len * WORK_STRIDE];
+        final int[] prims  = new int[len];
+        for( int i = 0; i < len; i++ ) {
+            prims[i] = i;
+            int j = i * WORK_STRIDE;
+            System.arraycopy( bounds, i * 6, work, j, 6 );
+            work[j+6] = 0.5f * ( bounds[i*6  ] + bounds[i*6+3] );
+            work[j+7] = 0.5f * ( bounds[i*6+1] + bounds[i*6+4] );
+            work[j+8] = 0.5f * ( bounds[i*6+2] + bounds[i*6+5] );
+        }
+
+        if( len == 0 ) {
+            return new Bvh( new float[6], new int[]{ 0, ~0 }, prims, new float[0], 1 );
+        }
+
+        int deferLimit = 0;
+        if( exec != null ) {
+            deferLimit = Math.max( MIN_PARALLEL_PRIMS, len / ( Runtime.getRuntime().availableProcessors() * 4 ) );
+        }
+
+        final Builder top = new Builder( work, prims, deferLimit );
+        top.build( 0, len, 0 );
+
+        if( top.mJobs.isEmpty() ) {
+            return top.mNodes.toBvh( prims, work, top.mDepth );
+        }
+
+        final List<int[]> jobs = top.mJobs;
+        final NodeList[] subs  = new NodeList[jobs.size()];
+        final int[] depths     = new int[jobs.size()];
+
+        Parallel.forRange( exec, 0, jobs.size(), 1, new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                for( int i = start; i < end; i++ ) {
+                    int[] job = jobs.get( i );
+                    Builder b = new Builder( work, prims, 0 );
+                    b.build( job[1], job[2], 0 );
+                    subs[i]   = b.mNodes;
+                    depths[i] = job[3] + b.mDepth;
+                }
+            }
+        } );
+
+        // Stitch subtrees into top tree. Root of each subtree replaces its placeholder slot.
+        NodeList all = top.mNodes;
+        int depth = top.mDepth;
+        for( int i = 0; i < subs.length; i++ ) {
+            final int slot = jobs.get( i )[0];
+            final NodeList sub = subs[i];
+            final int base = all.mSize - 1;
+            all.ensureCapacity( all.mSize + sub.mSize - 1 );
+            for( int n = 0; n < sub.mSize; n++ ) {
+                int dst = n == 0 ? slot : base + n;
+                System.arraycopy( sub.mBounds, n * 6, all.mBounds, dst * 6, 6 );
+                int a = sub.mInfo[n*2  ];
+                int b = sub.mInfo[n*2+1];
+                if( b >= 0 ) {
+                    a += base;
+                    b += base;
+                }
+                all.mInfo[dst*2  ] = a;
+                all.mInfo[dst*2+1] = b;
+            }
+            all.mSize += sub.mSize - 1;
+            depth = Math.max( depth, depths[i] );
+        }
+
+        return all.toBvh( prims, work, depth );
+    }
+
+
+    private final float[] mBounds;
+    private final int[] mInfo;
+    private final int[] mPrims;
+    /** Bounds of primitives, in same order as mPrims. **/
+    private final float[] mPrimBounds;
+    private final int mNodeCount;
+    private final int mDepth;
+
+
+    private Bvh( float[] bounds, int[] info, int[] prims, float[] primBounds, int depth ) {
+        mBounds     = bounds;
+        mInfo       = info;
+        mPrims      = prims;
+        mPrimBounds = primBounds;
+        mNodeCount  = info.length / 2;
+        mDepth      = depth;
+    }
+
+    /**
+     * @return number of primitives.
+     */
+    public int size() {
+        return mPrims.length;
+    }
+
+    /**
+     * @return number of nodes in hierarchy.
+     */
+    public int nodeCount() {
+        return mNodeCount;
+    }
+
+    /**
+     * @return number of nodes on longest path from root to leaf.
+     */
+    public int depth() {
+        return mDepth;
+    }
+
+    /**
+     * @return bounds of all primitives.
+     */
+    public Box3 bounds( Box3 out ) {
+        out.x0 = mBounds[0];
+        out.y0 = mBounds[1];
+        out.z0 = mBounds[2];
+        out.x1 = mBounds[3];
+        out.y1 = mBounds[4];
+        out.z1 = mBounds[5];
+        return out;
+    }
+
+    /**
+     * Visits every primitive whose bounds contain a point.
+     *
+     * @return false iff visitor ended query early.
+     */
+    public boolean visitPoint( float x, float y, float z, Visitor visitor ) {
+        if( mPrims.length == 0 ) {
+            return true;
+        }
+
+        final float[] bs = mBounds;
+        final int[] info = mInfo;
+        final int[] stack = new int[mDepth + 1];
+        int top = 0;
+        stack[top++] = 0;
+
+        while( top > 0 ) {
+            final int n = stack[--top];
+            final int j = n * 6;
+            if( x < bs[j] || y < bs[j+1] || z < bs[j+2] || x > bs[j+3] || y > bs[j+4] || z > bs[j+5] ) {
+                continue;
+            }
+            final int a = info[n*2  ];
+            final int b = info[n*2+1];
+            if( b >= 0 ) {
+                stack[top++] = b;
+                stack[top++] = a;
+                continue;
+            }
+            for( int i = a, end = a + ~b; i < end; i++ ) {
+                final int k = i * 6;
+                if( x >= mPrimBounds[k] && y >= mPrimBounds[k+1] && z >= mPrimBounds[k+2] &&
+                    x <= mPrimBounds[k+3] && y <= mPrimBounds[k+4] && z <= mPrimBounds[k+5] )
+                {
+                    if( !visitor.visit( mPrims[i] ) ) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Visits every primitive whose bounds overlap a box.
+     *
+     * @return false iff visitor ended query early.
+     */
+    public boolean visitBox( Box3 box, Visitor visitor ) {
+        if( mPrims.length == 0 ) {
+            return true;
+        }
+
+        final float x0 = box.x0;
+        final float y0 = box.y0;
+        final float z0 = box.z0;
+        final float x1 = box.x1;
+        final float y1 = box.y1;
+        final float z1 = box.z1;
+        final float[] bs = mBounds;
+        final int[] info = mInfo;
+        final int[] stack = new int[mDepth + 1];
+        int top = 0;
+        stack[top++] = 0;
+
+        while( top > 0 ) {
+            final int n = stack[--top];
+            final int j = n * 6;
+            if( x1 < bs[j] || y1 < bs[j+1] || z1 < bs[j+2] || x0 > bs[j+3] || y0 > bs[j+4] || z0 > bs[j+5] ) {
+                continue;
+            }
+            final int a = info[n*2  ];
+            final int b = info[n*2+1];
+            if( b >= 0 ) {
+                stack[top++] = b;
+                stack[top++] = a;
+                continue;
+            }
+            for( int i = a, end = a + ~b; i < end; i++ ) {
+                final int k = i * 6;
+                if( x1 >= mPrimBounds[k] && y1 >= mPrimBounds[k+1] && z1 >= mPrimBounds[k+2] &&
+                    x0 <= mPrimBounds[k+3] && y0 <= mPrimBounds[k+4] && z0 <= mPrimBounds[k+5] )
+                {
+                    if( !visitor.visit( mPrims[i] ) ) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Casts a ray through the hierarchy, visiting nearer nodes first. Nodes farther than the
+     * nearest hit reported by {@code visitor} are skipped.
+     *
+     * @param origin  Origin of ray.
+     * @param dir     Direction of ray. Need not be normalized; distances are in units of {@code dir}.
+     * @param tMax    Maximum distance along ray.
+     * @param visitor Tests primitives whose bounds are hit.
+     * @return distance to nearest hit reported by visitor, or {@code tMax} if none.
+     */
+    public float raycast( Vec3 origin, Vec3 dir, float tMax, RayVisitor visitor ) {
+        return raycast( origin.x, origin.y, origin.z, 1f / dir.x, 1f / dir.y, 1f / dir.z, tMax, visitor );
+    }
+
+    /**
+     * Casts a ray through the hierarchy, visiting nearer nodes first.
+     *
+     * @see #raycast(Vec3, Vec3, float, RayVisitor)
+     */
+    public float raycast( Ray3 ray, float tMax, RayVisitor visitor ) {
+        return raycast( ray.ox, ray.oy, ray.oz, ray.ix, ray.iy, ray.iz, tMax, visitor );
+    }
+
+
+    private float raycast( float ox, float oy, float oz, float ix, float iy, float iz, float tMax, RayVisitor visitor ) {
+        if( mPrims.length == 0 ) {
+            return tMax;
+        }
+
+        final int[] info = mInfo;
+        final int[] stack = new int[mDepth + 1];
+        int top = 0;
+
+        if( slab( mBounds, 0, ox, oy, oz, ix, iy, iz, tMax ) > tMax ) {
+            return tMax;
+        }
+        stack[top++] = 0;
+
+        while( top > 0 ) {
+            final int n = stack[--top];
+            final int a = info[n*2  ];
+            final int b = info[n*2+1];
+
+            if( b < 0 ) {
+                for( int i = a, end = a + ~b; i < end; i++ ) {
+                    if( slab( mPrimBounds, i * 6, ox, oy, oz, ix, iy, iz, tMax ) <= tMax ) {
+                        tMax = visitor.hit( mPrims[i], tMax );
+                    }
+                }
+                continue;
+            }
+
+            float ta = slab( mBounds, a * 6, ox, oy, oz, ix, iy, iz, tMax );
+            float tb = slab( mBounds, b * 6, ox, oy, oz, ix, iy, iz, tMax );
+            if( ta <= tMax ) {
+                if( tb <= tMax ) {
+                    // Push farther child first so nearer child is visited first.
+                    if( ta <= tb ) {
+                        stack[top++] = b;
+                        stack[top++] = a;
+                    } else {
+                        stack[top++] = a;
+                        stack[top++] = b;
+                    }
+                } else {
+                    stack[top++] = a;
+                }
+            } else if( tb <= tMax ) {
+                stack[top++] = b;
+            }
+        }
+
+        return tMax;
+    }
+
+    /**
+     * Finds a volume that contains a point.
+     *
+     * @param vols Volumes used to build this Bvh.
+     * @param off  Offset used to build this Bvh.
+     * @return index of some primitive that contains point, or -1 if none.
+     */
+    public int findContaining( final Volume[] vols, final int off, final float x, final float y, final float z ) {
+        final int[] ret = { -1 };
+        visitPoint( x, y, z, new Visitor() {
+            public boolean visit( int prim ) {
+                if( vols[off + prim].contains( x, y, z ) ) {
+                    ret[0] = prim;
+                    return false;
+                }
+                return true;
+            }
+        } );
+        return ret[0];
+    }
+
+
+    /**
+     * @return distance at which ray enters box, or {@code Float.POSITIVE_INFINITY} if ray misses box
+     *         within {@code [0, tMax]}.
+     */
+    private static float slab( float[] bs, int j, float ox, float oy, float oz, float ix, float iy, float iz, float tMax ) {
+        // A ray parallel to an axis with origin on a box plane computes 0 * Inf = NaN.
+        // Comparisons below are false for NaN, so such planes are ignored rather than
+        // reported as a miss, and the ray grazes the box.
+        float near = 0f;
+        float far  = tMax;
+        float t0, t1;
+
+        if( ix >= 0 ) {
+            t0 = ( bs[j  ] - ox ) * ix;
+            t1 = ( bs[j+3] - ox ) * ix;
+        } else {
+            t0 = ( bs[j+3] - ox ) * ix;
+            t1 = ( bs[j  ] - ox ) * ix;
+        }
+        if( t0 > near ) {
+            near = t0;
+        }
+        if( t1 < far ) {
+            far = t1;
+        }
+
+        if( iy >= 0 ) {
+            t0 = ( bs[j+1] - oy ) * iy;
+            t1 = ( bs[j+4] - oy ) * iy;
+        } else {
+            t0 = ( bs[j+4] - oy ) * iy;
+            t1 = ( bs[j+1] - oy ) * iy;
+        }
+        if( t0 > near ) {
+            near = t0;
+        }
+        if( t1 < far ) {
+            far = t1;
+        }
+
+        if( iz >= 0 ) {
+            t0 = ( bs[j+2] - oz ) * iz;
+            t1 = ( bs[j+5] - oz ) * iz;
+        } else {
+            t0 = ( bs[j+5] - oz ) * iz;
+            t1 = ( bs[j+2] - oz ) * iz;
+        }
+        if( t0 > near ) {
+            near = t0;
+        }
+        if( t1 < far ) {
+            far = t1;
+        }
+
+        return near <= far ? near : Float.POSITIVE_INFINITY;
+    }
+
+
+    private static final class NodeList {
+        float[] mBounds = new float[6 * 64];
+        int[] mInfo = new int[2 * 64];
+        int mSize = 0;
+
+        int add() {
+            ensureCapacity( mSize + 1 );
+            return mSize++;
+        }
+
+        void ensureCapacity( int minCap ) {
+            int cap = mInfo.length / 2;
+            if( minCap <= cap ) {
+                return;
+            }
+            int newCap = Math.max( minCap, ( cap * 3 ) / 2 + 1 );
+            mBounds = Arrays.copyOf( mBounds, newCap * 6 );
+            mInfo   = Arrays.copyOf( mInfo, newCap * 2 );
+        }
+
+        Bvh toBvh( int[] prims, float[] work, int depth ) {
+            float[] primBounds = new float[prims.length * 6];
+            for( int i = 0; i < prims.length; i++ ) {
+                System.arraycopy( work, i * WORK_STRIDE, primBounds, i * 6, 6 );
+            }
+            return new Bvh( Arrays.copyOf( mBounds, mSize * 6 ), Arrays.copyOf( mInfo, mSize * 2 ), prims, primBounds, depth );
+        }
+    }
+
+
+    private static final class Builder {
+        final float[] mWork;
+        final int[] mPrims;
+        /** Subtrees of at most this many primitives are deferred. Zero to build entire tree. **/
+        final int mDeferLimit;
+        final NodeList mNodes = new NodeList();
+        /** Deferred subtrees, as { slot, start, end, depth }. **/
+        final List<int[]> mJobs = new ArrayList<int[]>();
+        int mDepth = 0;
+
+        private final int[] mBinCount    = new int[BINS * 3];
+        private final float[] mBinBounds = new float[BINS * 3 * 6];
+        private final float[] mRightArea = new float[BINS];
+        private final int[] mRightCount  = new int[BINS];
+
+        Builder( float[] work, int[] prims, int deferLimit ) {
+            mWork       = work;
+            mPrims      = prims;
+            mDeferLimit = deferLimit;
+        }
+
+
+        int build( int start, int end, int depth ) {
+            final int node = mNodes.add();
+            buildInto( node, start, end, depth );
+            return node;
+        }
+
+
+        private void buildInto( int node, int start, int end, int depth ) {
+            mDepth = Math.max( mDepth, depth + 1 );
+            final int count = end - start;
+            final float[] nb = mNodes.mBounds;
+            computeBounds( start, end, nb, node * 6 );
+
+            if( count <= 1 ) {
+                makeLeaf( node, start, count );
+                return;
+            }
+
+            // Centroid bounds.
+            float cx0 = Float.POSITIVE_INFINITY, cy0 = Float.POSITIVE_INFINITY, cz0 = Float.POSITIVE_INFINITY;
+            float cx1 = Float.NEGATIVE_INFINITY, cy1 = Float.NEGATIVE_INFINITY, cz1 = Float.NEGATIVE_INFINITY;
+            for( int i = start; i < end; i++ ) {
+                int c = i * WORK_STRIDE + 6;
+                float x = mWork[c], y = mWork[c+1], z = mWork[c+2];
+                if( x < cx0 ) cx0 = x;
+                if( x > cx1 ) cx1 = x;
+                if( y < cy0 ) cy0 = y;
+                if( y > cy1 ) cy1 = y;
+                if( z < cz0 ) cz0 = z;
+                if( z > cz1 ) cz1 = z;
+            }
+            final float[] cmin = { cx0, cy0, cz0 };
+            final float[] cmax = { cx1, cy1, cz1 };
+
+            final int bins = Math.min( BINS, count );
+            final float[] scale = new float[3];
+            for( int axis = 0; axis < 3; axis++ ) {
+                float ext = cmax[axis] - cmin[axis];
+                scale[axis] = ext > 0f ? bins / ext : 0f;
+            }
+
+            // Bin all axes in one pass, then evaluate SAH over bins on each axis.
+            binAll( start, end, cmin, scale, bins );
+            float bestCost = Float.POSITIVE_INFINITY;
+            int bestAxis   = -1;
+            int bestSplit  = -1;
+            for( int axis = 0; axis < 3; axis++ ) {
+                if( scale[axis] == 0f ) {
+                    continue;
+                }
+                final int base = axis * bins;
+
+                // Sweep from right to accumulate right-side areas.
+                float rx0 = Float.POSITIVE_INFINITY, ry0 = Float.POSITIVE_INFINITY, rz0 = Float.POSITIVE_INFINITY;
+                float rx1 = Float.NEGATIVE_INFINITY, ry1 = Float.NEGATIVE_INFINITY, rz1 = Float.NEGATIVE_INFINITY;
+                int rc = 0;
+                for( int i = bins - 1; i > 0; i-- ) {
+                    int j = ( base + i ) * 6;
+                    rc += mBinCount[base + i];
+                    if( mBinCount[base + i] > 0 ) {
+                        rx0 = Math.min( rx0, mBinBounds[j  ] );
+                        ry0 = Math.min( ry0, mBinBounds[j+1] );
+                        rz0 = Math.min( rz0, mBinBounds[j+2] );
+                        rx1 = Math.max( rx1, mBinBounds[j+3] );
+                        ry1 = Math.max( ry1, mBinBounds[j+4] );
+                        rz1 = Math.max( rz1, mBinBounds[j+5] );
+                    }
+                    mRightCount[i] = rc;
+                    mRightArea[i]  = rc == 0 ? 0f : area( rx0, ry0, rz0, rx1, ry1, rz1 );
+                }
+
+                float lx0 = Float.POSITIVE_INFINITY, ly0 = Float.POSITIVE_INFINITY, lz0 = Float.POSITIVE_INFINITY;
+                float lx1 = Float.NEGATIVE_INFINITY, ly1 = Float.NEGATIVE_INFINITY, lz1 = Float.NEGATIVE_INFINITY;
+                int lc = 0;
+                for( int i = 0; i < bins - 1; i++ ) {
+                    int j = ( base + i ) * 6;
+                    lc += mBinCount[base + i];
+                    if( mBinCount[base + i] > 0 ) {
+                        lx0 = Math.min( lx0, mBinBounds[j  ] );
+                        ly0 = Math.min( ly0, mBinBounds[j+1] );
+                        lz0 = Math.min( lz0, mBinBounds[j+2] );
+                        lx1 = Math.max( lx1, mBinBounds[j+3] );
+                        ly1 = Math.max( ly1, mBinBounds[j+4] );
+                        lz1 = Math.max( lz1, mBinBounds[j+5] );
+                    }
+                    int rcount = mRightCount[i + 1];
+                    if( lc == 0 || rcount == 0 ) {
+                        continue;
+                    }
+                    float cost = area( lx0, ly0, lz0, lx1, ly1, lz1 ) * lc + mRightArea[i + 1] * rcount;
+                    if( cost < bestCost ) {
+                        bestCost  = cost;
+                        bestAxis  = axis;
+                        bestSplit = i + 1;
+                    }
+                }
+            }
+
+            final float nodeArea = area( nb[node*6], nb[node*6+1], nb[node*6+2], nb[node*6+3], nb[node*6+4], nb[node*6+5] );
+            int mid;
+            if( bestAxis < 0 ) {
+                // All centroids coincide.
+                if( count <= MAX_LEAF ) {
+                    makeLeaf( node, start, count );
+                    return;
+                }
+                mid = ( start + end ) >>> 1;
+            } else {
+                float splitCost = TRAVERSAL_COST + ( nodeArea > 0f ? bestCost / nodeArea : count );
+                if( count <= MAX_LEAF && splitCost >= count ) {
+                    makeLeaf( node, start, count );
+                    return;
+                }
+                mid = partition( start, end, bestAxis, cmin[bestAxis], scale[bestAxis], bins, bestSplit );
+            }
+
+            final int left  = child( start, mid, depth + 1 );
+            final int right = child( mid, end, depth + 1 );
+            mNodes.mInfo[node*2  ] = left;
+            mNodes.mInfo[node*2+1] = right;
+        }
+
+
+        private int child( int start, int end, int depth ) {
+            if( end - start > mDeferLimit || end - start <= MAX_LEAF ) {
+                return build( start, end, depth );
+            }
+            int node = mNodes.add();
+            mJobs.add( new int[]{ node, start, end, depth } );
+            return node;
+        }
+
+
+        private void makeLeaf( int node, int start, int count ) {
+            mNodes.mInfo[node*2  ] = start;
+            mNodes.mInfo[node*2+1] = ~count;
+        }
+
+
+        private void computeBounds( int start, int end, float[] out, int outOff ) {
+            final float[] w = mWork;
+            float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY, z0 = Float.POSITIVE_INFINITY;
+            float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY, z1 = Float.NEGATIVE_INFINITY;
+            for( int i = start; i < end; i++ ) {
+                int j = i * WORK_STRIDE;
+                x0 = Math.min( x0, w[j  ] );
+                y0 = Math.min( y0, w[j+1] );
+                z0 = Math.min( z0, w[j+2] );
+                x1 = Math.max( x1, w[j+3] );
+                y1 = Math.max( y1, w[j+4] );
+                z1 = Math.max( z1, w[j+5] );
+            }
+            out[outOff  ] = x0;
+            out[outOff+1] = y0;
+            out[outOff+2] = z0;
+            out[outOff+3] = x1;
+            out[outOff+4] = y1;
+            out[outOff+5] = z1;
+        }
+
+
+        private void binAll( int start, int end, float[] min, float[] scale, int bins ) {
+            final float[] w = mWork;
+            Arrays.fill( mBinCount, 0, bins * 3, 0 );
+            for( int i = start; i < end; i++ ) {
+                final int k = i * WORK_STRIDE;
+                for( int axis = 0; axis < 3; axis++ ) {
+                    final int bin = axis * bins + bin( w[k + 6 + axis], min[axis], scale[axis], bins );
+                    final int j   = bin * 6;
+                    final float[] bb = mBinBounds;
+                    if( mBinCount[bin]++ == 0 ) {
+                        bb[j  ] = w[k  ];
+                        bb[j+1] = w[k+1];
+                        bb[j+2] = w[k+2];
+                        bb[j+3] = w[k+3];
+                        bb[j+4] = w[k+4];
+                        bb[j+5] = w[k+5];
+                    } else {
+                        if( w[k  ] < bb[j  ] ) bb[j  ] = w[k  ];
+                        if( w[k+1] < bb[j+1] ) bb[j+1] = w[k+1];
+                        if( w[k+2] < bb[j+2] ) bb[j+2] = w[k+2];
+                        if( w[k+3] > bb[j+3] ) bb[j+3] = w[k+3];
+                        if( w[k+4] > bb[j+4] ) bb[j+4] = w[k+4];
+                        if( w[k+5] > bb[j+5] ) bb[j+5] = w[k+5];
+                    }
+                }
+            }
+        }
+
+
+        private int partition( int start, int end, int axis, float min, float scale, int bins, int split ) {
+            final float[] w = mWork;
+            final float[] tmp = new float[WORK_STRIDE];
+            int i = start;
+            int j = end - 1;
+            while( i <= j ) {
+                if( bin( w[i * WORK_STRIDE + 6 + axis], min, scale, bins ) < split ) {
+                    i++;
+                } else {
+                    int t = mPrims[i];
+                    mPrims[i] = mPrims[j];
+                    mPrims[j] = t;
+                    System.arraycopy( w, i * WORK_STRIDE, tmp, 0, WORK_STRIDE );
+                    System.arraycopy( w, j * WORK_STRIDE, w, i * WORK_STRIDE, WORK_STRIDE );
+                    System.arraycopy( tmp, 0, w, j * WORK_STRIDE, WORK_STRIDE );
+                    j--;
+                }
+            }
+            return i;
+        }
+
+
+        private static int bin( float v, float min, float scale, int bins ) {
+            int b = (int)( ( v - min ) * scale );
+            return b < 0 ? 0 : b >= bins ? bins - 1 : b;
+        }
+
+
+        private static float area( float x0, float y0, float z0, float x1, float y1, float z1 ) {
+            float dx = x1 - x0;
+            float dy = y1 - y0;
+            float dz = z1 - z0;
+            return dx * dy + dy * dz + dz * dx;
+        }
+    }
+
+}
@@ -384,7 +384,7 @@ public class Clip {
                 } else {
                     // On the line. Add to both polygons.
                     Vec.put( vb, outNeg.mVerts[sizeNeg++] );
-                    Vec.put( vb, outPos.mVerts[sizeNeg++] );
+                    Vec.put( vb, outPos.mVerts[sizePos++] );
                 }
             } else if( aDist > 0 ) {
                 if( bDist >= 0 ) {
@@ -604,6 +604,520 @@ public class Clip {
     }
 
 
+    //=== Packed float versions ===
+    // These mirror the Vec3[] methods above, but read packed xyz arrays and write into
+    // FloatPolyLine, so clipping allocates no vertex objects. Vert offsets and counts
+    // are given in verts, not floats. Input and output arrays must not be the same.
+
+    /**
+     * Packed float version of {@link #clipPlanarWithPlane(Vec3[], int, int, Vec4, PolyLine)}.
+     *
+     * @param vertLoop  Packed xyz array of coplanar verts.
+     * @param vertOff   Index of first vert
+     * @param vertCount Number of verts
+     * @param plane     Plane to use for clipping, of the form {@code plane.x * x + plane.y * y + plane.z * z + plane.w == 0 }
+     * @param out       Holds clipped polygon on return.
+     *
+     * @return true iff clipped polygon is non-null.
+     */
+    public static boolean clipPlanarWithPlane( float[] vertLoop,
+                                               int vertOff,
+                                               int vertCount,
+                                               Vec4 plane,
+                                               FloatPolyLine out )
+    {
+        if( plane.z == 0 ) {
+            if( plane.y == 0 ) {
+                if( plane.x < 0 ) {
+                    return clipPlanarUnderAxisPlane( vertLoop, vertOff, vertCount, 0, -plane.w / plane.x, out );
+                } else if( plane.x > 0 ) {
+                    return clipPlanarOverAxisPlane( vertLoop, vertOff, vertCount, 0, -plane.w / plane.x, out );
+                } else {
+                    return false;
+                }
+            } else if( plane.x == 0 ) {
+                if( plane.y < 0 ) {
+                    return clipPlanarUnderAxisPlane( vertLoop, vertOff, vertCount, 1, -plane.w / plane.y, out );
+                } else {
+                    return clipPlanarOverAxisPlane( vertLoop, vertOff, vertCount, 1,  -plane.w / plane.y, out );
+                }
+            }
+        } else if( plane.y == 0 && plane.x == 0 ) {
+            if( plane.z < 0 ) {
+                return clipPlanarUnderAxisPlane( vertLoop, vertOff, vertCount, 2, -plane.w / plane.z, out );
+            } else {
+                return clipPlanarOverAxisPlane( vertLoop, vertOff, vertCount, 2,  -plane.w / plane.z, out );
+            }
+        }
+
+        return clipPlanarFast( vertLoop, vertOff, vertCount, plane, out );
+    }
+
+    /**
+     * Packed float version of {@link #clipPlanarUnderAxisPlane(Vec3[], int, int, int, float, PolyLine)}.
+     */
+    public static boolean clipPlanarUnderAxisPlane( float[] vertLoop,
+                                                    int vertOff,
+                                                    int vertCount,
+                                                    int axis,
+                                                    float max,
+                                                    FloatPolyLine out )
+    {
+        out.ensureCapacity( vertCount * 3 / 2 );
+        final float[] v = vertLoop;
+        final float[] o = out.mVerts;
+        int outSize = 0;
+
+        int va = ( vertCount - 1 + vertOff ) * 3;
+        float aDist = max - v[va + axis];
+
+        for( int b = 0; b < vertCount; b++ ) {
+            int vb = ( b + vertOff ) * 3;
+            float bDist = max - v[vb + axis];
+
+            if( aDist < 0 ) {
+                if( bDist > 0 ) {
+                    // Cross event
+                    lerp( v, va, vb, -aDist / (bDist - aDist), o, outSize * 3 );
+                    // Correct for rounding errors on clipping plane.
+                    o[outSize++ * 3 + axis] = max;
+                    put( v, vb, o, outSize++ * 3 );
+                } else if( bDist == 0 ) {
+                    put( v, vb, o, outSize++ * 3 );
+                }
+            } else if( aDist > 0 ) {
+                if( bDist >= 0 ) {
+                    put( v, vb, o, outSize++ * 3 );
+                } else {
+                    // Cross event.
+                    lerp( v, va, vb, aDist / (aDist - bDist), o, outSize * 3 );
+                    // Correct for rounding errors on clipping plane.
+                    o[outSize++ * 3 + axis] = max;
+                }
+            } else {
+                if( bDist >= 0 ) {
+                    put( v, vb, o, outSize++ * 3 );
+                }
+            }
+
+            va    = vb;
+            aDist = bDist;
+        }
+
+        out.mSize = outSize;
+        return outSize >= 3;
+    }
+
+    /**
+     * Packed float version of {@link #clipPlanarOverAxisPlane(Vec3[], int, int, int, float, PolyLine)}.
+     */
+    public static boolean clipPlanarOverAxisPlane( float[] vertLoop,
+                                                   int vertOff,
+                                                   int vertCount,
+                                                   int axis,
+                                                   float min,
+                                                   FloatPolyLine out )
+    {
+        out.ensureCapacity( vertCount * 3 / 2 );
+        final float[] v = vertLoop;
+        final float[] o = out.mVerts;
+        int outSize = 0;
+
+        int va = ( vertCount - 1 + vertOff ) * 3;
+        float aDist = v[va + axis] - min;
+
+        for( int b = 0; b < vertCount; b++ ) {
+            int vb = ( b + vertOff ) * 3;
+            float bDist = v[vb + axis] - min;
+
+            if( aDist < 0 ) {
+                if( bDist > 0 ) {
+                    // Cross event
+                    lerp( v, va, vb, -aDist / (bDist - aDist), o, outSize * 3 );
+                    // Correct for rounding errors on clipping plane.
+                    o[outSize++ * 3 + axis] = min;
+                    put( v, vb, o, outSize++ * 3 );
+                } else if( bDist == 0 ) {
+                    put( v, vb, o, outSize++ * 3 );
+                }
+            } else if( aDist > 0 ) {
+                if( bDist >= 0 ) {
+                    put( v, vb, o, outSize++ * 3 );
+                } else {
+                    // Cross event.
+                    lerp( v, va, vb, aDist / (aDist - bDist), o, outSize * 3 );
+                    // Correct for rounding errors on clipping plane.
+                    o[outSize++ * 3 + axis] = min;
+                }
+            } else {
+                if( bDist >= 0 ) {
+                    put( v, vb, o, outSize++ * 3 );
+                }
+            }
+
+            va    = vb;
+            aDist = bDist;
+        }
+
+        out.mSize = outSize;
+        return outSize >= 3;
+    }
+
+    /**
+     * Packed float version of {@link #clipPlanarFast(Vec3[], int, int, Vec4, PolyLine)}.
+     */
+    public static boolean clipPlanarFast( float[] vertLoop,
+                                          int vertOff,
+                                          int vertCount,
+                                          Vec4 plane,
+                                          FloatPolyLine out )
+    {
+        out.ensureCapacity( vertCount * 3 / 2 + 1 );
+        final float[] v = vertLoop;
+        final float[] o = out.mVerts;
+        int outSize = 0;
+
+        int va = ( vertCount - 1 + vertOff ) * 3;
+        float aDist = dot( v, va, plane ) + plane.w;
+
+        for( int b = 0; b < vertCount; b++ ) {
+            int vb = ( b + vertOff ) * 3;
+            float bDist = dot( v, vb, plane ) + plane.w;
+
+            if( aDist < 0 ) {
+                if( bDist > 0 ) {
+                    // Cross event.
+                    vecLerp( v, va, vb, -aDist / (bDist - aDist), o, outSize++ * 3 );
+                    put( v, vb, o, outSize++ * 3 );
+                } else if( bDist == 0 ) {
+                    put( v, vb, o, outSize++ * 3 );
+                }
+            } else if( aDist > 0 ) {
+                if( bDist < 0 ) {
+                    vecLerp( v, va, vb, aDist / (aDist - bDist), o, outSize++ * 3 );
+                } else {
+                    put( v, vb, o, outSize++ * 3 );
+                }
+            } else {
+                if( bDist >= 0 ) {
+                    put( v, vb, o, outSize++ * 3 );
+                }
+            }
+
+            va    = vb;
+            aDist = bDist;
+        }
+
+        out.mSize = outSize;
+        return outSize >= 3;
+    }
+
+    /**
+     * Packed float version of {@link #clipPlanarWithBox(Vec3[], int, int, Box3, PolyLine, PolyLine)}.
+     *
+     * @param vertLoop Packed xyz array of coplanar vertices.
+     * @param vertOff  Index of first vert.
+     * @param vertNum  Number of verts.
+     * @param clip     Clipping box
+     * @param workPoly Loop used as working space.
+     * @param out      pre-allocated loop object to hold clipped results.
+     * @return true iff intersection is found with non zero surface area.
+     */
+    public static boolean clipPlanarWithBox( float[] vertLoop,
+                                             int vertOff,
+                                             int vertNum,
+                                             Box3 clip,
+                                             FloatPolyLine workPoly,
+                                             FloatPolyLine out )
+    {
+        return clipPlanarOverAxisPlane(  vertLoop,        vertOff, vertNum,       0, clip.x0, workPoly ) &&
+               clipPlanarUnderAxisPlane( workPoly.mVerts, 0,       workPoly.mSize,  0, clip.x1, out      ) &&
+               clipPlanarOverAxisPlane(  out.mVerts,      0,       out.mSize,       1, clip.y0, workPoly ) &&
+               clipPlanarUnderAxisPlane( workPoly.mVerts, 0,       workPoly.mSize,  1, clip.y1, out      ) &&
+               clipPlanarOverAxisPlane(  out.mVerts,      0,       out.mSize,       2, clip.z0, workPoly ) &&
+               clipPlanarUnderAxisPlane( workPoly.mVerts, 0,       workPoly.mSize,  2, clip.z1, out );
+    }
+
+    /**
+     * Packed float version of {@link #splitPlanarWithPlane(Vec3[], int, int, Vec4, PolyLine, PolyLine)}.
+     *
+     * @return -1 if polygon lies entirely in negative domain, <br>
+     *          0 if polygon spans negative and non-negative domain, <br>
+     *          1 if polygon lies entirely in non-negative domain.
+     */
+    public static int splitPlanarWithPlane( float[] vertLoop,
+                                            int vertOff,
+                                            int vertCount,
+                                            Vec4 plane,
+                                            FloatPolyLine outNeg,
+                                            FloatPolyLine outPos )
+    {
+        if( plane.z == 0 ) {
+            if( plane.y == 0 ) {
+                if( plane.x < 0 ) {
+                    return -splitPlanarWithAxisPlaneExclusive( vertLoop, vertOff, vertCount, 0, -plane.w / plane.x, outPos, outNeg );
+                } else if( plane.x > 0 ) {
+                    return splitPlanarWithAxisPlane( vertLoop, vertOff, vertCount, 0, -plane.w / plane.x, outNeg, outPos );
+                } else {
+                    return 0;
+                }
+            } else if( plane.x == 0 ) {
+                if( plane.y < 0 ) {
+                    return -splitPlanarWithAxisPlaneExclusive( vertLoop, vertOff, vertCount, 1, -plane.w / plane.y, outPos, outNeg );
+                } else {
+                    return splitPlanarWithAxisPlane( vertLoop, vertOff, vertCount, 1, -plane.w / plane.y, outNeg, outPos );
+                }
+            }
+        } else if( plane.y == 0 && plane.x == 0 ) {
+            if( plane.z < 0 ) {
+                return -splitPlanarWithAxisPlaneExclusive( vertLoop, vertOff, vertCount, 2, -plane.w / plane.z, outPos, outNeg );
+            } else {
+                return splitPlanarWithAxisPlane( vertLoop, vertOff, vertCount, 2, -plane.w / plane.z, outNeg, outPos );
+            }
+        }
+
+        return splitPlanarWithPlaneFast( vertLoop, vertOff, vertCount, plane, outNeg, outPos );
+    }
+
+    /**
+     * Packed float version of {@link #splitPlanarWithAxisPlane(Vec3[], int, int, int, float, PolyLine, PolyLine)}.
+     */
+    public static int splitPlanarWithAxisPlane( float[] vertLoop,
+                                                int vertOff,
+                                                int vertCount,
+                                                int axis,
+                                                float plane,
+                                                FloatPolyLine outNeg,
+                                                FloatPolyLine outPos )
+    {
+        int cap = vertCount * 3 / 2;
+        outNeg.ensureCapacity( cap );
+        outPos.ensureCapacity( cap );
+        final float[] v   = vertLoop;
+        final float[] neg = outNeg.mVerts;
+        final float[] pos = outPos.mVerts;
+        int sizeNeg = 0;
+        int sizePos = 0;
+
+        int va = ( vertCount - 1 + vertOff ) * 3;
+        float aDist = v[va + axis] - plane;
+
+        for( int b = 0; b < vertCount; b++ ) {
+            int vb = ( b + vertOff ) * 3;
+            float bDist = v[vb + axis] - plane;
+
+            if( aDist < 0 ) {
+                if( bDist < 0 ) {
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                } else if( bDist > 0 ) {
+                    // Plane cross event.
+                    // Interpolate point and add to both neg and pos polygons.
+                    int mid = sizeNeg++ * 3;
+                    lerp( v, va, vb, -aDist / (bDist - aDist), neg, mid );
+                    // Correct for rounding errors so that vert has exact coord is clipping plane.
+                    neg[mid + axis] = plane;
+                    put( neg, mid, pos, sizePos++ * 3 );
+                    put( v, vb, pos, sizePos++ * 3 );
+                } else {
+                    // On the line. Add to both polygons.
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                    put( v, vb, pos, sizePos++ * 3 );
+                }
+            } else if( aDist > 0 ) {
+                if( bDist >= 0 ) {
+                    put( v, vb, pos, sizePos++ * 3 );
+                } else {
+                    // Cross event.
+                    // Interpolate point and add to pos and neg polygons.
+                    int mid = sizePos++ * 3;
+                    lerp( v, va, vb, aDist / (aDist - bDist), pos, mid );
+                    // Correct for rounding errors so that vert has exact coord as clipping plane.
+                    pos[mid + axis] = plane;
+                    put( pos, mid, neg, sizeNeg++ * 3 );
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                }
+            } else {
+                // aDist == 0.0, meaning va is on the line
+                if( bDist >= 0 ) {
+                    put( v, vb, pos, sizePos++ * 3 );
+                } else {
+                    // va is on line, vb is on right.
+                    // Because line verts normally go to the right,
+                    // check if va needs to be added also to the neg polygon.
+                    if( sizeNeg == 0 || equal( neg, ( sizeNeg - 1 ) * 3, v, va ) ) {
+                        put( v, va, neg, sizeNeg++ * 3 );
+                    }
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                }
+            }
+
+            va    = vb;
+            aDist = bDist;
+        }
+
+        outNeg.mSize = sizeNeg;
+        outPos.mSize = sizePos;
+        return sizeNeg == 0 ? ( sizePos == 0 ? 0 : 1 ) : ( sizePos == 0 ? -1 : 0 );
+    }
+
+    /**
+     * Packed float version of {@link #splitPlanarWithAxisPlaneExclusive(Vec3[], int, int, int, float, PolyLine, PolyLine)}.
+     */
+    public static int splitPlanarWithAxisPlaneExclusive( float[] vertLoop,
+                                                         int vertOff,
+                                                         int vertCount,
+                                                         int axis,
+                                                         float plane,
+                                                         FloatPolyLine outNeg,
+                                                         FloatPolyLine outPos )
+    {
+        int cap = vertCount * 3 / 2;
+        outNeg.ensureCapacity( cap );
+        outPos.ensureCapacity( cap );
+        final float[] v   = vertLoop;
+        final float[] neg = outNeg.mVerts;
+        final float[] pos = outPos.mVerts;
+        int sizeNeg = 0;
+        int sizePos = 0;
+
+        int va = ( vertCount - 1 + vertOff ) * 3;
+        float aDist = v[va + axis] - plane;
+
+        for( int b = 0; b < vertCount; b++ ) {
+            int vb = ( b + vertOff ) * 3;
+            float bDist = v[vb + axis] - plane;
+
+            if( aDist < 0 ) {
+                if( bDist <= 0 ) {
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                } else {
+                    // Plane cross event.
+                    // Interpolate point and add to both neg and pos polygons.
+                    int mid = sizeNeg++ * 3;
+                    lerp( v, va, vb, -aDist / (bDist - aDist), neg, mid );
+                    // Correct for rounding errors so that vert has exact coord is clipping plane.
+                    neg[mid + axis] = plane;
+                    put( neg, mid, pos, sizePos++ * 3 );
+                    put( v, vb, pos, sizePos++ * 3 );
+                }
+            } else if( aDist > 0 ) {
+                if( bDist > 0 ) {
+                    put( v, vb, pos, sizePos++ * 3 );
+                } else if( bDist < 0 ) {
+                    // Cross event.
+                    // Interpolate point and add to pos and neg polygons.
+                    int mid = sizePos++ * 3;
+                    lerp( v, va, vb, aDist / (aDist - bDist), pos, mid );
+                    // Correct for rounding errors so that vert has exact coord as clipping plane.
+                    pos[mid + axis] = plane;
+                    put( pos, mid, neg, sizeNeg++ * 3 );
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                } else {
+                    // VA positive, VB on plane. Add vert ot both.
+                    put( v, vb, pos, sizePos++ * 3 );
+                    put( v, va, neg, sizeNeg++ * 3 );
+                }
+            } else {
+                // aDist == 0.0, meaning va is on the line
+                if( bDist <= 0 ) {
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                } else {
+                    // va is on plane, vb is positive.
+                    // Because va would normally be included in negative polygon,
+                    // check if va needs to be added also to the positive polygon.
+                    if( sizePos == 0 || equal( pos, ( sizePos - 1 ) * 3, v, va ) ) {
+                        put( v, va, pos, sizePos++ * 3 );
+                    }
+                    put( v, vb, pos, sizePos++ * 3 );
+                }
+            }
+            va    = vb;
+            aDist = bDist;
+        }
+
+        outNeg.mSize = sizeNeg;
+        outPos.mSize = sizePos;
+        return sizeNeg == 0 ? ( sizePos == 0 ? 0 : 1 ) : ( sizePos == 0 ? -1 : 0 );
+    }
+
+    /**
+     * Packed float version of {@link #splitPlanarWithPlaneFast(Vec3[], int, int, Vec4, PolyLine, PolyLine)}.
+     */
+    public static int splitPlanarWithPlaneFast( float[] vertLoop,
+                                                int vertOff,
+                                                int vertCount,
+                                                Vec4 plane,
+                                                FloatPolyLine outNeg,
+                                                FloatPolyLine outPos )
+    {
+        int cap = vertCount * 3 / 2;
+        outNeg.ensureCapacity( cap );
+        outPos.ensureCapacity( cap );
+        final float[] v   = vertLoop;
+        final float[] neg = outNeg.mVerts;
+        final float[] pos = outPos.mVerts;
+        int sizeNeg = 0;
+        int sizePos = 0;
+
+        int va = ( vertCount - 1 + vertOff ) * 3;
+        float aDist = dot( v, va, plane ) + plane.w;
+
+        for( int b = 0; b < vertCount; b++ ) {
+            int vb = ( b + vertOff ) * 3;
+            float bDist = dot( v, vb, plane ) + plane.w;
+
+            if( aDist < 0 ) {
+                if( bDist <= 0 ) {
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                } else {
+                    // Cross event.
+                    // Interpolated point and add to neg and pos sides.
+                    int mid = sizeNeg++ * 3;
+                    lerp( v, va, vb, -aDist / (bDist - aDist), neg, mid );
+                    put( neg, mid, pos, sizePos++ * 3 );
+                    put( v, vb, pos, sizePos++ * 3 );
+                }
+            } else if( aDist > 0 ) {
+                if( bDist > 0 ) {
+                    put( v, vb, pos, sizePos++ * 3 );
+                } else if( bDist < 0 ) {
+                    // Cross event.
+                    // Interpolate point and add to neg and pos sides.
+                    int mid = sizePos++ * 3;
+                    lerp( v, va, vb, aDist / (aDist - bDist), pos, mid );
+                    put( pos, mid, neg, sizeNeg++ * 3 );
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                } else {
+                    // On the line. Add to both.
+                    put( v, vb, pos, sizePos++ * 3 );
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                }
+            } else {
+                // aDist == 0.0, meaning va is on the line
+                if( bDist <= 0 ) {
+                    put( v, vb, neg, sizeNeg++ * 3 );
+                } else {
+                    // va is on line, vb is on right.
+                    // Because line verts normally go to the neg space, check
+                    // whether outRight contains va.
+                    if( sizePos == 0 || equal( pos, ( sizePos - 1 ) * 3, v, va ) ) {
+                        put( v, va, pos, sizePos++ * 3 );
+                    }
+                    put( v, vb, pos, sizePos++ * 3 );
+                }
+            }
+
+            va    = vb;
+            aDist = bDist;
+        }
+
+        outNeg.mSize = sizeNeg;
+        outPos.mSize = sizePos;
+
+        return sizeNeg == 0 ? ( sizePos == 0 ? 0 : 1 ) : ( sizePos == 0 ? -1 : 0 );
+    }
+
+
     /**
      * Provided with an array of COPLANAR vertices and an AABB, this method
      * will provide the geometric intersection.
@@ -1150,4 +1664,38 @@ public class Clip {
         out.z = a.z + ( p * ( b.z - a.z ) );
     }
 
+
+    private static void lerp( float[] v, int a, int b, float p, float[] out, int o ) {
+        // Same arithmetic as lerp(Vec3, Vec3, float, Vec3).
+        out[o  ] = v[a  ] + ( p * ( v[b  ] - v[a  ] ) );
+        out[o+1] = v[a+1] + ( p * ( v[b+1] - v[a+1] ) );
+        out[o+2] = v[a+2] + ( p * ( v[b+2] - v[a+2] ) );
+    }
+
+
+    private static void vecLerp( float[] v, int a, int b, float p, float[] out, int o ) {
+        // Same arithmetic as Vec.lerp(Vec3, Vec3, float, Vec3).
+        float q = 1.0f - p;
+        out[o  ] = q * v[a  ] + p * v[b  ];
+        out[o+1] = q * v[a+1] + p * v[b+1];
+        out[o+2] = q * v[a+2] + p * v[b+2];
+    }
+
+
+    private static float dot( float[] v, int a, Vec3 plane ) {
+        return v[a] * plane.x + v[a+1] * plane.y + v[a+2] * plane.z;
+    }
+
+
+    private static void put( float[] src, int s, float[] dst, int d ) {
+        dst[d  ] = src[s  ];
+        dst[d+1] = src[s+1];
+        dst[d+2] = src[s+2];
+    }
+
+
+    private static boolean equal( float[] a, int ai, float[] b, int bi ) {
+        return a[ai] == b[bi] && a[ai+1] == b[bi+1] && a[ai+2] == b[bi+2];
+    }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.Vec3;
+import java.util.Arrays;
+
+
+/**
+ * PolyLine stored as packed xyz floats. Vertex {@code i} occupies
+ * {@code mVerts[i*3]} through {@code mVerts[i*3+2]}. Unlike {@link PolyLine},
+ * growing a FloatPolyLine allocates a single array and no vertex objects.
+ *
+ * @author Philip DeCamp
+ */
+public class FloatPolyLine {
+
+    public float[] mVerts;
+    public int mSize;
+
+
+    public FloatPolyLine() {
+        this( 10 );
+    }
+
+    /**
+     * @param vertsRef Packed xyz array to use for storage. Length should be multiple of 3.
+     */
+    public FloatPolyLine( float[] vertsRef ) {
+        mVerts = vertsRef;
+    }
+
+
+    public FloatPolyLine( int len ) {
+        mVerts = new float[len * 3];
+    }
+
+    /**
+     * @return number of verts that fit in current storage.
+     */
+    public int capacity() {
+        return mVerts.length / 3;
+    }
+
+
+    public void ensureCapacity( int minCap ) {
+        final int oldCap = capacity();
+        if( minCap <= oldCap ) {
+            return;
+        }
+
+        int newCap = ( oldCap * 3 ) / 2 + 1;
+        if( newCap < minCap ) {
+            newCap = minCap;
+        }
+
+        mVerts = Arrays.copyOf( mVerts, newCap * 3 );
+    }
+
+
+    public Vec3 get( int i, Vec3 out ) {
+        i *= 3;
+        out.x = mVerts[i  ];
+        out.y = mVerts[i+1];
+        out.z = mVerts[i+2];
+        return out;
+    }
+
+
+    public void set( int i, Vec3 v ) {
+        set( i, v.x, v.y, v.z );
+    }
+
+
+    public void set( int i, float x, float y, float z ) {
+        i *= 3;
+        mVerts[i  ] = x;
+        mVerts[i+1] = y;
+        mVerts[i+2] = z;
+    }
+
+    /**
+     * Appends vert, growing storage if needed.
+     */
+    public void add( float x, float y, float z ) {
+        ensureCapacity( mSize + 1 );
+        set( mSize++, x, y, z );
+    }
+
+
+    public void add( Vec3 v ) {
+        add( v.x, v.y, v.z );
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.Box3;
+import bits.math3d.Mat4;
+import bits.math3d.Vec4;
+
+
+/**
+ * View frustum described by six planes. Like {@link Clip}, each plane is a Vec4 of the form
+ * {@code plane.x * x + plane.y * y + plane.z * z + plane.w == 0 }, and the inside of the frustum lies
+ * on the non-negative side of every plane. Planes are normalized, so plane equations give distances.
+ * <p>
+ * Culling tests take a plane mask, with bit {@code i} set if plane {@code i} must be tested. Tests return
+ * {@link #OUTSIDE} if the object is entirely outside a tested plane, or the mask of tested planes that the
+ * object straddles. When traversing a hierarchy, the mask returned for a parent may be passed when testing
+ * its children, and a mask of zero means the children are entirely inside and need no further tests.
+ * <p>
+ * Tests that take a {@code byte[]} plane cache exploit temporal coherency: the plane that last rejected each
+ * object is stored in the cache and tested first next time.
+ *
+ * @author Philip DeCamp
+ */
+public class Frustum {
+
+    public static final int LEFT   = 0;
+    public static final int RIGHT  = 1;
+    public static final int BOTTOM = 2;
+    public static final int TOP    = 3;
+    public static final int NEAR   = 4;
+    public static final int FAR    = 5;
+
+    /** Mask that tests all planes. **/
+    public static final int ALL     = 0x3F;
+    /** Returned by tests when object is outside frustum. **/
+    public static final int OUTSIDE = -1;
+
+
+    public final Vec4[] mPlanes = new Vec4[6];
+
+
+    public Frustum() {
+        for( int i = 0; i < 6; i++ ) {
+            mPlanes[i] = new Vec4();
+        }
+    }
+
+
+    public Frustum( Mat4 viewProj ) {
+        this();
+        set( viewProj );
+    }
+
+    /**
+     * Extracts frustum planes from a projection or view-projection matrix, such as one made
+     * with {@link bits.math3d.Mat#getFrustum} or {@link bits.math3d.Mat#getOrtho}. Resulting planes
+     * are in the space that the matrix transforms from.
+     */
+    public void set( Mat4 m ) {
+        // Each plane is the sum or difference of the last row and another row.
+        setPlane( mPlanes[LEFT  ], m.m30 + m.m00, m.m31 + m.m01, m.m32 + m.m02, m.m33 + m.m03 );
+        setPlane( mPlanes[RIGHT ], m.m30 - m.m00, m.m31 - m.m01, m.m32 - m.m02, m.m33 - m.m03 );
+        setPlane( mPlanes[BOTTOM], m.m30 + m.m10, m.m31 + m.m11, m.m32 + m.m12, m.m33 + m.m13 );
+        setPlane( mPlanes[TOP   ], m.m30 - m.m10, m.m31 - m.m11, m.m32 - m.m12, m.m33 - m.m13 );
+        setPlane( mPlanes[NEAR  ], m.m30 + m.m20, m.m31 + m.m21, m.m32 + m.m22, m.m33 + m.m23 );
+        setPlane( mPlanes[FAR   ], m.m30 - m.m20, m.m31 - m.m21, m.m32 - m.m22, m.m33 - m.m23 );
+    }
+
+    /**
+     * @return true iff point lies inside frustum, inclusive.
+     */
+    public boolean contains( float x, float y, float z ) {
+        for( int i = 0; i < 6; i++ ) {
+            Vec4 p = mPlanes[i];
+            if( p.x * x + p.y * y + p.z * z + p.w < 0 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests box against frustum.
+     *
+     * @param box  Box to test.
+     * @param mask Planes to test.
+     * @return {@link #OUTSIDE} if box is outside frustum, otherwise mask of tested planes that box straddles.
+     */
+    public int test( Box3 box, int mask ) {
+        return test( box.x0, box.y0, box.z0, box.x1, box.y1, box.z1, mask, null, 0 );
+    }
+
+    /**
+     * Tests box against frustum, using and updating a plane cache.
+     *
+     * @param box        Box to test.
+     * @param mask       Planes to test.
+     * @param planeCache Index of plane that last rejected each object.
+     * @param cacheIdx   Index of object in {@code planeCache}.
+     * @return {@link #OUTSIDE} if box is outside frustum, otherwise mask of tested planes that box straddles.
+     */
+    public int test( Box3 box, int mask, byte[] planeCache, int cacheIdx ) {
+        return test( box.x0, box.y0, box.z0, box.x1, box.y1, box.z1, mask, planeCache, cacheIdx );
+    }
+
+
+    public int test( float x0, float y0, float z0, float x1, float y1, float z1, int mask, byte[] planeCache, int cacheIdx ) {
+        return test( mPlanes, x0, y0, z0, x1, y1, z1, mask, planeCache, cacheIdx );
+    }
+
+    /**
+     * Tests box against an arbitrary set of planes, using the same conventions as the frustum tests.
+     * Shared with hierarchies that cull against more or fewer than six planes.
+     *
+     * @param planes Planes to test. At most 32.
+     */
+    static int test( Vec4[] planes,
+                     float x0,
+                     float y0,
+                     float z0,
+                     float x1,
+                     float y1,
+                     float z1,
+                     int mask,
+                     byte[] planeCache,
+                     int cacheIdx )
+    {
+        if( mask == 0 ) {
+            return 0;
+        }
+        final int planeNum = planes.length;
+        final int start = planeCache == null ? 0 : planeCache[cacheIdx];
+        int ret = 0;
+        for( int n = 0; n < planeNum; n++ ) {
+            final int i = start + n < planeNum ? start + n : start + n - planeNum;
+            if( ( mask & ( 1 << i ) ) == 0 ) {
+                continue;
+            }
+            final Vec4 p = planes[i];
+            // Corner farthest along plane normal.
+            float far = p.w + p.x * ( p.x >= 0 ? x1 : x0 )
+                            + p.y * ( p.y >= 0 ? y1 : y0 )
+                            + p.z * ( p.z >= 0 ? z1 : z0 );
+            if( far < 0 ) {
+                if( planeCache != null ) {
+                    planeCache[cacheIdx] = (byte)i;
+                }
+                return OUTSIDE;
+            }
+            // Corner nearest along plane normal.
+            float near = p.w + p.x * ( p.x >= 0 ? x0 : x1 )
+                             + p.y * ( p.y >= 0 ? y0 : y1 )
+                             + p.z * ( p.z >= 0 ? z0 : z1 );
+            if( near < 0 ) {
+                ret |= 1 << i;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Tests sphere against frustum.
+     *
+     * @return {@link #OUTSIDE} if sphere is outside frustum, otherwise mask of tested planes that sphere straddles.
+     */
+    public int test( Sphere sphere, int mask ) {
+        return test( sphere.mPos.x, sphere.mPos.y, sphere.mPos.z, sphere.mRad, mask, null, 0 );
+    }
+
+
+    public int test( Sphere sphere, int mask, byte[] planeCache, int cacheIdx ) {
+        return test( sphere.mPos.x, sphere.mPos.y, sphere.mPos.z, sphere.mRad, mask, planeCache, cacheIdx );
+    }
+
+
+    public int test( float x, float y, float z, float rad, int mask, byte[] planeCache, int cacheIdx ) {
+        if( mask == 0 ) {
+            return 0;
+        }
+        final int start = planeCache == null ? 0 : planeCache[cacheIdx];
+        int ret = 0;
+        for( int n = 0; n < 6; n++ ) {
+            final int i = ( start + n ) % 6;
+            if( ( mask & ( 1 << i ) ) == 0 ) {
+                continue;
+            }
+            final Vec4 p = mPlanes[i];
+            float d = p.x * x + p.y * y + p.z * z + p.w;
+            if( d < -rad ) {
+                if( planeCache != null ) {
+                    planeCache[cacheIdx] = (byte)i;
+                }
+                return OUTSIDE;
+            }
+            if( d < rad ) {
+                ret |= 1 << i;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Culls an array of boxes.
+     *
+     * @param boxes      Boxes to test.
+     * @param off        Index of first box.
+     * @param len        Number of boxes.
+     * @param mask       Planes to test, such as the mask returned for a parent.
+     * @param planeCache Plane cache, indexed like {@code boxes}. May be {@code null}.
+     * @param out        Receives result of {@link #test} for each box, starting at {@code outOff}.
+     * @param outOff     Offset into {@code out}.
+     * @return number of boxes not outside frustum.
+     */
+    public int cull( Box3[] boxes, int off, int len, int mask, byte[] planeCache, int[] out, int outOff ) {
+        int count = 0;
+        for( int i = 0; i < len; i++ ) {
+            Box3 b = boxes[off + i];
+            int r = test( b.x0, b.y0, b.z0, b.x1, b.y1, b.z1, mask, planeCache, off + i );
+            out[outOff + i] = r;
+            if( r != OUTSIDE ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Culls an array of spheres.
+     *
+     * @see #cull(Box3[], int, int, int, byte[], int[], int)
+     */
+    public int cull( Sphere[] spheres, int off, int len, int mask, byte[] planeCache, int[] out, int outOff ) {
+        int count = 0;
+        for( int i = 0; i < len; i++ ) {
+            Sphere s = spheres[off + i];
+            int r = test( s.mPos.x, s.mPos.y, s.mPos.z, s.mRad, mask, planeCache, off + i );
+            out[outOff + i] = r;
+            if( r != OUTSIDE ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Culls packed boxes.
+     *
+     * @param boxes Packed {@code [x0, y0, z0, x1, y1, z1]} bounds.
+     * @param off   Index of first box, in boxes.
+     * @see #cull(Box3[], int, int, int, byte[], int[], int)
+     */
+    public int cull( float[] boxes, int off, int len, int mask, byte[] planeCache, int[] out, int outOff ) {
+        int count = 0;
+        for( int i = 0; i < len; i++ ) {
+            int j = ( off + i ) * 6;
+            int r = test( boxes[j], boxes[j+1], boxes[j+2], boxes[j+3], boxes[j+4], boxes[j+5], mask, planeCache, off + i );
+            out[outOff + i] = r;
+            if( r != OUTSIDE ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+
+    private static void setPlane( Vec4 out, float a, float b, float c, float d ) {
+        float len = (float)Math.sqrt( a * a + b * b + c * c );
+        float s = len > 0f ? 1f / len : 1f;
+        out.x = a * s;
+        out.y = b * s;
+        out.z = c * s;
+        out.w = d * s;
+    }
+
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.VecView;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Static k-d tree over items of 2 to 4 dimensions, accessed through a {@link VecView}.
+ * Coordinates are read once during construction; changing items afterward has no effect on the tree.
+ * <p>
+ * The tree is stored implicitly: items are reordered so that the median of each range
+ * sits at the center of the range, with the lower half before and upper half after.
+ * Only the split axis of each node is stored. Construction uses median-of-medians selection
+ * and runs in O(n log n).
+ * <p>
+ * KdTree objects are immutable after construction and may be queried from multiple threads.
+ *
+ * @author Philip DeCamp
+ */
+public final class KdTree<T> {
+
+    /** Ranges of at most this many items are searched linearly. **/
+    private static final int LEAF_SIZE = 8;
+
+
+    private final VecView<? super T> mView;
+    private final int mDim;
+    private final int mSize;
+    /** Items in tree order. **/
+    private final Object[] mItems;
+    /** Coordinates of items in tree order, packed with stride of mDim. **/
+    private final double[] mCoords;
+    /** Split axis of node with median at given index. **/
+    private final byte[] mAxes;
+
+
+    public KdTree( VecView<? super T> view, Collection<? extends T> items ) {
+        this( view, items.toArray() );
+    }
+
+
+    private KdTree( VecView<? super T> view, Object[] items ) {
+        final int dim = view.dim();
+        if( dim < 2 || dim > 4 ) {
+            throw new IllegalArgumentException( "KdTree supports 2 to 4 dimensions: " + dim );
+        }
+
+        mView  = view;
+        mDim   = dim;
+        mSize  = items.length;
+        mAxes  = new byte[mSize];
+
+        final double[] coords = new double[mSize * dim];
+        for( int i = 0; i < mSize; i++ ) {
+            @SuppressWarnings( "unchecked" )
+            T item = (T)items[i];
+            for( int d = 0; d < dim; d++ ) {
+                coords[i * dim + d] = view.get( item, d );
+            }
+        }
+
+        final int[] idx = new int[mSize];
+        for( int i = 0; i < mSize; i++ ) {
+            idx[i] = i;
+        }
+        new Builder( coords, dim, idx, mAxes ).build( 0, mSize );
+
+        // Store items and coordinates in tree order.
+        mItems  = new Object[mSize];
+        mCoords = new double[mSize * dim];
+        for( int i = 0; i < mSize; i++ ) {
+            mItems[i] = items[idx[i]];
+            System.arraycopy( coords, idx[i] * dim, mCoords, i * dim, dim );
+        }
+    }
+
+
+    public int size() {
+        return mSize;
+    }
+
+
+    public int dim() {
+        return mDim;
+    }
+
+    /**
+     * @return item nearest to {@code query}, or {@code null} if tree is empty.
+     */
+    @SuppressWarnings( "unchecked" )
+    public T nearest( T query ) {
+        Heap heap = new Heap( 1 );
+        nearest( 0, mSize, coords( query ), heap );
+        return heap.mSize == 0 ? null : (T)mItems[heap.mIdx[0]];
+    }
+
+    /**
+     * Finds the {@code k} items nearest to {@code query}.
+     *
+     * @param query Query point.
+     * @param k     Maximum number of items to find.
+     * @param out   Receives items, nearest first.
+     * @return number of items added to {@code out}.
+     */
+    @SuppressWarnings( "unchecked" )
+    public int nearest( T query, int k, List<? super T> out ) {
+        if( k <= 0 ) {
+            return 0;
+        }
+        Heap heap = new Heap( Math.min( k, mSize ) );
+        nearest( 0, mSize, coords( query ), heap );
+
+        // Pop from max-heap to get farthest first, then append in reverse.
+        final int n    = heap.mSize;
+        final int base = out.size();
+        for( int i = 0; i < n; i++ ) {
+            out.add( null );
+        }
+        for( int i = n - 1; i >= 0; i-- ) {
+            out.set( base + i, (T)mItems[heap.pop()] );
+        }
+        return n;
+    }
+
+    /**
+     * Finds all items within {@code radius} of {@code query}, inclusive.
+     *
+     * @param out Receives items, in no particular order.
+     * @return number of items added to {@code out}.
+     */
+    public int radius( T query, double radius, List<? super T> out ) {
+        return radius( 0, mSize, coords( query ), radius * radius, out );
+    }
+
+    /**
+     * Finds all items within an axis-aligned box, inclusive.
+     *
+     * @param min Minimum corner of box. Length must be at least {@link #dim()}.
+     * @param max Maximum corner of box. Length must be at least {@link #dim()}.
+     * @param out Receives items, in no particular order.
+     * @return number of items added to {@code out}.
+     */
+    public int range( double[] min, double[] max, List<? super T> out ) {
+        if( min.length < mDim || max.length < mDim ) {
+            throw new IllegalArgumentException( "Box has fewer than " + mDim + " dimensions." );
+        }
+        return range( 0, mSize, min, max, out );
+    }
+
+
+
+    private double[] coords( T item ) {
+        double[] ret = new double[mDim];
+        for( int d = 0; d < mDim; d++ ) {
+            ret[d] = mView.get( item, d );
+        }
+        return ret;
+    }
+
+
+    private double distSquared( int i, double[] q ) {
+        final double[] c = mCoords;
+        final int off = i * mDim;
+        double sum = 0.0;
+        for( int d = 0; d < mDim; d++ ) {
+            double v = c[off + d] - q[d];
+            sum += v * v;
+        }
+        return sum;
+    }
+
+
+    private void nearest( int lo, int hi, double[] q, Heap heap ) {
+        if( hi - lo <= LEAF_SIZE ) {
+            for( int i = lo; i < hi; i++ ) {
+                heap.offer( i, distSquared( i, q ) );
+            }
+            return;
+        }
+
+        final int mid   = ( lo + hi ) >>> 1;
+        final int axis  = mAxes[mid];
+        final double diff = q[axis] - mCoords[mid * mDim + axis];
+
+        if( diff < 0.0 ) {
+            nearest( lo, mid, q, heap );
+            heap.offer( mid, distSquared( mid, q ) );
+            if( diff * diff <= heap.worst() ) {
+                nearest( mid + 1, hi, q, heap );
+            }
+        } else {
+            nearest( mid + 1, hi, q, heap );
+            heap.offer( mid, distSquared( mid, q ) );
+            if( diff * diff <= heap.worst() ) {
+                nearest( lo, mid, q, heap );
+            }
+        }
+    }
+
+
+    private int radius( int lo, int hi, double[] q, double radSq, List<? super T> out ) {
+        int count = 0;
+        while( hi - lo > LEAF_SIZE ) {
+            final int mid  = ( lo + hi ) >>> 1;
+            final int axis = mAxes[mid];
+            final double diff = q[axis] - mCoords[mid * mDim + axis];
+            if( distSquared( mid, q ) <= radSq ) {
+                add( mid, out );
+                count++;
+            }
+            // Recurse on one side and loop on the other.
+            if( diff * diff <= radSq ) {
+                count += radius( lo, mid, q, radSq, out );
+                lo = mid + 1;
+            } else if( diff < 0.0 ) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+
+        for( int i = lo; i < hi; i++ ) {
+            if( distSquared( i, q ) <= radSq ) {
+                add( i, out );
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    private int range( int lo, int hi, double[] min, double[] max, List<? super T> out ) {
+        int count = 0;
+        while( hi - lo > LEAF_SIZE ) {
+            final int mid  = ( lo + hi ) >>> 1;
+            final int axis = mAxes[mid];
+            final double v = mCoords[mid * mDim + axis];
+            if( inRange( mid, min, max ) ) {
+                add( mid, out );
+                count++;
+            }
+            boolean goLow  = min[axis] <= v;
+            boolean goHigh = max[axis] >= v;
+            if( goLow && goHigh ) {
+                count += range( lo, mid, min, max, out );
+                lo = mid + 1;
+            } else if( goLow ) {
+                hi = mid;
+            } else if( goHigh ) {
+                lo = mid + 1;
+            } else {
+                return count;
+            }
+        }
+
+        for( int i = lo; i < hi; i++ ) {
+            if( inRange( i, min, max ) ) {
+                add( i, out );
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    private boolean inRange( int i, double[] min, double[] max ) {
+        final int off = i * mDim;
+        for( int d = 0; d < mDim; d++ ) {
+            double v = mCoords[off + d];
+            if( v < min[d] || v > max[d] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    private void add( int i, List<? super T> out ) {
+        out.add( (T)mItems[i] );
+    }
+
+
+    /**
+     * Bounded max-heap of candidate indices, keyed on squared distance.
+     */
+    private static final class Heap {
+        final int mCap;
+        final int[] mIdx;
+        final double[] mDist;
+        int mSize = 0;
+
+        Heap( int cap ) {
+            mCap  = cap;
+            mIdx  = new int[cap];
+            mDist = new double[cap];
+        }
+
+        double worst() {
+            return mSize < mCap ? Double.POSITIVE_INFINITY : mDist[0];
+        }
+
+        void offer( int idx, double dist ) {
+            if( mSize < mCap ) {
+                int i = mSize++;
+                while( i > 0 ) {
+                    int p = ( i - 1 ) >> 1;
+                    if( mDist[p] >= dist ) {
+                        break;
+                    }
+                    mIdx[i]  = mIdx[p];
+                    mDist[i] = mDist[p];
+                    i = p;
+                }
+                mIdx[i]  = idx;
+                mDist[i] = dist;
+            } else if( mCap > 0 && dist < mDist[0] ) {
+                siftDown( idx, dist );
+            }
+        }
+
+        int pop() {
+            int ret = mIdx[0];
+            mSize--;
+            if( mSize > 0 ) {
+                int lastIdx     = mIdx[mSize];
+                double lastDist = mDist[mSize];
+                siftDown( lastIdx, lastDist );
+            }
+            return ret;
+        }
+
+        private void siftDown( int idx, double dist ) {
+            int i = 0;
+            while( true ) {
+                int c = i * 2 + 1;
+                if( c >= mSize ) {
+                    break;
+                }
+                if( c + 1 < mSize && mDist[c + 1] > mDist[c] ) {
+                    c++;
+                }
+                if( mDist[c] <= dist ) {
+                    break;
+                }
+                mIdx[i]  = mIdx[c];
+                mDist[i] = mDist[c];
+                i = c;
+            }
+            mIdx[i]  = idx;
+            mDist[i] = dist;
+        }
+    }
+
+
+    private static final class Builder {
+        final double[] mCoords;
+        final int mDim;
+        final int[] mIdx;
+        final byte[] mAxes;
+        /** Key of each item in mIdx on current split axis, swapped along with mIdx during selection. **/
+        final double[] mKeys;
+
+        Builder( double[] coords, int dim, int[] idx, byte[] axes ) {
+            mCoords = coords;
+            mDim    = dim;
+            mIdx    = idx;
+            mAxes   = axes;
+            mKeys   = new double[idx.length];
+        }
+
+
+        void build( int lo, int hi ) {
+            while( hi - lo > LEAF_SIZE ) {
+                final int mid  = ( lo + hi ) >>> 1;
+                final int axis = widestAxis( lo, hi );
+                for( int i = lo; i < hi; i++ ) {
+                    mKeys[i] = mCoords[mIdx[i] * mDim + axis];
+                }
+                select( lo, hi, mid );
+                mAxes[mid] = (byte)axis;
+                build( lo, mid );
+                lo = mid + 1;
+            }
+        }
+
+
+        private int widestAxis( int lo, int hi ) {
+            int best = 0;
+            double bestExt = -1.0;
+            for( int d = 0; d < mDim; d++ ) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for( int i = lo; i < hi; i++ ) {
+                    double v = mCoords[mIdx[i] * mDim + d];
+                    if( v < min ) min = v;
+                    if( v > max ) max = v;
+                }
+                if( max - min > bestExt ) {
+                    bestExt = max - min;
+                    best = d;
+                }
+            }
+            return best;
+        }
+
+
+        /**
+         * Reorders {@code mIdx[lo,hi)} such that position {@code k} holds the item that would be there
+         * if range were sorted on key, with no greater items before and no lesser items after.
+         */
+        private void select( int lo, int hi, int k ) {
+            final double[] keys = mKeys;
+            while( hi - lo > 5 ) {
+                double pivot = keys[medianOfMedians( lo, hi )];
+
+                // Three-way partition: [lo,lt) < pivot, [lt,gt) == pivot, [gt,hi) > pivot.
+                int lt = lo;
+                int gt = hi;
+                int i  = lo;
+                while( i < gt ) {
+                    double v = keys[i];
+                    if( v < pivot ) {
+                        swap( lt++, i++ );
+                    } else if( v > pivot ) {
+                        swap( i, --gt );
+                    } else {
+                        i++;
+                    }
+                }
+
+                if( k < lt ) {
+                    hi = lt;
+                } else if( k >= gt ) {
+                    lo = gt;
+                } else {
+                    return;
+                }
+            }
+            insertionSort( lo, hi );
+        }
+
+        /**
+         * Moves median of each group of five to front of range, then selects median of those.
+         *
+         * @return position of median of medians.
+         */
+        private int medianOfMedians( int lo, int hi ) {
+            int n = 0;
+            for( int i = lo; i < hi; i += 5 ) {
+                int end = Math.min( i + 5, hi );
+                insertionSort( i, end );
+                swap( lo + n++, ( i + end - 1 ) >>> 1 );
+            }
+            int mid = lo + ( n - 1 ) / 2;
+            select( lo, lo + n, mid );
+            return mid;
+        }
+
+
+        private void insertionSort( int lo, int hi ) {
+            final double[] keys = mKeys;
+            for( int i = lo + 1; i < hi; i++ ) {
+                int idx  = mIdx[i];
+                double v = keys[i];
+                int j = i - 1;
+                while( j >= lo && keys[j] > v ) {
+                    mIdx[j + 1] = mIdx[j];
+                    keys[j + 1] = keys[j];
+                    j--;
+                }
+                mIdx[j + 1] = idx;
+                keys[j + 1] = v;
+            }
+        }
+
+
+        private void swap( int a, int b ) {
+            int t   = mIdx[a];
+            mIdx[a] = mIdx[b];
+            mIdx[b] = t;
+            double k = mKeys[a];
+            mKeys[a] = mKeys[b];
+            mKeys[b] = k;
+        }
+    }
+
+}
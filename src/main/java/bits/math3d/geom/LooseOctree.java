@@ -0,0 +1,574 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.Box3;
+import bits.math3d.Vec4;
+
+import java.util.Arrays;
+
+
+/**
+ * Loose octree of objects with axis-aligned bounds, supporting incremental insertion, removal and movement.
+ * <p>
+ * Each node has a cell that is one octant of its parent's, and a loose box that extends its cell
+ * by half a cell on every side. An object is stored in the deepest node whose cell contains the object's
+ * center and whose loose box contains the entire object. Objects that move while remaining within
+ * the loose box of their node are updated in constant time. Objects that fall outside the world
+ * box are kept in the root node.
+ * <p>
+ * Objects are referred to by integer handles returned from {@link #insert}. Node and object data are stored
+ * in pooled arrays; handles and nodes are recycled after removal.
+ * <p>
+ * LooseOctree is not thread safe.
+ *
+ * @author Philip DeCamp
+ */
+public final class LooseOctree<T> {
+
+    /**
+     * Receives objects found by a query.
+     */
+    public interface Visitor<T> {
+        /**
+         * @param item   Object found.
+         * @param handle Handle of object.
+         * @return false to end query early.
+         */
+        boolean visit( T item, int handle );
+    }
+
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    /** Maximum allowed depth. Deeper trees underflow float precision for reasonable world sizes. **/
+    private static final int MAX_DEPTH = 20;
+
+
+    private final int mMaxDepth;
+
+    // Node pool. Children of a node are allocated as a block of eight consecutive nodes.
+    private int mNodeCap   = 0;
+    private int mNodeCount = 0;
+    /** First child of each node, or NONE. For free blocks, next free block. **/
+    private int[] mNodeChild;
+    private int[] mNodeParent;
+    /** Head of object list in each node. **/
+    private int[] mNodeHead;
+    /** Number of objects in each node and its descendants. **/
+    private int[] mNodeTotal;
+    private byte[] mNodeDepth;
+    /** Center and half-size of each node's cell. Loose box is center +/- 2 * half. **/
+    private float[] mNodeCell;
+    private int mFreeBlock = NONE;
+
+    // Object pool.
+    private int mObjCap   = 0;
+    private int mObjCount = 0;
+    private int mObjLive  = 0;
+    private Object[] mObjItem;
+    private float[] mObjBounds;
+    private int[] mObjNode;
+    /** Next object in node list. For free handles, next free handle. **/
+    private int[] mObjNext;
+    private int[] mObjPrev;
+    private int mFreeObj = NONE;
+
+
+    /**
+     * @param world    Bounds of world. Objects outside these bounds are kept at root.
+     * @param maxDepth Maximum depth of tree, in [0, 20].
+     */
+    public LooseOctree( Box3 world, int maxDepth ) {
+        if( maxDepth < 0 || maxDepth > MAX_DEPTH ) {
+            throw new IllegalArgumentException( "maxDepth must be in [0," + MAX_DEPTH + "]: " + maxDepth );
+        }
+        mMaxDepth = maxDepth;
+        ensureNodeCapacity( 1 );
+        ensureObjCapacity( 16 );
+        mNodeCount = 1;
+        mNodeChild[ROOT]  = NONE;
+        mNodeParent[ROOT] = NONE;
+        mNodeHead[ROOT]   = NONE;
+        mNodeTotal[ROOT]  = 0;
+        mNodeDepth[ROOT]  = 0;
+        mNodeCell[0] = 0.5f * ( world.x0 + world.x1 );
+        mNodeCell[1] = 0.5f * ( world.y0 + world.y1 );
+        mNodeCell[2] = 0.5f * ( world.z0 + world.z1 );
+        mNodeCell[3] = 0.5f * ( world.x1 - world.x0 );
+        mNodeCell[4] = 0.5f * ( world.y1 - world.y0 );
+        mNodeCell[5] = 0.5f * ( world.z1 - world.z0 );
+    }
+
+    /**
+     * @return number of objects in tree.
+     */
+    public int size() {
+        return mObjLive;
+    }
+
+    /**
+     * @return number of nodes currently allocated, including root.
+     */
+    public int nodeCount() {
+        return mNodeCount;
+    }
+
+    /**
+     * Adds an object.
+     *
+     * @param item   Object to add. May be {@code null}.
+     * @param bounds Bounds of object.
+     * @return handle to object.
+     */
+    public int insert( T item, Box3 bounds ) {
+        int h = mFreeObj;
+        if( h != NONE ) {
+            mFreeObj = mObjNext[h];
+        } else {
+            ensureObjCapacity( mObjCount + 1 );
+            h = mObjCount++;
+        }
+        mObjLive++;
+        mObjItem[h] = item;
+        setBounds( h, bounds );
+        link( h, findNode( h ) );
+        return h;
+    }
+
+    /**
+     * Changes bounds of an object. Constant time if object remains within loose box of its current node.
+     */
+    public void update( int handle, Box3 bounds ) {
+        checkHandle( handle );
+        setBounds( handle, bounds );
+        int node = mObjNode[handle];
+        if( node != ROOT && fitsLoose( node, handle ) ) {
+            return;
+        }
+        int dst = findNode( handle );
+        if( dst != node ) {
+            unlink( handle );
+            link( handle, dst );
+            releaseEmpty( node );
+        }
+    }
+
+    /**
+     * Removes an object. Its handle may be reused by later insertions.
+     */
+    public void remove( int handle ) {
+        checkHandle( handle );
+        int node = mObjNode[handle];
+        unlink( handle );
+        releaseEmpty( node );
+        mObjItem[handle] = null;
+        mObjNode[handle] = NONE;
+        mObjNext[handle] = mFreeObj;
+        mFreeObj = handle;
+        mObjLive--;
+    }
+
+    /**
+     * Removes all objects.
+     */
+    public void clear() {
+        mNodeCount = 1;
+        mFreeBlock = NONE;
+        mNodeChild[ROOT] = NONE;
+        mNodeHead[ROOT]  = NONE;
+        mNodeTotal[ROOT] = 0;
+        Arrays.fill( mObjItem, 0, mObjCount, null );
+        mObjCount = 0;
+        mObjLive  = 0;
+        mFreeObj  = NONE;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public T item( int handle ) {
+        checkHandle( handle );
+        return (T)mObjItem[handle];
+    }
+
+
+    public Box3 bounds( int handle, Box3 out ) {
+        checkHandle( handle );
+        final int j = handle * 6;
+        out.x0 = mObjBounds[j  ];
+        out.y0 = mObjBounds[j+1];
+        out.z0 = mObjBounds[j+2];
+        out.x1 = mObjBounds[j+3];
+        out.y1 = mObjBounds[j+4];
+        out.z1 = mObjBounds[j+5];
+        return out;
+    }
+
+    /**
+     * Visits every object whose bounds overlap a box, inclusive.
+     *
+     * @return false iff visitor ended query early.
+     */
+    public boolean visitBox( Box3 box, Visitor<? super T> visitor ) {
+        final float[] q = { box.x0, box.y0, box.z0, box.x1, box.y1, box.z1 };
+        final int[] stack = new int[7 * mMaxDepth + 1];
+        final float[] loose = new float[6];
+        int top = 0;
+        stack[top++] = ROOT;
+
+        while( top > 0 ) {
+            final int n = stack[--top];
+            for( int h = mNodeHead[n]; h != NONE; h = mObjNext[h] ) {
+                final int j = h * 6;
+                final float[] b = mObjBounds;
+                if( q[3] >= b[j] && q[4] >= b[j+1] && q[5] >= b[j+2] && q[0] <= b[j+3] && q[1] <= b[j+4] && q[2] <= b[j+5] ) {
+                    if( !visit( h, visitor ) ) {
+                        return false;
+                    }
+                }
+            }
+            final int c = mNodeChild[n];
+            if( c == NONE ) {
+                continue;
+            }
+            for( int i = c; i < c + 8; i++ ) {
+                if( mNodeTotal[i] == 0 ) {
+                    continue;
+                }
+                looseBox( i, loose );
+                if( q[3] >= loose[0] && q[4] >= loose[1] && q[5] >= loose[2] &&
+                    q[0] <= loose[3] && q[1] <= loose[4] && q[2] <= loose[5] )
+                {
+                    stack[top++] = i;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits every object whose bounds intersect a sphere, inclusive.
+     *
+     * @return false iff visitor ended query early.
+     */
+    public boolean visitSphere( float x, float y, float z, float rad, Visitor<? super T> visitor ) {
+        final float radSq = rad * rad;
+        final int[] stack = new int[7 * mMaxDepth + 1];
+        final float[] loose = new float[6];
+        int top = 0;
+        stack[top++] = ROOT;
+
+        while( top > 0 ) {
+            final int n = stack[--top];
+            for( int h = mNodeHead[n]; h != NONE; h = mObjNext[h] ) {
+                if( distSq( mObjBounds, h * 6, x, y, z ) <= radSq ) {
+                    if( !visit( h, visitor ) ) {
+                        return false;
+                    }
+                }
+            }
+            final int c = mNodeChild[n];
+            if( c == NONE ) {
+                continue;
+            }
+            for( int i = c; i < c + 8; i++ ) {
+                if( mNodeTotal[i] == 0 ) {
+                    continue;
+                }
+                looseBox( i, loose );
+                if( distSq( loose, 0, x, y, z ) <= radSq ) {
+                    stack[top++] = i;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits every object whose bounds are not entirely outside a set of planes. Objects are kept if
+     * some part of their bounds lies on the side of every plane where {@code dot(plane.xyz, p) + plane.w >= 0}.
+     * Like most frustum culling, this test is conservative near frustum edges.
+     *
+     * @param planes Clip planes, such as those of a view frustum. At most 32.
+     * @return false iff visitor ended query early.
+     */
+    public boolean visitPlanes( Vec4[] planes, Visitor<? super T> visitor ) {
+        final int planeNum = planes.length;
+        if( planeNum > 32 ) {
+            throw new IllegalArgumentException( "Too many planes: " + planeNum );
+        }
+        final int allMask = planeNum == 32 ? -1 : ( 1 << planeNum ) - 1;
+        final int[] stack = new int[2 * ( 7 * mMaxDepth + 1 )];
+        final float[] loose = new float[6];
+        final float[] b = mObjBounds;
+        int top = 0;
+        stack[top++] = ROOT;
+        stack[top++] = allMask;
+
+        while( top > 0 ) {
+            final int mask = stack[--top];
+            final int n    = stack[--top];
+            for( int h = mNodeHead[n]; h != NONE; h = mObjNext[h] ) {
+                final int j = h * 6;
+                if( Frustum.test( planes, b[j], b[j+1], b[j+2], b[j+3], b[j+4], b[j+5], mask, null, 0 ) != Frustum.OUTSIDE ) {
+                    if( !visit( h, visitor ) ) {
+                        return false;
+                    }
+                }
+            }
+            final int c = mNodeChild[n];
+            if( c == NONE ) {
+                continue;
+            }
+            for( int i = c; i < c + 8; i++ ) {
+                if( mNodeTotal[i] == 0 ) {
+                    continue;
+                }
+                int childMask = mask;
+                if( mask != 0 ) {
+                    looseBox( i, loose );
+                    childMask = Frustum.test( planes, loose[0], loose[1], loose[2], loose[3], loose[4], loose[5], mask, null, 0 );
+                    if( childMask == Frustum.OUTSIDE ) {
+                        continue;
+                    }
+                }
+                stack[top++] = i;
+                stack[top++] = childMask;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Visits every object whose bounds are not entirely outside a frustum.
+     *
+     * @see #visitPlanes
+     */
+    public boolean visitFrustum( Frustum frustum, Visitor<? super T> visitor ) {
+        return visitPlanes( frustum.mPlanes, visitor );
+    }
+
+
+    private static float distSq( float[] b, int j, float x, float y, float z ) {
+        float dx = x < b[j  ] ? b[j  ] - x : x > b[j+3] ? x - b[j+3] : 0f;
+        float dy = y < b[j+1] ? b[j+1] - y : y > b[j+4] ? y - b[j+4] : 0f;
+        float dz = z < b[j+2] ? b[j+2] - z : z > b[j+5] ? z - b[j+5] : 0f;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    private boolean visit( int h, Visitor<? super T> visitor ) {
+        return visitor.visit( (T)mObjItem[h], h );
+    }
+
+
+    private void checkHandle( int handle ) {
+        if( handle < 0 || handle >= mObjCount || mObjNode[handle] == NONE ) {
+            throw new IllegalArgumentException( "Invalid handle: " + handle );
+        }
+    }
+
+
+    private void setBounds( int h, Box3 b ) {
+        final int j = h * 6;
+        mObjBounds[j  ] = b.x0;
+        mObjBounds[j+1] = b.y0;
+        mObjBounds[j+2] = b.z0;
+        mObjBounds[j+3] = b.x1;
+        mObjBounds[j+4] = b.y1;
+        mObjBounds[j+5] = b.z1;
+    }
+
+
+    private void looseBox( int node, float[] out ) {
+        final int j = node * 6;
+        final float[] c = mNodeCell;
+        out[0] = c[j  ] - 2f * c[j+3];
+        out[1] = c[j+1] - 2f * c[j+4];
+        out[2] = c[j+2] - 2f * c[j+5];
+        out[3] = c[j  ] + 2f * c[j+3];
+        out[4] = c[j+1] + 2f * c[j+4];
+        out[5] = c[j+2] + 2f * c[j+5];
+    }
+
+
+    private boolean fitsLoose( int node, int h ) {
+        final int j = node * 6;
+        final int k = h * 6;
+        final float[] c = mNodeCell;
+        final float[] b = mObjBounds;
+        return b[k  ] >= c[j  ] - 2f * c[j+3] && b[k+3] <= c[j  ] + 2f * c[j+3] &&
+               b[k+1] >= c[j+1] - 2f * c[j+4] && b[k+4] <= c[j+1] + 2f * c[j+4] &&
+               b[k+2] >= c[j+2] - 2f * c[j+5] && b[k+5] <= c[j+2] + 2f * c[j+5];
+    }
+
+    /**
+     * Finds deepest node that should hold object, allocating nodes as needed.
+     */
+    private int findNode( int h ) {
+        final int k = h * 6;
+        final float cx = 0.5f * ( mObjBounds[k  ] + mObjBounds[k+3] );
+        final float cy = 0.5f * ( mObjBounds[k+1] + mObjBounds[k+4] );
+        final float cz = 0.5f * ( mObjBounds[k+2] + mObjBounds[k+5] );
+        final float ex = mObjBounds[k+3] - mObjBounds[k  ];
+        final float ey = mObjBounds[k+4] - mObjBounds[k+1];
+        final float ez = mObjBounds[k+5] - mObjBounds[k+2];
+
+        // Object must lie in root cell to descend.
+        float[] c = mNodeCell;
+        if( Math.abs( cx - c[0] ) > c[3] || Math.abs( cy - c[1] ) > c[4] || Math.abs( cz - c[2] ) > c[5] ) {
+            return ROOT;
+        }
+
+        int node = ROOT;
+        while( mNodeDepth[node] < mMaxDepth ) {
+            final int j = node * 6;
+            // Child cell size equals parent half-size. Object fits child loose box if it is no larger.
+            if( ex > c[j+3] || ey > c[j+4] || ez > c[j+5] ) {
+                break;
+            }
+            int oct = ( cx >= c[j  ] ? 1 : 0 ) |
+                      ( cy >= c[j+1] ? 2 : 0 ) |
+                      ( cz >= c[j+2] ? 4 : 0 );
+            if( mNodeChild[node] == NONE ) {
+                split( node );
+                c = mNodeCell;
+            }
+            node = mNodeChild[node] + oct;
+        }
+        return node;
+    }
+
+
+    private void split( int node ) {
+        int block = mFreeBlock;
+        if( block != NONE ) {
+            mFreeBlock = mNodeChild[block];
+        } else {
+            ensureNodeCapacity( mNodeCount + 8 );
+            block = mNodeCount;
+            mNodeCount += 8;
+        }
+
+        final int j = node * 6;
+        final float hx = 0.5f * mNodeCell[j+3];
+        final float hy = 0.5f * mNodeCell[j+4];
+        final float hz = 0.5f * mNodeCell[j+5];
+        for( int oct = 0; oct < 8; oct++ ) {
+            int n = block + oct;
+            int k = n * 6;
+            mNodeChild[n]  = NONE;
+            mNodeParent[n] = node;
+            mNodeHead[n]   = NONE;
+            mNodeTotal[n]  = 0;
+            mNodeDepth[n]  = (byte)( mNodeDepth[node] + 1 );
+            mNodeCell[k  ] = mNodeCell[j  ] + ( ( oct & 1 ) != 0 ? hx : -hx );
+            mNodeCell[k+1] = mNodeCell[j+1] + ( ( oct & 2 ) != 0 ? hy : -hy );
+            mNodeCell[k+2] = mNodeCell[j+2] + ( ( oct & 4 ) != 0 ? hz : -hz );
+            mNodeCell[k+3] = hx;
+            mNodeCell[k+4] = hy;
+            mNodeCell[k+5] = hz;
+        }
+        mNodeChild[node] = block;
+    }
+
+
+    private void link( int h, int node ) {
+        int head = mNodeHead[node];
+        mObjNode[h] = node;
+        mObjPrev[h] = NONE;
+        mObjNext[h] = head;
+        if( head != NONE ) {
+            mObjPrev[head] = h;
+        }
+        mNodeHead[node] = h;
+        for( int n = node; n != NONE; n = mNodeParent[n] ) {
+            mNodeTotal[n]++;
+        }
+    }
+
+
+    private void unlink( int h ) {
+        final int node = mObjNode[h];
+        final int prev = mObjPrev[h];
+        final int next = mObjNext[h];
+        if( prev != NONE ) {
+            mObjNext[prev] = next;
+        } else {
+            mNodeHead[node] = next;
+        }
+        if( next != NONE ) {
+            mObjPrev[next] = prev;
+        }
+        for( int n = node; n != NONE; n = mNodeParent[n] ) {
+            mNodeTotal[n]--;
+        }
+    }
+
+    /**
+     * Frees children of highest empty ancestor of node.
+     */
+    private void releaseEmpty( int node ) {
+        int empty = NONE;
+        for( int n = node; n != NONE && mNodeTotal[n] == 0; n = mNodeParent[n] ) {
+            empty = n;
+        }
+        if( empty != NONE ) {
+            releaseChildren( empty );
+        }
+    }
+
+
+    private void releaseChildren( int node ) {
+        final int block = mNodeChild[node];
+        if( block == NONE ) {
+            return;
+        }
+        for( int i = block; i < block + 8; i++ ) {
+            releaseChildren( i );
+        }
+        mNodeChild[node]  = NONE;
+        mNodeChild[block] = mFreeBlock;
+        mFreeBlock = block;
+    }
+
+
+    private void ensureNodeCapacity( int minCap ) {
+        if( minCap <= mNodeCap ) {
+            return;
+        }
+        int cap = Math.max( minCap, ( mNodeCap * 3 ) / 2 + 8 );
+        mNodeChild  = resize( mNodeChild, cap );
+        mNodeParent = resize( mNodeParent, cap );
+        mNodeHead   = resize( mNodeHead, cap );
+        mNodeTotal  = resize( mNodeTotal, cap );
+        mNodeDepth  = mNodeDepth == null ? new byte[cap] : Arrays.copyOf( mNodeDepth, cap );
+        mNodeCell   = mNodeCell == null ? new float[cap * 6] : Arrays.copyOf( mNodeCell, cap * 6 );
+        mNodeCap    = cap;
+    }
+
+
+    private void ensureObjCapacity( int minCap ) {
+        if( minCap <= mObjCap ) {
+            return;
+        }
+        int cap = Math.max( minCap, ( mObjCap * 3 ) / 2 + 1 );
+        mObjItem   = mObjItem == null ? new Object[cap] : Arrays.copyOf( mObjItem, cap );
+        mObjBounds = mObjBounds == null ? new float[cap * 6] : Arrays.copyOf( mObjBounds, cap * 6 );
+        mObjNode   = resize( mObjNode, cap );
+        mObjNext   = resize( mObjNext, cap );
+        mObjPrev   = resize( mObjPrev, cap );
+        mObjCap    = cap;
+    }
+
+
+    private static int[] resize( int[] arr, int cap ) {
+        return arr == null ? new int[cap] : Arrays.copyOf( arr, cap );
+    }
+
+}
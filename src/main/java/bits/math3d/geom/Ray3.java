@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.Vec3;
+
+
+/**
+ * Ray with origin and direction, plus the inverse direction and direction sign bits used by slab tests.
+ * The derived fields are computed by {@code set} methods; call {@link #update()} after modifying
+ * direction fields directly. Distances along the ray are in units of the direction vector, which
+ * need not be normalized.
+ *
+ * @author Philip DeCamp
+ */
+public class Ray3 {
+
+    public float ox, oy, oz;
+    public float dx, dy, dz;
+
+    /** Inverse of direction. Infinite for zero components. **/
+    public float ix, iy, iz;
+    /** 1 if corresponding direction component is negative, otherwise 0. **/
+    public int sx, sy, sz;
+
+
+    public Ray3() {
+        set( 0, 0, 0, 0, 0, -1 );
+    }
+
+
+    public Ray3( float ox, float oy, float oz, float dx, float dy, float dz ) {
+        set( ox, oy, oz, dx, dy, dz );
+    }
+
+
+    public Ray3( Vec3 origin, Vec3 dir ) {
+        set( origin, dir );
+    }
+
+
+    public Ray3( Ray3 copy ) {
+        set( copy );
+    }
+
+
+
+    public void set( float ox, float oy, float oz, float dx, float dy, float dz ) {
+        this.ox = ox;
+        this.oy = oy;
+        this.oz = oz;
+        this.dx = dx;
+        this.dy = dy;
+        this.dz = dz;
+        update();
+    }
+
+
+    public void set( Vec3 origin, Vec3 dir ) {
+        set( origin.x, origin.y, origin.z, dir.x, dir.y, dir.z );
+    }
+
+
+    public void set( Ray3 r ) {
+        ox = r.ox;
+        oy = r.oy;
+        oz = r.oz;
+        dx = r.dx;
+        dy = r.dy;
+        dz = r.dz;
+        ix = r.ix;
+        iy = r.iy;
+        iz = r.iz;
+        sx = r.sx;
+        sy = r.sy;
+        sz = r.sz;
+    }
+
+    /**
+     * Sets ray from {@code a} through {@code b}, such that {@code b} lies at distance 1.
+     */
+    public void setThrough( Vec3 a, Vec3 b ) {
+        set( a.x, a.y, a.z, b.x - a.x, b.y - a.y, b.z - a.z );
+    }
+
+    /**
+     * Recomputes inverse direction and sign bits from direction.
+     */
+    public void update() {
+        ix = 1f / dx;
+        iy = 1f / dy;
+        iz = 1f / dz;
+        sx = ix < 0 ? 1 : 0;
+        sy = iy < 0 ? 1 : 0;
+        sz = iz < 0 ? 1 : 0;
+    }
+
+    /**
+     * Computes point at distance {@code t} along ray.
+     */
+    public Vec3 point( float t, Vec3 out ) {
+        out.x = ox + dx * t;
+        out.y = oy + dy * t;
+        out.z = oz + dz * t;
+        return out;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format( "Ray3[ o=(% 7.4f, % 7.4f, % 7.4f), d=(% 7.4f, % 7.4f, % 7.4f) ]", ox, oy, oz, dx, dy, dz );
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import java.util.Arrays;
+
+
+/**
+ * Group of rays stored as structure-of-arrays, for tracing several rays against the same primitive at once.
+ * Typical sizes are 4 or 8, matching common SIMD widths, but any size up to 32 is allowed.
+ * Each lane has its own maximum distance, {@code mTMax}, which packet kernels respect and which callers
+ * typically lower as closer hits are found.
+ *
+ * @author Philip DeCamp
+ * @see Rays
+ */
+public class RayPacket {
+
+    public static final int MAX_SIZE = 32;
+
+    public final int mSize;
+
+    public final float[] mOx;
+    public final float[] mOy;
+    public final float[] mOz;
+    public final float[] mDx;
+    public final float[] mDy;
+    public final float[] mDz;
+    public final float[] mIx;
+    public final float[] mIy;
+    public final float[] mIz;
+    public final float[] mTMax;
+
+
+    public RayPacket( int size ) {
+        if( size <= 0 || size > MAX_SIZE ) {
+            throw new IllegalArgumentException( "Packet size must be in [1," + MAX_SIZE + "]: " + size );
+        }
+        mSize = size;
+        mOx   = new float[size];
+        mOy   = new float[size];
+        mOz   = new float[size];
+        mDx   = new float[size];
+        mDy   = new float[size];
+        mDz   = new float[size];
+        mIx   = new float[size];
+        mIy   = new float[size];
+        mIz   = new float[size];
+        mTMax = new float[size];
+        Arrays.fill( mTMax, Float.POSITIVE_INFINITY );
+    }
+
+
+    public void set( int lane, float ox, float oy, float oz, float dx, float dy, float dz, float tMax ) {
+        mOx[lane] = ox;
+        mOy[lane] = oy;
+        mOz[lane] = oz;
+        mDx[lane] = dx;
+        mDy[lane] = dy;
+        mDz[lane] = dz;
+        mIx[lane] = 1f / dx;
+        mIy[lane] = 1f / dy;
+        mIz[lane] = 1f / dz;
+        mTMax[lane] = tMax;
+    }
+
+
+    public void set( int lane, Ray3 ray, float tMax ) {
+        mOx[lane] = ray.ox;
+        mOy[lane] = ray.oy;
+        mOz[lane] = ray.oz;
+        mDx[lane] = ray.dx;
+        mDy[lane] = ray.dy;
+        mDz[lane] = ray.dz;
+        mIx[lane] = ray.ix;
+        mIy[lane] = ray.iy;
+        mIz[lane] = ray.iz;
+        mTMax[lane] = tMax;
+    }
+
+
+    public Ray3 get( int lane, Ray3 out ) {
+        out.set( mOx[lane], mOy[lane], mOz[lane], mDx[lane], mDy[lane], mDz[lane] );
+        return out;
+    }
+
+    /**
+     * @return mask with a bit set for every lane.
+     */
+    public int allLanes() {
+        return mSize == 32 ? -1 : ( 1 << mSize ) - 1;
+    }
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.Box3;
+import bits.math3d.Vec2;
+import bits.math3d.Vec3;
+
+
+/**
+ * Ray intersection kernels for single rays and ray packets.
+ * <p>
+ * Single-ray methods return the distance to the nearest intersection in {@code [tMin, tMax]}, or
+ * {@code Float.POSITIVE_INFINITY} if there is none. Packet methods test each lane in {@code [0, mTMax[lane]]},
+ * write the distance for each lane to {@code outT} (infinite for misses), and return a mask of lanes that hit.
+ * Packet loops are written without data-dependent branches over structure-of-arrays data, so that the
+ * JIT may compile them to vector instructions where supported.
+ *
+ * @author Philip DeCamp
+ */
+public final class Rays {
+
+    /** Triangles with determinant smaller than this are considered parallel to ray. **/
+    private static final float PARALLEL_EPS = 1e-12f;
+
+
+    /**
+     * Slab test of ray against box.
+     *
+     * @return distance at which ray enters box, or {@code tMin} if ray starts inside box,
+     *         or {@code Float.POSITIVE_INFINITY} if ray misses box within {@code [tMin, tMax]}.
+     */
+    public static float intersectBox( Ray3 r, Box3 b, float tMin, float tMax ) {
+        return intersectBox( r, b.x0, b.y0, b.z0, b.x1, b.y1, b.z1, tMin, tMax );
+    }
+
+
+    public static float intersectBox( Ray3 r,
+                                      float x0, float y0, float z0,
+                                      float x1, float y1, float z1,
+                                      float tMin, float tMax )
+    {
+        // Sign bits select near and far slab without min/max. A ray parallel to an axis with origin
+        // on a box plane computes 0 * Inf = NaN. Comparisons are false for NaN, so such terms are
+        // ignored and the ray grazes the box.
+        float near = tMin;
+        float far  = tMax;
+
+        float t0 = ( ( r.sx == 0 ? x0 : x1 ) - r.ox ) * r.ix;
+        float t1 = ( ( r.sx == 0 ? x1 : x0 ) - r.ox ) * r.ix;
+        if( t0 > near ) {
+            near = t0;
+        }
+        if( t1 < far ) {
+            far = t1;
+        }
+
+        t0 = ( ( r.sy == 0 ? y0 : y1 ) - r.oy ) * r.iy;
+        t1 = ( ( r.sy == 0 ? y1 : y0 ) - r.oy ) * r.iy;
+        if( t0 > near ) {
+            near = t0;
+        }
+        if( t1 < far ) {
+            far = t1;
+        }
+        if( near > far ) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        t0 = ( ( r.sz == 0 ? z0 : z1 ) - r.oz ) * r.iz;
+        t1 = ( ( r.sz == 0 ? z1 : z0 ) - r.oz ) * r.iz;
+        if( t0 > near ) {
+            near = t0;
+        }
+        if( t1 < far ) {
+            far = t1;
+        }
+        return near <= far ? near : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return distance to nearest intersection of ray with surface of sphere in {@code [tMin, tMax]},
+     *         or {@code Float.POSITIVE_INFINITY} if none.
+     */
+    public static float intersectSphere( Ray3 r, Sphere s, float tMin, float tMax ) {
+        return intersectSphere( r, s.mPos.x, s.mPos.y, s.mPos.z, s.mRad, tMin, tMax );
+    }
+
+
+    public static float intersectSphere( Ray3 r, float cx, float cy, float cz, float rad, float tMin, float tMax ) {
+        float px = r.ox - cx;
+        float py = r.oy - cy;
+        float pz = r.oz - cz;
+        float a  = r.dx * r.dx + r.dy * r.dy + r.dz * r.dz;
+        float b  = px * r.dx + py * r.dy + pz * r.dz;
+        float c  = px * px + py * py + pz * pz - rad * rad;
+        float disc = b * b - a * c;
+        if( disc < 0 || a == 0 ) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float sq = (float)Math.sqrt( disc );
+        float t  = ( -b - sq ) / a;
+        if( t < tMin ) {
+            t = ( -b + sq ) / a;
+        }
+        return t >= tMin && t <= tMax ? t : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Moller-Trumbore ray/triangle intersection. Triangles are two-sided.
+     *
+     * @param outUv Optional. Receives barycentric coordinates of hit, such that
+     *              {@code hit = (1 - u - v) * v0 + u * v1 + v * v2}. Not modified on miss.
+     * @return distance to intersection in {@code [tMin, tMax]}, or {@code Float.POSITIVE_INFINITY} if none.
+     */
+    public static float intersectTriangle( Ray3 r, Vec3 v0, Vec3 v1, Vec3 v2, float tMin, float tMax, Vec2 outUv ) {
+        return intersectTriangle( r,
+                                  v0.x, v0.y, v0.z,
+                                  v1.x, v1.y, v1.z,
+                                  v2.x, v2.y, v2.z,
+                                  tMin, tMax, outUv );
+    }
+
+    /**
+     * Moller-Trumbore ray/triangle intersection with packed vertices.
+     *
+     * @param verts Packed xyz vertex coordinates.
+     * @param i0    Index of first vertex, such that its x coordinate is at {@code verts[i0 * 3]}.
+     * @param i1    Index of second vertex.
+     * @param i2    Index of third vertex.
+     * @see #intersectTriangle(Ray3, Vec3, Vec3, Vec3, float, float, Vec2)
+     */
+    public static float intersectTriangle( Ray3 r, float[] verts, int i0, int i1, int i2, float tMin, float tMax, Vec2 outUv ) {
+        i0 *= 3;
+        i1 *= 3;
+        i2 *= 3;
+        return intersectTriangle( r,
+                                  verts[i0], verts[i0+1], verts[i0+2],
+                                  verts[i1], verts[i1+1], verts[i1+2],
+                                  verts[i2], verts[i2+1], verts[i2+2],
+                                  tMin, tMax, outUv );
+    }
+
+
+    public static float intersectTriangle( Ray3 r,
+                                           float x0, float y0, float z0,
+                                           float x1, float y1, float z1,
+                                           float x2, float y2, float z2,
+                                           float tMin, float tMax,
+                                           Vec2 outUv )
+    {
+        float e1x = x1 - x0, e1y = y1 - y0, e1z = z1 - z0;
+        float e2x = x2 - x0, e2y = y2 - y0, e2z = z2 - z0;
+
+        // p = dir x e2
+        float px = r.dy * e2z - r.dz * e2y;
+        float py = r.dz * e2x - r.dx * e2z;
+        float pz = r.dx * e2y - r.dy * e2x;
+        float det = e1x * px + e1y * py + e1z * pz;
+        if( det > -PARALLEL_EPS && det < PARALLEL_EPS ) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float inv = 1f / det;
+
+        float sx = r.ox - x0, sy = r.oy - y0, sz = r.oz - z0;
+        float u = ( sx * px + sy * py + sz * pz ) * inv;
+        if( u < 0f || u > 1f ) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        // q = s x e1
+        float qx = sy * e1z - sz * e1y;
+        float qy = sz * e1x - sx * e1z;
+        float qz = sx * e1y - sy * e1x;
+        float v = ( r.dx * qx + r.dy * qy + r.dz * qz ) * inv;
+        if( v < 0f || u + v > 1f ) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float t = ( e2x * qx + e2y * qy + e2z * qz ) * inv;
+        if( t < tMin || t > tMax ) {
+            return Float.POSITIVE_INFINITY;
+        }
+        if( outUv != null ) {
+            outUv.x = u;
+            outUv.y = v;
+        }
+        return t;
+    }
+
+    //=== Packet versions ===
+
+    /**
+     * Slab test of every ray in packet against box.
+     *
+     * @param outT Receives entry distance of each lane, or {@code Float.POSITIVE_INFINITY} on miss.
+     * @return mask of lanes that hit.
+     */
+    public static int intersectBox( RayPacket p, Box3 b, float[] outT ) {
+        return intersectBox( p, b.x0, b.y0, b.z0, b.x1, b.y1, b.z1, outT );
+    }
+
+
+    public static int intersectBox( RayPacket p,
+                                    float x0, float y0, float z0,
+                                    float x1, float y1, float z1,
+                                    float[] outT )
+    {
+        final int n = p.mSize;
+        final float[] ox = p.mOx, oy = p.mOy, oz = p.mOz;
+        final float[] ix = p.mIx, iy = p.mIy, iz = p.mIz;
+        final float[] tm = p.mTMax;
+
+        // Same NaN handling as single-ray test: selects and comparisons instead of min/max,
+        // which would propagate NaN from rays grazing a box plane.
+        for( int i = 0; i < n; i++ ) {
+            final float sx = ix[i], sy = iy[i], sz = iz[i];
+            float nx = ( ( sx >= 0 ? x0 : x1 ) - ox[i] ) * sx;
+            float fx = ( ( sx >= 0 ? x1 : x0 ) - ox[i] ) * sx;
+            float ny = ( ( sy >= 0 ? y0 : y1 ) - oy[i] ) * sy;
+            float fy = ( ( sy >= 0 ? y1 : y0 ) - oy[i] ) * sy;
+            float nz = ( ( sz >= 0 ? z0 : z1 ) - oz[i] ) * sz;
+            float fz = ( ( sz >= 0 ? z1 : z0 ) - oz[i] ) * sz;
+            float near = 0f;
+            float far  = tm[i];
+            near = nx > near ? nx : near;
+            near = ny > near ? ny : near;
+            near = nz > near ? nz : near;
+            far  = fx < far  ? fx : far;
+            far  = fy < far  ? fy : far;
+            far  = fz < far  ? fz : far;
+            outT[i] = near <= far ? near : Float.POSITIVE_INFINITY;
+        }
+        return hitMask( outT, n );
+    }
+
+    /**
+     * Tests every ray in packet against sphere.
+     *
+     * @param outT Receives distance of nearest hit for each lane, or {@code Float.POSITIVE_INFINITY} on miss.
+     * @return mask of lanes that hit.
+     */
+    public static int intersectSphere( RayPacket p, Sphere s, float[] outT ) {
+        return intersectSphere( p, s.mPos.x, s.mPos.y, s.mPos.z, s.mRad, outT );
+    }
+
+
+    public static int intersectSphere( RayPacket p, float cx, float cy, float cz, float rad, float[] outT ) {
+        final int n = p.mSize;
+        final float[] ox = p.mOx, oy = p.mOy, oz = p.mOz;
+        final float[] dx = p.mDx, dy = p.mDy, dz = p.mDz;
+        final float[] tm = p.mTMax;
+        final float radSq = rad * rad;
+
+        for( int i = 0; i < n; i++ ) {
+            float px = ox[i] - cx;
+            float py = oy[i] - cy;
+            float pz = oz[i] - cz;
+            float a  = dx[i] * dx[i] + dy[i] * dy[i] + dz[i] * dz[i];
+            float b  = px * dx[i] + py * dy[i] + pz * dz[i];
+            float c  = px * px + py * py + pz * pz - radSq;
+            float disc = b * b - a * c;
+            // Negative discriminant yields NaN, which fails comparisons below.
+            float sq = (float)Math.sqrt( disc );
+            float t0 = ( -b - sq ) / a;
+            float t1 = ( -b + sq ) / a;
+            float t  = t0 >= 0f ? t0 : t1;
+            outT[i] = t >= 0f && t <= tm[i] ? t : Float.POSITIVE_INFINITY;
+        }
+        return hitMask( outT, n );
+    }
+
+    /**
+     * Tests every ray in packet against triangle. Triangles are two-sided.
+     *
+     * @param outT Receives distance of hit for each lane, or {@code Float.POSITIVE_INFINITY} on miss.
+     * @return mask of lanes that hit.
+     */
+    public static int intersectTriangle( RayPacket p, Vec3 v0, Vec3 v1, Vec3 v2, float[] outT ) {
+        return intersectTriangle( p,
+                                  v0.x, v0.y, v0.z,
+                                  v1.x, v1.y, v1.z,
+                                  v2.x, v2.y, v2.z,
+                                  outT );
+    }
+
+
+    public static int intersectTriangle( RayPacket p,
+                                         float x0, float y0, float z0,
+                                         float x1, float y1, float z1,
+                                         float x2, float y2, float z2,
+                                         float[] outT )
+    {
+        final int n = p.mSize;
+        final float[] ox = p.mOx, oy = p.mOy, oz = p.mOz;
+        final float[] dx = p.mDx, dy = p.mDy, dz = p.mDz;
+        final float[] tm = p.mTMax;
+        final float e1x = x1 - x0, e1y = y1 - y0, e1z = z1 - z0;
+        final float e2x = x2 - x0, e2y = y2 - y0, e2z = z2 - z0;
+
+        for( int i = 0; i < n; i++ ) {
+            float px = dy[i] * e2z - dz[i] * e2y;
+            float py = dz[i] * e2x - dx[i] * e2z;
+            float pz = dx[i] * e2y - dy[i] * e2x;
+            float det = e1x * px + e1y * py + e1z * pz;
+            float inv = 1f / det;
+
+            float sx = ox[i] - x0, sy = oy[i] - y0, sz = oz[i] - z0;
+            float u  = ( sx * px + sy * py + sz * pz ) * inv;
+            float qx = sy * e1z - sz * e1y;
+            float qy = sz * e1x - sx * e1z;
+            float qz = sx * e1y - sy * e1x;
+            float v  = ( dx[i] * qx + dy[i] * qy + dz[i] * qz ) * inv;
+            float t  = ( e2x * qx + e2y * qy + e2z * qz ) * inv;
+
+            boolean hit = Math.abs( det ) >= PARALLEL_EPS && u >= 0f && v >= 0f && u + v <= 1f && t >= 0f && t <= tm[i];
+            outT[i] = hit ? t : Float.POSITIVE_INFINITY;
+        }
+        return hitMask( outT, n );
+    }
+
+
+
+    private static int hitMask( float[] t, int n ) {
+        int mask = 0;
+        for( int i = 0; i < n; i++ ) {
+            if( t[i] != Float.POSITIVE_INFINITY ) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+
+    private Rays() {}
+
+}
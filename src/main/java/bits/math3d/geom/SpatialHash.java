@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.Vec2;
+import bits.math3d.Vec3;
+import bits.math3d.VecView;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Uniform grid of points in 2 or 3 dimensions, hashed on cell coordinates, for fast neighbor lookup.
+ * <p>
+ * Points are loaded in bulk with {@code rebuild}, which sorts points by cell in linear time. Cells are
+ * found through an open-addressed table of primitive {@code long} keys. Queries report points by their
+ * index in the array or list used to build the grid. For best performance, the cell size should be
+ * about twice the typical query radius, so that most queries touch no more than eight cells.
+ * <p>
+ * 2D grids treat all points as having {@code z = 0}.
+ * Cell coordinates are limited to 21 bits per axis; grids spanning more than about two million cells
+ * along an axis will alias distant cells, which is correct but slower.
+ * <p>
+ * SpatialHash may be queried from multiple threads, but rebuild must not run concurrently with queries.
+ *
+ * @author Philip DeCamp
+ */
+public final class SpatialHash {
+
+    /**
+     * Receives points found by a query.
+     */
+    public interface Visitor {
+        /**
+         * @param index  Index of point.
+         * @param distSq Squared distance from query point.
+         * @return false to end query early.
+         */
+        boolean visit( int index, float distSq );
+    }
+
+
+    private static final int  COORD_BITS = 21;
+    private static final long COORD_MASK = ( 1L << COORD_BITS ) - 1L;
+    /** Marks empty table slot. Valid keys use only the low 63 bits. **/
+    private static final long EMPTY = -1L;
+
+    private final int   mDim;
+    private final float mCellSize;
+    private final float mInvCellSize;
+
+    private int mSize = 0;
+    /** Point coordinates sorted by cell, packed xyz. **/
+    private float[] mCoords = new float[0];
+    /** Original index of each sorted point. **/
+    private int[] mOrder = new int[0];
+
+    private int mCellCount = 0;
+
+    /**
+     * Open-addressed table with two longs per slot: cell key, then start and end of cell in sorted arrays
+     * packed as {@code start << 32 | end}. Keeping both in one slot makes each cell lookup touch one cache line.
+     */
+    private long[] mTable = { EMPTY, 0 };
+    private int mTableMask = 0;
+
+    // Scratch for rebuild.
+    private int[] mPointCell = new int[0];
+    private int[] mCellSlot  = new int[0];
+    private int[] mCursor    = new int[1];
+
+
+    /**
+     * @param dim      Number of dimensions; 2 or 3.
+     * @param cellSize Edge length of grid cells.
+     */
+    public SpatialHash( int dim, float cellSize ) {
+        if( dim != 2 && dim != 3 ) {
+            throw new IllegalArgumentException( "SpatialHash supports 2 or 3 dimensions: " + dim );
+        }
+        if( !( cellSize > 0f ) ) {
+            throw new IllegalArgumentException( "Cell size must be positive: " + cellSize );
+        }
+        mDim         = dim;
+        mCellSize    = cellSize;
+        mInvCellSize = 1f / cellSize;
+    }
+
+
+    public int dim() {
+        return mDim;
+    }
+
+
+    public float cellSize() {
+        return mCellSize;
+    }
+
+    /**
+     * @return number of points.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return number of non-empty cells.
+     */
+    public int cellCount() {
+        return mCellCount;
+    }
+
+    /**
+     * Replaces contents of grid.
+     *
+     * @param points Packed point coordinates, {@link #dim()} floats per point.
+     * @param off    Offset of first point into {@code points}.
+     * @param len    Number of points.
+     */
+    public void rebuild( float[] points, int off, int len ) {
+        ensureCapacity( len );
+        final int dim = mDim;
+
+        // Compute keys and assign cells in order of first appearance.
+        // Until sorted, table values hold cell index.
+        resizeTable( len );
+        final long[] table = mTable;
+        int cells = 0;
+        for( int i = 0; i < len; i++ ) {
+            int j = off + i * dim;
+            long key = key( cell( points[j] ), cell( points[j+1] ), dim == 3 ? cell( points[j+2] ) : 0 );
+            int slot = slot( key );
+            int c;
+            if( table[slot * 2] == EMPTY ) {
+                c = cells++;
+                table[slot * 2    ] = key;
+                table[slot * 2 + 1] = c;
+                mCellSlot[c] = slot;
+            } else {
+                c = (int)table[slot * 2 + 1];
+            }
+            mPointCell[i] = c;
+        }
+
+        // Counting sort by cell.
+        final int[] cursor = mCursor;
+        Arrays.fill( cursor, 0, cells + 1, 0 );
+        for( int i = 0; i < len; i++ ) {
+            cursor[mPointCell[i] + 1]++;
+        }
+        for( int c = 0; c < cells; c++ ) {
+            cursor[c + 1] += cursor[c];
+            table[mCellSlot[c] * 2 + 1] = (long)cursor[c] << 32 | cursor[c + 1];
+        }
+
+        for( int i = 0; i < len; i++ ) {
+            int dst = cursor[mPointCell[i]]++;
+            int j = off + i * dim;
+            mOrder[dst] = i;
+            mCoords[dst*3  ] = points[j];
+            mCoords[dst*3+1] = points[j+1];
+            mCoords[dst*3+2] = dim == 3 ? points[j+2] : 0f;
+        }
+
+        mSize      = len;
+        mCellCount = cells;
+    }
+
+    /**
+     * Replaces contents of grid with items read through a VecView.
+     */
+    public <T> void rebuild( VecView<? super T> view, List<? extends T> items ) {
+        final int len = items.size();
+        final float[] points = new float[len * mDim];
+        for( int i = 0; i < len; i++ ) {
+            T item = items.get( i );
+            points[i * mDim    ] = (float)view.get( item, 0 );
+            points[i * mDim + 1] = (float)view.get( item, 1 );
+            if( mDim == 3 ) {
+                points[i * mDim + 2] = (float)view.get( item, 2 );
+            }
+        }
+        rebuild( points, 0, len );
+    }
+
+    /**
+     * Visits every point within {@code rad} of a point, inclusive.
+     *
+     * @return false iff visitor ended query early.
+     */
+    public boolean visitRadius( float x, float y, float z, float rad, Visitor visitor ) {
+        if( mSize == 0 ) {
+            return true;
+        }
+        if( mDim == 2 ) {
+            z = 0f;
+        }
+        final float radSq = rad * rad;
+        final int x0 = cell( x - rad ), x1 = cell( x + rad );
+        final int y0 = cell( y - rad ), y1 = cell( y + rad );
+        final int z0 = mDim == 3 ? cell( z - rad ) : 0;
+        final int z1 = mDim == 3 ? cell( z + rad ) : 0;
+        final float[] coords = mCoords;
+
+        for( int cz = z0; cz <= z1; cz++ ) {
+            for( int cy = y0; cy <= y1; cy++ ) {
+                for( int cx = x0; cx <= x1; cx++ ) {
+                    long range = find( key( cx, cy, cz ) );
+                    for( int i = (int)( range >>> 32 ), end = (int)range; i < end; i++ ) {
+                        float dx = coords[i*3  ] - x;
+                        float dy = coords[i*3+1] - y;
+                        float dz = coords[i*3+2] - z;
+                        float d  = dx * dx + dy * dy + dz * dz;
+                        if( d <= radSq && !visitor.visit( mOrder[i], d ) ) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+
+    public boolean visitRadius( float x, float y, float rad, Visitor visitor ) {
+        return visitRadius( x, y, 0f, rad, visitor );
+    }
+
+
+    public boolean visitRadius( Vec2 p, float rad, Visitor visitor ) {
+        return visitRadius( p.x, p.y, 0f, rad, visitor );
+    }
+
+
+    public boolean visitRadius( Vec3 p, float rad, Visitor visitor ) {
+        return visitRadius( p.x, p.y, p.z, rad, visitor );
+    }
+
+    /**
+     * Finds points within {@code rad} of a point, inclusive.
+     *
+     * @param out    Receives indices of points found, in no particular order.
+     * @param outOff Offset into {@code out}.
+     * @return number of points found. If greater than available space in {@code out}, the
+     *         remaining points are counted but not written.
+     */
+    public int radius( float x, float y, float z, float rad, int[] out, int outOff ) {
+        if( mSize == 0 ) {
+            return 0;
+        }
+        if( mDim == 2 ) {
+            z = 0f;
+        }
+        final float radSq = rad * rad;
+        final int x0 = cell( x - rad ), x1 = cell( x + rad );
+        final int y0 = cell( y - rad ), y1 = cell( y + rad );
+        final int z0 = mDim == 3 ? cell( z - rad ) : 0;
+        final int z1 = mDim == 3 ? cell( z + rad ) : 0;
+        final float[] coords = mCoords;
+        final int cap = out.length - outOff;
+        int count = 0;
+
+        for( int cz = z0; cz <= z1; cz++ ) {
+            for( int cy = y0; cy <= y1; cy++ ) {
+                for( int cx = x0; cx <= x1; cx++ ) {
+                    long range = find( key( cx, cy, cz ) );
+                    for( int i = (int)( range >>> 32 ), end = (int)range; i < end; i++ ) {
+                        float dx = coords[i*3  ] - x;
+                        float dy = coords[i*3+1] - y;
+                        float dz = coords[i*3+2] - z;
+                        if( dx * dx + dy * dy + dz * dz <= radSq ) {
+                            if( count < cap ) {
+                                out[outOff + count] = mOrder[i];
+                            }
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+
+
+    private int cell( float v ) {
+        return (int)Math.floor( v * mInvCellSize );
+    }
+
+
+    private static long key( int cx, int cy, int cz ) {
+        return ( ( cx & COORD_MASK ) << ( 2 * COORD_BITS ) ) |
+               ( ( cy & COORD_MASK ) << COORD_BITS ) |
+               (   cz & COORD_MASK );
+    }
+
+
+    private static int hash( long key ) {
+        // 64-bit finalizer from MurmurHash3.
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int)key;
+    }
+
+    /**
+     * @return slot holding key, or empty slot where key belongs.
+     */
+    private int slot( long key ) {
+        int s = hash( key ) & mTableMask;
+        while( true ) {
+            long k = mTable[s * 2];
+            if( k == key || k == EMPTY ) {
+                return s;
+            }
+            s = ( s + 1 ) & mTableMask;
+        }
+    }
+
+    /**
+     * @return packed range of cell in sorted arrays, or an empty range if cell is empty.
+     */
+    private long find( long key ) {
+        final long[] table = mTable;
+        int s = hash( key ) & mTableMask;
+        while( true ) {
+            long k = table[s * 2];
+            if( k == key ) {
+                return table[s * 2 + 1];
+            }
+            if( k == EMPTY ) {
+                return 0L;
+            }
+            s = ( s + 1 ) & mTableMask;
+        }
+    }
+
+    /**
+     * Clears table and sizes it for at most {@code maxCells} at a load of one half or less.
+     */
+    private void resizeTable( int maxCells ) {
+        int cap = 2;
+        while( cap < maxCells * 2 ) {
+            cap <<= 1;
+        }
+        int len = mTable.length / 2;
+        if( len < cap || len > cap * 4 ) {
+            mTable = new long[cap * 2];
+            len = cap;
+        }
+        for( int i = 0; i < len * 2; i += 2 ) {
+            mTable[i] = EMPTY;
+        }
+        mTableMask = len - 1;
+    }
+
+
+    private void ensureCapacity( int len ) {
+        if( mOrder.length >= len ) {
+            return;
+        }
+        mCoords    = new float[len * 3];
+        mOrder     = new int[len];
+        mPointCell = new int[len];
+        mCellSlot  = new int[len];
+        mCursor    = new int[len + 1];
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks unrolled reductions in {@link Arr} against plain loops, including
+ * lengths and offsets that leave a remainder after the unrolled section.
+ */
+public class TestArr {
+
+    @Test
+    public void testReductions() {
+        Random rand = new Random( 5 );
+
+        for( int len = 0; len < 23; len++ ) {
+            for( int off = 0; off < 3; off++ ) {
+                float[]  a  = new float[off + len];
+                float[]  b  = new float[off + len];
+                double[] ad = new double[off + len];
+                double[] bd = new double[off + len];
+                for( int i = 0; i < a.length; i++ ) {
+                    a[i] = rand.nextFloat() * 10f - 5f;
+                    ad[i] = a[i];
+                    b[i] = rand.nextFloat() * 10f - 5f;
+                    bd[i] = b[i];
+                }
+
+                double sum   = 0.0;
+                double dot   = 0.0;
+                double min   = Double.POSITIVE_INFINITY;
+                double max   = Double.NEGATIVE_INFINITY;
+                for( int i = off; i < off + len; i++ ) {
+                    sum += ad[i];
+                    dot += ad[i] * bd[i];
+                    min = Math.min( min, ad[i] );
+                    max = Math.max( max, ad[i] );
+                }
+
+                double var = 0.0;
+                for( int i = off; i < off + len; i++ ) {
+                    var += ( ad[i] - sum / len ) * ( ad[i] - sum / len );
+                }
+
+                assertNear( sum, Arr.sum( a, off, len ) );
+                assertNear( sum, Arr.sum( ad, off, len ) );
+                assertNear( dot, Arr.dot( a, off, b, off, len ) );
+                assertNear( dot, Arr.dot( ad, off, bd, off, len ) );
+
+                if( len == 0 ) {
+                    assertTrue( Float.isNaN( Arr.min( a, off, len ) ) );
+                    assertTrue( Double.isNaN( Arr.max( ad, off, len ) ) );
+                    continue;
+                }
+
+                assertNear( sum / len, Arr.mean( a, off, len ) );
+                assertNear( sum / len, Arr.mean( ad, off, len ) );
+                assertNear( var / len, Arr.variance( a, off, len ) );
+                assertNear( var / len, Arr.variance( ad, off, len ) );
+                assertEquals( min, Arr.min( a, off, len ), 0.0 );
+                assertEquals( min, Arr.min( ad, off, len ), 0.0 );
+                assertEquals( max, Arr.max( a, off, len ), 0.0 );
+                assertEquals( max, Arr.max( ad, off, len ), 0.0 );
+            }
+        }
+    }
+
+    @Test
+    public void testMinMaxNaN() {
+        float[] a = { 3, Float.NaN, 1, 5, 2, Float.NaN, 0, 4 };
+        assertEquals( 0f, Arr.min( a ), 0f );
+        assertEquals( 5f, Arr.max( a ), 0f );
+
+        // Matches single-accumulator behavior when first element is NaN.
+        a[0] = Float.NaN;
+        assertTrue( Float.isNaN( Arr.min( a ) ) );
+        assertTrue( Float.isNaN( Arr.max( a ) ) );
+    }
+
+
+    private static void assertNear( double expect, double actual ) {
+        assertEquals( expect, actual, 1E-4 * Math.max( 1.0, Math.abs( expect ) ) );
+    }
+
+}
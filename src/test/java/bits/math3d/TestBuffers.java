@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static bits.math3d.Tests.*;
+
+
+/**
+ * Checks {@link Vec3Buffer}, {@link Vec4Buffer} and {@link Mat4Buffer} against the
+ * corresponding {@link Vec} and {@link Mat} operations.
+ */
+public class TestBuffers {
+
+    @Test
+    public void testVec3Interleaved() {
+        Random rand = new Random( 9 );
+        final int count = 13;
+        // Position and normal interleaved, byte order opposite of native.
+        ByteOrder order = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        ByteBuffer bb = ByteBuffer.allocateDirect( 4 + count * 24 ).order( order );
+        Vec3Buffer pos  = new Vec3Buffer( bb, 4,      24, count );
+        Vec3Buffer norm = new Vec3Buffer( bb, 4 + 12, 24, count );
+
+        Vec3[] ps = new Vec3[count];
+        Vec3[] ns = new Vec3[count];
+        for( int i = 0; i < count; i++ ) {
+            ps[i] = randPos( rand );
+            ns[i] = randPos( rand );
+        }
+        pos.set( 0, ps, 0, count );
+        norm.set( 0, ns, 0, count );
+        bb.position( 4 + 12 );
+        assertEquals( ns[0].x, bb.getFloat(), 0f );
+
+        Mat4 mat = new Mat4();
+        Mat.getRotation( 0.7f, 1, 2, 3, mat );
+        mat.m03 = 5f;
+        mat.m31 = 0.01f;
+        pos.mult( mat );
+        norm.normalize();
+        Vec3 v = new Vec3();
+        for( int i = 0; i < count; i++ ) {
+            Mat.mult( mat, ps[i], ps[i] );
+            Vec.normalize( ns[i] );
+            assertNear( ps[i], pos.get( i, v ) );
+            assertNear( ns[i], norm.get( i, v ) );
+        }
+
+        Box3 box = pos.view( 2, 5 ).bounds( new Box3() );
+        for( int i = 2; i < 7; i++ ) {
+            assertTrue( ps[i].x >= box.x0 && ps[i].x <= box.x1 );
+            assertTrue( ps[i].y >= box.y0 && ps[i].y <= box.y1 );
+            assertTrue( ps[i].z >= box.z0 && ps[i].z <= box.z1 );
+        }
+
+        float[] packed = new float[count * 3];
+        pos.get( 0, packed, 0, count );
+        Vec3Buffer copy = Vec3Buffer.allocate( count );
+        copy.set( 0, packed, 0, count );
+        copy.addTo( 1f, 2f, 3f );
+        assertEquals( ps[4].y + 2f, copy.y( 4 ), 1E-5f );
+    }
+
+
+    @Test( expected = IndexOutOfBoundsException.class )
+    public void testVec3Bounds() {
+        Vec3Buffer.allocate( 4 ).view( 1, 2 ).get( 2, new Vec3() );
+    }
+
+
+    @Test
+    public void testVec4() {
+        Random rand = new Random( 10 );
+        Vec4Buffer buf = Vec4Buffer.allocate( 8 );
+        Vec4[] vs = new Vec4[8];
+        for( int i = 0; i < vs.length; i++ ) {
+            vs[i] = new Vec4( rand.nextFloat(), rand.nextFloat(), rand.nextFloat(), rand.nextFloat() );
+            buf.set( i, vs[i] );
+        }
+        Mat4 mat = new Mat4();
+        Mat.getRotation( 0.3f, 0, 1, 0, mat );
+        mat.m13 = 2f;
+        buf.mult( mat );
+        buf.mult( 0.5f );
+        Vec4 v = new Vec4();
+        for( int i = 0; i < vs.length; i++ ) {
+            Mat.mult( mat, vs[i], vs[i] );
+            Vec.mult( 0.5f, vs[i] );
+            assertNear( vs[i], buf.get( i, v ) );
+        }
+    }
+
+
+    @Test
+    public void testMat4() {
+        Random rand = new Random( 11 );
+        Mat4Buffer buf = Mat4Buffer.allocate( 5 );
+        Mat4[] ms = new Mat4[5];
+        for( int i = 0; i < ms.length; i++ ) {
+            ms[i] = new Mat4();
+            Mat.put( randMat3( rand, 2f ), ms[i] );
+            ms[i].m03 = rand.nextFloat();
+            buf.set( i, ms[i] );
+        }
+
+        // Layout matches Mat.put
+        FloatBuffer fb = buf.buffer().duplicate();
+        fb.position( 16 * 3 );
+        Mat4 m = new Mat4();
+        Mat.put( fb, m );
+        assertNear( ms[3], m );
+
+        Mat4 a = new Mat4();
+        Mat.getRotation( 1.1f, 1, 0, 1, a );
+        Mat4 b = new Mat4();
+        Mat.getTranslation( 1, 2, 3, b );
+        buf.mult( a );
+        buf.premult( b );
+        for( int i = 0; i < ms.length; i++ ) {
+            Mat.mult( ms[i], a, ms[i] );
+            Mat.mult( b, ms[i], ms[i] );
+            assertNear( ms[i], buf.get( i, m ) );
+        }
+    }
+
+}
@@ -9,9 +9,15 @@ package bits.math3d;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.imageio.ImageIO;
 
+import org.junit.Test;
+import static org.junit.Assert.*;
+
 
 @SuppressWarnings( "unused" )
 public class TestConvolutions {
@@ -20,6 +26,218 @@ public class TestConvolutions {
         testConvolve();
     }
 
+
+    @Test
+    public void testConvolveSeparable() {
+        final int w = 67;
+        final int h = 45;
+        float[] src = randImage( new Random( 1 ), w, h );
+        float[] kx  = new float[7];
+        float[] ky  = new float[4];
+        Convolutions.gaussianKernel( 1.5f, kx );
+        Convolutions.binomialKernel( ky );
+
+        ExecutorService exec = Executors.newFixedThreadPool( 4 );
+        try {
+            for( int border = Convolutions.BORDER_ZERO; border <= Convolutions.BORDER_WRAP; border++ ) {
+                float[] tmp    = new float[w*h];
+                float[] expect = new float[w*h];
+                Convolutions.convolve1( src, 0, w, h, 1, w, kx, border, 0.5f, tmp, 0 );
+                Convolutions.convolve1( tmp, 0, h, w, w, 1, ky, border, 0.5f, expect, 0 );
+
+                float[] work = new float[w*h];
+                float[] dst  = new float[w*h];
+                Convolutions.convolveSeparable( src, 0, w, h, 1, w, kx, ky, border, 0.5f, work, 0, dst, 0, exec );
+                assertArrayEquals( expect, dst, 1E-6f );
+
+                // Sequential, in place, allocated scratch.
+                float[] inPlace = src.clone();
+                Convolutions.convolveSeparable( inPlace, 0, w, h, 1, w, kx, ky, border, 0.5f, null, 0, inPlace, 0, null );
+                assertArrayEquals( expect, inPlace, 1E-6f );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testConvolveSeparableLong() {
+        // Both kernels exceed FFT_MIN_KERNEL, so both passes take the FFT path.
+        final int w = 150;
+        final int h = 90;
+        float[] src = randImage( new Random( 4 ), w, h );
+        float[] kx  = new float[Convolutions.FFT_MIN_KERNEL + 9];
+        float[] ky  = new float[Convolutions.FFT_MIN_KERNEL + 2];
+        Convolutions.gaussianKernel( 12f, kx );
+        Convolutions.gaussianKernel( 10f, ky );
+
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            for( int border = Convolutions.BORDER_ZERO; border <= Convolutions.BORDER_WRAP; border++ ) {
+                float[] tmp    = new float[w*h];
+                float[] expect = new float[w*h];
+                Convolutions.convolve1( src, 0, w, h, 1, w, kx, border, 0.5f, tmp, 0 );
+                Convolutions.convolve1( tmp, 0, h, w, w, 1, ky, border, 0.5f, expect, 0 );
+
+                float[] dst = new float[w*h];
+                Convolutions.convolveSeparable( src, 0, w, h, 1, w, kx, ky, border, 0.5f, null, 0, dst, 0, exec );
+                assertArrayEquals( expect, dst, 1E-5f );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testConvolveColumns() {
+        // Widths above and below the column block size; kernels longer than the image.
+        int[][] dims = { { 37, 29 }, { 1500, 5 }, { 9, 3 }, { 3, 2 } };
+        float[] kern = new float[9];
+        Convolutions.gaussianKernel( 2f, kern );
+
+        for( int[] d: dims ) {
+            final int w = d[0];
+            final int h = d[1];
+            float[] src = randImage( new Random( w ), w, h );
+            for( int border = Convolutions.BORDER_ZERO; border <= Convolutions.BORDER_WRAP; border++ ) {
+                float[] expect = new float[w*h];
+                float[] dst    = new float[w*h];
+                Convolutions.convolve1( src, 0, h, w, w, 1, kern, border, 0.25f, expect, 0 );
+                Convolutions.convolveColumns1( src, 0, w, h, 1, w, kern, border, 0.25f, dst, 0 );
+                assertArrayEquals( expect, dst, 1E-5f );
+            }
+        }
+    }
+
+
+    @Test
+    public void testBorderIndex() {
+        // abcd|cbabcdcb
+        int[] inner = { 2, 1, 0, 1, 2, 3, 2, 1, 0, 1 };
+        // abcd|dcbaabcd
+        int[] outer = { 1, 0, 0, 1, 2, 3, 3, 2, 1, 0 };
+        for( int i = -2; i < 8; i++ ) {
+            assertEquals( inner[i+2], Convolutions.borderIndex( i, 4, Convolutions.BORDER_REFLECT_INNER ) );
+            assertEquals( outer[i+2], Convolutions.borderIndex( i, 4, Convolutions.BORDER_REFLECT_OUTER ) );
+            assertEquals( ( i + 4 ) % 4, Convolutions.borderIndex( i, 4, Convolutions.BORDER_WRAP ) );
+            assertEquals( Math.max( 0, Math.min( 3, i ) ), Convolutions.borderIndex( i, 4, Convolutions.BORDER_REPEAT ) );
+            assertEquals( i >= 0 && i < 4 ? i : -1, Convolutions.borderIndex( i, 4, Convolutions.BORDER_ZERO ) );
+        }
+    }
+
+
+    @Test
+    public void testGaussianRecursive() {
+        final int w = 160;
+        final int h = 3;
+        float[] src = smoothImage( new Random( 2 ), w, h );
+
+        for( float sigma: new float[]{ 2f, 5f, 12f } ) {
+            float[] kern = new float[ 2 * (int)Math.ceil( 5 * sigma ) + 1 ];
+            Convolutions.gaussianKernel( sigma, kern );
+
+            for( int border = Convolutions.BORDER_ZERO; border <= Convolutions.BORDER_WRAP; border++ ) {
+                float[] expect = new float[w*h];
+                Convolutions.convolve1( src, 0, w, h, 1, w, kern, border, 0.5f, expect, 0 );
+
+                float[] dst = src.clone();
+                Convolutions.gaussianRecursive1( dst, 0, w, h, 1, w, sigma, border, 0.5f, dst, 0 );
+                assertArrayEquals( expect, dst, 0.03f );
+
+                // Columns
+                float[] expectCols = new float[w*h];
+                float[] dstCols    = new float[w*h];
+                Convolutions.convolve1( src, 0, h, w, w, 1, kern, border, 0.5f, expectCols, 0 );
+                Convolutions.gaussianRecursive1( src, 0, h, w, w, 1, sigma, border, 0.5f, dstCols, 0 );
+                assertArrayEquals( expectCols, dstCols, 0.03f );
+            }
+        }
+
+        // Constant signal is preserved.
+        float[] ones = new float[w];
+        Arrays.fill( ones, 1f );
+        Convolutions.gaussianRecursive1( ones, 0, w, 1, 1, w, 7f, Convolutions.BORDER_REPEAT, 0f, ones, 0 );
+        for( float v: ones ) {
+            assertEquals( 1f, v, 1E-5f );
+        }
+    }
+
+
+    @Test
+    public void testBoxFilter() {
+        final int w = 53;
+        final int h = 4;
+        float[] src = randImage( new Random( 3 ), w, h );
+
+        for( int radius: new int[]{ 0, 1, 6, 40 } ) {
+            float[] kern = new float[ 2 * radius + 1 ];
+            Arrays.fill( kern, 1f / kern.length );
+            for( int border = Convolutions.BORDER_ZERO; border <= Convolutions.BORDER_WRAP; border++ ) {
+                float[] expect = new float[w*h];
+                Convolutions.convolve1( src, 0, w, h, 1, w, kern, border, 0.5f, expect, 0 );
+                float[] dst = src.clone();
+                Convolutions.boxFilter1( dst, 0, w, h, 1, w, radius, border, 0.5f, dst, 0 );
+                assertArrayEquals( expect, dst, 1E-5f );
+            }
+        }
+    }
+
+
+    @Test
+    public void testGaussianBox() {
+        final int w = 160;
+        final int h = 3;
+        float[] src = smoothImage( new Random( 4 ), w, h );
+
+        for( float sigma: new float[]{ 2f, 5f, 12f } ) {
+            float[] kern = new float[ 2 * (int)Math.ceil( 5 * sigma ) + 1 ];
+            Convolutions.gaussianKernel( sigma, kern );
+
+            for( int passes = 3; passes <= 5; passes++ ) {
+                // Variance of combined boxes should be close to sigma^2.
+                double var = 0.0;
+                for( int r: Convolutions.gaussianBoxRadii( sigma, passes ) ) {
+                    var += ( ( 2.0 * r + 1 ) * ( 2.0 * r + 1 ) - 1.0 ) / 12.0;
+                }
+                assertEquals( sigma * sigma, var, 0.5 * sigma + 1.0 );
+
+                for( int border = Convolutions.BORDER_ZERO; border <= Convolutions.BORDER_WRAP; border++ ) {
+                    float[] expect = new float[w*h];
+                    float[] dst    = new float[w*h];
+                    Convolutions.convolve1( src, 0, w, h, 1, w, kern, border, 0.5f, expect, 0 );
+                    Convolutions.gaussianBox1( src, 0, w, h, 1, w, sigma, passes, border, 0.5f, dst, 0 );
+                    assertArrayEquals( expect, dst, 0.03f );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Random walk, so that blurred results have meaningful magnitude.
+     */
+    static float[] smoothImage( Random rand, int w, int h ) {
+        float[] ret = new float[w*h];
+        float v = 0.5f;
+        for( int i = 0; i < ret.length; i++ ) {
+            v = Math.max( 0f, Math.min( 1f, v + ( rand.nextFloat() - 0.5f ) * 0.2f ) );
+            ret[i] = v;
+        }
+        return ret;
+    }
+
+
+    static float[] randImage( Random rand, int w, int h ) {
+        float[] ret = new float[w*h];
+        for( int i = 0; i < ret.length; i++ ) {
+            ret[i] = rand.nextFloat();
+        }
+        return ret;
+    }
+
+
     
     static void testConvolve() throws Exception {
         BufferedImage im = testImage();
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks that {@link CurlNoise} produces divergence-free fields and consistent batch results.
+ */
+public class TestCurlNoise {
+
+    @Test
+    public void testDivergence() {
+        CurlNoise cn = new CurlNoise( 42L );
+        Random rand = new Random( 6 );
+        Vec3 a = new Vec3();
+        Vec3 b = new Vec3();
+        int num = 2000;
+        double e = 1E-3;
+        double[] divs = new double[num];
+        double meanMag = 0;
+
+        for( int i = 0; i < num; i++ ) {
+            double x = ( rand.nextDouble() - 0.5 ) * 20;
+            double y = ( rand.nextDouble() - 0.5 ) * 20;
+            double z = ( rand.nextDouble() - 0.5 ) * 20;
+            double div = 0;
+            cn.curl( x + e, y, z, a );
+            cn.curl( x - e, y, z, b );
+            div += ( a.x - b.x ) / ( 2 * e );
+            cn.curl( x, y + e, z, a );
+            cn.curl( x, y - e, z, b );
+            div += ( a.y - b.y ) / ( 2 * e );
+            cn.curl( x, y, z + e, a );
+            cn.curl( x, y, z - e, b );
+            div += ( a.z - b.z ) / ( 2 * e );
+            divs[i] = Math.abs( div );
+
+            cn.curl( x, y, z, a );
+            meanMag += Vec.len( a ) / num;
+        }
+
+        // 3D simplex noise has small discontinuities where its kernels cross simplex boundaries,
+        // so a few finite differences straddling a boundary are large. Check the 99th percentile.
+        Arrays.sort( divs );
+        assertTrue( meanMag > 0.5 );
+        assertTrue( "divergence " + divs[num * 99 / 100], divs[num * 99 / 100] < 1E-2 );
+    }
+
+
+    @Test
+    public void test2d() {
+        CurlNoise cn = new CurlNoise( 7L );
+        SeededSimplexNoise p = SeededSimplexNoise.forSeed( 7L );
+        double[] g = new double[2];
+        Vec2 v = new Vec2();
+        Random rand = new Random( 1 );
+        for( int i = 0; i < 1000; i++ ) {
+            double x = rand.nextDouble() * 30;
+            double y = rand.nextDouble() * 30;
+            cn.curl( x, y, v );
+            p.noise( x, y, g, 0 );
+            // Velocity is tangent to iso-lines of the stream function.
+            assertEquals( 0.0, v.x * g[0] + v.y * g[1], 1E-5 );
+            assertEquals( g[1], v.x, 1E-6 );
+        }
+    }
+
+
+    @Test
+    public void testPoints() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            CurlNoise cn = new CurlNoise( 3L );
+            Random rand = new Random( 9 );
+            int count = 5000;
+            float[] pos = new float[count * 3 + 2];
+            for( int i = 0; i < pos.length; i++ ) {
+                pos[i] = ( rand.nextFloat() - 0.5f ) * 40f;
+            }
+            float[] out = new float[count * 3];
+            cn.curlPoints( pos, 2, out, 0, count, exec );
+
+            Vec3 v = new Vec3();
+            for( int i = 0; i < count; i++ ) {
+                cn.curl( pos[i*3+2], pos[i*3+3], pos[i*3+4], v );
+                assertEquals( v.x, out[i*3  ], 0f );
+                assertEquals( v.y, out[i*3+1], 0f );
+                assertEquals( v.z, out[i*3+2], 0f );
+            }
+
+            // In place.
+            float[] copy = pos.clone();
+            cn.curlPoints( copy, 2, copy, 2, count, null );
+            for( int i = 0; i < count * 3; i++ ) {
+                assertEquals( out[i], copy[i + 2], 0f );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+}
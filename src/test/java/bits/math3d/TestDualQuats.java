@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static bits.math3d.Tests.*;
+
+
+/**
+ * Checks {@link DualQuats} against equivalent {@link Trans} operations.
+ */
+public class TestDualQuats {
+
+    @Test
+    public void testConversions() {
+        Random rand = new Random( 20 );
+        Trans3 a = new Trans3();
+        Trans3 b = new Trans3();
+        Trans3 c = new Trans3();
+        DualQuat da = new DualQuat();
+        DualQuat db = new DualQuat();
+        DualQuat dc = new DualQuat();
+        Mat4 m = new Mat4();
+        Mat4 m2 = new Mat4();
+        Vec3 v = new Vec3();
+        Vec3 expect = new Vec3();
+        Vec3 actual = new Vec3();
+
+        for( int i = 0; i < 1000; i++ ) {
+            randTrans( rand, a );
+            randTrans( rand, b );
+
+            DualQuats.transToDualQuat( a, da );
+            DualQuats.dualQuatToTrans( da, c );
+            assertNear( a.mPos, c.mPos );
+            assertNear( a.mRot, c.mRot );
+
+            Trans.transToMat( a, m );
+            DualQuats.matToDualQuat( m, dc );
+            DualQuats.dualQuatToMat( dc, m2 );
+            assertNear( m, m2 );
+
+            // Point transform.
+            Vec.put( randPos( rand ), v );
+            Trans.mult( a, v, expect );
+            DualQuats.mult( da, v, actual );
+            assertNear( expect, actual );
+
+            // Composition.
+            DualQuats.transToDualQuat( b, db );
+            DualQuats.mult( da, db, dc );
+            Trans.mult( a, b, c );
+            DualQuats.dualQuatToTrans( dc, b );
+            assertNear( c.mPos, b.mPos );
+            assertNear( c.mRot, b.mRot );
+
+            // Aliased composition with inverse yields identity.
+            DualQuats.invert( da, db );
+            DualQuats.mult( da, db, db );
+            DualQuats.dualQuatToTrans( db, c );
+            assertTrue( Math.abs( Vec.len( c.mPos ) ) < 1E-4f );
+            assertClose( new Mat3( 1, 0, 0, 0, 1, 0, 0, 0, 1 ), c.mRot );
+        }
+    }
+
+
+    @Test
+    public void testNormalize() {
+        Random rand = new Random( 2 );
+        Trans3 a = new Trans3();
+        Trans3 b = new Trans3();
+        DualQuat dq = new DualQuat();
+        randTrans( rand, a );
+        DualQuats.transToDualQuat( a, dq );
+        Vec.mult( 3f, dq.mReal );
+        Vec.mult( 3f, dq.mDual );
+        DualQuats.normalize( dq );
+        assertNear( 1f, Vec.len( dq.mReal ) );
+        assertTrue( Math.abs( Vec.dot( dq.mReal, dq.mDual ) ) < 1E-6f );
+        DualQuats.dualQuatToTrans( dq, b );
+        assertNear( a.mPos, b.mPos );
+        assertNear( a.mRot, b.mRot );
+    }
+
+
+    @Test
+    public void testSkin() {
+        Random rand = new Random( 5 );
+        int boneNum = 16;
+        int vertNum = 500;
+        int infl    = 4;
+
+        DualQuat[] dqs = new DualQuat[boneNum];
+        float[] palette = new float[boneNum * 8];
+        Trans3 t = new Trans3();
+        for( int i = 0; i < boneNum; i++ ) {
+            randTrans( rand, t );
+            dqs[i] = new DualQuat();
+            DualQuats.transToDualQuat( t, dqs[i] );
+            if( rand.nextBoolean() ) {
+                // Antipodal representation of same transform.
+                Vec.mult( -1f, dqs[i].mReal );
+                Vec.mult( -1f, dqs[i].mDual );
+            }
+            DualQuats.put( dqs[i], palette, i * 8 );
+        }
+
+        int[] bones = new int[vertNum * infl];
+        float[] weights = new float[vertNum * infl];
+        float[] pos = new float[vertNum * 3];
+        float[] norm = new float[vertNum * 3];
+        for( int i = 0; i < vertNum; i++ ) {
+            float sum = 0;
+            for( int k = 0; k < infl; k++ ) {
+                bones[i*infl+k] = rand.nextInt( boneNum );
+                weights[i*infl+k] = k < 2 || rand.nextBoolean() ? rand.nextFloat() : 0f;
+                sum += weights[i*infl+k];
+            }
+            for( int k = 0; k < infl; k++ ) {
+                weights[i*infl+k] /= sum;
+            }
+            Vec3 p = randPos( rand );
+            pos[i*3  ] = p.x;
+            pos[i*3+1] = p.y;
+            pos[i*3+2] = p.z;
+            Vec3 n = new Vec3( rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f );
+            Vec.normalize( n );
+            norm[i*3  ] = n.x;
+            norm[i*3+1] = n.y;
+            norm[i*3+2] = n.z;
+        }
+
+        float[] posOut = new float[vertNum * 3];
+        float[] normOut = new float[vertNum * 3];
+        DualQuats.skin( palette, 0, bones, weights, 0, infl, pos, 0, posOut, 0, norm, 0, normOut, 0, vertNum );
+
+        DualQuat blend = new DualQuat();
+        Trans3 bt = new Trans3();
+        Vec3 v = new Vec3();
+        Vec3 expect = new Vec3();
+        for( int i = 0; i < vertNum; i++ ) {
+            Vec.put( 0, 0, 0, 0, blend.mReal );
+            Vec.put( 0, 0, 0, 0, blend.mDual );
+            DualQuat first = dqs[bones[i*infl]];
+            for( int k = 0; k < infl; k++ ) {
+                DualQuat q = dqs[bones[i*infl+k]];
+                float w = weights[i*infl+k];
+                if( Vec.dot( first.mReal, q.mReal ) < 0 ) {
+                    w = -w;
+                }
+                addScaled( w, q.mReal, blend.mReal );
+                addScaled( w, q.mDual, blend.mDual );
+            }
+            float len = Vec.len( blend.mReal );
+            Vec.mult( 1f / len, blend.mReal );
+            Vec.mult( 1f / len, blend.mDual );
+            DualQuats.dualQuatToTrans( blend, bt );
+
+            Vec.put( pos[i*3], pos[i*3+1], pos[i*3+2], v );
+            Trans.mult( bt, v, expect );
+            assertNear( expect, new Vec3( posOut[i*3], posOut[i*3+1], posOut[i*3+2] ) );
+
+            Vec.put( norm[i*3], norm[i*3+1], norm[i*3+2], v );
+            Mat.mult( bt.mRot, v, expect );
+            assertNear( expect, new Vec3( normOut[i*3], normOut[i*3+1], normOut[i*3+2] ) );
+        }
+
+        // Single full-weight influence reproduces bone transform, in place.
+        for( int i = 0; i < vertNum; i++ ) {
+            weights[i*infl] = 1f;
+            for( int k = 1; k < infl; k++ ) {
+                weights[i*infl+k] = 0f;
+            }
+        }
+        float[] inPlace = pos.clone();
+        DualQuats.skin( palette, 0, bones, weights, 0, infl, inPlace, 0, inPlace, 0, vertNum );
+        for( int i = 0; i < vertNum; i++ ) {
+            Vec.put( pos[i*3], pos[i*3+1], pos[i*3+2], v );
+            DualQuats.mult( dqs[bones[i*infl]], v, expect );
+            assertNear( expect, new Vec3( inPlace[i*3], inPlace[i*3+1], inPlace[i*3+2] ) );
+        }
+    }
+
+
+
+    private static void randTrans( Random rand, Trans3 out ) {
+        Mat.put( randRotation( rand ), out.mRot );
+        Vec.put( randPos( rand ), out.mPos );
+    }
+
+
+    private static void assertClose( Mat3 a, Mat3 b ) {
+        float[] va = new float[9];
+        float[] vb = new float[9];
+        Mat.put( a, va );
+        Mat.put( b, vb );
+        for( int i = 0; i < 9; i++ ) {
+            assertEquals( va[i], vb[i], 1E-5f );
+        }
+    }
+
+
+    private static void addScaled( float s, Vec4 a, Vec4 out ) {
+        Vec.add( s * a.x, s * a.y, s * a.z, s * a.w, out, out );
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks {@link Fft} against a direct DFT, and FFT convolution against direct convolution.
+ */
+public class TestFft {
+
+    @Test
+    public void testTransform() {
+        Random rand = new Random( 7 );
+        for( int n = 1; n <= 128; n *= 2 ) {
+            double[] re = new double[n];
+            double[] im = new double[n];
+            for( int i = 0; i < n; i++ ) {
+                re[i] = rand.nextDouble() - 0.5;
+                im[i] = rand.nextDouble() - 0.5;
+            }
+            double[] re0 = re.clone();
+            double[] im0 = im.clone();
+
+            Fft fft = Fft.forSize( n );
+            assertSame( fft, Fft.forSize( n ) );
+            fft.forward( re, im );
+
+            for( int k = 0; k < n; k++ ) {
+                double sr = 0.0;
+                double si = 0.0;
+                for( int j = 0; j < n; j++ ) {
+                    double a = -2.0 * Math.PI * j * k / n;
+                    sr += re0[j] * Math.cos( a ) - im0[j] * Math.sin( a );
+                    si += re0[j] * Math.sin( a ) + im0[j] * Math.cos( a );
+                }
+                assertEquals( sr, re[k], 1E-9 );
+                assertEquals( si, im[k], 1E-9 );
+            }
+
+            fft.inverse( re, im );
+            assertArrayEquals( re0, re, 1E-12 );
+            assertArrayEquals( im0, im, 1E-12 );
+        }
+    }
+
+
+    @Test
+    public void testCeilPot() {
+        assertEquals( 1, Fft.ceilPot( 0 ) );
+        assertEquals( 1, Fft.ceilPot( 1 ) );
+        assertEquals( 2, Fft.ceilPot( 2 ) );
+        assertEquals( 4, Fft.ceilPot( 3 ) );
+        assertEquals( 1024, Fft.ceilPot( 1000 ) );
+        assertEquals( 1024, Fft.ceilPot( 1024 ) );
+    }
+
+
+    @Test
+    public void testConvolve() {
+        Random rand = new Random( 8 );
+        // Odd and even kernel lengths, on either side of the convolveSeparable FFT threshold,
+        // and longer than the row.
+        int[] kernLens = { 5, 8, Convolutions.FFT_MIN_KERNEL + 1, 100, 301 };
+        int[][] dims = { { 137, 5 }, { 40, 3 }, { 2, 2 } };
+
+        for( int kernLen: kernLens ) {
+            float[] kern = new float[kernLen];
+            for( int i = 0; i < kernLen; i++ ) {
+                kern[i] = rand.nextFloat() / kernLen;
+            }
+
+            for( int[] d: dims ) {
+                final int w = d[0];
+                final int h = d[1];
+                float[] src = TestConvolutions.randImage( rand, w, h );
+
+                for( int border = Convolutions.BORDER_ZERO; border <= Convolutions.BORDER_WRAP; border++ ) {
+                    // convolveColumns1 is always direct. Transpose to use as reference.
+                    float[] expect = new float[w*h];
+                    Convolutions.convolveColumns1( src, 0, h, w, w, 1, kern, border, 0.5f, expect, 0 );
+
+                    float[] dst = src.clone();
+                    Convolutions.convolveFft1( dst, 0, w, h, 1, w, kern, border, 0.5f, dst, 0 );
+                    assertArrayEquals( expect, dst, 1E-5f );
+
+                    // convolve1 stays direct for every kernel length.
+                    float[] direct = new float[w*h];
+                    Convolutions.convolve1( src, 0, w, h, 1, w, kern, border, 0.5f, direct, 0 );
+                    assertArrayEquals( expect, direct, 1E-6f );
+                }
+            }
+        }
+    }
+
+}
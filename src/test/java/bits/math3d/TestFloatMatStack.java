@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.EmptyStackException;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static bits.math3d.Tests.*;
+
+
+/**
+ * Checks {@link FloatMatStack} against {@link MatStack}.
+ */
+public class TestFloatMatStack {
+
+    @Test
+    public void testMatchesMatStack() {
+        Random rand = new Random( 21 );
+        MatStack ref = new MatStack();
+        FloatMatStack stack = new FloatMatStack( 1 );
+        Mat4 a = new Mat4();
+        Mat4 b = new Mat4();
+
+        for( int i = 0; i < 2000; i++ ) {
+            int op = rand.nextInt( 15 );
+            float x = rand.nextFloat() - 0.5f;
+            float y = rand.nextFloat() - 0.5f;
+            float z = rand.nextFloat() + 0.5f;
+            switch( op ) {
+            case 0:
+                if( ref.size() < 20 ) {
+                    ref.push();
+                    stack.push();
+                }
+                break;
+            case 1:
+                if( ref.size() > 0 ) {
+                    ref.pop();
+                    stack.pop();
+                }
+                break;
+            case 2:
+                Mat.put( randRotation( rand ), a );
+                Mat.translate( a, x, y, z, a );
+                ref.mult( a );
+                stack.mult( a );
+                break;
+            case 3:
+                Mat.put( randRotation( rand ), a );
+                ref.premult( a );
+                stack.premult( a );
+                break;
+            case 4:
+                Mat3 m3 = randRotation( rand );
+                ref.mult( m3 );
+                stack.mult( m3 );
+                break;
+            case 5:
+                m3 = randRotation( rand );
+                ref.premult( m3 );
+                stack.premult( m3 );
+                break;
+            case 6:
+                ref.translate( x, y, z );
+                stack.translate( x, y, z );
+                break;
+            case 7:
+                ref.preTranslate( x, y, z );
+                stack.preTranslate( x, y, z );
+                break;
+            case 8:
+                ref.rotate( x * 3, x, y, z );
+                stack.rotate( x * 3, x, y, z );
+                break;
+            case 9:
+                ref.preRotate( y * 3, x, y, z );
+                stack.preRotate( y * 3, x, y, z );
+                break;
+            case 10:
+                ref.scale( z, 1f / z, z, 1f );
+                stack.scale( z, 1f / z, z, 1f );
+                break;
+            case 11:
+                ref.preScale( 1f / z, z, 1f, 1f );
+                stack.preScale( 1f / z, z, 1f, 1f );
+                break;
+            case 12:
+                ref.invert();
+                stack.invert();
+                break;
+            case 13:
+                ref.identity();
+                stack.identity();
+                break;
+            default:
+                ref.setOrtho( -1, 1, -1, 1, 1, 10 );
+                stack.setOrtho( -1, 1, -1, 1, 1, 10 );
+                ref.identity();
+                stack.identity();
+                break;
+            }
+
+            assertEquals( ref.size(), stack.size() );
+            stack.get( a );
+            assertNear( ref.get(), a );
+
+            // View exposes same values as array.
+            FloatBuffer view = stack.buffer();
+            assertEquals( 16, view.remaining() );
+            Mat.put( view, b );
+            assertNear( a, b );
+        }
+    }
+
+    @Test
+    public void testInverseAndNormal() {
+        Random rand = new Random( 22 );
+        FloatMatStack stack = new FloatMatStack();
+        Mat4 m = new Mat4();
+        Mat4 inv = new Mat4();
+        for( int i = 0; i < 100; i++ ) {
+            stack.identity();
+            stack.translate( rand.nextFloat(), rand.nextFloat(), rand.nextFloat() );
+            stack.mult( randMat3( rand, 2f ) );
+            stack.get( m );
+            Mat.invert( m, inv );
+            assertNear( inv, stack.inverse() );
+            // Cached until modified.
+            assertSame( stack.inverse(), stack.inverse() );
+
+            Mat3 n = stack.normal();
+            Mat3 expect = new Mat3();
+            Mat.put( inv, expect );
+            Mat.transpose( expect, expect );
+            assertNear( expect, n );
+
+            // Normal transforms surface normals to stay perpendicular to transformed tangents.
+            Vec3 tangent = randPos( rand );
+            Vec3 normal = new Vec3( -tangent.y, tangent.x, 0 );
+            Vec3 t2 = new Vec3();
+            Vec3 n2 = new Vec3();
+            Mat3 upper = new Mat3();
+            Mat.put( m, upper );
+            Mat.mult( upper, tangent, t2 );
+            Mat.mult( n, normal, n2 );
+            assertEquals( 0f, Vec.dot( t2, n2 ) / ( Vec.len( t2 ) * Vec.len( n2 ) ), 1e-4f );
+
+            // Direct writes take effect after markDirty().
+            stack.inverse();
+            stack.array()[stack.offset()] *= 2f;
+            stack.markDirty();
+            stack.get( m );
+            Mat.invert( m, inv );
+            assertNear( inv, stack.inverse() );
+        }
+    }
+
+    @Test
+    public void testNormalProjection() {
+        // Normal matrix comes from upper-left block alone, even when matrix is not affine.
+        Random rand = new Random( 17 );
+        FloatMatStack stack = new FloatMatStack();
+        Mat4 m = new Mat4();
+        for( int i = 0; i < 100; i++ ) {
+            stack.setFrustum( -1, 1, -0.75f, 0.75f, 0.5f, 100f );
+            stack.mult( randMat3( rand, 2f ) );
+            stack.translate( rand.nextFloat(), rand.nextFloat(), rand.nextFloat() );
+            stack.get( m );
+            Mat3 expect = new Mat3();
+            Mat.put( m, expect );
+            Mat.invert( expect, expect );
+            Mat.transpose( expect, expect );
+            assertNear( expect, stack.normal() );
+        }
+    }
+
+    @Test
+    public void testBulkOut() {
+        FloatMatStack stack = new FloatMatStack();
+        stack.translate( 1, 2, 3 );
+        stack.push();
+        stack.scale( 2, 2, 2, 1 );
+        FloatBuffer fb = ByteBuffer.allocateDirect( 64 ).order( ByteOrder.nativeOrder() ).asFloatBuffer();
+        stack.put( fb );
+        assertEquals( 16, fb.position() );
+        assertEquals( 2f, fb.get( 0 ), 0f );
+        assertEquals( 1f, fb.get( 12 ), 0f );
+        assertEquals( 16, stack.offset() );
+        assertEquals( 2f, stack.array()[stack.offset()], 0f );
+
+        stack.pop();
+        assertEquals( 1f, stack.array()[stack.offset()], 0f );
+        stack.clear();
+        try {
+            stack.pop();
+            fail();
+        } catch( EmptyStackException ignored ) {}
+    }
+
+}
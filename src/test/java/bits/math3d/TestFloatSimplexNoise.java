@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks {@link FloatSimplexNoise} against {@link SimplexNoise}, and batched methods against
+ * per-sample evaluation.
+ */
+public class TestFloatSimplexNoise {
+
+    @Test
+    public void testMatchesDouble() {
+        Random rand = new Random( 23 );
+        for( int i = 0; i < 100000; i++ ) {
+            float x = ( rand.nextFloat() - 0.5f ) * 64f;
+            float y = ( rand.nextFloat() - 0.5f ) * 64f;
+            float z = ( rand.nextFloat() - 0.5f ) * 64f;
+            assertEquals( SimplexNoise.noise( x, y ), FloatSimplexNoise.noise( x, y ), 1E-4 );
+            assertEquals( SimplexNoise.noise( x, y, z ), FloatSimplexNoise.noise( x, y, z ), 1E-4 );
+        }
+    }
+
+
+    @Test
+    public void testPoints() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            Random rand = new Random( 8 );
+            int len = 10005;
+            float[] xs = new float[len + 3];
+            float[] ys = new float[len + 3];
+            float[] zs = new float[len + 3];
+            for( int i = 0; i < xs.length; i++ ) {
+                xs[i] = ( rand.nextFloat() - 0.5f ) * 500f;
+                ys[i] = ( rand.nextFloat() - 0.5f ) * 500f;
+                zs[i] = ( rand.nextFloat() - 0.5f ) * 500f;
+            }
+
+            float[] out2 = new float[len + 1];
+            float[] out3 = new float[len + 1];
+            FloatSimplexNoise.noise2Points( xs, ys, 3, out2, 1, len, exec );
+            FloatSimplexNoise.noise3Points( xs, ys, zs, 3, out3, 1, len, null );
+            assertEquals( 0f, out2[0], 0f );
+            for( int i = 0; i < len; i++ ) {
+                assertEquals( FloatSimplexNoise.noise( xs[i + 3], ys[i + 3] ), out2[i + 1], 0f );
+                assertEquals( FloatSimplexNoise.noise( xs[i + 3], ys[i + 3], zs[i + 3] ), out3[i + 1], 0f );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testGridAndSlab() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            int w = 133;
+            int h = 41;
+            int d = 5;
+            int stride = 140;
+            float x0 = -20.5f;
+            float y0 = 3.25f;
+            float z0 = 7.75f;
+            float dx = 0.061f;
+            float dy = -0.087f;
+            float dz = 0.21f;
+
+            float[] grid = new float[h * stride];
+            FloatSimplexNoise.noise2Grid( x0, y0, dx, dy, w, h, grid, 0, stride, exec );
+            for( int r = 0; r < h; r++ ) {
+                for( int c = 0; c < w; c++ ) {
+                    assertEquals( FloatSimplexNoise.noise( x0 + c * dx, y0 + r * dy ), grid[r * stride + c], 0f );
+                }
+                assertEquals( 0f, grid[r * stride + w], 0f );
+            }
+
+            float[] slab = new float[w * h * d];
+            FloatSimplexNoise.noise3Slab( x0, y0, z0, dx, dy, dz, w, h, d, slab, 0, exec );
+            for( int k = 0; k < d; k++ ) {
+                for( int r = 0; r < h; r++ ) {
+                    for( int c = 0; c < w; c++ ) {
+                        float expect = FloatSimplexNoise.noise( x0 + c * dx, y0 + r * dy, z0 + k * dz );
+                        assertEquals( expect, slab[( k * h + r ) * w + c], 0f );
+                    }
+                }
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+}
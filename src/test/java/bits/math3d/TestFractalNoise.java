@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks {@link FractalNoise} grids against per-sample evaluation and across tilings.
+ */
+public class TestFractalNoise {
+
+    @Test
+    public void testFill2() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            int w = 97;
+            int h = 61;
+            double x0 = -3.7;
+            double y0 = 11.2;
+            double dx = 0.043;
+            double dy = 0.051;
+
+            for( FractalNoise.Mode mode: FractalNoise.Mode.values() ) {
+                FractalNoise fn = new FractalNoise( 5, 0.8, 2.1, 0.55f, mode );
+                float[] full = new float[w * h];
+                fn.fill2( x0, y0, dx, dy, w, h, full, 0, w, exec );
+
+                for( int r = 0; r < h; r++ ) {
+                    for( int c = 0; c < w; c++ ) {
+                        assertEquals( fn.noise( x0 + c * dx, y0 + r * dy ), full[r * w + c], 0f );
+                    }
+                }
+
+                // Uneven tiles written into same layout, sequentially.
+                float[] tiled = new float[w * h];
+                int[] cs = { 0, 13, 60, w };
+                int[] rs = { 0, 40, h };
+                for( int j = 0; j < rs.length - 1; j++ ) {
+                    for( int i = 0; i < cs.length - 1; i++ ) {
+                        fn.fill2( x0, y0, dx, dy,
+                                  cs[i], rs[j], cs[i+1] - cs[i], rs[j+1] - rs[j],
+                                  tiled, rs[j] * w + cs[i], w, null );
+                    }
+                }
+                assertArrayEquals( full, tiled, 0f );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testFill3() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            int w = 24;
+            int h = 17;
+            int d = 6;
+            double x0 = 5.5;
+            double y0 = -2.25;
+            double z0 = 0.75;
+            double dx = 0.07;
+            double dy = 0.09;
+            double dz = 0.13;
+
+            for( FractalNoise.Mode mode: FractalNoise.Mode.values() ) {
+                FractalNoise fn = new FractalNoise().setOctaves( 4 ).setMode( mode );
+                float[] full = new float[w * h * d];
+                fn.fill3( x0, y0, z0, dx, dy, dz, w, h, d, full, 0, exec );
+
+                for( int k = 0; k < d; k++ ) {
+                    for( int r = 0; r < h; r++ ) {
+                        for( int c = 0; c < w; c++ ) {
+                            float expect = fn.noise( x0 + c * dx, y0 + r * dy, z0 + k * dz );
+                            assertEquals( expect, full[( k * h + r ) * w + c], 0f );
+                        }
+                    }
+                }
+
+                // Tile covering the far corner of the grid.
+                int tw = 10;
+                int th = 7;
+                int td = 2;
+                float[] tile = new float[tw * th * td];
+                fn.fill3( x0, y0, z0, dx, dy, dz, w - tw, h - th, d - td, tw, th, td, tile, 0, null );
+                for( int m = 0; m < td; m++ ) {
+                    for( int j = 0; j < th; j++ ) {
+                        for( int i = 0; i < tw; i++ ) {
+                            float expect = full[( ( d - td + m ) * h + h - th + j ) * w + w - tw + i];
+                            assertEquals( expect, tile[( m * th + j ) * tw + i], 0f );
+                        }
+                    }
+                }
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testParams() {
+        FractalNoise a = new FractalNoise();
+        FractalNoise b = a.setGain( 0.25f ).setLacunarity( 3.0 ).setFrequency( 0.5 );
+        assertEquals( 6, b.octaves() );
+        assertEquals( 0.25f, b.gain(), 0f );
+        assertEquals( 3.0, b.lacunarity(), 0.0 );
+        assertEquals( 0.5, b.frequency(), 0.0 );
+        assertEquals( 0.5f, a.gain(), 0f );
+        assertEquals( FractalNoise.Mode.FBM, a.mode() );
+
+        // Single octave of fBm equals raw simplex noise.
+        FractalNoise one = a.setOctaves( 1 );
+        assertEquals( (float)SimplexNoise.noise( 1.3, -2.7 ), one.noise( 1.3, -2.7 ), 0f );
+
+        try {
+            a.setOctaves( 0 );
+            fail();
+        } catch( IllegalArgumentException ignored ) {}
+    }
+
+}
@@ -96,6 +96,63 @@ public class TestMatrices {
     }
 
 
+    @Test
+    public void testTransformPoints() {
+        Random rand = new Random( 4 );
+        final int len = 37;
+
+        Mat4 mat = new Mat4();
+        Mat.getFrustum( -1, 1, -1, 1, 1, 100, mat );
+        Mat.translate( mat, 0.5f, -0.25f, -20f, mat );
+        Mat.rotate( mat, 0.3f, 1, 1, 0, mat );
+
+        Vec3[] points = new Vec3[len];
+        Vec3[] expect = new Vec3[len];
+        float[] xs = new float[len+2];
+        float[] ys = new float[len+2];
+        float[] zs = new float[len+2];
+        float[] interleaved = new float[len*4+1];
+
+        for( int i = 0; i < len; i++ ) {
+            points[i] = Tests.randPos( rand );
+            expect[i] = new Vec3();
+            Mat.mult( mat, points[i], expect[i] );
+            xs[i+2] = points[i].x;
+            ys[i+2] = points[i].y;
+            zs[i+2] = points[i].z;
+            interleaved[1+i*4  ] = points[i].x;
+            interleaved[1+i*4+1] = points[i].y;
+            interleaved[1+i*4+2] = points[i].z;
+        }
+
+        // Separate arrays, in place.
+        Mat.transformPoints( mat, xs, ys, zs, 2, len, xs, ys, zs, 2 );
+        // Interleaved, packed output.
+        float[] packed = new float[len*3];
+        Mat.transformPoints( mat, interleaved, 1, 4, len, packed, 0, 3 );
+        // Double array form.
+        float[] xs4 = new float[len];
+        float[] ys4 = new float[len];
+        float[] zs4 = new float[len];
+        float[] matArr = new float[16];
+        double[] mat4  = new double[16];
+        Mat.put( mat, matArr );
+        Arr.put( matArr, mat4 );
+        for( int i = 0; i < len; i++ ) {
+            xs4[i] = points[i].x;
+            ys4[i] = points[i].y;
+            zs4[i] = points[i].z;
+        }
+        Mat.transformPoints4( mat4, xs4, ys4, zs4, 0, len, xs4, ys4, zs4, 0 );
+
+        for( int i = 0; i < len; i++ ) {
+            Tests.assertNear( expect[i], new Vec3( xs[i+2], ys[i+2], zs[i+2] ) );
+            Tests.assertNear( expect[i], new Vec3( packed[i*3], packed[i*3+1], packed[i*3+2] ) );
+            Tests.assertNear( expect[i], new Vec3( xs4[i], ys4[i], zs4[i] ) );
+        }
+    }
+
+
     static void rotXyz( double rx, double ry, double rz, double[] out ) {
         double[] a = new double[16];
         double[] b = new double[16];
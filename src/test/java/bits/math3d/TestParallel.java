@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks that {@link Parallel#forRange} covers every index exactly once.
+ */
+public class TestParallel {
+
+    @Test
+    public void testRejectingExecutor() {
+        // Accepts one task on a new thread, then rejects everything.
+        final AtomicInteger accepted = new AtomicInteger( 0 );
+        Executor exec = new Executor() {
+            public void execute( Runnable r ) {
+                if( accepted.getAndIncrement() > 0 ) {
+                    throw new RejectedExecutionException();
+                }
+                new Thread( r, "accepted" ).start();
+            }
+        };
+
+        final int len = 100000;
+        final int[] hits = new int[len];
+        Parallel.forRange( exec, 0, len, 1, new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                if( Thread.currentThread().getName().equals( "accepted" ) ) {
+                    // Make the accepted chunk finish last.
+                    try {
+                        Thread.sleep( 50 );
+                    } catch( InterruptedException ignored ) {}
+                }
+                for( int i = start; i < end; i++ ) {
+                    hits[i]++;
+                }
+            }
+        } );
+
+        assertTrue( Parallel.chunkCount( len, 1 ) > 2 );
+        assertTrue( accepted.get() > 1 );
+        for( int i = 0; i < len; i++ ) {
+            assertEquals( 1, hits[i] );
+        }
+    }
+
+
+    @Test
+    public void testShutdownExecutor() {
+        ExecutorService exec = Executors.newFixedThreadPool( 2 );
+        exec.shutdown();
+
+        final int len = 5000;
+        final int[] hits = new int[len];
+        Parallel.forRange( exec, 0, len, 10, new Parallel.RangeTask() {
+            public void run( int start, int end ) {
+                for( int i = start; i < end; i++ ) {
+                    hits[i]++;
+                }
+            }
+        } );
+        for( int i = 0; i < len; i++ ) {
+            assertEquals( 1, hits[i] );
+        }
+    }
+
+
+    @Test
+    public void testRejectedChunkThrows() {
+        ExecutorService exec = Executors.newFixedThreadPool( 2 );
+        exec.shutdown();
+
+        final AtomicInteger ran = new AtomicInteger( 0 );
+        try {
+            Parallel.forRange( exec, 0, 1000, 10, new Parallel.RangeTask() {
+                public void run( int start, int end ) {
+                    ran.incrementAndGet();
+                    if( start > 0 ) {
+                        throw new IllegalStateException();
+                    }
+                }
+            } );
+            fail();
+        } catch( IllegalStateException ignored ) {}
+        // Every chunk still ran before the exception was rethrown.
+        assertEquals( Parallel.chunkCount( 1000, 10 ), ran.get() );
+    }
+
+}
@@ -184,6 +184,91 @@ public class TestQuats {
 
 
 
+    /**
+     * Checks batched slerp and fastSlerp against exact slerp, and batched nlerp against
+     * normalized shortest-arc lerp.
+     */
+    @Test
+    public void testBatchSlerp() {
+        Random rand = new Random( 19 );
+        int num = 5000;
+        float[] qa  = new float[num * 4];
+        float[] qb  = new float[num * 4];
+        float[] ts  = new float[num];
+        float[] s   = new float[num * 4];
+        float[] f   = new float[num * 4];
+        float[] n   = new float[num * 4];
+        float[] nc  = new float[num * 4];
+        double[] a  = new double[4];
+        double[] b  = new double[4];
+        double[] e  = new double[4];
+
+        for( int i = 0; i < num; i++ ) {
+            uniformRandQuat( rand, a );
+            if( i % 4 == 0 ) {
+                // Include nearly parallel pairs.
+                b[0] = a[0] + rand.nextGaussian() * 1E-3;
+                b[1] = a[1] + rand.nextGaussian() * 1E-3;
+                b[2] = a[2] + rand.nextGaussian() * 1E-3;
+                b[3] = a[3] + rand.nextGaussian() * 1E-3;
+                Quat.normalize( b );
+            } else {
+                uniformRandQuat( rand, b );
+            }
+            for( int j = 0; j < 4; j++ ) {
+                qa[i*4+j] = (float)a[j];
+                qb[i*4+j] = (float)b[j];
+            }
+            ts[i] = rand.nextFloat();
+        }
+
+        Quat.slerp( qa, 0, qb, 0, ts, 0, s, 0, num );
+        Quat.fastSlerp( qa, 0, qb, 0, ts, 0, f, 0, num );
+        Quat.nlerp( qa, 0, qb, 0, ts, 0, n, 0, num );
+        Quat.nlerp( qa, 0, qb, 0, 0.3f, nc, 0, num );
+
+        double slerpErr = 0;
+        double fastErr  = 0;
+        double nlerpErr = 0;
+
+        for( int i = 0; i < num; i++ ) {
+            for( int j = 0; j < 4; j++ ) {
+                a[j] = qa[i*4+j];
+                b[j] = qb[i*4+j];
+            }
+            if( Vec.dot4( a, b ) < 0 ) {
+                Vec.mult4( -1, b, b );
+            }
+
+            Quat.slerp( a, b, ts[i], e );
+            for( int j = 0; j < 4; j++ ) {
+                slerpErr = Math.max( slerpErr, Math.abs( e[j] - s[i*4+j] ) );
+                fastErr  = Math.max( fastErr,  Math.abs( e[j] - f[i*4+j] ) );
+            }
+
+            nlerp( a, b, ts[i], e );
+            for( int j = 0; j < 4; j++ ) {
+                nlerpErr = Math.max( nlerpErr, Math.abs( e[j] - n[i*4+j] ) );
+            }
+            nlerp( a, b, 0.3f, e );
+            for( int j = 0; j < 4; j++ ) {
+                nlerpErr = Math.max( nlerpErr, Math.abs( e[j] - nc[i*4+j] ) );
+            }
+        }
+
+        assertTrue( "slerp error: " + slerpErr, slerpErr < 1E-5 );
+        assertTrue( "fastSlerp error: " + fastErr, fastErr < 5E-5 );
+        assertTrue( "nlerp error: " + nlerpErr, nlerpErr < 1E-5 );
+
+        // In-place with constant t.
+        float[] c = qa.clone();
+        Quat.fastSlerp( c, 0, qb, 0, 0f, c, 0, num );
+        for( int i = 0; i < c.length; i++ ) {
+            assertTrue( Math.abs( c[i] - qa[i] ) < 1E-6f );
+        }
+    }
+
+
     private static void uniformRandQuat( Random rand, double[] out ) {
         // Draw three uniform samples.
         double u0 = rand.nextDouble();
@@ -191,6 +276,17 @@ public class TestQuats {
         double u2 = rand.nextDouble();
         Quat.randToQuat( u0, u1, u2, out );
     }
+
+
+    /**
+     * Reference nlerp. Caller must first flip {@code b} onto the hemisphere of {@code a}.
+     */
+    private static void nlerp( double[] a, double[] b, double t, double[] out ) {
+        for( int j = 0; j < 4; j++ ) {
+            out[j] = a[j] + ( b[j] - a[j] ) * t;
+        }
+        Quat.normalize( out );
+    }
     
     
     private static void rotXyz( double rx, double ry, double rz, double[] out ) {
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks {@link SeededSimplexNoise} and {@link SimplexNoise} against baseline values, and across seeds.
+ */
+public class TestSeededSimplexNoise {
+
+    @Test
+    public void testBaseline() {
+        // Values produced by the original SimplexNoise implementation, before its 2D and 3D kernels
+        // were rewritten and moved here. Static noise, and an instance over the static table, must match exactly.
+        double[][] in2 = {
+            { 0.0, 0.0 },
+            { 1.0, 2.0 },
+            { -3.0, -7.0 },
+            { 255.0, 256.0 },
+            { -256.0, 511.0 },
+            { 0.5, 0.25 },
+            { -0.5, -0.25 },
+            { 3.7, -12.3 },
+            { -101.25, 47.125 },
+            { 1000.1, -2000.3 },
+            { 0.211, 0.789 },
+            { -13.37, 13.37 },
+            { 100000.5, -0.75 },
+            { 7.0, -0.001 }
+        };
+        double[] out2 = {
+            0.0, 0.23526496123584156, -0.49107824923315685,
+            0.0976676931220678, -0.39291191912715323, -0.6471486502994073,
+            0.3794651548231497, -0.15283900897064895, -0.7218082129933361,
+            0.006817602505318453, 0.1401488286238713, -0.18971282133959727,
+            0.046482205586900596, -0.8369557238713342
+        };
+
+        double[][] in3 = {
+            { 0.0, 0.0, 0.0 },
+            { 1.0, 2.0, 3.0 },
+            { -3.0, -7.0, -11.0 },
+            { 255.0, 256.0, -257.0 },
+            { 0.5, 0.25, 0.125 },
+            { -0.5, -0.25, -0.125 },
+            { 3.7, -12.3, 8.1 },
+            { -101.25, 47.125, -9.5 },
+            { 1000.1, -2000.3, 17.7 },
+            { 0.333, 0.666, -0.999 },
+            { -13.37, 13.37, 0.01 },
+            { 100000.5, -0.75, 2.5 }
+        };
+        double[] out3 = {
+            0.0, 0.0, 0.0,
+            0.7600995884773406, 0.3434544772411079, -0.6926580189693121,
+            0.378636508707818, -0.10289826039443781, -0.5406602666663429,
+            0.24040682498867616, -0.12014424041660927, -0.3900895206173802
+        };
+
+        double[][] in4 = {
+            { 0.0, 0.0, 0.0, 0.0 },
+            { 1.0, 2.0, 3.0, 4.0 },
+            { -3.0, -7.0, -11.0, -13.0 },
+            { 0.5, 0.25, 0.125, -0.0625 },
+            { 3.7, -12.3, 8.1, -0.4 },
+            { -101.25, 47.125, -9.5, 33.3 },
+            { 0.9, -0.9, 0.1, -0.1 },
+            { -13.37, 13.37, 0.01, 5.0 }
+        };
+        double[] out4 = {
+            0.0, 0.13508598596204313, 0.3091140233210837,
+            0.004167625475008785, -0.15077071613269805, -0.06281295743401752,
+            -0.7965941759999993, 0.07488701551059772
+        };
+
+        SeededSimplexNoise sn = new SeededSimplexNoise( 0, SimplexNoise.PERM2 );
+        for( int i = 0; i < in2.length; i++ ) {
+            assertEquals( out2[i], SimplexNoise.noise( in2[i][0], in2[i][1] ), 0.0 );
+            assertEquals( out2[i], sn.noise( in2[i][0], in2[i][1] ), 0.0 );
+        }
+        for( int i = 0; i < in3.length; i++ ) {
+            assertEquals( out3[i], SimplexNoise.noise( in3[i][0], in3[i][1], in3[i][2] ), 0.0 );
+            assertEquals( out3[i], sn.noise( in3[i][0], in3[i][1], in3[i][2] ), 0.0 );
+        }
+        for( int i = 0; i < in4.length; i++ ) {
+            assertEquals( out4[i], SimplexNoise.noise( in4[i][0], in4[i][1], in4[i][2], in4[i][3] ), 0.0 );
+        }
+    }
+
+
+    @Test
+    public void testSeeds() {
+        SeededSimplexNoise a = SeededSimplexNoise.forSeed( 1234L );
+        SeededSimplexNoise b = new SeededSimplexNoise( 1234L );
+        SeededSimplexNoise c = SeededSimplexNoise.forSeed( 1235L );
+        assertSame( a, SeededSimplexNoise.forSeed( 1234L ) );
+        assertEquals( 1234L, a.seed() );
+
+        Random rand = new Random( 3 );
+        double diff = 0;
+        for( int i = 0; i < 1000; i++ ) {
+            double x = rand.nextDouble() * 50;
+            double y = rand.nextDouble() * 50;
+            double z = rand.nextDouble() * 50;
+            double va = a.noise( x, y, z );
+            assertEquals( va, b.noise( x, y, z ), 0.0 );
+            assertEquals( a.noise( x, y ), b.noise( x, y ), 0.0 );
+            assertTrue( va >= -1.0 && va <= 1.0 );
+            diff += Math.abs( va - c.noise( x, y, z ) );
+        }
+        assertTrue( diff / 1000 > 0.05 );
+    }
+
+
+    @Test
+    public void testConcurrentLookup() throws Exception {
+        ExecutorService exec = Executors.newFixedThreadPool( 4 );
+        try {
+            List<Future<SeededSimplexNoise>> futures = new ArrayList<Future<SeededSimplexNoise>>();
+            for( int i = 0; i < 64; i++ ) {
+                futures.add( exec.submit( new Callable<SeededSimplexNoise>() {
+                    public SeededSimplexNoise call() {
+                        return SeededSimplexNoise.forSeed( 777L );
+                    }
+                } ) );
+            }
+            SeededSimplexNoise first = futures.get( 0 ).get();
+            for( Future<SeededSimplexNoise> f: futures ) {
+                assertSame( first, f.get() );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testBatch() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            SeededSimplexNoise sn = SeededSimplexNoise.forSeed( 99L );
+            int w = 90;
+            int h = 70;
+            int d = 4;
+            float[] grid = new float[w * h];
+            float[] slab = new float[w * h * d];
+            sn.noise2Grid( -1.5, 2.0, 0.05, 0.07, w, h, grid, 0, w, exec );
+            sn.noise3Slab( 0.5, -3.0, 8.0, 0.05, 0.07, 0.3, w, h, d, slab, 0, exec );
+            for( int k = 0; k < d; k++ ) {
+                for( int r = 0; r < h; r++ ) {
+                    for( int c = 0; c < w; c++ ) {
+                        if( k == 0 ) {
+                            float expect = (float)sn.noise( -1.5 + c * 0.05, 2.0 + r * 0.07 );
+                            assertEquals( expect, grid[r * w + c], 0f );
+                        }
+                        float expect = (float)sn.noise( 0.5 + c * 0.05, -3.0 + r * 0.07, 8.0 + k * 0.3 );
+                        assertEquals( expect, slab[( k * h + r ) * w + c], 0f );
+                    }
+                }
+            }
+
+            double[] xs = { 0.1, 5.5, -7.25 };
+            double[] ys = { 3.3, -2.0, 9.0 };
+            float[] out = new float[3];
+            sn.noise2Points( xs, ys, 0, out, 0, 3, null );
+            for( int i = 0; i < 3; i++ ) {
+                assertEquals( (float)sn.noise( xs[i], ys[i] ), out[i], 0f );
+            }
+            sn.noise3Points( xs, ys, xs, 0, out, 0, 3, null );
+            for( int i = 0; i < 3; i++ ) {
+                assertEquals( (float)sn.noise( xs[i], ys[i], xs[i] ), out[i], 0f );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+}
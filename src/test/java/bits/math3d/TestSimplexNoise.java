@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks batched {@link SimplexNoise} methods against per-sample evaluation.
+ */
+public class TestSimplexNoise {
+
+    @Test
+    public void testGrid() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            int w = 301;
+            int h = 77;
+            int stride = 310;
+            double x0 = -40.3;
+            double y0 = 12.9;
+            double dx = 0.071;
+            double dy = -0.13;
+            float[] out = new float[5 + h * stride];
+
+            SimplexNoise.noise2Grid( x0, y0, dx, dy, w, h, out, 5, stride, exec );
+            for( int r = 0; r < h; r++ ) {
+                for( int c = 0; c < w; c++ ) {
+                    float expect = (float)SimplexNoise.noise( x0 + c * dx, y0 + r * dy );
+                    assertEquals( expect, out[5 + r * stride + c], 0f );
+                }
+                // Padding untouched.
+                assertEquals( 0f, out[5 + r * stride + w], 0f );
+            }
+
+            // Integer lattice coordinates, including negatives.
+            SimplexNoise.noise2Grid( -8, -8, 1, 1, 16, 16, out, 0, 16, null );
+            for( int i = 0; i < 256; i++ ) {
+                assertEquals( (float)SimplexNoise.noise( i % 16 - 8, i / 16 - 8 ), out[i], 0f );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testSlab() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            int w = 64;
+            int h = 33;
+            int d = 9;
+            double x0 = 3.3;
+            double y0 = -7.1;
+            double z0 = 100.25;
+            double dx = 0.09;
+            double dy = 0.11;
+            double dz = -0.37;
+            float[] out = new float[w * h * d];
+
+            SimplexNoise.noise3Slab( x0, y0, z0, dx, dy, dz, w, h, d, out, 0, exec );
+            for( int k = 0; k < d; k++ ) {
+                for( int r = 0; r < h; r++ ) {
+                    for( int c = 0; c < w; c++ ) {
+                        float expect = (float)SimplexNoise.noise( x0 + c * dx, y0 + r * dy, z0 + k * dz );
+                        assertEquals( expect, out[( k * h + r ) * w + c], 0f );
+                    }
+                }
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testPoints() {
+        ExecutorService exec = Executors.newFixedThreadPool( 3 );
+        try {
+            Random rand = new Random( 21 );
+            int len = 10000;
+            double[] xs = new double[len + 2];
+            double[] ys = new double[len + 2];
+            double[] zs = new double[len + 2];
+            for( int i = 0; i < xs.length; i++ ) {
+                xs[i] = ( rand.nextDouble() - 0.5 ) * 500;
+                ys[i] = ( rand.nextDouble() - 0.5 ) * 500;
+                zs[i] = ( rand.nextDouble() - 0.5 ) * 500;
+            }
+
+            float[] out2 = new float[len + 1];
+            float[] out3 = new float[len + 1];
+            SimplexNoise.noise2Points( xs, ys, 2, out2, 1, len, exec );
+            SimplexNoise.noise3Points( xs, ys, zs, 2, out3, 1, len, null );
+            for( int i = 0; i < len; i++ ) {
+                assertEquals( (float)SimplexNoise.noise( xs[i + 2], ys[i + 2] ), out2[i + 1], 0f );
+                assertEquals( (float)SimplexNoise.noise( xs[i + 2], ys[i + 2], zs[i + 2] ), out3[i + 1], 0f );
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testGradient() {
+        Random rand = new Random( 25 );
+        double[] g = new double[4];
+        double e = 1E-6;
+        for( int i = 0; i < 10000; i++ ) {
+            double x = ( rand.nextDouble() - 0.5 ) * 100;
+            double y = ( rand.nextDouble() - 0.5 ) * 100;
+            double z = ( rand.nextDouble() - 0.5 ) * 100;
+
+            assertEquals( SimplexNoise.noise( x, y ), SimplexNoise.noise( x, y, g, 1 ), 0.0 );
+            assertEquals( ( SimplexNoise.noise( x + e, y ) - SimplexNoise.noise( x - e, y ) ) / ( 2 * e ), g[1], 1E-5 );
+            assertEquals( ( SimplexNoise.noise( x, y + e ) - SimplexNoise.noise( x, y - e ) ) / ( 2 * e ), g[2], 1E-5 );
+            Vec2 v2 = new Vec2();
+            assertEquals( SimplexNoise.noise( x, y ), SimplexNoise.noise( x, y, v2 ), 0.0 );
+            assertEquals( (float)g[1], v2.x, 0f );
+            assertEquals( (float)g[2], v2.y, 0f );
+
+            assertEquals( SimplexNoise.noise( x, y, z ), SimplexNoise.noise( x, y, z, g, 0 ), 0.0 );
+            assertEquals( ( SimplexNoise.noise( x + e, y, z ) - SimplexNoise.noise( x - e, y, z ) ) / ( 2 * e ), g[0], 1E-5 );
+            assertEquals( ( SimplexNoise.noise( x, y + e, z ) - SimplexNoise.noise( x, y - e, z ) ) / ( 2 * e ), g[1], 1E-5 );
+            assertEquals( ( SimplexNoise.noise( x, y, z + e ) - SimplexNoise.noise( x, y, z - e ) ) / ( 2 * e ), g[2], 1E-5 );
+
+            Vec3 v = new Vec3();
+            SimplexNoise.noise( x, y, z, v );
+            assertEquals( (float)g[0], v.x, 0f );
+            assertEquals( (float)g[1], v.y, 0f );
+            assertEquals( (float)g[2], v.z, 0f );
+        }
+    }
+
+}
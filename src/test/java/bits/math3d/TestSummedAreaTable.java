@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Checks {@link SummedAreaTable} rectangle sums against direct summation.
+ */
+public class TestSummedAreaTable {
+
+    @Test
+    public void testSum() {
+        Random rand = new Random( 6 );
+        final int w = 17;
+        final int h = 11;
+        // Interleaved two channels; table built over second channel.
+        float[] src = new float[w*h*2+1];
+        for( int i = 0; i < src.length; i++ ) {
+            src[i] = rand.nextFloat() - 0.5f;
+        }
+
+        SummedAreaTable sat = new SummedAreaTable();
+        sat.set( src, 2, w, h, 2, w * 2 );
+        assertEquals( w, sat.width() );
+        assertEquals( h, sat.height() );
+
+        for( int i = 0; i < 200; i++ ) {
+            int x0 = rand.nextInt( w + 6 ) - 3;
+            int x1 = rand.nextInt( w + 6 ) - 3;
+            int y0 = rand.nextInt( h + 6 ) - 3;
+            int y1 = rand.nextInt( h + 6 ) - 3;
+
+            double expect = 0.0;
+            int count = 0;
+            for( int y = Math.max( 0, y0 ); y < Math.min( h, y1 ); y++ ) {
+                for( int x = Math.max( 0, x0 ); x < Math.min( w, x1 ); x++ ) {
+                    expect += src[2 + y * w * 2 + x * 2];
+                    count++;
+                }
+            }
+
+            assertEquals( expect, sat.sum( x0, y0, x1, y1 ), 1E-5 );
+            assertEquals( count == 0 ? 0.0 : expect / count, sat.mean( x0, y0, x1, y1 ), 1E-5 );
+        }
+
+        // Reuse with smaller matrix.
+        sat.set( new float[]{ 1, 2, 3, 4 }, 0, 2, 2, 1, 2 );
+        assertEquals( 10.0, sat.sum( 0, 0, 2, 2 ), 0.0 );
+        assertEquals( 7.0, sat.sum( 0, 1, 5, 5 ), 0.0 );
+        assertEquals( 0.0, sat.sum( 1, 0, 1, 2 ), 0.0 );
+    }
+
+
+    @Test
+    public void testBoxQuery() {
+        float[] src = { 1, 2, 3,
+                        4, 5, 6 };
+        SummedAreaTable sat = new SummedAreaTable( src, 0, 3, 2, 1, 3 );
+        // Centers at x+0.5 within [0.4, 2.4) -> columns 0 and 1
+        assertEquals( 12.0, sat.sum( new Box2( 0.4f, 0f, 2.4f, 2f ) ), 0.0 );
+        // Centers at y+0.5 within [0.6, 3) -> row 1 only
+        assertEquals( 15.0, sat.sum( new Box2( -10f, 0.6f, 10f, 3f ) ), 0.0 );
+        assertEquals( 5.0, sat.mean( new Box2( -10f, 0.6f, 10f, 3f ) ), 0.0 );
+        assertEquals( 0.0, sat.sum( new Box2( 1.6f, 0f, 2.4f, 2f ) ), 0.0 );
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static bits.math3d.Tests.*;
+
+
+/**
+ * Checks {@link TransTree} against naive recomputation of every world matrix.
+ */
+public class TestTransTree {
+
+    @Test
+    public void testUpdate() {
+        Random rand = new Random( 8 );
+        int num = 3000;
+        TransTree tree = new TransTree( 4 );
+        Trans3 t = new Trans3();
+
+        for( int i = 0; i < num; i++ ) {
+            int parent = i == 0 || rand.nextInt( 20 ) == 0 ? -1 : rand.nextInt( i );
+            randLocal( rand, t );
+            int node = tree.add( parent, t );
+            assertEquals( i, node );
+            tree.setScale( node, 0.8f + 0.4f * rand.nextFloat(), 0.8f + 0.4f * rand.nextFloat(), 1f );
+        }
+
+        assertEquals( num, tree.update() );
+        assertFalse( tree.isDirty() );
+        assertEquals( 0, tree.update() );
+        checkWorld( tree );
+
+        ExecutorService exec = Executors.newFixedThreadPool( 4 );
+        try {
+            for( int iter = 0; iter < 20; iter++ ) {
+                int moved = 1 + rand.nextInt( 10 );
+                int expect = 0;
+                boolean[] dirty = new boolean[num];
+                for( int j = 0; j < moved; j++ ) {
+                    int node = rand.nextInt( num );
+                    randLocal( rand, t );
+                    tree.setLocal( node, t );
+                    dirty[node] = true;
+                }
+                for( int i = 0; i < num; i++ ) {
+                    int p = tree.parent( i );
+                    dirty[i] |= p >= 0 && dirty[p];
+                    if( dirty[i] ) {
+                        expect++;
+                    }
+                }
+                assertEquals( expect, tree.update( exec ) );
+                checkWorld( tree );
+            }
+
+            // Move all roots to exercise parallel levels.
+            for( int i = 0; i < num; i++ ) {
+                if( tree.parent( i ) < 0 ) {
+                    tree.setPosition( i, rand.nextFloat(), rand.nextFloat(), rand.nextFloat() );
+                }
+            }
+            assertEquals( num, tree.update( exec ) );
+            checkWorld( tree );
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testLocal() {
+        Random rand = new Random( 3 );
+        TransTree tree = new TransTree();
+        Trans3 a = new Trans3();
+        Trans3 b = new Trans3();
+        randLocal( rand, a );
+        int root = tree.add( -1, a );
+        int child = tree.add( root );
+        tree.getLocal( root, b );
+        assertNear( a.mPos, b.mPos );
+        assertNear( a.mRot, b.mRot );
+
+        Vec3 s = new Vec3();
+        tree.getScale( child, s );
+        assertNear( new Vec3( 1, 1, 1 ), s );
+        assertEquals( 1, tree.depth( child ) );
+
+        tree.update();
+        Mat4 m = new Mat4();
+        tree.getWorld( child, m );
+        Mat4 expect = new Mat4();
+        Trans.transToMat( a, expect );
+        assertNear( expect, m );
+
+        try {
+            tree.add( 5 );
+            fail();
+        } catch( IllegalArgumentException expected ) {}
+    }
+
+
+
+    private static void randLocal( Random rand, Trans3 out ) {
+        Mat.put( randRotation( rand ), out.mRot );
+        out.mPos.x = rand.nextFloat() - 0.5f;
+        out.mPos.y = rand.nextFloat() - 0.5f;
+        out.mPos.z = rand.nextFloat() - 0.5f;
+    }
+
+
+    private static void checkWorld( TransTree tree ) {
+        int num = tree.size();
+        Mat4[] ref = new Mat4[num];
+        Trans3 t = new Trans3();
+        Vec3 s = new Vec3();
+        Mat4 local = new Mat4();
+        Mat4 actual = new Mat4();
+
+        for( int i = 0; i < num; i++ ) {
+            tree.getLocal( i, t );
+            tree.getScale( i, s );
+            Trans.transToMat( t, local );
+            Mat.scale( local, s.x, s.y, s.z, 1f, local );
+            local.m03 = t.mPos.x;
+            local.m13 = t.mPos.y;
+            local.m23 = t.mPos.z;
+
+            ref[i] = new Mat4();
+            int p = tree.parent( i );
+            if( p < 0 ) {
+                Mat.put( local, ref[i] );
+            } else {
+                Mat.mult( ref[p], local, ref[i] );
+            }
+            tree.getWorld( i, actual );
+            assertNear( ref[i], actual );
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.*;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author Philip DeCamp
+ */
+public class BvhTest {
+
+    @Test
+    public void testQueries() {
+        Random rand = new Random( 7 );
+        Box3[] boxes = randBoxes( rand, 3000 );
+        ExecutorService exec = Executors.newFixedThreadPool( 4 );
+        try {
+            Bvh seq = Bvh.build( boxes, 0, boxes.length, null );
+            Bvh par = Bvh.build( boxes, 0, boxes.length, exec );
+            // Parallel build defers only large subtrees, so force it with more boxes as well.
+            Box3[] many = randBoxes( rand, 20000 );
+            Bvh parMany = Bvh.build( many, 0, many.length, exec );
+
+            assertEquals( boxes.length, seq.size() );
+            assertEquals( boxes.length, par.size() );
+            checkQueries( rand, boxes, seq );
+            checkQueries( rand, boxes, par );
+            checkQueries( rand, many, parMany );
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    @Test
+    public void testVolumes() {
+        Random rand = new Random( 8 );
+        Volume[] vols = new Volume[500];
+        for( int i = 0; i < vols.length; i++ ) {
+            vols[i] = new Sphere( rand.nextFloat() * 10f, rand.nextFloat() * 10f, rand.nextFloat() * 10f, rand.nextFloat() * 0.5f );
+        }
+        Bvh bvh = Bvh.build( vols, 0, vols.length, null );
+        for( int i = 0; i < 2000; i++ ) {
+            float x = rand.nextFloat() * 10f;
+            float y = rand.nextFloat() * 10f;
+            float z = rand.nextFloat() * 10f;
+            int hit = bvh.findContaining( vols, 0, x, y, z );
+            boolean any = false;
+            for( Volume v : vols ) {
+                any |= v.contains( x, y, z );
+            }
+            assertEquals( any, hit >= 0 );
+            if( hit >= 0 ) {
+                assertTrue( vols[hit].contains( x, y, z ) );
+            }
+        }
+    }
+
+    @Test
+    public void testDegenerate() {
+        Box3[] boxes = new Box3[100];
+        for( int i = 0; i < boxes.length; i++ ) {
+            boxes[i] = new Box3( 1, 1, 1, 2, 2, 2 );
+        }
+        Bvh bvh = Bvh.build( boxes, 0, boxes.length, null );
+        final int[] count = { 0 };
+        bvh.visitPoint( 1.5f, 1.5f, 1.5f, new Bvh.Visitor() {
+            public boolean visit( int prim ) {
+                count[0]++;
+                return true;
+            }
+        } );
+        assertEquals( boxes.length, count[0] );
+
+        Bvh empty = Bvh.build( new Box3[0], 0, 0, null );
+        assertTrue( empty.visitPoint( 0, 0, 0, new Bvh.Visitor() {
+            public boolean visit( int prim ) {
+                fail();
+                return true;
+            }
+        } ) );
+    }
+
+    @Test
+    public void testGrazingRay() {
+        // Axis-aligned rays whose origins lie on box planes.
+        Box3[] boxes = { new Box3( 0, 0, 0, 1, 1, 1 ), new Box3( 2, 0, 0, 3, 1, 1 ) };
+        Bvh bvh = Bvh.build( boxes, 0, boxes.length, null );
+        final List<Integer> hits = new ArrayList<Integer>();
+        Bvh.RayVisitor collect = new Bvh.RayVisitor() {
+            public float hit( int prim, float tMax ) {
+                hits.add( prim );
+                return tMax;
+            }
+        };
+
+        float[][] rays = {
+            // Origin on y = 0 and z = 0 planes, along +x and -x.
+            { -1, 0, 0,  1,  0,  0 },
+            {  4, 0, 0, -1,  0,  0 },
+            // Origin on x = 1 plane of first box, along +y, and on y = 1 plane, along -z.
+            {  1, -1, 0.5f,  0, 1, 0 },
+            {  2.5f, 1, 2,   0, 0, -1 },
+            // Origin on min and max corners, along -z directions with negative zero components.
+            {  0, 0, 5,  -0f, -0f, -1 },
+            {  3, 1, 5,   0f, -0f, -1 }
+        };
+        int[][] expect = { { 0, 1 }, { 0, 1 }, { 0 }, { 1 }, { 0 }, { 1 } };
+
+        for( int i = 0; i < rays.length; i++ ) {
+            float[] r = rays[i];
+            hits.clear();
+            bvh.raycast( new Vec3( r[0], r[1], r[2] ), new Vec3( r[3], r[4], r[5] ), 100f, collect );
+            Collections.sort( hits );
+            assertEquals( "ray " + i, expect[i].length, hits.size() );
+            for( int k = 0; k < expect[i].length; k++ ) {
+                assertEquals( expect[i][k], (int)hits.get( k ) );
+            }
+        }
+
+        // Parallel to a plane but outside box still misses.
+        hits.clear();
+        bvh.raycast( new Vec3( -1, 1.5f, 0.5f ), new Vec3( 1, 0, 0 ), 100f, collect );
+        assertTrue( hits.isEmpty() );
+    }
+
+
+
+    private static void checkQueries( Random rand, final Box3[] boxes, Bvh bvh ) {
+        final Set<Integer> found = new HashSet<Integer>();
+        Bvh.Visitor collect = new Bvh.Visitor() {
+            public boolean visit( int prim ) {
+                assertTrue( found.add( prim ) );
+                return true;
+            }
+        };
+
+        for( int i = 0; i < 200; i++ ) {
+            float x = rand.nextFloat() * 100f;
+            float y = rand.nextFloat() * 100f;
+            float z = rand.nextFloat() * 100f;
+            found.clear();
+            bvh.visitPoint( x, y, z, collect );
+            Set<Integer> expect = new HashSet<Integer>();
+            for( int j = 0; j < boxes.length; j++ ) {
+                Box3 b = boxes[j];
+                if( x >= b.x0 && y >= b.y0 && z >= b.z0 && x <= b.x1 && y <= b.y1 && z <= b.z1 ) {
+                    expect.add( j );
+                }
+            }
+            assertEquals( expect, found );
+        }
+
+        for( int i = 0; i < 200; i++ ) {
+            Box3 q = randBox( rand, 20f );
+            found.clear();
+            bvh.visitBox( q, collect );
+            Set<Integer> expect = new HashSet<Integer>();
+            for( int j = 0; j < boxes.length; j++ ) {
+                Box3 b = boxes[j];
+                if( q.x1 >= b.x0 && q.y1 >= b.y0 && q.z1 >= b.z0 && q.x0 <= b.x1 && q.y0 <= b.y1 && q.z0 <= b.z1 ) {
+                    expect.add( j );
+                }
+            }
+            assertEquals( expect, found );
+        }
+
+        for( int i = 0; i < 200; i++ ) {
+            final Vec3 o = new Vec3( rand.nextFloat() * 100f, rand.nextFloat() * 100f, rand.nextFloat() * 100f );
+            final Vec3 d = new Vec3( rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f );
+            float best = 1000f;
+            for( Box3 b : boxes ) {
+                best = Math.min( best, slab( b, o, d, 1000f ) );
+            }
+            float t = bvh.raycast( o, d, 1000f, new Bvh.RayVisitor() {
+                public float hit( int prim, float tMax ) {
+                    return Math.min( tMax, slab( boxes[prim], o, d, tMax ) );
+                }
+            } );
+            assertEquals( best, t, 0f );
+        }
+    }
+
+
+    private static float slab( Box3 b, Vec3 o, Vec3 d, float tMax ) {
+        float near = 0f;
+        float far  = tMax;
+        float[] bmin = { b.x0, b.y0, b.z0 };
+        float[] bmax = { b.x1, b.y1, b.z1 };
+        float[] os   = { o.x, o.y, o.z };
+        float[] ds   = { d.x, d.y, d.z };
+        for( int i = 0; i < 3; i++ ) {
+            float inv = 1f / ds[i];
+            float t0 = ( bmin[i] - os[i] ) * inv;
+            float t1 = ( bmax[i] - os[i] ) * inv;
+            near = Math.max( near, Math.min( t0, t1 ) );
+            far  = Math.min( far, Math.max( t0, t1 ) );
+        }
+        return near <= far ? near : Float.POSITIVE_INFINITY;
+    }
+
+
+    private static Box3[] randBoxes( Random rand, int n ) {
+        Box3[] ret = new Box3[n];
+        for( int i = 0; i < n; i++ ) {
+            ret[i] = randBox( rand, 5f );
+        }
+        return ret;
+    }
+
+
+    private static Box3 randBox( Random rand, float maxSize ) {
+        float x = rand.nextFloat() * 100f;
+        float y = rand.nextFloat() * 100f;
+        float z = rand.nextFloat() * 100f;
+        return new Box3( x, y, z,
+                         x + rand.nextFloat() * maxSize,
+                         y + rand.nextFloat() * maxSize,
+                         z + rand.nextFloat() * maxSize );
+    }
+
+}
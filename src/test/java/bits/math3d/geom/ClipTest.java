@@ -270,6 +270,67 @@ public class ClipTest {
     }
 
 
+    @Test public void testFloatPolyLineMatchesPolyLine() {
+        java.util.Random rand = new java.util.Random( 12 );
+        PolyLine outA = new PolyLine( 2 );
+        PolyLine outB = new PolyLine( 2 );
+        PolyLine work = new PolyLine( 2 );
+        FloatPolyLine fOutA = new FloatPolyLine( 2 );
+        FloatPolyLine fOutB = new FloatPolyLine( 2 );
+        FloatPolyLine fWork = new FloatPolyLine( 2 );
+
+        for( int trial = 0; trial < 500; trial++ ) {
+            // Small integer grid, so that verts often land exactly on planes.
+            int n = 3 + rand.nextInt( 4 );
+            Vec3[] v = new Vec3[n];
+            float[] f = new float[n * 3 + 3];
+            for( int i = 0; i < n; i++ ) {
+                v[i] = new Vec3( rand.nextInt( 5 ), rand.nextInt( 5 ), rand.nextInt( 5 ) );
+                f[i * 3 + 3] = v[i].x;
+                f[i * 3 + 4] = v[i].y;
+                f[i * 3 + 5] = v[i].z;
+            }
+
+            Vec4 plane;
+            if( rand.nextBoolean() ) {
+                plane = new Vec4();
+                plane.el( rand.nextInt( 3 ), rand.nextBoolean() ? 1 : -1 );
+                plane.w = -rand.nextInt( 5 );
+            } else {
+                plane = new Vec4( rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f, rand.nextFloat() * 2f );
+            }
+
+            assertEquals( Clip.clipPlanarWithPlane( v, 0, n, plane, outA ),
+                          Clip.clipPlanarWithPlane( f, 1, n, plane, fOutA ) );
+            assertPolyLinesEqual( outA, fOutA );
+
+            assertEquals( Clip.splitPlanarWithPlane( v, 0, n, plane, outA, outB ),
+                          Clip.splitPlanarWithPlane( f, 1, n, plane, fOutA, fOutB ) );
+            assertPolyLinesEqual( outA, fOutA );
+            assertPolyLinesEqual( outB, fOutB );
+
+            Box3 box = new Box3( rand.nextInt( 3 ), rand.nextInt( 3 ), rand.nextInt( 3 ), 0, 0, 0 );
+            box.x1 = box.x0 + 1 + rand.nextInt( 3 );
+            box.y1 = box.y0 + 1 + rand.nextInt( 3 );
+            box.z1 = box.z0 + 1 + rand.nextInt( 3 );
+            boolean hit = Clip.clipPlanarWithBox( v, 0, n, box, work, outA );
+            assertEquals( hit, Clip.clipPlanarWithBox( f, 1, n, box, fWork, fOutA ) );
+            if( hit ) {
+                assertPolyLinesEqual( outA, fOutA );
+            }
+        }
+    }
+
+
+    private static void assertPolyLinesEqual( PolyLine a, FloatPolyLine b ) {
+        assertEquals( a.mSize, b.mSize );
+        Vec3 v = new Vec3();
+        for( int i = 0; i < a.mSize; i++ ) {
+            assertEquals( a.mVerts[i], b.get( i, v ) );
+        }
+    }
+
+
     private static void rotate( Vec3[] v, int len ) {
         if( len == 0 ) {
             return;
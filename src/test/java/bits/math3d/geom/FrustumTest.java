@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author Philip DeCamp
+ */
+public class FrustumTest {
+
+    @Test
+    public void testContains() {
+        Random rand = new Random( 16 );
+        Mat4 viewProj = viewProj();
+        Frustum f = new Frustum( viewProj );
+
+        Vec4 clip = new Vec4();
+        for( int i = 0; i < 10000; i++ ) {
+            Vec4 p = new Vec4( rand.nextFloat() * 40f - 20f, rand.nextFloat() * 40f - 20f, rand.nextFloat() * 40f - 20f, 1f );
+            Mat.mult( viewProj, p, clip );
+            boolean expect = clip.x >= -clip.w && clip.x <= clip.w &&
+                             clip.y >= -clip.w && clip.y <= clip.w &&
+                             clip.z >= -clip.w && clip.z <= clip.w;
+            // Skip points too near planes to decide reliably.
+            float margin = 1e-3f * Math.abs( clip.w );
+            if( Math.abs( Math.abs( clip.x ) - clip.w ) < margin ||
+                Math.abs( Math.abs( clip.y ) - clip.w ) < margin ||
+                Math.abs( Math.abs( clip.z ) - clip.w ) < margin )
+            {
+                continue;
+            }
+            assertEquals( expect, f.contains( p.x, p.y, p.z ) );
+        }
+    }
+
+    @Test
+    public void testCull() {
+        Random rand = new Random( 17 );
+        Frustum f = new Frustum( viewProj() );
+
+        int n = 3000;
+        Box3[] boxes = new Box3[n];
+        Sphere[] spheres = new Sphere[n];
+        for( int i = 0; i < n; i++ ) {
+            float x = rand.nextFloat() * 40f - 20f;
+            float y = rand.nextFloat() * 40f - 20f;
+            float z = rand.nextFloat() * 40f - 20f;
+            float s = rand.nextFloat() * 3f;
+            boxes[i]   = new Box3( x, y, z, x + s, y + s, z + s );
+            spheres[i] = new Sphere( x, y, z, s );
+        }
+
+        int[] out = new int[n];
+        int[] cached = new int[n];
+        byte[] cache = new byte[n];
+        int count = f.cull( boxes, 0, n, Frustum.ALL, null, out, 0 );
+        assertTrue( count > 0 && count < n );
+
+        // Cache only changes order of tests.
+        for( int pass = 0; pass < 2; pass++ ) {
+            assertEquals( count, f.cull( boxes, 0, n, Frustum.ALL, cache, cached, 0 ) );
+            assertArrayEquals( out, cached );
+        }
+
+        for( int i = 0; i < n; i++ ) {
+            Box3 b = boxes[i];
+            boolean outside = false;
+            int straddle = 0;
+            for( int p = 0; p < 6; p++ ) {
+                int neg = 0;
+                for( int c = 0; c < 8; c++ ) {
+                    float x = ( c & 1 ) == 0 ? b.x0 : b.x1;
+                    float y = ( c & 2 ) == 0 ? b.y0 : b.y1;
+                    float z = ( c & 4 ) == 0 ? b.z0 : b.z1;
+                    Vec4 pl = f.mPlanes[p];
+                    if( pl.x * x + pl.y * y + pl.z * z + pl.w < 0 ) {
+                        neg++;
+                    }
+                }
+                outside |= neg == 8;
+                if( neg > 0 && neg < 8 ) {
+                    straddle |= 1 << p;
+                }
+            }
+            if( outside ) {
+                assertEquals( Frustum.OUTSIDE, out[i] );
+            } else {
+                assertEquals( straddle, out[i] );
+                // Testing remaining planes yields same result.
+                assertEquals( straddle, f.test( b, straddle ) );
+            }
+        }
+
+        count = f.cull( spheres, 0, n, Frustum.ALL, cache, out, 0 );
+        for( int i = 0; i < n; i++ ) {
+            Sphere s = spheres[i];
+            boolean outside = false;
+            for( Vec4 pl : f.mPlanes ) {
+                outside |= pl.x * s.x() + pl.y * s.y() + pl.z * s.z() + pl.w < -s.rad();
+            }
+            assertEquals( outside, out[i] == Frustum.OUTSIDE );
+        }
+    }
+
+
+    private static Mat4 viewProj() {
+        Mat4 proj = new Mat4();
+        Mat.getFrustum( -1f, 1.5f, -0.8f, 1f, 1f, 30f, proj );
+        Mat4 view = new Mat4();
+        Mat.getRotation( 0.7f, 0.3f, 1f, -0.2f, view );
+        Mat4 trans = new Mat4();
+        Mat.getTranslation( 2f, -1f, -5f, trans );
+        Mat4 viewProj = new Mat4();
+        Mat.mult( view, trans, view );
+        Mat.mult( proj, view, viewProj );
+        return viewProj;
+    }
+
+}
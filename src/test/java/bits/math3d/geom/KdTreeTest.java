@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author Philip DeCamp
+ */
+public class KdTreeTest {
+
+    @Test
+    public void testVec3() {
+        Random rand = new Random( 11 );
+        List<Vec3> points = new ArrayList<Vec3>();
+        for( int i = 0; i < 5000; i++ ) {
+            points.add( new Vec3( rand.nextFloat(), rand.nextFloat(), rand.nextFloat() ) );
+        }
+        // Duplicates and coplanar points.
+        for( int i = 0; i < 500; i++ ) {
+            points.add( new Vec3( points.get( i ) ) );
+            points.add( new Vec3( 0.5f, rand.nextFloat(), rand.nextFloat() ) );
+        }
+
+        KdTree<Vec3> tree = new KdTree<Vec3>( VecView.VEC3, points );
+        assertEquals( points.size(), tree.size() );
+        assertEquals( 3, tree.dim() );
+
+        for( int i = 0; i < 200; i++ ) {
+            Vec3 q = new Vec3( rand.nextFloat() * 1.2f - 0.1f, rand.nextFloat(), rand.nextFloat() );
+            checkQueries( rand, VecView.VEC3, tree, points, q );
+        }
+    }
+
+    @Test
+    public void testFloatArray2() {
+        Random rand = new Random( 12 );
+        VecView<float[]> view = new VecView.FloatArrayView( 2 );
+        List<float[]> points = new ArrayList<float[]>();
+        for( int i = 0; i < 3000; i++ ) {
+            points.add( new float[]{ rand.nextInt( 50 ), rand.nextInt( 50 ) } );
+        }
+        KdTree<float[]> tree = new KdTree<float[]>( view, points );
+        for( int i = 0; i < 200; i++ ) {
+            float[] q = { rand.nextFloat() * 50f, rand.nextFloat() * 50f };
+            checkQueries( rand, view, tree, points, q );
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        KdTree<Vec3> tree = new KdTree<Vec3>( VecView.VEC3, new ArrayList<Vec3>() );
+        assertNull( tree.nearest( new Vec3() ) );
+        assertEquals( 0, tree.nearest( new Vec3(), 5, new ArrayList<Vec3>() ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testDim() {
+        new KdTree<double[]>( new VecView.DoubleArrayView( 5 ), new ArrayList<double[]>() );
+    }
+
+
+    private static <T> void checkQueries( Random rand, VecView<T> view, KdTree<T> tree, List<T> points, T q ) {
+        // Sort brute force by distance.
+        final int dim = view.dim();
+        double[] dists = new double[points.size()];
+        for( int i = 0; i < dists.length; i++ ) {
+            dists[i] = distSq( view, points.get( i ), q );
+        }
+        double[] sorted = dists.clone();
+        Arrays.sort( sorted );
+
+        T near = tree.nearest( q );
+        assertEquals( sorted[0], distSq( view, near, q ), 0.0 );
+
+        int k = 1 + rand.nextInt( 20 );
+        List<T> knn = new ArrayList<T>();
+        assertEquals( k, tree.nearest( q, k, knn ) );
+        assertEquals( k, knn.size() );
+        for( int i = 0; i < k; i++ ) {
+            assertEquals( sorted[i], distSq( view, knn.get( i ), q ), 0.0 );
+        }
+
+        double rad = rand.nextDouble() * 0.1 * ( dim == 2 ? 50 : 1 );
+        List<T> found = new ArrayList<T>();
+        int n = tree.radius( q, rad, found );
+        assertEquals( found.size(), n );
+        Set<T> expect = Collections.newSetFromMap( new IdentityHashMap<T,Boolean>() );
+        for( int i = 0; i < dists.length; i++ ) {
+            if( dists[i] <= rad * rad ) {
+                expect.add( points.get( i ) );
+            }
+        }
+        assertEquals( expect.size(), n );
+        assertTrue( expect.containsAll( found ) );
+
+        double[] min = new double[dim];
+        double[] max = new double[dim];
+        for( int d = 0; d < dim; d++ ) {
+            min[d] = view.get( q, d ) - rad;
+            max[d] = view.get( q, d ) + rad;
+        }
+        found.clear();
+        n = tree.range( min, max, found );
+        expect.clear();
+        for( T p : points ) {
+            boolean in = true;
+            for( int d = 0; d < dim; d++ ) {
+                in &= view.get( p, d ) >= min[d] && view.get( p, d ) <= max[d];
+            }
+            if( in ) {
+                expect.add( p );
+            }
+        }
+        assertEquals( expect.size(), n );
+        assertTrue( expect.containsAll( found ) );
+    }
+
+
+    private static <T> double distSq( VecView<T> view, T a, T b ) {
+        double sum = 0.0;
+        for( int d = 0; d < view.dim(); d++ ) {
+            double v = view.get( a, d ) - view.get( b, d );
+            sum += v * v;
+        }
+        return sum;
+    }
+
+}
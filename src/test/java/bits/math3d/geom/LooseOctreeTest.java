@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author Philip DeCamp
+ */
+public class LooseOctreeTest {
+
+    @Test
+    public void testDynamic() {
+        Random rand = new Random( 13 );
+        LooseOctree<Integer> tree = new LooseOctree<Integer>( new Box3( 0, 0, 0, 100, 100, 100 ), 6 );
+        Map<Integer,Box3> live = new HashMap<Integer,Box3>();
+
+        for( int i = 0; i < 2000; i++ ) {
+            Box3 b = randBox( rand );
+            live.put( tree.insert( i, b ), b );
+        }
+
+        for( int step = 0; step < 20; step++ ) {
+            List<Integer> handles = new ArrayList<Integer>( live.keySet() );
+            for( int h : handles ) {
+                int op = rand.nextInt( 10 );
+                if( op == 0 ) {
+                    tree.remove( h );
+                    live.remove( h );
+                } else if( op < 8 ) {
+                    // Small move, usually within node.
+                    Box3 b = live.get( h );
+                    float dx = rand.nextFloat() - 0.5f;
+                    float dy = rand.nextFloat() - 0.5f;
+                    float dz = rand.nextFloat() - 0.5f;
+                    Box.translate( b, dx, dy, dz, b );
+                    tree.update( h, b );
+                } else {
+                    Box3 b = randBox( rand );
+                    live.put( h, b );
+                    tree.update( h, b );
+                }
+            }
+            for( int i = 0; i < 100; i++ ) {
+                Box3 b = randBox( rand );
+                live.put( tree.insert( -1, b ), b );
+            }
+            assertEquals( live.size(), tree.size() );
+            checkQueries( rand, tree, live );
+        }
+
+        tree.clear();
+        assertEquals( 0, tree.size() );
+        assertEquals( 1, tree.nodeCount() );
+    }
+
+    @Test
+    public void testRelease() {
+        LooseOctree<String> tree = new LooseOctree<String>( new Box3( 0, 0, 0, 1, 1, 1 ), 8 );
+        int h = tree.insert( "a", new Box3( 0.1f, 0.1f, 0.1f, 0.1001f, 0.1001f, 0.1001f ) );
+        int nodes = tree.nodeCount();
+        assertTrue( nodes > 1 );
+        assertEquals( "a", tree.item( h ) );
+        tree.remove( h );
+        // Freed nodes are reused.
+        tree.insert( "b", new Box3( 0.9f, 0.9f, 0.9f, 0.9001f, 0.9001f, 0.9001f ) );
+        assertEquals( nodes, tree.nodeCount() );
+    }
+
+
+    private static void checkQueries( Random rand, LooseOctree<Integer> tree, Map<Integer,Box3> live ) {
+        final Set<Integer> found = new HashSet<Integer>();
+        LooseOctree.Visitor<Integer> collect = new LooseOctree.Visitor<Integer>() {
+            public boolean visit( Integer item, int handle ) {
+                assertTrue( found.add( handle ) );
+                return true;
+            }
+        };
+
+        for( int i = 0; i < 50; i++ ) {
+            Box3 q = randBox( rand );
+            Box.inflate( q, 10, 10, 10, q );
+            found.clear();
+            tree.visitBox( q, collect );
+            Set<Integer> expect = new HashSet<Integer>();
+            for( Map.Entry<Integer,Box3> e : live.entrySet() ) {
+                Box3 b = e.getValue();
+                if( q.x1 >= b.x0 && q.y1 >= b.y0 && q.z1 >= b.z0 && q.x0 <= b.x1 && q.y0 <= b.y1 && q.z0 <= b.z1 ) {
+                    expect.add( e.getKey() );
+                }
+            }
+            assertEquals( expect, found );
+
+            float x = rand.nextFloat() * 120f - 10f;
+            float y = rand.nextFloat() * 120f - 10f;
+            float z = rand.nextFloat() * 120f - 10f;
+            float r = rand.nextFloat() * 15f;
+            found.clear();
+            tree.visitSphere( x, y, z, r, collect );
+            expect.clear();
+            for( Map.Entry<Integer,Box3> e : live.entrySet() ) {
+                Box3 b = e.getValue();
+                float dx = Math.max( 0, Math.max( b.x0 - x, x - b.x1 ) );
+                float dy = Math.max( 0, Math.max( b.y0 - y, y - b.y1 ) );
+                float dz = Math.max( 0, Math.max( b.z0 - z, z - b.z1 ) );
+                if( dx * dx + dy * dy + dz * dz <= r * r ) {
+                    expect.add( e.getKey() );
+                }
+            }
+            assertEquals( expect, found );
+
+            Vec4[] planes = new Vec4[4];
+            for( int p = 0; p < planes.length; p++ ) {
+                Vec3 n = new Vec3( rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f );
+                Vec.normalize( n );
+                planes[p] = new Vec4( n.x, n.y, n.z, -Vec.dot( n, new Vec3( x, y, z ) ) + 30f );
+            }
+            found.clear();
+            tree.visitPlanes( planes, collect );
+            expect.clear();
+            for( Map.Entry<Integer,Box3> e : live.entrySet() ) {
+                if( !outside( planes, e.getValue() ) ) {
+                    expect.add( e.getKey() );
+                }
+            }
+            assertEquals( expect, found );
+        }
+    }
+
+
+    private static boolean outside( Vec4[] planes, Box3 b ) {
+        for( Vec4 p : planes ) {
+            float far = p.w + p.x * ( p.x >= 0 ? b.x1 : b.x0 )
+                            + p.y * ( p.y >= 0 ? b.y1 : b.y0 )
+                            + p.z * ( p.z >= 0 ? b.z1 : b.z0 );
+            if( far < 0 ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static Box3 randBox( Random rand ) {
+        // Some objects fall outside world.
+        float x = rand.nextFloat() * 110f - 5f;
+        float y = rand.nextFloat() * 110f - 5f;
+        float z = rand.nextFloat() * 110f - 5f;
+        float s = rand.nextInt( 8 ) == 0 ? rand.nextFloat() * 30f : rand.nextFloat() * 3f;
+        return new Box3( x, y, z, x + s, y + s * rand.nextFloat(), z + s );
+    }
+
+}
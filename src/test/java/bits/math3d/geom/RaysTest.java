@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author Philip DeCamp
+ */
+public class RaysTest {
+
+    @Test
+    public void testBox() {
+        Random rand = new Random( 18 );
+        Box3 box = new Box3( -1, -2, -0.5f, 2, 1, 0.5f );
+        RayPacket packet = new RayPacket( 8 );
+        Ray3[] rays = new Ray3[8];
+        float[] outT = new float[8];
+
+        for( int iter = 0; iter < 2000; iter++ ) {
+            for( int i = 0; i < 8; i++ ) {
+                rays[i] = randRay( rand );
+                packet.set( i, rays[i], 10f );
+            }
+            int mask = Rays.intersectBox( packet, box, outT );
+            for( int i = 0; i < 8; i++ ) {
+                Ray3 r = rays[i];
+                float t = Rays.intersectBox( r, box, 0f, 10f );
+                assertEquals( t, outT[i], 1e-5f );
+                assertEquals( t != Float.POSITIVE_INFINITY, ( mask & ( 1 << i ) ) != 0 );
+
+                // Brute force: march along ray.
+                boolean hit = false;
+                Vec3 p = new Vec3();
+                for( float s = 0; s <= 10f && !hit; s += 0.01f ) {
+                    r.point( s, p );
+                    hit = p.x >= box.x0 && p.x <= box.x1 && p.y >= box.y0 && p.y <= box.y1 && p.z >= box.z0 && p.z <= box.z1;
+                }
+                if( hit ) {
+                    assertTrue( t <= 10f );
+                }
+                if( t <= 10f ) {
+                    r.point( t, p );
+                    assertTrue( p.x >= box.x0 - 1e-4f && p.x <= box.x1 + 1e-4f );
+                    assertTrue( p.y >= box.y0 - 1e-4f && p.y <= box.y1 + 1e-4f );
+                    assertTrue( p.z >= box.z0 - 1e-4f && p.z <= box.z1 + 1e-4f );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGrazingBox() {
+        // Axis-aligned rays with origins on box planes hit the box.
+        Box3 box = new Box3( 0, 0, 0, 1, 1, 1 );
+        float[][] rays = {
+            { -1, 0, 0,  1,  0,  0 },
+            {  2, 1, 1, -1,  0,  0 },
+            {  1, -1, 0.5f,  0, 1, 0 },
+            {  0, 0, 5,  -0f, -0f, -1 },
+            {  1, 1, 5,   0f, -0f, -1 }
+        };
+        float[] expect = { 1, 1, 1, 4, 4 };
+        RayPacket packet = new RayPacket( rays.length );
+        float[] outT = new float[rays.length];
+        for( int i = 0; i < rays.length; i++ ) {
+            float[] r = rays[i];
+            Ray3 ray = new Ray3( r[0], r[1], r[2], r[3], r[4], r[5] );
+            assertEquals( "ray " + i, expect[i], Rays.intersectBox( ray, box, 0f, 10f ), 0f );
+            packet.set( i, ray, 10f );
+        }
+        assertEquals( ( 1 << rays.length ) - 1, Rays.intersectBox( packet, box, outT ) );
+        for( int i = 0; i < rays.length; i++ ) {
+            assertEquals( "lane " + i, expect[i], outT[i], 0f );
+        }
+
+        // Parallel to a plane but outside box still misses.
+        Ray3 miss = new Ray3( -1, 1.5f, 0.5f, 1, 0, 0 );
+        assertEquals( Float.POSITIVE_INFINITY, Rays.intersectBox( miss, box, 0f, 10f ), 0f );
+    }
+
+
+    @Test
+    public void testSphere() {
+        Random rand = new Random( 19 );
+        Sphere s = new Sphere( 0.5f, -0.2f, 0.1f, 1.3f );
+        RayPacket packet = new RayPacket( 4 );
+        Ray3[] rays = new Ray3[4];
+        float[] outT = new float[4];
+        Vec3 p = new Vec3();
+
+        for( int iter = 0; iter < 2000; iter++ ) {
+            for( int i = 0; i < 4; i++ ) {
+                rays[i] = randRay( rand );
+                packet.set( i, rays[i], 10f );
+            }
+            int mask = Rays.intersectSphere( packet, s, outT );
+            for( int i = 0; i < 4; i++ ) {
+                float t = Rays.intersectSphere( rays[i], s, 0f, 10f );
+                assertEquals( t, outT[i], 1e-4f );
+                assertEquals( t != Float.POSITIVE_INFINITY, ( mask & ( 1 << i ) ) != 0 );
+                if( t != Float.POSITIVE_INFINITY ) {
+                    rays[i].point( t, p );
+                    assertEquals( s.rad(), Vec.dist( p, s.mPos ), 1e-4f );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTriangle() {
+        Random rand = new Random( 20 );
+        RayPacket packet = new RayPacket( 8 );
+        float[] outT = new float[8];
+        Vec2 uv = new Vec2();
+
+        for( int iter = 0; iter < 500; iter++ ) {
+            Vec3 v0 = randVec( rand, 3f );
+            Vec3 v1 = randVec( rand, 3f );
+            Vec3 v2 = randVec( rand, 3f );
+            float[] verts = { v0.x, v0.y, v0.z, v1.x, v1.y, v1.z, v2.x, v2.y, v2.z };
+
+            Ray3[] rays = new Ray3[8];
+            for( int i = 0; i < 8; i++ ) {
+                // Aim half of rays at point inside triangle, other half outside.
+                float u = rand.nextFloat();
+                float v = rand.nextFloat();
+                if( i % 2 == 0 && u + v > 1f ) {
+                    u = 1f - u;
+                    v = 1f - v;
+                } else if( i % 2 == 1 ) {
+                    u += 1.05f;
+                }
+                Vec3 target = new Vec3( v0.x + u * ( v1.x - v0.x ) + v * ( v2.x - v0.x ),
+                                        v0.y + u * ( v1.y - v0.y ) + v * ( v2.y - v0.y ),
+                                        v0.z + u * ( v1.z - v0.z ) + v * ( v2.z - v0.z ) );
+                Vec3 origin = randVec( rand, 10f );
+                rays[i] = new Ray3();
+                rays[i].setThrough( origin, target );
+                packet.set( i, rays[i], 2f );
+
+                float t = Rays.intersectTriangle( rays[i], v0, v1, v2, 0f, 2f, uv );
+                assertEquals( t, Rays.intersectTriangle( rays[i], verts, 0, 1, 2, 0f, 2f, null ), 0f );
+                if( i % 2 == 0 ) {
+                    // Skip nearly edge-on triangles.
+                    if( t == Float.POSITIVE_INFINITY ) {
+                        continue;
+                    }
+                    assertEquals( 1f, t, 1e-3f );
+                    assertEquals( u, uv.x, 1e-2f );
+                    assertEquals( v, uv.y, 1e-2f );
+                } else {
+                    assertEquals( Float.POSITIVE_INFINITY, t, 0f );
+                }
+            }
+
+            int mask = Rays.intersectTriangle( packet, v0, v1, v2, outT );
+            for( int i = 0; i < 8; i++ ) {
+                float t = Rays.intersectTriangle( rays[i], v0, v1, v2, 0f, 2f, null );
+                assertEquals( t, outT[i], 1e-5f );
+                assertEquals( t != Float.POSITIVE_INFINITY, ( mask & ( 1 << i ) ) != 0 );
+            }
+        }
+    }
+
+
+    private static Ray3 randRay( Random rand ) {
+        Vec3 o = randVec( rand, 4f );
+        Vec3 d = randVec( rand, 1f );
+        return new Ray3( o, d );
+    }
+
+
+    private static Vec3 randVec( Random rand, float scale ) {
+        return new Vec3( ( rand.nextFloat() * 2f - 1f ) * scale,
+                         ( rand.nextFloat() * 2f - 1f ) * scale,
+                         ( rand.nextFloat() * 2f - 1f ) * scale );
+    }
+
+}
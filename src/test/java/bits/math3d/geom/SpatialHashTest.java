@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015. Massachusetts Institute of Technology
+ * Released under the BSD 2-Clause License
+ * http://opensource.org/licenses/BSD-2-Clause
+ */
+
+package bits.math3d.geom;
+
+import bits.math3d.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author Philip DeCamp
+ */
+public class SpatialHashTest {
+
+    @Test
+    public void testRadius3() {
+        Random rand = new Random( 14 );
+        float[] pts = new float[3 * 5000];
+        for( int i = 0; i < pts.length; i++ ) {
+            pts[i] = rand.nextFloat() * 40f - 20f;
+        }
+        SpatialHash grid = new SpatialHash( 3, 1.5f );
+        grid.rebuild( pts, 0, pts.length / 3 );
+        assertEquals( 5000, grid.size() );
+
+        for( int i = 0; i < 300; i++ ) {
+            float x = rand.nextFloat() * 44f - 22f;
+            float y = rand.nextFloat() * 44f - 22f;
+            float z = rand.nextFloat() * 44f - 22f;
+            float r = rand.nextFloat() * 4f;
+            checkRadius( grid, pts, 3, x, y, z, r );
+        }
+
+        // Rebuild with fewer points reuses grid.
+        grid.rebuild( pts, 300, 100 );
+        assertEquals( 100, grid.size() );
+        float[] sub = Arrays.copyOfRange( pts, 300, 600 );
+        for( int i = 0; i < 100; i++ ) {
+            checkRadius( grid, sub, 3, rand.nextFloat() * 40f - 20f, rand.nextFloat() * 40f - 20f, rand.nextFloat() * 40f - 20f, 6f );
+        }
+    }
+
+    @Test
+    public void testRadius2() {
+        Random rand = new Random( 15 );
+        List<Vec2> items = new ArrayList<Vec2>();
+        float[] pts = new float[2 * 3000];
+        for( int i = 0; i < 3000; i++ ) {
+            Vec2 v = new Vec2( rand.nextFloat() * 10f, rand.nextFloat() * 10f );
+            items.add( v );
+            pts[i*2  ] = v.x;
+            pts[i*2+1] = v.y;
+        }
+        SpatialHash grid = new SpatialHash( 2, 0.25f );
+        List<float[]> arrs = new ArrayList<float[]>();
+        for( Vec2 v : items ) {
+            arrs.add( new float[]{ v.x, v.y } );
+        }
+        SpatialHash viewGrid = new SpatialHash( 2, 0.25f );
+        viewGrid.rebuild( new VecView.FloatArrayView( 2 ), arrs );
+        assertEquals( 3000, viewGrid.size() );
+
+        grid.rebuild( pts, 0, 3000 );
+        for( int i = 0; i < 300; i++ ) {
+            float x = rand.nextFloat() * 10f;
+            float y = rand.nextFloat() * 10f;
+            float r = rand.nextFloat() * 0.6f;
+            checkRadius( grid, pts, 2, x, y, 0f, r );
+            checkRadius( viewGrid, pts, 2, x, y, 0f, r );
+        }
+
+        final int[] count = { 0 };
+        grid.visitRadius( items.get( 0 ), 0f, new SpatialHash.Visitor() {
+            public boolean visit( int index, float distSq ) {
+                count[0]++;
+                assertEquals( 0f, distSq, 0f );
+                return true;
+            }
+        } );
+        assertTrue( count[0] >= 1 );
+    }
+
+
+    private static void checkRadius( SpatialHash grid, float[] pts, int dim, float x, float y, float z, float r ) {
+        Set<Integer> expect = new HashSet<Integer>();
+        for( int i = 0; i < pts.length / dim; i++ ) {
+            float dx = pts[i*dim  ] - x;
+            float dy = pts[i*dim+1] - y;
+            float dz = dim == 3 ? pts[i*dim+2] - z : 0f;
+            if( dx * dx + dy * dy + dz * dz <= r * r ) {
+                expect.add( i );
+            }
+        }
+
+        int[] out = new int[expect.size() + 1];
+        int n = grid.radius( x, y, z, r, out, 1 );
+        assertEquals( expect.size(), n );
+        Set<Integer> found = new HashSet<Integer>();
+        for( int i = 0; i < n; i++ ) {
+            found.add( out[i + 1] );
+        }
+        assertEquals( expect, found );
+
+        final Set<Integer> visited = new HashSet<Integer>();
+        grid.visitRadius( x, y, z, r, new SpatialHash.Visitor() {
+            public boolean visit( int index, float distSq ) {
+                assertTrue( visited.add( index ) );
+                return true;
+            }
+        } );
+        assertEquals( expect, visited );
+    }
+
+}